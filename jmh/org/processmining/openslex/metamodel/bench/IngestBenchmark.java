@@ -0,0 +1,80 @@
+package org.processmining.openslex.metamodel.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.processmining.openslex.metamodel.SLEXMMActivity;
+import org.processmining.openslex.metamodel.SLEXMMActivityInstance;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventAttribute;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+
+/**
+ * Throughput of creating events with their attribute values, each
+ * iteration on a new metamodel and in a single transaction.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class IngestBenchmark {
+
+	@Param({"0", "5"})
+	public int attributesPerEvent;
+
+	private File dir;
+	private SLEXMMStorageMetaModel storage;
+	private SLEXMMActivityInstance ai;
+	private SLEXMMEventAttribute[] attributes;
+	private int order;
+
+	@Setup(Level.Iteration)
+	public void setup() throws Exception {
+		dir = Files.createTempDirectory("slexmm-bench").toFile();
+		storage = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "ingest.slexmm");
+		storage.setAutoCommit(false);
+		SLEXMMActivity act = storage.createActivity("activity");
+		ai = storage.createActivityInstance(act);
+		attributes = new SLEXMMEventAttribute[attributesPerEvent];
+		for (int i = 0; i < attributesPerEvent; i++) {
+			attributes[i] = storage.createEventAttribute("attribute"+i);
+		}
+		order = 0;
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() {
+		storage.commit();
+		storage.disconnect();
+		SLEXMMBenchmarkData.deleteDir(dir);
+	}
+
+	/**
+	 * Creates an event and its attribute values.
+	 *
+	 * @return the event
+	 */
+	@Benchmark
+	public SLEXMMEvent createEvent() {
+		SLEXMMEvent ev = storage.createEvent(order, ai.getId(), "complete", "resource", order);
+		for (SLEXMMEventAttribute at: attributes) {
+			storage.createEventAttributeValue(at.getId(), ev.getId(), "value"+(order % 100), "STRING");
+		}
+		order++;
+		return ev;
+	}
+
+}
@@ -0,0 +1,81 @@
+package org.processmining.openslex.metamodel.bench;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventResultSet;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+
+/**
+ * Time to iterate all the events of a log, alone with getNext() and with
+ * their attribute values with getNextWithAttributes().
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class IterationBenchmark {
+
+	@Param({"1000"})
+	public int cases;
+
+	@Param({"10"})
+	public int eventsPerCase;
+
+	@Param({"5"})
+	public int attributesPerEvent;
+
+	@Param({"42"})
+	public long seed;
+
+	private SLEXMMBenchmarkData data;
+	private SLEXMMStorageMetaModel storage;
+	private int[] logIds;
+	private int[] eventIds;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		data = new SLEXMMBenchmarkData(cases, eventsPerCase, attributesPerEvent, seed);
+		storage = data.getStorage();
+		logIds = new int[] { data.getLogId() };
+		eventIds = data.getEventIds();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		data.delete();
+	}
+
+	@Benchmark
+	public void getNext(Blackhole bh) {
+		SLEXMMEventResultSet erset = storage.getEventsForLogs(logIds);
+		SLEXMMEvent ev = null;
+		while ((ev = erset.getNext()) != null) {
+			bh.consume(ev);
+		}
+		erset.close();
+	}
+
+	@Benchmark
+	public void getNextWithAttributes(Blackhole bh) {
+		SLEXMMEventResultSet erset = storage.getEventsAndAttributeValues(eventIds);
+		SLEXMMEvent ev = null;
+		while ((ev = erset.getNextWithAttributes()) != null) {
+			bh.consume(ev.getAttributeValues());
+		}
+		erset.close();
+	}
+
+}
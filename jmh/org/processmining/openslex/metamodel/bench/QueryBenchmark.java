@@ -0,0 +1,73 @@
+package org.processmining.openslex.metamodel.bench;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventResultSet;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+
+/**
+ * Latency of getEventsForCases for sets of ids of different sizes, from
+ * one id bound as a parameter to many loaded in an id set.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryBenchmark {
+
+	@Param({"1000"})
+	public int cases;
+
+	@Param({"10"})
+	public int eventsPerCase;
+
+	@Param({"5"})
+	public int attributesPerEvent;
+
+	@Param({"1", "10", "100", "1000"})
+	public int idSetSize;
+
+	@Param({"42"})
+	public long seed;
+
+	private SLEXMMBenchmarkData data;
+	private SLEXMMStorageMetaModel storage;
+	private int[] ids;
+
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		data = new SLEXMMBenchmarkData(cases, eventsPerCase, attributesPerEvent, seed);
+		storage = data.getStorage();
+		ids = Arrays.copyOf(data.getCaseIds(), Math.min(idSetSize, cases));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		data.delete();
+	}
+
+	@Benchmark
+	public void getEventsForCases(Blackhole bh) {
+		SLEXMMEventResultSet erset = storage.getEventsForCases(ids);
+		SLEXMMEvent ev = null;
+		while ((ev = erset.getNext()) != null) {
+			bh.consume(ev);
+		}
+		erset.close();
+	}
+
+}
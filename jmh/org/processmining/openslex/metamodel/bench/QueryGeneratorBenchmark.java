@@ -0,0 +1,70 @@
+package org.processmining.openslex.metamodel.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.processmining.openslex.metamodel.querygen.SLEXMMEdge;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryPlan;
+import org.processmining.openslex.metamodel.querygen.SLEXMMStorageQueryGenerator;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Cost of planning the joins between two tables and of rendering the
+ * select query, from a new generator and from one with its plans cached.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class QueryGeneratorBenchmark {
+
+	@Param({"T_EVENT:T_CASE", "T_RELATIONSHIP:T_LOG", "T_DATAMODEL:T_PROCESS"})
+	public String tables;
+
+	@Param({"10"})
+	public int ids;
+
+	private SLEXMMStorageQueryGenerator cached;
+	private SLEXMMTables origin;
+	private SLEXMMTables destination;
+	private int[] idsArray;
+
+	@Setup
+	public void setup() {
+		String[] pair = tables.split(":");
+		origin = SLEXMMTables.valueOf(pair[0]);
+		destination = SLEXMMTables.valueOf(pair[1]);
+		idsArray = new int[ids];
+		for (int i = 0; i < ids; i++) {
+			idsArray[i] = i + 1;
+		}
+		cached = new SLEXMMStorageQueryGenerator();
+		cached.getPlan(origin, destination);
+	}
+
+	@Benchmark
+	public List<List<SLEXMMEdge>> getPathsUncached() {
+		return new SLEXMMStorageQueryGenerator().getPaths(origin, destination);
+	}
+
+	@Benchmark
+	public List<List<SLEXMMEdge>> getPaths() {
+		return cached.getPaths(origin, destination);
+	}
+
+	@Benchmark
+	public String getSelectQuery() {
+		SLEXMMQueryPlan plan = cached.getPlan(origin, destination);
+		return cached.getSelectQuery(plan, idsArray);
+	}
+
+}
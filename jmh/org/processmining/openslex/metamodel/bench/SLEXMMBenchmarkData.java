@@ -0,0 +1,127 @@
+package org.processmining.openslex.metamodel.bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+
+import org.processmining.openslex.metamodel.SLEXMMActivity;
+import org.processmining.openslex.metamodel.SLEXMMActivityInstance;
+import org.processmining.openslex.metamodel.SLEXMMCase;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventAttribute;
+import org.processmining.openslex.metamodel.SLEXMMLog;
+import org.processmining.openslex.metamodel.SLEXMMProcess;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+
+/**
+ * Synthetic metamodel for the benchmarks: a log of cases, each with a
+ * number of activity instances of one event, and a number of attribute
+ * values per event. The same seed and sizes always give the same metamodel.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMBenchmarkData {
+
+	/** The Constant ACTIVITIES. */
+	public static final int ACTIVITIES = 20;
+
+	/** The Constant ATTRIBUTE_VALUES, the distinct values of each attribute. */
+	public static final int ATTRIBUTE_VALUES = 100;
+
+	private final File dir;
+	private final SLEXMMStorageMetaModel storage;
+	private final int[] caseIds;
+	private final int[] eventIds;
+	private final int logId;
+
+	/**
+	 * Generates a metamodel in a new temporary directory.
+	 *
+	 * @param cases the number of cases
+	 * @param eventsPerCase the number of events of each case
+	 * @param attributesPerEvent the number of attribute values of each event
+	 * @param seed the seed of the random choices
+	 * @throws Exception the exception
+	 */
+	public SLEXMMBenchmarkData(int cases, int eventsPerCase, int attributesPerEvent, long seed) throws Exception {
+		this.dir = Files.createTempDirectory("slexmm-bench").toFile();
+		this.storage = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "bench.slexmm");
+		this.caseIds = new int[cases];
+		this.eventIds = new int[cases * eventsPerCase];
+
+		Random random = new Random(seed);
+		storage.setAutoCommit(false);
+
+		SLEXMMProcess proc = storage.createProcess("process");
+		SLEXMMLog log = storage.createLog(proc.getId(), "log");
+		this.logId = log.getId();
+
+		SLEXMMActivity[] activities = new SLEXMMActivity[ACTIVITIES];
+		for (int i = 0; i < ACTIVITIES; i++) {
+			activities[i] = storage.createActivity("activity"+i);
+		}
+		SLEXMMEventAttribute[] attributes = new SLEXMMEventAttribute[attributesPerEvent];
+		for (int i = 0; i < attributesPerEvent; i++) {
+			attributes[i] = storage.createEventAttribute("attribute"+i);
+		}
+
+		int order = 0;
+		long timestamp = 0;
+		for (int c = 0; c < cases; c++) {
+			SLEXMMCase cs = storage.createCase("case"+c);
+			caseIds[c] = cs.getId();
+			storage.addCaseToLog(logId, cs.getId());
+			for (int e = 0; e < eventsPerCase; e++) {
+				SLEXMMActivityInstance ai = storage.createActivityInstance(activities[random.nextInt(ACTIVITIES)]);
+				storage.addActivityInstanceToCase(cs, ai);
+				timestamp += random.nextInt(3600000);
+				SLEXMMEvent ev = storage.createEvent(order, ai.getId(), "complete",
+						"resource"+random.nextInt(10), timestamp);
+				eventIds[order++] = ev.getId();
+				for (SLEXMMEventAttribute at: attributes) {
+					storage.createEventAttributeValue(at.getId(), ev.getId(),
+							"value"+random.nextInt(ATTRIBUTE_VALUES), "STRING");
+				}
+			}
+		}
+
+		storage.commit();
+		storage.setAutoCommit(true);
+	}
+
+	public SLEXMMStorageMetaModel getStorage() {
+		return storage;
+	}
+
+	public int getLogId() {
+		return logId;
+	}
+
+	public int[] getCaseIds() {
+		return caseIds;
+	}
+
+	public int[] getEventIds() {
+		return eventIds;
+	}
+
+	/**
+	 * Disconnects the storage and deletes its files.
+	 */
+	public void delete() {
+		storage.disconnect();
+		deleteDir(dir);
+	}
+
+	static void deleteDir(File dir) {
+		File[] files = dir.listFiles();
+		if (files != null) {
+			for (File f: files) {
+				f.delete();
+			}
+		}
+		dir.delete();
+	}
+
+}
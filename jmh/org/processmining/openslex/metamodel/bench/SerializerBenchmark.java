@@ -0,0 +1,78 @@
+package org.processmining.openslex.metamodel.bench;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.processmining.openslex.metamodel.AbstractAttDBElement;
+import org.processmining.openslex.metamodel.AbstractDBElement;
+import org.processmining.openslex.metamodel.AbstractDBElementWithValue;
+import org.processmining.openslex.metamodel.AttsMapSerializer;
+import org.processmining.openslex.metamodel.DBElementSerializer;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventResultSet;
+
+/**
+ * Round trips of the serializers of the disk cache: an event alone, and
+ * the map of attribute values of an event.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SerializerBenchmark {
+
+	@Param({"5", "50"})
+	public int attributesPerEvent;
+
+	private SLEXMMBenchmarkData data;
+	private DBElementSerializer elementSerializer;
+	private AttsMapSerializer attsSerializer;
+	private SLEXMMEvent event;
+	private HashMap<AbstractAttDBElement, AbstractDBElementWithValue> atts;
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@Setup(Level.Trial)
+	public void setup() throws Exception {
+		data = new SLEXMMBenchmarkData(1, 1, attributesPerEvent, 42);
+		elementSerializer = new DBElementSerializer(data.getStorage());
+		attsSerializer = new AttsMapSerializer(data.getStorage());
+		SLEXMMEventResultSet erset = data.getStorage().getEventsAndAttributeValues(data.getEventIds());
+		event = erset.getNextWithAttributes();
+		erset.close();
+		atts = (HashMap) event.getAttributeValues();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		data.delete();
+	}
+
+	@Benchmark
+	public AbstractDBElement element() throws IOException {
+		DataOutput2 out = new DataOutput2();
+		elementSerializer.serialize(out, event);
+		return elementSerializer.deserialize(new DataInput2.ByteArray(out.copyBytes()), out.pos);
+	}
+
+	@Benchmark
+	public HashMap<AbstractAttDBElement, AbstractDBElementWithValue> attributeValues() throws IOException {
+		DataOutput2 out = new DataOutput2();
+		attsSerializer.serialize(out, atts);
+		return attsSerializer.deserialize(new DataInput2.ByteArray(out.copyBytes()), out.pos);
+	}
+
+}
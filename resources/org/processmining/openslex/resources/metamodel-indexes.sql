@@ -0,0 +1,71 @@
+--
+-- Secondary indexes of the metamodel schema.
+-- One index per foreign key used as a join edge by the query generator.
+-- They are not part of metamodel.sql so bulk loads do not maintain them,
+-- and are built once the data is in place.
+--
+
+-- Table: class
+CREATE INDEX IF NOT EXISTS idx_class_datamodel_id ON class (datamodel_id);
+
+-- Table: object
+CREATE INDEX IF NOT EXISTS idx_object_class_id ON object (class_id);
+
+-- Table: object_version
+CREATE INDEX IF NOT EXISTS idx_object_version_object_id ON object_version (object_id, start_timestamp, end_timestamp);
+
+-- Table: attribute_name
+CREATE INDEX IF NOT EXISTS idx_attribute_name_class_id ON attribute_name (class_id);
+
+-- Table: attribute_value
+CREATE INDEX IF NOT EXISTS idx_attribute_value_object_version_id ON attribute_value (object_version_id, attribute_name_id);
+CREATE INDEX IF NOT EXISTS idx_attribute_value_attribute_name_id ON attribute_value (attribute_name_id);
+
+-- Table: relationship
+CREATE INDEX IF NOT EXISTS idx_relationship_source ON relationship (source);
+CREATE INDEX IF NOT EXISTS idx_relationship_target ON relationship (target);
+
+-- Table: relation
+CREATE INDEX IF NOT EXISTS idx_relation_source_object_version_id ON relation (source_object_version_id);
+CREATE INDEX IF NOT EXISTS idx_relation_target_object_version_id ON relation (target_object_version_id);
+CREATE INDEX IF NOT EXISTS idx_relation_relationship_id ON relation (relationship_id);
+
+-- Table: activity_instance
+CREATE INDEX IF NOT EXISTS idx_activity_instance_activity_id ON activity_instance (activity_id);
+
+-- Table: activity_to_process
+CREATE INDEX IF NOT EXISTS idx_activity_to_process_activity_id ON activity_to_process (activity_id, process_id);
+
+-- Table: activity_instance_to_case
+CREATE INDEX IF NOT EXISTS idx_activity_instance_to_case_activity_instance_id ON activity_instance_to_case (activity_instance_id, case_id);
+
+-- Table: event
+CREATE INDEX IF NOT EXISTS idx_event_activity_instance_id ON event (activity_instance_id);
+
+-- Table: event_to_object_version
+CREATE INDEX IF NOT EXISTS idx_event_to_object_version_object_version_id ON event_to_object_version (object_version_id, event_id);
+
+-- Table: event_attribute_value
+CREATE INDEX IF NOT EXISTS idx_event_attribute_value_event_id ON event_attribute_value (event_id, event_attribute_name_id);
+CREATE INDEX IF NOT EXISTS idx_event_attribute_value_event_attribute_name_id ON event_attribute_value (event_attribute_name_id);
+
+-- Table: log
+CREATE INDEX IF NOT EXISTS idx_log_process_id ON log (process_id);
+
+-- Table: case_to_log
+CREATE INDEX IF NOT EXISTS idx_case_to_log_log_id ON case_to_log (log_id, case_id);
+
+-- Table: case_attribute_value
+CREATE INDEX IF NOT EXISTS idx_case_attribute_value_case_id ON case_attribute_value (case_id, case_attribute_name_id);
+CREATE INDEX IF NOT EXISTS idx_case_attribute_value_case_attribute_name_id ON case_attribute_value (case_attribute_name_id);
+
+-- Table: log_attribute_value
+CREATE INDEX IF NOT EXISTS idx_log_attribute_value_log_id ON log_attribute_value (log_id, log_attribute_name_id);
+CREATE INDEX IF NOT EXISTS idx_log_attribute_value_log_attribute_name_id ON log_attribute_value (log_attribute_name_id);
+
+-- Table: classifier
+CREATE INDEX IF NOT EXISTS idx_classifier_log_id ON classifier (log_id);
+
+-- Table: classifier_attributes
+CREATE INDEX IF NOT EXISTS idx_classifier_attributes_classifier_id ON classifier_attributes (classifier_id);
+CREATE INDEX IF NOT EXISTS idx_classifier_attributes_event_attribute_name_id ON classifier_attributes (event_attribute_name_id);
@@ -32,6 +32,8 @@ public abstract class AbstractDBElement implements Serializable {
 	private int id = -1;
 	
 	private String code = null;
+	
+	private Integer hash = null;
 //	
 //	public <T extends SLEXMMAbstractDatabaseObject> T getFromCache(String uniqueId) {
 //		return this.storage.getFromCache(uniqueId);
@@ -133,7 +135,30 @@ public abstract class AbstractDBElement implements Serializable {
 	
 	@Override
 	public int hashCode() {
-		return getUniqueId().hashCode();
+		if (this.hash == null) {
+			this.hash = Long.hashCode(getKey());
+		}
+		return hash;
+	}
+	
+	/**
+	 * Computes the key of an element in the caches of the storage: the id
+	 * of its class in the high 32 bits and its id in the low ones.
+	 *
+	 * @param clazzId the id of the class of the element
+	 * @param id the id of the element
+	 * @return the key
+	 */
+	public static long computeKey(int clazzId, int id) {
+		return ((long) clazzId << 32) | (id & 0xffffffffL);
+	}
+	
+	public static long computeKey(Class<?> c, int id) {
+		return computeKey(getClazzIdForClass(c), id);
+	}
+	
+	public long getKey() {
+		return computeKey(getClazzId(), getId());
 	}
 	
 	public static String computeUniqueId(Class<?> c, int id) {
@@ -242,10 +267,16 @@ public abstract class AbstractDBElement implements Serializable {
 	 */
 	public boolean commit() {
 		
+		SLEXMMWriteBehindQueue writeBehind = getStorage().getWriteBehindQueue();
+		if (writeBehind != null && writeBehind.isRunning()) {
+			return writeBehind.commit(this);
+		}
+		
 		if (!isInserted()) {
 			if (insert(this)) {
 				setInserted(true);
 				setDirty(false);
+				getStorage().getMetrics().rowsInserted(1);
 			}
 		} else if (isDirty()){
 			if (update(this)) {
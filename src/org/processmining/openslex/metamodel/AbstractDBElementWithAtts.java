@@ -35,6 +35,11 @@ public abstract class AbstractDBElementWithAtts<AT extends AbstractAttDBElement,
 		
 		if (map == null) {
 			map = this.queryAttributeValues();
+			mapNames = null;
+		}
+		
+		// The caches of values and names evict on their own
+		if (mapNames == null) {
 			mapNames = new HashMap<>();
 			for (AT at : map.keySet()) {
 				mapNames.put(at.getName(), at);
@@ -5,16 +5,41 @@ package org.processmining.openslex.metamodel;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.processmining.openslex.metamodel.metrics.SLEXMMQueryMetrics;
 
 // TODO: Auto-generated Javadoc
 /**
  * The Class SLEXMMAbstractResultSetObject.
  *
+ * A result set holds a statement until it is closed, which happens when
+ * getNext() runs out of rows or when close() is called. It can be iterated
+ * in a for-each loop or consumed as a stream; both pull rows lazily. A
+ * consumer that stops early must close it, for instance opening it in a
+ * try-with-resources block, so the statement is released at once:
+ *
+ * <pre>
+ * try (Stream&lt;SLEXMMEvent&gt; events = storage.getEventsForCases(ids).stream()) {
+ *     events.filter(...).limit(10).forEach(...);
+ * }
+ * </pre>
+ *
+ * The iterator, the spliterator and the stream share the rows of the
+ * result set, so only one of them should be used.
+ *
  * @author <a href="mailto:e.gonzalez@tue.nl">Eduardo Gonzalez Lopez de Murillas</a>
  * @param <T>
  * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
  */
-public abstract class AbstractRSetElement<T> {
+public abstract class AbstractRSetElement<T> implements AutoCloseable, Iterable<T> {
 	
 	/** The rset. */
 	protected ResultSet rset = null;
@@ -24,6 +49,12 @@ public abstract class AbstractRSetElement<T> {
 	
 	protected Class<T> typeClass = null;
 	
+	/** The metrics of the query of the result set, or null if not measured. */
+	private SLEXMMQueryMetrics queryMetrics = null;
+	
+	/** The rows read so far. */
+	private long rows = 0;
+	
 	protected Class<T> getTypeClass() {
 		return typeClass;
 	}
@@ -40,19 +71,121 @@ public abstract class AbstractRSetElement<T> {
 		this.storage = storage;
 		this.rset = rset;
 		this.typeClass = type;
+		if (rset != null && storage != null) {
+			storage.getMetrics().resultSetOpened();
+		}
+	}
+	
+	/**
+	 * Sets the metrics of the query, to count the rows read when closed.
+	 *
+	 * @param queryMetrics the query metrics
+	 */
+	void setQueryMetrics(SLEXMMQueryMetrics queryMetrics) {
+		this.queryMetrics = queryMetrics;
+	}
+	
+	/**
+	 * Moves to the next row of the result set, counting it.
+	 *
+	 * @return true, if there is a next row
+	 * @throws SQLException the SQL exception
+	 */
+	protected boolean next() throws SQLException {
+		if (rset.next()) {
+			rows++;
+			return true;
+		}
+		return false;
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Iterable#iterator()
+	 */
+	@Override
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			
+			private T next = null;
+			
+			@Override
+			public boolean hasNext() {
+				if (next == null) {
+					next = getNext();
+				}
+				return next != null;
+			}
+			
+			@Override
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T e = next;
+				next = null;
+				return e;
+			}
+		};
+	}
+	
+	/* (non-Javadoc)
+	 * @see java.lang.Iterable#spliterator()
+	 */
+	@Override
+	public Spliterator<T> spliterator() {
+		// Pulls each row on demand, without the look-ahead of the iterator
+		return new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+			
+			@Override
+			public boolean tryAdvance(Consumer<? super T> action) {
+				T e = getNext();
+				if (e == null) {
+					return false;
+				}
+				action.accept(e);
+				return true;
+			}
+		};
+	}
+	
+	/**
+	 * Gets a sequential stream of the elements. Closing the stream closes
+	 * the result set.
+	 *
+	 * @return the stream
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false).onClose(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		});
 	}
 	
 	/**
 	 * Close.
 	 */
+	@Override
 	public void close() {
 		if (rset != null) {
 			try {
-				storage.closeStatement(rset.getStatement());
+				// The statement may be reused once closed, so the result set goes first
+				Statement statement = rset.getStatement();
 				storage.closeResultSet(rset);
+				storage.closeStatement(statement);
 			} catch (Exception e) {
 				//e.printStackTrace();
 			}
+			rset = null;
+			if (storage != null) {
+				storage.getMetrics().resultSetClosed();
+			}
+			if (queryMetrics != null) {
+				queryMetrics.recordRows(rows);
+				queryMetrics = null;
+			}
 		}
 	}
 	
@@ -81,6 +214,9 @@ public abstract class AbstractRSetElement<T> {
 	 */
 	@Override
 	protected void finalize() throws Throwable {
+		if (rset != null && storage != null) {
+			storage.getMetrics().resultSetLeaked();
+		}
 		close();
 		super.finalize();
 	}
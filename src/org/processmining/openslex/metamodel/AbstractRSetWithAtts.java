@@ -52,7 +52,7 @@ extends AbstractRSetElement<T> {
 	public T getNext() {
 		T ev = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				setOriginId();
 				int id = this.rset.getInt("id");
 				ev = storage.getFromCache(this.getTypeClass(), id);
@@ -91,8 +91,8 @@ extends AbstractRSetElement<T> {
 		try {
 			boolean resNext = true;
 			
-			if (doNext) {
-				resNext = this.rset.next();
+			if (doNext && this.rset != null) {
+				resNext = next();
 			}
 			
 			if (this.rset != null && resNext) {
@@ -145,7 +145,7 @@ extends AbstractRSetElement<T> {
 									attributeValues.put(at, atv);
 									attributeNames.put(at.getName(), at);
 								}
-								if (!this.rset.next()) {
+								if (!next()) {
 									stop = true;
 									doNext = true;
 								}
@@ -168,7 +168,7 @@ extends AbstractRSetElement<T> {
 					while (!stop) {
 						int idaux = this.rset.getInt("id");
 						if (idaux == id) {
-							if (!this.rset.next()) {
+							if (!next()) {
 								stop = true;
 								doNext = true;
 							}
@@ -32,7 +32,7 @@ public class SLEXMMActivityInstanceResultSet extends AbstractRSetElement<SLEXMMA
 	public SLEXMMActivityInstance getNext() {
 		SLEXMMActivityInstance ai = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				int activityId = this.rset.getInt("activity_id");
@@ -32,7 +32,7 @@ public class SLEXMMAttributeResultSet extends AbstractRSetElement<SLEXMMAttribut
 	public SLEXMMAttribute getNext() {
 		SLEXMMAttribute ai = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				int classId = this.rset.getInt("class_id");
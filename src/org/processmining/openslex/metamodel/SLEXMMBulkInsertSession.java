@@ -0,0 +1,551 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Bulk ingestion session for a metamodel storage.
+ *
+ * Keeps one prepared statement per table, queues rows with addBatch and
+ * executes them in chunks of a configurable size. Each chunk is written in
+ * a single transaction. Elements added to the session get their ids from
+ * the id allocator of their table as soon as they are added, so children
+ * can refer to their parents before anything has been flushed.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMBulkInsertSession implements AutoCloseable {
+
+	/** The Constant DEFAULT_BATCH_SIZE. */
+	public static final int DEFAULT_BATCH_SIZE = 10000;
+
+	private static final String METAMODEL_ALIAS = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+
+	/** The storage. */
+	private SLEXMMStorageMetaModelImpl storage;
+
+	/** The batch size. */
+	private int batchSize;
+
+	/** The number of rows waiting to be flushed. */
+	private int pendingRows = 0;
+
+	/** The prepared statements, one per table. */
+	private EnumMap<SLEXMMTables, PreparedStatement> statements = new EnumMap<>(SLEXMMTables.class);
+
+	/** The elements waiting to be flushed. */
+	private List<AbstractDBElement> pendingElements = new ArrayList<>();
+
+	/** The deferred, true if the caller commits the flushed rows. */
+	private boolean deferred = false;
+
+	/** The rows flushed in the transaction of the caller, not committed yet. */
+	private int uncommittedRows = 0;
+
+	/** The closed. */
+	private boolean closed = false;
+
+	/**
+	 * Instantiates a new bulk insert session.
+	 *
+	 * @param storage the storage
+	 * @param batchSize the number of rows per chunk
+	 */
+	protected SLEXMMBulkInsertSession(SLEXMMStorageMetaModelImpl storage, int batchSize) {
+		this.storage = storage;
+		this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+	}
+
+	/**
+	 * Gets the batch size.
+	 *
+	 * @return the batch size
+	 */
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	/**
+	 * Gets the number of rows waiting to be flushed.
+	 *
+	 * @return the pending rows
+	 */
+	public int getPendingRows() {
+		return this.pendingRows;
+	}
+
+	/**
+	 * Sets whether the flushes run in a transaction owned by the caller. A
+	 * deferred session executes its batches on the storage connection without
+	 * committing, and the caller reports the outcome of its transaction with
+	 * committed() or discard().
+	 *
+	 * @param deferred true to leave the commit to the caller
+	 */
+	void setDeferred(boolean deferred) {
+		this.deferred = deferred;
+	}
+
+	/**
+	 * Counts the rows flushed since the last commit of the caller, once that
+	 * commit succeeded.
+	 */
+	void committed() {
+		storage.getMetrics().rowsInserted(uncommittedRows);
+		uncommittedRows = 0;
+	}
+
+	/**
+	 * Drops the rows not committed yet, pending or flushed in a transaction
+	 * of the caller that was rolled back.
+	 */
+	void discard() {
+		for (PreparedStatement statement: statements.values()) {
+			try {
+				statement.clearBatch();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		pendingElements.clear();
+		pendingRows = 0;
+		uncommittedRows = 0;
+	}
+
+	private static String getInsertQuery(SLEXMMTables table) {
+		switch (table) {
+		case T_EVENT:
+			return "INSERT INTO "+METAMODEL_ALIAS+".event (id,activity_instance_id,ordering,lifecycle,timestamp,resource) VALUES (?,?,?,?,?,?)";
+		case T_EVENT_ATTRIBUTE_VALUE:
+			return "INSERT INTO "+METAMODEL_ALIAS+".event_attribute_value (id,event_id,event_attribute_name_id,value,type) VALUES (?,?,?,?,?)";
+		case T_ATTRIBUTE_VALUE:
+			return "INSERT INTO "+METAMODEL_ALIAS+".attribute_value (id,object_version_id,attribute_name_id,value,type) VALUES (?,?,?,?,?)";
+		case T_OBJECT:
+			return "INSERT INTO "+METAMODEL_ALIAS+".object (id,class_id) VALUES (?,?)";
+		case T_OBJECT_VERSION:
+			return "INSERT INTO "+METAMODEL_ALIAS+".object_version (id,object_id,start_timestamp,end_timestamp) VALUES (?,?,?,?)";
+		case T_RELATION:
+			return "INSERT INTO "+METAMODEL_ALIAS+".relation (id,source_object_version_id,target_object_version_id,relationship_id,start_timestamp,end_timestamp) VALUES (?,?,?,?,?,?)";
+		case T_ACTIVITY_INSTANCE:
+			return "INSERT INTO "+METAMODEL_ALIAS+".activity_instance (id,activity_id) VALUES (?,?)";
+		case T_CASE:
+			return "INSERT INTO "+METAMODEL_ALIAS+".'case' (id,name) VALUES (?,?)";
+		case T_CASE_TO_LOG:
+			return "INSERT INTO "+METAMODEL_ALIAS+".case_to_log (case_id,log_id) VALUES (?,?)";
+		case T_ACTIVITY_INSTANCE_TO_CASE:
+			return "INSERT INTO "+METAMODEL_ALIAS+".activity_instance_to_case (case_id,activity_instance_id) VALUES (?,?)";
+		case T_EVENT_TO_OBJECT_VERSION:
+			return "INSERT INTO "+METAMODEL_ALIAS+".event_to_object_version (event_id,object_version_id,label) VALUES (?,?,?)";
+		default:
+			return null;
+		}
+	}
+
+	private PreparedStatement getStatement(SLEXMMTables table) throws Exception {
+		if (closed) {
+			throw new IllegalStateException("Bulk insert session already closed");
+		}
+		PreparedStatement statement = statements.get(table);
+		if (statement == null) {
+			statement = storage.getConnection().prepareStatement(getInsertQuery(table));
+			statements.put(table, statement);
+		}
+		return statement;
+	}
+
+	private PreparedStatement getStatement(SLEXMMTables table, AbstractDBElement e) throws Exception {
+		PreparedStatement statement = getStatement(table);
+		if (!storage.assignId(e, table)) {
+			throw new IllegalStateException("No id could be allocated for table "+table);
+		}
+		statement.setInt(1, e.getId());
+		return statement;
+	}
+
+	private boolean addRow(AbstractDBElement e, PreparedStatement statement) throws Exception {
+		statement.addBatch();
+		if (e != null) {
+			pendingElements.add(e);
+		}
+		pendingRows++;
+		if (pendingRows >= batchSize) {
+			return flush();
+		}
+		return true;
+	}
+
+	/**
+	 * Adds an event to the session.
+	 *
+	 * @param ev the event
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMEvent ev) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_EVENT, ev);
+			statement.setInt(2, ev.getActivityInstanceId());
+			statement.setInt(3, ev.getOrder());
+			statement.setString(4, ev.getLifecycle());
+			statement.setLong(5, ev.getTimestamp());
+			statement.setString(6, ev.getResource());
+			return addRow(ev, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an event attribute value to the session.
+	 *
+	 * @param av the event attribute value
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMEventAttributeValue av) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_EVENT_ATTRIBUTE_VALUE, av);
+			statement.setInt(2, av.getEventId());
+			statement.setInt(3, av.getAttributeId());
+			statement.setString(4, av.getValue());
+			statement.setString(5, av.getType());
+			return addRow(av, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an attribute value to the session.
+	 *
+	 * @param av the attribute value
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMAttributeValue av) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_ATTRIBUTE_VALUE, av);
+			statement.setInt(2, av.getObjectVersionId());
+			statement.setInt(3, av.getAttributeId());
+			statement.setString(4, av.getValue());
+			statement.setString(5, av.getType());
+			return addRow(av, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an object to the session.
+	 *
+	 * @param obj the object
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMObject obj) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_OBJECT, obj);
+			statement.setInt(2, obj.getClassId());
+			return addRow(obj, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an object version to the session.
+	 *
+	 * @param objv the object version
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMObjectVersion objv) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_OBJECT_VERSION, objv);
+			statement.setInt(2, objv.getObjectId());
+			statement.setLong(3, objv.getStartTimestamp());
+			statement.setLong(4, objv.getEndTimestamp());
+			return addRow(objv, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds a relation to the session.
+	 *
+	 * @param rt the relation
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMRelation rt) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_RELATION, rt);
+			statement.setInt(2, rt.getSourceObjectVersionId());
+			statement.setInt(3, rt.getTargetObjectVersionId());
+			statement.setInt(4, rt.getRelationshipId());
+			statement.setLong(5, rt.getStartTimestamp());
+			statement.setLong(6, rt.getEndTimestamp());
+			return addRow(rt, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an activity instance to the session.
+	 *
+	 * @param ai the activity instance
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMActivityInstance ai) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_ACTIVITY_INSTANCE, ai);
+			statement.setInt(2, ai.getActivityId());
+			return addRow(ai, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds a case to the session.
+	 *
+	 * @param c the case
+	 * @return true, if successful
+	 */
+	public boolean add(SLEXMMCase c) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_CASE, c);
+			statement.setString(2, c.getName());
+			return addRow(c, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the table an element is written to by the session.
+	 *
+	 * @param e the element
+	 * @return the table, or null if the session does not support the element
+	 */
+	static SLEXMMTables getTable(AbstractDBElement e) {
+		if (e instanceof SLEXMMEvent) {
+			return SLEXMMTables.T_EVENT;
+		} else if (e instanceof SLEXMMEventAttributeValue) {
+			return SLEXMMTables.T_EVENT_ATTRIBUTE_VALUE;
+		} else if (e instanceof SLEXMMAttributeValue) {
+			return SLEXMMTables.T_ATTRIBUTE_VALUE;
+		} else if (e instanceof SLEXMMObject) {
+			return SLEXMMTables.T_OBJECT;
+		} else if (e instanceof SLEXMMObjectVersion) {
+			return SLEXMMTables.T_OBJECT_VERSION;
+		} else if (e instanceof SLEXMMRelation) {
+			return SLEXMMTables.T_RELATION;
+		} else if (e instanceof SLEXMMActivityInstance) {
+			return SLEXMMTables.T_ACTIVITY_INSTANCE;
+		} else if (e instanceof SLEXMMCase) {
+			return SLEXMMTables.T_CASE;
+		}
+		return null;
+	}
+
+	/**
+	 * Adds an element of any of the supported types to the session.
+	 *
+	 * @param e the element
+	 * @return true, if successful
+	 */
+	boolean addElement(AbstractDBElement e) {
+		if (e instanceof SLEXMMEvent) {
+			return add((SLEXMMEvent) e);
+		} else if (e instanceof SLEXMMEventAttributeValue) {
+			return add((SLEXMMEventAttributeValue) e);
+		} else if (e instanceof SLEXMMAttributeValue) {
+			return add((SLEXMMAttributeValue) e);
+		} else if (e instanceof SLEXMMObject) {
+			return add((SLEXMMObject) e);
+		} else if (e instanceof SLEXMMObjectVersion) {
+			return add((SLEXMMObjectVersion) e);
+		} else if (e instanceof SLEXMMRelation) {
+			return add((SLEXMMRelation) e);
+		} else if (e instanceof SLEXMMActivityInstance) {
+			return add((SLEXMMActivityInstance) e);
+		} else if (e instanceof SLEXMMCase) {
+			return add((SLEXMMCase) e);
+		}
+		return false;
+	}
+
+	/**
+	 * Adds a case to log link to the session.
+	 *
+	 * @param logId the log id
+	 * @param caseId the case id
+	 * @return true, if successful
+	 */
+	public boolean addCaseToLog(int logId, int caseId) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_CASE_TO_LOG);
+			statement.setInt(1, caseId);
+			statement.setInt(2, logId);
+			return addRow(null, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an activity instance to case link to the session.
+	 *
+	 * @param caseId the case id
+	 * @param activityInstanceId the activity instance id
+	 * @return true, if successful
+	 */
+	public boolean addActivityInstanceToCase(int caseId, int activityInstanceId) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_ACTIVITY_INSTANCE_TO_CASE);
+			statement.setInt(1, caseId);
+			statement.setInt(2, activityInstanceId);
+			return addRow(null, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Adds an event to object version link to the session.
+	 *
+	 * @param objectVersionId the object version id
+	 * @param eventId the event id
+	 * @param label the label
+	 * @return true, if successful
+	 */
+	public boolean addEventToObjectVersion(int objectVersionId, int eventId, String label) {
+		try {
+			PreparedStatement statement = getStatement(SLEXMMTables.T_EVENT_TO_OBJECT_VERSION);
+			statement.setInt(1, eventId);
+			statement.setInt(2, objectVersionId);
+			statement.setString(3, label);
+			return addRow(null, statement);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Executes all the pending batches in a single transaction, or in the
+	 * transaction of the caller if the session is deferred.
+	 *
+	 * @return true, if successful
+	 */
+	public boolean flush() {
+		if (pendingRows == 0) {
+			return true;
+		}
+
+		if (deferred) {
+			try {
+				for (PreparedStatement statement: statements.values()) {
+					statement.executeBatch();
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				discard();
+				return false;
+			}
+			uncommittedRows += pendingRows;
+			pendingElements.clear();
+			pendingRows = 0;
+			return true;
+		}
+
+		boolean result = false;
+
+		synchronized (storage) {
+			Connection connection = storage.getConnection();
+			boolean autoCommit = true;
+			try {
+				autoCommit = connection.getAutoCommit();
+				if (autoCommit) {
+					connection.setAutoCommit(false);
+				}
+				for (PreparedStatement statement: statements.values()) {
+					statement.executeBatch();
+				}
+				if (autoCommit) {
+					connection.commit();
+				}
+				for (AbstractDBElement e: pendingElements) {
+					// Elements already marked as inserted keep their dirty flag
+					if (!e.isInserted()) {
+						e.setInserted(true);
+						e.setDirty(false);
+					}
+				}
+				storage.getMetrics().rowsInserted(pendingRows);
+				result = true;
+			} catch (Exception e) {
+				e.printStackTrace();
+				try {
+					if (autoCommit) {
+						connection.rollback();
+					}
+					for (PreparedStatement statement: statements.values()) {
+						statement.clearBatch();
+					}
+				} catch (Exception e2) {
+					e2.printStackTrace();
+				}
+				result = false;
+			} finally {
+				pendingElements.clear();
+				pendingRows = 0;
+				try {
+					if (autoCommit) {
+						connection.setAutoCommit(true);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Flushes the pending rows and releases the prepared statements.
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		if (deferred) {
+			// What the caller did not commit is not written
+			discard();
+		} else {
+			flush();
+		}
+		for (PreparedStatement statement: statements.values()) {
+			storage.closeStatement(statement);
+		}
+		statements.clear();
+		closed = true;
+	}
+
+}
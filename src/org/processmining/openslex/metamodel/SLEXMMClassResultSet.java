@@ -32,7 +32,7 @@ public class SLEXMMClassResultSet extends AbstractRSetElement<SLEXMMClass> {
 	public SLEXMMClass getNext() {
 		SLEXMMClass cl = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				int dataModelId = this.rset.getInt("datamodel_id");
@@ -32,7 +32,7 @@ public class SLEXMMDataModelResultSet extends AbstractRSetElement<SLEXMMDataMode
 	public SLEXMMDataModel getNext() {
 		SLEXMMDataModel dm = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				String name = this.rset.getString("name");
 				int id = this.rset.getInt("id");
@@ -0,0 +1,194 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Client-side id allocator for one table of the metamodel.
+ *
+ * Ids are reserved in blocks by moving the AUTOINCREMENT counter of the
+ * table in sqlite_sequence forward, so rows inserted without an explicit
+ * id never collide with ids handed out by the allocator. Within a block,
+ * ids are handed out locally without touching the database. The
+ * allocator can be shared by several writer threads.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMIdAllocator {
+
+	/** The Constant DEFAULT_BLOCK_SIZE. */
+	public static final int DEFAULT_BLOCK_SIZE = 1000;
+
+	private static final String METAMODEL_ALIAS = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+
+	/** The storage. */
+	private SLEXMMStorageMetaModelImpl storage;
+
+	/** The table. */
+	private SLEXMMTables table;
+
+	/** The block size. */
+	private int blockSize;
+
+	/** The next id to hand out. */
+	private long next = 0;
+
+	/** The first id after the reserved block. */
+	private long limit = 0;
+
+	/**
+	 * Instantiates a new id allocator.
+	 *
+	 * @param storage the storage
+	 * @param table the table
+	 * @param blockSize the number of ids reserved at once
+	 */
+	protected SLEXMMIdAllocator(SLEXMMStorageMetaModelImpl storage, SLEXMMTables table, int blockSize) {
+		this.storage = storage;
+		this.table = table;
+		this.blockSize = blockSize > 0 ? blockSize : DEFAULT_BLOCK_SIZE;
+	}
+
+	/**
+	 * Gets the table.
+	 *
+	 * @return the table
+	 */
+	public SLEXMMTables getTable() {
+		return this.table;
+	}
+
+	/**
+	 * Gets the block size.
+	 *
+	 * @return the block size
+	 */
+	public synchronized int getBlockSize() {
+		return this.blockSize;
+	}
+
+	/**
+	 * Sets the block size used for the next reservations.
+	 *
+	 * @param blockSize the new block size
+	 */
+	public synchronized void setBlockSize(int blockSize) {
+		if (blockSize > 0) {
+			this.blockSize = blockSize;
+		}
+	}
+
+	/**
+	 * Gets the next id, reserving a new block if needed.
+	 *
+	 * @return the id, or -1 if no id could be reserved
+	 */
+	public synchronized int nextId() {
+		if (next >= limit) {
+			if (!reserve(blockSize)) {
+				return -1;
+			}
+		}
+		return (int) next++;
+	}
+
+	/**
+	 * Gets a range of consecutive ids.
+	 *
+	 * @param n the number of ids
+	 * @return the first id of the range, or -1 if the range could not be reserved
+	 */
+	public synchronized int nextIds(int n) {
+		if (limit - next < n) {
+			// The remaining ids of the current block are discarded
+			if (!reserve(Math.max(n, blockSize))) {
+				return -1;
+			}
+		}
+		int first = (int) next;
+		next += n;
+		return first;
+	}
+
+	private boolean reserve(int n) {
+		synchronized (storage) {
+			Connection connection = storage.getConnection();
+			PreparedStatement statement = null;
+			ResultSet rset = null;
+			boolean autoCommit = true;
+			try {
+				autoCommit = connection.getAutoCommit();
+				if (autoCommit) {
+					connection.setAutoCommit(false);
+				}
+
+				long seq = 0;
+				boolean seqExists = false;
+				statement = connection.prepareStatement("SELECT seq FROM "+METAMODEL_ALIAS+".sqlite_sequence WHERE name = ?");
+				statement.setString(1, table.toString());
+				rset = statement.executeQuery();
+				if (rset.next()) {
+					seq = rset.getLong(1);
+					seqExists = true;
+				}
+				storage.closeResultSet(rset);
+				storage.closeStatement(statement);
+
+				statement = connection.prepareStatement("SELECT IFNULL(MAX(id),0) FROM "+METAMODEL_ALIAS+".\""+table.toString()+"\"");
+				rset = statement.executeQuery();
+				long maxId = 0;
+				if (rset.next()) {
+					maxId = rset.getLong(1);
+				}
+				storage.closeResultSet(rset);
+				storage.closeStatement(statement);
+
+				long first = Math.max(Math.max(seq, maxId), limit - 1) + 1;
+				long last = first + n - 1;
+
+				if (seqExists) {
+					statement = connection.prepareStatement("UPDATE "+METAMODEL_ALIAS+".sqlite_sequence SET seq = ? WHERE name = ?");
+				} else {
+					statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS+".sqlite_sequence (seq,name) VALUES (?,?)");
+				}
+				statement.setLong(1, last);
+				statement.setString(2, table.toString());
+				statement.execute();
+
+				if (autoCommit) {
+					connection.commit();
+				}
+
+				this.next = first;
+				this.limit = last + 1;
+				return true;
+			} catch (Exception e) {
+				e.printStackTrace();
+				try {
+					if (autoCommit) {
+						connection.rollback();
+					}
+				} catch (Exception e2) {
+					e2.printStackTrace();
+				}
+				return false;
+			} finally {
+				storage.closeResultSet(rset);
+				storage.closeStatement(statement);
+				try {
+					if (autoCommit) {
+						connection.setAutoCommit(true);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+}
@@ -0,0 +1,147 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Session temp table holding the id sets that queries filter on.
+ *
+ * Large sets of ids are not inlined in the SQL text. They are loaded into
+ * a temp table of the connection that runs the query, under a set id, and
+ * the query joins against it. Ids are sent in chunks of a bounded size,
+ * as JSON arrays expanded by SQLite, so neither the memory used nor the
+ * number of calls to the driver grow with one parameter per id. The rows
+ * of a set are deleted when the statement of its query is closed.
+ *
+ * The table has no index: only the sets of the result sets open on the
+ * connection are in it, and maintaining an index costs more than the scan.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+class SLEXMMIdSetTable {
+
+	/** The Constant TABLE. */
+	static final String TABLE = "temp.slexmm_idset";
+
+	/** The Constant FILTER, the ids of the set bound to the first parameter. */
+	static final String FILTER = "SELECT id FROM "+TABLE+" WHERE set_id = ?1";
+
+	/** The Constant CHUNK_SIZE, ids per insert. */
+	static final int CHUNK_SIZE = 16384;
+
+	/** The Constant CREATE_TABLE. */
+	private static final String CREATE_TABLE = "CREATE TEMP TABLE IF NOT EXISTS slexmm_idset ("
+			+ " set_id INTEGER NOT NULL, id INTEGER NOT NULL)";
+
+	/** The Constant INSERT_CHUNK. */
+	private static final String INSERT_CHUNK = "INSERT INTO "+TABLE+" (set_id, id) SELECT ?1, value FROM json_each(?2)";
+
+	/** The Constant DELETE_SET. */
+	private static final String DELETE_SET = "DELETE FROM "+TABLE+" WHERE set_id = ?1";
+
+	/** The last set id. */
+	private static final AtomicInteger lastSetId = new AtomicInteger();
+
+	/**
+	 * Creates the temp table in a connection. Queries filtering on id sets
+	 * can only be compiled once it exists.
+	 *
+	 * @param conn the connection
+	 * @throws SQLException the SQL exception
+	 */
+	static void create(Connection conn) throws SQLException {
+		Statement statement = conn.createStatement();
+		try {
+			statement.execute(CREATE_TABLE);
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Loads a set of ids into the temp table of a connection.
+	 *
+	 * @param conn the connection the query will run on
+	 * @param cache the statement cache of the connection
+	 * @param ids the ids
+	 * @param changes the count of the rows inserted, added to as each chunk is, or null
+	 * @return the id of the set
+	 * @throws SQLException the SQL exception
+	 */
+	static int load(Connection conn, SLEXMMStatementCache cache, int[] ids, AtomicLong changes) throws SQLException {
+		int setId = lastSetId.incrementAndGet();
+		StringBuilder chunk = new StringBuilder(Math.min(ids.length, CHUNK_SIZE) * 8 + 2);
+
+		Statement statement = conn.createStatement();
+		PreparedStatement pstatement = null;
+		try {
+			// A savepoint makes all the chunks one transaction, within the current one if any
+			statement.execute("SAVEPOINT slexmm_idset");
+			try {
+				pstatement = cache.prepare(INSERT_CHUNK);
+				pstatement.setInt(1, setId);
+				for (int i = 0; i < ids.length; i += CHUNK_SIZE) {
+					int end = Math.min(ids.length, i + CHUNK_SIZE);
+					chunk.setLength(0);
+					chunk.append('[');
+					for (int j = i; j < end; j++) {
+						if (j > i) {
+							chunk.append(',');
+						}
+						chunk.append(ids[j]);
+					}
+					chunk.append(']');
+					pstatement.setString(2, chunk.toString());
+					int rows = pstatement.executeUpdate();
+					if (changes != null) {
+						changes.addAndGet(rows);
+					}
+				}
+			} catch (SQLException e) {
+				statement.execute("ROLLBACK TO slexmm_idset");
+				throw e;
+			} finally {
+				statement.execute("RELEASE slexmm_idset");
+			}
+		} finally {
+			if (pstatement != null) {
+				cache.release(pstatement);
+			}
+			statement.close();
+		}
+		return setId;
+	}
+
+	/**
+	 * Deletes a set of ids from the temp table of a connection.
+	 *
+	 * @param conn the connection
+	 * @param cache the statement cache of the connection
+	 * @param setId the id of the set
+	 * @param changes the count of the rows deleted, or null
+	 */
+	static void clear(Connection conn, SLEXMMStatementCache cache, int setId, AtomicLong changes) {
+		PreparedStatement pstatement = null;
+		try {
+			pstatement = cache.prepare(DELETE_SET);
+			pstatement.setInt(1, setId);
+			int rows = pstatement.executeUpdate();
+			if (changes != null) {
+				changes.addAndGet(rows);
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			if (pstatement != null) {
+				cache.release(pstatement);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMStorageQueryGenerator;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Index advisor for the metamodel storage.
+ *
+ * Runs EXPLAIN QUERY PLAN on the queries generated for the lookups between
+ * the main tables of the metamodel and reports the steps that still scan
+ * a whole table instead of searching an index.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMIndexAdvisor {
+
+	/** The tables whose elements are looked up by the storage. */
+	public static final SLEXMMTables[] ENTITY_TABLES = new SLEXMMTables[] {
+		SLEXMMTables.T_DATAMODEL,
+		SLEXMMTables.T_CLASS,
+		SLEXMMTables.T_ATTRIBUTE_NAME,
+		SLEXMMTables.T_RELATIONSHIP,
+		SLEXMMTables.T_OBJECT,
+		SLEXMMTables.T_OBJECT_VERSION,
+		SLEXMMTables.T_RELATION,
+		SLEXMMTables.T_EVENT,
+		SLEXMMTables.T_ACTIVITY_INSTANCE,
+		SLEXMMTables.T_ACTIVITY,
+		SLEXMMTables.T_CASE,
+		SLEXMMTables.T_LOG,
+		SLEXMMTables.T_PROCESS
+	};
+
+	/** The sample ids used to render the queries. */
+	private static final int[] SAMPLE_IDS = new int[] { 1, 2, 3 };
+
+	/** The storage. */
+	private SLEXMMStorageMetaModelImpl storage;
+
+	/**
+	 * Instantiates a new index advisor.
+	 *
+	 * @param storage the storage
+	 */
+	public SLEXMMIndexAdvisor(SLEXMMStorageMetaModelImpl storage) {
+		this.storage = storage;
+	}
+
+	/**
+	 * Gets the query the storage generates to get the elements of tableA
+	 * related to elements of tableB.
+	 *
+	 * @param tableA the table of the requested elements
+	 * @param tableB the table of the given elements
+	 * @return the query
+	 */
+	public String getQuery(SLEXMMTables tableA, SLEXMMTables tableB) {
+		SLEXMMStorageQueryGenerator qgen = storage.getQueryGenerator();
+		return qgen.getSelectQuery(qgen.getPlan(tableA, tableB), SAMPLE_IDS);
+	}
+
+	/**
+	 * Gets the query plan of a query.
+	 *
+	 * @param query the query
+	 * @return the details of the steps of the plan
+	 */
+	public List<String> explain(String query) {
+		List<String> plan = new ArrayList<>();
+		SLEXMMSQLResultSet rset = null;
+		try {
+			rset = storage.executeSQL("EXPLAIN QUERY PLAN "+query);
+			SLEXMMSQLResult r = null;
+			while ((r = rset.getNext()) != null) {
+				String[] values = r.getValues();
+				// The detail is always the last column
+				plan.add(values[values.length - 1]);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (rset != null) {
+				rset.close();
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * Gets the steps of the plan of a query that scan a whole table.
+	 *
+	 * @param query the query
+	 * @return the scan steps
+	 */
+	public List<String> getScans(String query) {
+		List<String> scans = new ArrayList<>();
+		for (String step: explain(query)) {
+			if (step != null && step.startsWith("SCAN")) {
+				scans.add(step);
+			}
+		}
+		return scans;
+	}
+
+	/**
+	 * Gets the steps that scan a whole table to get the elements of tableA
+	 * related to elements of tableB.
+	 *
+	 * @param tableA the table of the requested elements
+	 * @param tableB the table of the given elements
+	 * @return the scan steps
+	 */
+	public List<String> getScans(SLEXMMTables tableA, SLEXMMTables tableB) {
+		return getScans(getQuery(tableA, tableB));
+	}
+
+	/**
+	 * Analyzes the lookups between every pair of entity tables.
+	 *
+	 * @return the scan steps of every lookup that scans, keyed by "tableA <- tableB"
+	 */
+	public LinkedHashMap<String, List<String>> analyze() {
+		LinkedHashMap<String, List<String>> report = new LinkedHashMap<>();
+		for (SLEXMMTables tableA: ENTITY_TABLES) {
+			for (SLEXMMTables tableB: ENTITY_TABLES) {
+				if (tableA == tableB) {
+					continue;
+				}
+				List<String> scans = getScans(tableA, tableB);
+				if (!scans.isEmpty()) {
+					report.put(tableA+" <- "+tableB, scans);
+				}
+			}
+		}
+		return report;
+	}
+
+	/**
+	 * Gets a printable report of the lookups that scan.
+	 *
+	 * @return the report
+	 */
+	public String getReport() {
+		StringBuilder strbldr = new StringBuilder();
+		LinkedHashMap<String, List<String>> report = analyze();
+		if (report.isEmpty()) {
+			strbldr.append("No lookup scans a whole table");
+			strbldr.append(System.lineSeparator());
+		}
+		for (Entry<String, List<String>> entry: report.entrySet()) {
+			strbldr.append(entry.getKey());
+			strbldr.append(System.lineSeparator());
+			for (String step: entry.getValue()) {
+				strbldr.append("\t");
+				strbldr.append(step);
+				strbldr.append(System.lineSeparator());
+			}
+		}
+		return strbldr.toString();
+	}
+
+}
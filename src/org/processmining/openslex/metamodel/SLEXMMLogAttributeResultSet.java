@@ -32,7 +32,7 @@ public class SLEXMMLogAttributeResultSet extends AbstractRSetElement<SLEXMMLogAt
 	public SLEXMMLogAttribute getNext() {
 		SLEXMMLogAttribute ai = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				String name = this.rset.getString("name");
@@ -32,7 +32,7 @@ public class SLEXMMObjectResultSet extends AbstractRSetElement<SLEXMMObject> {
 	public SLEXMMObject getNext() {
 		SLEXMMObject ev = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				int classId = this.rset.getInt("class_id");
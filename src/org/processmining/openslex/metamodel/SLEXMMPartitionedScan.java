@@ -0,0 +1,256 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Scan of all the elements of a table split in ranges of ids, so each range
+ * can be read by its own worker on its own connection of the read pool.
+ * Without the read pool the ranges are read one after the other on the
+ * main connection.
+ *
+ * The elements come with their attribute values when the scan is created
+ * for them. The rows of the attributes of an element are ordered with it
+ * and a range never splits an element, so getNextWithAttributes() sees all
+ * of them on the same worker.
+ *
+ * The ranges can be opened one by one with openPartition(), or consumed by
+ * a parallel stream. A stream that is not consumed to the end must be
+ * closed to release the connections of the ranges it left open. The
+ * elements come out in no particular order across ranges. Every worker
+ * holds a connection of the read pool while it reads a range, and the
+ * queries it runs meanwhile go to the same connection.
+ *
+ * @param <T> the type of the elements
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMPartitionedScan<T> {
+
+	/** The Constant DEFAULT_PARTITIONS, enough ranges to balance the load among the processors. */
+	public static final int DEFAULT_PARTITIONS = 4 * Runtime.getRuntime().availableProcessors();
+
+	/**
+	 * The elements a scan reads.
+	 */
+	public enum Kind {
+		EVENTS,
+		EVENTS_WITH_ATTRIBUTES,
+		VERSIONS_WITH_ATTRIBUTES
+	}
+
+	/** The storage. */
+	private final SLEXMMStorageMetaModelImpl storage;
+
+	/** The kind of elements. */
+	private final Kind kind;
+
+	/** The bounds of the ranges, range i goes from bounds[i] included to bounds[i+1] excluded. */
+	private final long[] bounds;
+
+	/** The parallel, true if every range can run on its own connection. */
+	private final boolean parallel;
+
+	/** The result sets of the ranges being read. */
+	private final Set<AbstractRSetElement<?>> open = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * Instantiates a new partitioned scan.
+	 *
+	 * @param storage the storage
+	 * @param kind the kind of elements
+	 * @param bounds the bounds of the ranges
+	 * @param parallel true if the ranges can be read in parallel
+	 */
+	SLEXMMPartitionedScan(SLEXMMStorageMetaModelImpl storage, Kind kind, long[] bounds, boolean parallel) {
+		this.storage = storage;
+		this.kind = kind;
+		this.bounds = bounds;
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Splits the ids from min to max, both included, in ranges of about the
+	 * same size.
+	 *
+	 * @param min the minimum id
+	 * @param max the maximum id
+	 * @param partitions the maximum number of ranges
+	 * @return the bounds of the ranges
+	 */
+	static long[] split(long min, long max, int partitions) {
+		if (max < min) {
+			return new long[] { 0, 0 };
+		}
+		long span = max - min + 1;
+		int n = (int) Math.max(1, Math.min(partitions, span));
+		long[] bounds = new long[n + 1];
+		for (int i = 0; i <= n; i++) {
+			bounds[i] = min + span * i / n;
+		}
+		return bounds;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Gets the number of ranges.
+	 *
+	 * @return the number of ranges
+	 */
+	public int getPartitions() {
+		return bounds.length - 1;
+	}
+
+	/**
+	 * Gets the first id of a range.
+	 *
+	 * @param partition the range
+	 * @return the first id
+	 */
+	public long getLowerBound(int partition) {
+		return bounds[partition];
+	}
+
+	/**
+	 * Gets the id after the last one of a range.
+	 *
+	 * @param partition the range
+	 * @return the id after the last one
+	 */
+	public long getUpperBound(int partition) {
+		return bounds[partition + 1];
+	}
+
+	/**
+	 * Checks if the ranges run on their own connections of the read pool.
+	 * Otherwise they share the main connection and are read one after the
+	 * other.
+	 *
+	 * @return true, if the ranges can be read in parallel
+	 */
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	/**
+	 * Opens a result set over the elements of a range.
+	 *
+	 * @param partition the range
+	 * @return the result set, or null if the query failed
+	 */
+	@SuppressWarnings("unchecked")
+	public AbstractRSetElement<T> openPartition(int partition) {
+		return (AbstractRSetElement<T>) storage.getPartition(kind, bounds[partition], bounds[partition + 1]);
+	}
+
+	@SuppressWarnings("unchecked")
+	private T getNext(AbstractRSetElement<T> rset) {
+		if (kind == Kind.EVENTS) {
+			return rset.getNext();
+		}
+		return (T) ((AbstractRSetWithAtts<?, ?, ?>) rset).getNextWithAttributes();
+	}
+
+	/**
+	 * Spliterator over a span of ranges. It splits by halving the span, and
+	 * reads one range at a time.
+	 */
+	private final class PartitionSpliterator implements Spliterator<T> {
+
+		private int from;
+		private final int to;
+		private AbstractRSetElement<T> current = null;
+
+		PartitionSpliterator(int from, int to) {
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			while (from < to) {
+				if (current == null) {
+					current = openPartition(from);
+					if (current == null) {
+						throw new IllegalStateException("The range "+from+" of the scan could not be read");
+					}
+					open.add(current);
+				}
+				T e = getNext(current);
+				if (e != null) {
+					action.accept(e);
+					return true;
+				}
+				current.close();
+				open.remove(current);
+				current = null;
+				from++;
+			}
+			return false;
+		}
+
+		@Override
+		public Spliterator<T> trySplit() {
+			if (!parallel || current != null || to - from < 2) {
+				return null;
+			}
+			int mid = (from + to) >>> 1;
+			PartitionSpliterator prefix = new PartitionSpliterator(from, mid);
+			from = mid;
+			return prefix;
+		}
+
+		@Override
+		public long estimateSize() {
+			return bounds[to] - bounds[from];
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.NONNULL | Spliterator.DISTINCT;
+		}
+	}
+
+	/**
+	 * Gets a spliterator over all the ranges.
+	 *
+	 * @return the spliterator
+	 */
+	public Spliterator<T> spliterator() {
+		return new PartitionSpliterator(0, getPartitions());
+	}
+
+	/**
+	 * Gets a parallel stream over all the ranges. Closing the stream closes
+	 * the ranges left open.
+	 *
+	 * @return the stream
+	 */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), parallel).onClose(new Runnable() {
+			@Override
+			public void run() {
+				close();
+			}
+		});
+	}
+
+	/**
+	 * Closes the result sets of the ranges being read.
+	 */
+	public void close() {
+		for (AbstractRSetElement<?> rset: open) {
+			rset.close();
+			open.remove(rset);
+		}
+	}
+
+}
@@ -32,7 +32,7 @@ public class SLEXMMPeriodResultSet extends AbstractRSetElement<SLEXMMPeriod> {
 	public SLEXMMPeriod getNext() {
 		SLEXMMPeriod p = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				long startTimestamp = this.rset.getLong("start");
 				long end1Timestamp = this.rset.getLong("end");
@@ -32,7 +32,7 @@ public class SLEXMMProcessResultSet extends AbstractRSetElement<SLEXMMProcess> {
 	public SLEXMMProcess getNext() {
 		SLEXMMProcess proc = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				String name = this.rset.getString("name");
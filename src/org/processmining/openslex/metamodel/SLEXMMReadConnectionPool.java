@@ -0,0 +1,402 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of read-only connections of a metamodel storage.
+ *
+ * Every connection is an in-memory database with the metamodel file
+ * attached under the same alias as the main connection, so the queries
+ * built for the storage run unchanged on them. The file is kept in WAL
+ * mode so readers do not block each other nor the writer, which stays on
+ * the main connection. Readers only see committed data.
+ *
+ * A connection is borrowed for every statement and goes back to the pool
+ * when the statement is closed, which for result sets happens when they
+ * are closed. A thread that already holds a connection runs its next
+ * statements on the same one, so result sets opened while iterating
+ * others never wait on the thread itself. Other threads wait when all the
+ * connections are in use. Every connection keeps its own cache of
+ * compiled statements.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMReadConnectionPool {
+
+	/** The Constant DEFAULT_POOL_SIZE. */
+	public static final int DEFAULT_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+
+	/** The file. */
+	private String file;
+
+	/** The alias. */
+	private String alias;
+
+	/** The storage config. */
+	private SLEXMMStorageConfig config;
+
+	/** The size. */
+	private int size;
+
+	/** The idle connections. */
+	private LinkedBlockingQueue<Connection> idle = new LinkedBlockingQueue<>();
+
+	/** The connections opened so far. */
+	private List<Connection> connections = new ArrayList<>();
+
+	/** The statement caches, per connection. */
+	private ConcurrentHashMap<Connection, SLEXMMStatementCache> caches = new ConcurrentHashMap<>();
+
+	/** The connection held by each thread. */
+	private HashMap<Thread, Connection> held = new HashMap<>();
+
+	/** The threads holding each connection. */
+	private HashMap<Connection, Thread> holders = new HashMap<>();
+
+	/** The number of statements open on each held connection. */
+	private HashMap<Connection, Integer> holds = new HashMap<>();
+
+	/** The borrowed connections, per statement, with the time they were borrowed. */
+	private ConcurrentHashMap<Statement, Borrow> borrowed = new ConcurrentHashMap<>();
+
+	/** The closed. */
+	private volatile boolean closed = false;
+
+	/** The number of queries. */
+	private AtomicLong queries = new AtomicLong();
+
+	/** The time spent waiting for a connection, in nanoseconds. */
+	private AtomicLong waitNanos = new AtomicLong();
+
+	/** The time connections were held by queries, in nanoseconds. */
+	private AtomicLong queryNanos = new AtomicLong();
+
+	/** The longest time a connection was held by a query, in nanoseconds. */
+	private AtomicLong maxQueryNanos = new AtomicLong();
+
+	private static class Borrow {
+		private Connection connection;
+		private long start;
+
+		private Borrow(Connection connection, long start) {
+			this.connection = connection;
+			this.start = start;
+		}
+	}
+
+	/**
+	 * Instantiates a new read connection pool.
+	 *
+	 * @param file the metamodel file
+	 * @param alias the alias to attach it under
+	 * @param config the storage configuration, for the cache and mmap sizes
+	 * @param size the maximum number of connections
+	 */
+	protected SLEXMMReadConnectionPool(String file, String alias, SLEXMMStorageConfig config, int size) {
+		this.file = file;
+		this.alias = alias;
+		this.config = config;
+		this.size = size > 0 ? size : DEFAULT_POOL_SIZE;
+	}
+
+	/**
+	 * Gets the maximum number of connections.
+	 *
+	 * @return the size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of connections opened so far.
+	 *
+	 * @return the open connections
+	 */
+	public synchronized int getOpenConnections() {
+		return connections.size();
+	}
+
+	/**
+	 * Gets the number of connections in use.
+	 *
+	 * @return the active connections
+	 */
+	public int getActiveConnections() {
+		return borrowed.size();
+	}
+
+	/**
+	 * Gets the number of queries run on the pool.
+	 *
+	 * @return the queries
+	 */
+	public long getQueries() {
+		return queries.get();
+	}
+
+	/**
+	 * Gets the total time queries waited for a connection.
+	 *
+	 * @return the wait time in milliseconds
+	 */
+	public double getTotalWaitMillis() {
+		return waitNanos.get() / 1e6;
+	}
+
+	/**
+	 * Gets the average time a query held its connection, from the moment
+	 * it was run until its result set was closed.
+	 *
+	 * @return the average time in milliseconds
+	 */
+	public double getAverageQueryMillis() {
+		long n = queries.get() - borrowed.size();
+		return n > 0 ? queryNanos.get() / 1e6 / n : 0.0;
+	}
+
+	/**
+	 * Gets the longest time a query held its connection.
+	 *
+	 * @return the time in milliseconds
+	 */
+	public double getMaxQueryMillis() {
+		return maxQueryNanos.get() / 1e6;
+	}
+
+	/**
+	 * Resets the metrics.
+	 */
+	public void resetMetrics() {
+		queries.set(borrowed.size());
+		waitNanos.set(0);
+		queryNanos.set(0);
+		maxQueryNanos.set(0);
+	}
+
+	private Connection open() throws SQLException {
+		Connection conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+		Statement statement = conn.createStatement();
+		try {
+			// Read-only, temp tables can still be written
+			statement.execute("ATTACH DATABASE 'file:"+file+"?mode=ro' AS "+alias);
+			if (config.getCacheSize() != null) {
+				statement.execute("pragma "+alias+".cache_size = "+config.getCacheSize()+";");
+			}
+			if (config.getMmapSize() != null) {
+				statement.execute("pragma "+alias+".mmap_size = "+config.getMmapSize()+";");
+			}
+			if (config.getTempStore() != null) {
+				statement.execute("pragma temp_store = "+config.getTempStore()+";");
+			}
+			SLEXMMIdSetTable.create(conn);
+		} catch (SQLException e) {
+			statement.close();
+			conn.close();
+			throw e;
+		}
+		statement.close();
+		return conn;
+	}
+
+	private Connection borrow() throws SQLException, InterruptedException {
+		Thread thread = Thread.currentThread();
+		synchronized (this) {
+			// Re-entrant: the statements of a thread share its connection
+			Connection conn = held.get(thread);
+			if (conn != null) {
+				holds.put(conn, holds.get(conn) + 1);
+				return conn;
+			}
+		}
+		Connection conn = idle.poll();
+		if (conn == null) {
+			synchronized (this) {
+				if (closed) {
+					throw new SQLException("The read connection pool is closed");
+				}
+				if (connections.size() < size) {
+					conn = open();
+					connections.add(conn);
+					caches.put(conn, new SLEXMMStatementCache(conn, SLEXMMStatementCache.DEFAULT_CAPACITY));
+				}
+			}
+		}
+		if (conn == null) {
+			conn = idle.take();
+		}
+		synchronized (this) {
+			held.put(thread, conn);
+			holders.put(conn, thread);
+			holds.put(conn, 1);
+		}
+		return conn;
+	}
+
+	/**
+	 * Gives back one hold of a connection. It returns to the pool when the
+	 * last statement open on it is released.
+	 */
+	private void giveBack(Connection conn) {
+		synchronized (this) {
+			Integer n = holds.get(conn);
+			if (n != null && n > 1) {
+				holds.put(conn, n - 1);
+				return;
+			}
+			holds.remove(conn);
+			Thread thread = holders.remove(conn);
+			if (thread != null) {
+				held.remove(thread);
+			}
+			if (closed) {
+				return;
+			}
+		}
+		idle.offer(conn);
+	}
+
+	/**
+	 * Creates a statement on a connection of the pool, waiting for one to
+	 * be available. The connection is returned with release().
+	 *
+	 * @return the statement
+	 * @throws SQLException the SQL exception
+	 */
+	Statement createStatement() throws SQLException {
+		return createStatement(null);
+	}
+
+	/**
+	 * Checks out a compiled statement for a query from the statement cache
+	 * of a connection of the pool, waiting for one to be available. The
+	 * connection is returned with release().
+	 *
+	 * @param query the query
+	 * @return the prepared statement
+	 * @throws SQLException the SQL exception
+	 */
+	PreparedStatement prepareStatement(String query) throws SQLException {
+		return (PreparedStatement) createStatement(query);
+	}
+
+	/**
+	 * Gets the statement cache of a connection of the pool.
+	 *
+	 * @param conn the connection
+	 * @return the statement cache, or null if the connection is not in the pool
+	 */
+	SLEXMMStatementCache getStatementCache(Connection conn) {
+		return caches.get(conn);
+	}
+
+	private Statement createStatement(String query) throws SQLException {
+		long start = System.nanoTime();
+		Connection conn = null;
+		try {
+			conn = borrow();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new SQLException("Interrupted while waiting for a read connection", e);
+		}
+		long borrowed = System.nanoTime();
+		waitNanos.addAndGet(borrowed - start);
+		Statement statement = null;
+		try {
+			statement = query != null ? caches.get(conn).prepare(query) : conn.createStatement();
+		} catch (SQLException e) {
+			giveBack(conn);
+			throw e;
+		}
+		this.borrowed.put(statement, new Borrow(conn, borrowed));
+		queries.incrementAndGet();
+		return statement;
+	}
+
+	/**
+	 * Closes a statement, or gives it back to its statement cache, and
+	 * returns its connection to the pool. Statements not created by the
+	 * pool, or already released, are ignored.
+	 *
+	 * @param statement the statement
+	 * @return true, if the statement belonged to the pool
+	 */
+	boolean release(Statement statement) {
+		Borrow b = borrowed.remove(statement);
+		if (b == null) {
+			return false;
+		}
+		long held = System.nanoTime() - b.start;
+		queryNanos.addAndGet(held);
+		long max = maxQueryNanos.get();
+		while (held > max && !maxQueryNanos.compareAndSet(max, held)) {
+			max = maxQueryNanos.get();
+		}
+		SLEXMMStatementCache cache = caches.get(b.connection);
+		if (cache == null || !cache.release(statement)) {
+			closeStatement(statement);
+		}
+		giveBack(b.connection);
+		return true;
+	}
+
+	private void closeStatement(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			//e.printStackTrace();
+		}
+	}
+
+	private void closeConnection(Connection conn) {
+		try {
+			conn.close();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Closes all the connections. Result sets still open on them become
+	 * invalid.
+	 */
+	protected synchronized void close() {
+		closed = true;
+		for (SLEXMMStatementCache cache: caches.values()) {
+			cache.close();
+		}
+		caches.clear();
+		for (Connection conn: connections) {
+			closeConnection(conn);
+		}
+		idle.clear();
+		held.clear();
+		holders.clear();
+		holds.clear();
+		borrowed.clear();
+		connections.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return String.format("size=%d open=%d active=%d queries=%d wait=%.1fms avg=%.3fms max=%.3fms",
+				getSize(), getOpenConnections(), getActiveConnections(), getQueries(),
+				getTotalWaitMillis(), getAverageQueryMillis(), getMaxQueryMillis());
+	}
+
+}
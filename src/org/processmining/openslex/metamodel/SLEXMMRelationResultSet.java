@@ -34,7 +34,7 @@ public class SLEXMMRelationResultSet extends AbstractRSetElement<SLEXMMRelation>
 	public SLEXMMRelation getNext() {
 		SLEXMMRelation ev = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				int sourceObjectId = this.rset.getInt("source_object_version_id");
@@ -34,7 +34,7 @@ public class SLEXMMRelationshipResultSet extends AbstractRSetElement<SLEXMMRelat
 	public SLEXMMRelationship getNext() {
 		SLEXMMRelationship rs = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				int id = this.rset.getInt("id");
 				int sourceId = this.rset.getInt("source");
@@ -82,7 +82,7 @@ public class SLEXMMSQLResultSet extends AbstractRSetElement<SLEXMMSQLResult> {
 	public SLEXMMSQLResult getNext() {
 		SLEXMMSQLResult r = null;
 		try {
-			if (this.rset != null && this.rset.next()) {
+			if (this.rset != null && next()) {
 				
 				String[] values = new String[numColumns];
 				
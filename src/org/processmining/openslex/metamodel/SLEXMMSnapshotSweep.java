@@ -0,0 +1,255 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.processmining.openslex.utils.MMUtils;
+
+/**
+ * Sweep over time of the object versions and relations, to reconstruct the
+ * state of the data at a sequence of moments. A version or relation is
+ * valid at a moment t if it starts at or before t and ends at or after t,
+ * or does not end, as in the period queries.
+ *
+ * The sweep reads the versions with their attribute values ordered by
+ * start, and the ones that end ordered by end, and the same for the
+ * relations, on four cursors that are read once from the beginning to
+ * the end. The cursors are all opened by the thread creating the sweep,
+ * so with the read pool enabled they share one of its connections.
+ * Advancing to a later moment adds what started and removes what
+ * ended since the previous one, so a sequence of snapshots costs one pass
+ * over the tables instead of a query per snapshot and per version.
+ *
+ * The valid elements are views that change as the sweep advances, and
+ * the added and removed ones are those of the last advance. The sweep
+ * holds the cursors until it is closed or reaches the end of all of them,
+ * and only moves forward.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMSnapshotSweep implements AutoCloseable {
+
+	/**
+	 * The cursors of a sweep.
+	 */
+	enum Cursor {
+		VERSION_STARTS,
+		VERSION_ENDS,
+		RELATION_STARTS,
+		RELATION_ENDS
+	}
+
+	/** The storage. */
+	private final SLEXMMStorageMetaModelImpl storage;
+
+	/** The versions with their attribute values, by start. */
+	private SLEXMMObjectVersionResultSet versionStarts;
+
+	/** The versions that end, by end. */
+	private SLEXMMObjectVersionResultSet versionEnds;
+
+	/** The relations, by start. */
+	private SLEXMMRelationResultSet relationStarts;
+
+	/** The relations that end, by end. */
+	private SLEXMMRelationResultSet relationEnds;
+
+	/** The next version of each cursor, read but not reached yet. */
+	private SLEXMMObjectVersion nextVersionStart, nextVersionEnd;
+
+	/** The next relation of each cursor, read but not reached yet. */
+	private SLEXMMRelation nextRelationStart, nextRelationEnd;
+
+	/** The valid versions, by id. */
+	private final LinkedHashMap<Integer, SLEXMMObjectVersion> versions = new LinkedHashMap<>();
+
+	/** The valid relations, by id. */
+	private final LinkedHashMap<Integer, SLEXMMRelation> relations = new LinkedHashMap<>();
+
+	/** The versions added and removed by the last advance. */
+	private final List<SLEXMMObjectVersion> addedVersions = new ArrayList<>(), removedVersions = new ArrayList<>();
+
+	/** The relations added and removed by the last advance. */
+	private final List<SLEXMMRelation> addedRelations = new ArrayList<>(), removedRelations = new ArrayList<>();
+
+	/** The moment of the snapshot, before the first advance the infinite past. */
+	private long timestamp = Long.MIN_VALUE;
+
+	/**
+	 * Instantiates a new sweep, before its first advance.
+	 *
+	 * @param storage the storage
+	 */
+	SLEXMMSnapshotSweep(SLEXMMStorageMetaModelImpl storage) {
+		this.storage = storage;
+		this.versionStarts = (SLEXMMObjectVersionResultSet) storage.getSweepCursor(Cursor.VERSION_STARTS);
+		this.versionEnds = (SLEXMMObjectVersionResultSet) storage.getSweepCursor(Cursor.VERSION_ENDS);
+		this.relationStarts = (SLEXMMRelationResultSet) storage.getSweepCursor(Cursor.RELATION_STARTS);
+		this.relationEnds = (SLEXMMRelationResultSet) storage.getSweepCursor(Cursor.RELATION_ENDS);
+		this.nextVersionStart = versionStarts != null ? versionStarts.getNextWithAttributes() : null;
+		this.nextVersionEnd = versionEnds != null ? versionEnds.getNext() : null;
+		this.nextRelationStart = relationStarts != null ? relationStarts.getNext() : null;
+		this.nextRelationEnd = relationEnds != null ? relationEnds.getNext() : null;
+	}
+
+	/**
+	 * Maps a start to the sweep, the infinite past before any moment.
+	 */
+	private static long start(long start) {
+		return start == MMUtils.INFINITE_PAST ? Long.MIN_VALUE : start;
+	}
+
+	/**
+	 * Maps an end to the sweep, the infinite future after any moment.
+	 */
+	private static long end(long end) {
+		return end == MMUtils.INFINITE_FUTURE ? Long.MAX_VALUE : end;
+	}
+
+	/**
+	 * Advances the sweep to a moment. The infinite future is the current
+	 * state, with the versions and relations that do not end.
+	 *
+	 * @param timestamp the moment, not before the current one
+	 * @return this sweep
+	 * @throws IllegalArgumentException if the moment is before the current one
+	 */
+	public SLEXMMSnapshotSweep advanceTo(long timestamp) {
+		long t = end(timestamp);
+		if (t < this.timestamp) {
+			throw new IllegalArgumentException("The sweep is at "+this.timestamp+", it cannot go back to "+timestamp);
+		}
+		this.timestamp = t;
+		addedVersions.clear();
+		removedVersions.clear();
+		addedRelations.clear();
+		removedRelations.clear();
+
+		// What ended before the moment but started after it was never added
+		while (nextVersionStart != null && start(nextVersionStart.getStartTimestamp()) <= t) {
+			if (end(nextVersionStart.getEndTimestamp()) >= t) {
+				versions.put(nextVersionStart.getId(), nextVersionStart);
+				addedVersions.add(nextVersionStart);
+			}
+			nextVersionStart = versionStarts.getNextWithAttributes();
+		}
+		while (nextVersionEnd != null && end(nextVersionEnd.getEndTimestamp()) < t) {
+			SLEXMMObjectVersion v = versions.remove(nextVersionEnd.getId());
+			if (v != null) {
+				removedVersions.add(v);
+			}
+			nextVersionEnd = versionEnds.getNext();
+		}
+		while (nextRelationStart != null && start(nextRelationStart.getStartTimestamp()) <= t) {
+			if (end(nextRelationStart.getEndTimestamp()) >= t) {
+				relations.put(nextRelationStart.getId(), nextRelationStart);
+				addedRelations.add(nextRelationStart);
+			}
+			nextRelationStart = relationStarts.getNext();
+		}
+		while (nextRelationEnd != null && end(nextRelationEnd.getEndTimestamp()) < t) {
+			SLEXMMRelation r = relations.remove(nextRelationEnd.getId());
+			if (r != null) {
+				removedRelations.add(r);
+			}
+			nextRelationEnd = relationEnds.getNext();
+		}
+		return this;
+	}
+
+	/**
+	 * Gets the moment of the snapshot.
+	 *
+	 * @return the moment, Long.MAX_VALUE for the infinite future
+	 */
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * Gets the versions valid at the moment of the snapshot, with their
+	 * attribute values, in the order they started.
+	 *
+	 * @return a view of the versions
+	 */
+	public Collection<SLEXMMObjectVersion> getVersions() {
+		return Collections.unmodifiableCollection(versions.values());
+	}
+
+	/**
+	 * Gets the relations valid at the moment of the snapshot, in the order
+	 * they started.
+	 *
+	 * @return a view of the relations
+	 */
+	public Collection<SLEXMMRelation> getRelations() {
+		return Collections.unmodifiableCollection(relations.values());
+	}
+
+	/**
+	 * Gets a version if it is valid at the moment of the snapshot.
+	 *
+	 * @param id the version id
+	 * @return the version, or null if it is not valid
+	 */
+	public SLEXMMObjectVersion getVersion(int id) {
+		return versions.get(id);
+	}
+
+	/**
+	 * Gets a relation if it is valid at the moment of the snapshot.
+	 *
+	 * @param id the relation id
+	 * @return the relation, or null if it is not valid
+	 */
+	public SLEXMMRelation getRelation(int id) {
+		return relations.get(id);
+	}
+
+	public List<SLEXMMObjectVersion> getAddedVersions() {
+		return Collections.unmodifiableList(addedVersions);
+	}
+
+	public List<SLEXMMObjectVersion> getRemovedVersions() {
+		return Collections.unmodifiableList(removedVersions);
+	}
+
+	public List<SLEXMMRelation> getAddedRelations() {
+		return Collections.unmodifiableList(addedRelations);
+	}
+
+	public List<SLEXMMRelation> getRemovedRelations() {
+		return Collections.unmodifiableList(removedRelations);
+	}
+
+	/**
+	 * Closes the cursors. The snapshot reached so far can still be read.
+	 */
+	@Override
+	public void close() {
+		for (AbstractRSetElement<?> rset: new AbstractRSetElement<?>[] {
+				versionStarts, versionEnds, relationStarts, relationEnds }) {
+			if (rset != null) {
+				rset.close();
+			}
+		}
+		nextVersionStart = null;
+		nextVersionEnd = null;
+		nextRelationStart = null;
+		nextRelationEnd = null;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "Snapshot at "+timestamp+": "+versions.size()+" versions, "+relations.size()+" relations";
+	}
+
+}
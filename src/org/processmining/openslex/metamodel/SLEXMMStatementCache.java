@@ -0,0 +1,184 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * LRU cache of compiled statements of a connection.
+ *
+ * A statement is checked out of the cache while its result set is open,
+ * and goes back to it when released, so the same query text is parsed and
+ * planned by SQLite only once. Several statements of the same query can
+ * be checked out at the same time. When more than capacity queries are
+ * cached, the idle statements of the least recently used one are closed.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMStatementCache {
+
+	/** The Constant DEFAULT_CAPACITY. */
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/** The connection. */
+	private Connection connection;
+
+	/** The capacity. */
+	private int capacity;
+
+	/** The idle statements, per query, in access order. */
+	private LinkedHashMap<String, ArrayDeque<PreparedStatement>> idle;
+
+	/** The checked out statements and their queries. */
+	private HashMap<Statement, String> inUse = new HashMap<>();
+
+	/** The hits. */
+	private long hits = 0;
+
+	/** The misses. */
+	private long misses = 0;
+
+	/**
+	 * Instantiates a new statement cache.
+	 *
+	 * @param connection the connection
+	 * @param capacity the maximum number of cached queries
+	 */
+	protected SLEXMMStatementCache(Connection connection, int capacity) {
+		this.connection = connection;
+		this.capacity = capacity > 0 ? capacity : DEFAULT_CAPACITY;
+		this.idle = new LinkedHashMap<String, ArrayDeque<PreparedStatement>>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, ArrayDeque<PreparedStatement>> eldest) {
+				if (size() > SLEXMMStatementCache.this.capacity) {
+					closeAll(eldest.getValue());
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Checks out a compiled statement for a query, compiling it if there is
+	 * no idle one.
+	 *
+	 * @param query the query
+	 * @return the prepared statement
+	 * @throws SQLException the SQL exception
+	 */
+	synchronized PreparedStatement prepare(String query) throws SQLException {
+		PreparedStatement statement = null;
+		ArrayDeque<PreparedStatement> statements = idle.get(query);
+		if (statements != null && !statements.isEmpty()) {
+			statement = statements.pop();
+			hits++;
+		} else {
+			statement = connection.prepareStatement(query);
+			misses++;
+		}
+		inUse.put(statement, query);
+		return statement;
+	}
+
+	/**
+	 * Gives a checked out statement back to the cache. Its result set must
+	 * have been closed.
+	 *
+	 * @param statement the statement
+	 * @return true, if the statement was checked out of this cache
+	 */
+	synchronized boolean release(Statement statement) {
+		String query = inUse.remove(statement);
+		if (query == null) {
+			return false;
+		}
+		try {
+			((PreparedStatement) statement).clearParameters();
+		} catch (SQLException e) {
+			close(statement);
+			return true;
+		}
+		ArrayDeque<PreparedStatement> statements = idle.get(query);
+		if (statements == null) {
+			statements = new ArrayDeque<>();
+			idle.put(query, statements);
+		}
+		statements.push((PreparedStatement) statement);
+		return true;
+	}
+
+	/**
+	 * Gets the number of times a compiled statement was reused.
+	 *
+	 * @return the hits
+	 */
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the number of statements compiled.
+	 *
+	 * @return the misses
+	 */
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the number of cached queries.
+	 *
+	 * @return the size
+	 */
+	public synchronized int getSize() {
+		return idle.size();
+	}
+
+	private void close(Statement statement) {
+		try {
+			statement.close();
+		} catch (SQLException e) {
+			//e.printStackTrace();
+		}
+	}
+
+	private void closeAll(ArrayDeque<PreparedStatement> statements) {
+		for (PreparedStatement statement: statements) {
+			close(statement);
+		}
+		statements.clear();
+	}
+
+	/**
+	 * Closes all the statements, checked out or not.
+	 */
+	synchronized void close() {
+		for (ArrayDeque<PreparedStatement> statements: idle.values()) {
+			closeAll(statements);
+		}
+		idle.clear();
+		for (Statement statement: inUse.keySet()) {
+			close(statement);
+		}
+		inUse.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public synchronized String toString() {
+		return "size="+idle.size()+" inUse="+inUse.size()+" hits="+hits+" misses="+misses;
+	}
+
+}
@@ -0,0 +1,291 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.util.LinkedHashMap;
+
+/**
+ * Durability and performance settings of a metamodel storage.
+ *
+ * A configuration is created from one of the named profiles and can be
+ * tuned further with its setters. Every profile sets all the settings, so
+ * switching profiles at runtime does not leave anything behind. Settings
+ * set to null are not applied.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMStorageConfig {
+
+	/**
+	 * The named profiles.
+	 */
+	public enum Profile {
+		/** No journal and no syncs, as the storage always behaved. */
+		DEFAULT,
+		/** No journal, no syncs, large page cache and exclusive locking, for imports. */
+		BULK_LOAD,
+		/** Write-ahead log with NORMAL syncs, memory-mapped reads and a large page cache, for servers with concurrent readers. */
+		WAL_CONCURRENT_READ,
+		/** Write-ahead log with FULL syncs, nothing is lost on a crash. */
+		SAFE
+	}
+
+	/** The Constant LARGE_CACHE_SIZE, 512 MB expressed in KiB as SQLite expects negative sizes. */
+	public static final int LARGE_CACHE_SIZE = -524288;
+
+	/** The Constant SQLITE_CACHE_SIZE, the SQLite default of about 2 MB. */
+	public static final int SQLITE_CACHE_SIZE = -2000;
+
+	/** The Constant DEFAULT_MMAP_SIZE, 1 GB. */
+	public static final long DEFAULT_MMAP_SIZE = 1024L * 1024L * 1024L;
+
+	/** The profile. */
+	private Profile profile;
+
+	/** The journal mode. */
+	private String journalMode = null;
+
+	/** The synchronous mode. */
+	private String synchronousMode = null;
+
+	/** The locking mode. */
+	private String lockingMode = null;
+
+	/** The cache size. */
+	private Integer cacheSize = null;
+
+	/** The mmap size. */
+	private Long mmapSize = null;
+
+	/** The temp store. */
+	private String tempStore = null;
+
+	/**
+	 * Instantiates a new storage configuration for a profile.
+	 *
+	 * @param profile the profile
+	 */
+	public SLEXMMStorageConfig(Profile profile) {
+		this.profile = profile;
+		switch (profile) {
+		case BULK_LOAD:
+			journalMode = "OFF";
+			synchronousMode = "OFF";
+			lockingMode = "EXCLUSIVE";
+			cacheSize = LARGE_CACHE_SIZE;
+			mmapSize = 0L;
+			tempStore = "MEMORY";
+			break;
+		case WAL_CONCURRENT_READ:
+			journalMode = "WAL";
+			synchronousMode = "NORMAL";
+			lockingMode = "NORMAL";
+			cacheSize = LARGE_CACHE_SIZE;
+			mmapSize = DEFAULT_MMAP_SIZE;
+			tempStore = "DEFAULT";
+			break;
+		case SAFE:
+			journalMode = "WAL";
+			synchronousMode = "FULL";
+			lockingMode = "NORMAL";
+			cacheSize = SQLITE_CACHE_SIZE;
+			mmapSize = 0L;
+			tempStore = "DEFAULT";
+			break;
+		case DEFAULT:
+		default:
+			journalMode = "OFF";
+			synchronousMode = "OFF";
+			lockingMode = "NORMAL";
+			cacheSize = SQLITE_CACHE_SIZE;
+			mmapSize = 0L;
+			tempStore = "DEFAULT";
+			break;
+		}
+	}
+
+	/**
+	 * Instantiates a new storage configuration with the settings of another.
+	 *
+	 * @param config the configuration to copy
+	 */
+	public SLEXMMStorageConfig(SLEXMMStorageConfig config) {
+		this.profile = config.profile;
+		this.journalMode = config.journalMode;
+		this.synchronousMode = config.synchronousMode;
+		this.lockingMode = config.lockingMode;
+		this.cacheSize = config.cacheSize;
+		this.mmapSize = config.mmapSize;
+		this.tempStore = config.tempStore;
+	}
+
+	/**
+	 * Gets the default configuration.
+	 *
+	 * @return the default configuration
+	 */
+	public static SLEXMMStorageConfig getDefault() {
+		return new SLEXMMStorageConfig(Profile.DEFAULT);
+	}
+
+	/**
+	 * Gets the profile this configuration was created from.
+	 *
+	 * @return the profile
+	 */
+	public Profile getProfile() {
+		return profile;
+	}
+
+	/**
+	 * Gets the journal mode.
+	 *
+	 * @return the journal mode
+	 */
+	public String getJournalMode() {
+		return journalMode;
+	}
+
+	/**
+	 * Sets the journal mode (OFF, DELETE, TRUNCATE, PERSIST, MEMORY or WAL).
+	 *
+	 * @param journalMode the new journal mode
+	 */
+	public void setJournalMode(String journalMode) {
+		this.journalMode = journalMode;
+	}
+
+	/**
+	 * Gets the synchronous mode.
+	 *
+	 * @return the synchronous mode
+	 */
+	public String getSynchronousMode() {
+		return synchronousMode;
+	}
+
+	/**
+	 * Sets the synchronous mode (OFF, NORMAL, FULL or EXTRA).
+	 *
+	 * @param synchronousMode the new synchronous mode
+	 */
+	public void setSynchronousMode(String synchronousMode) {
+		this.synchronousMode = synchronousMode;
+	}
+
+	/**
+	 * Gets the locking mode.
+	 *
+	 * @return the locking mode
+	 */
+	public String getLockingMode() {
+		return lockingMode;
+	}
+
+	/**
+	 * Sets the locking mode (NORMAL or EXCLUSIVE).
+	 *
+	 * @param lockingMode the new locking mode
+	 */
+	public void setLockingMode(String lockingMode) {
+		this.lockingMode = lockingMode;
+	}
+
+	/**
+	 * Gets the cache size.
+	 *
+	 * @return the cache size
+	 */
+	public Integer getCacheSize() {
+		return cacheSize;
+	}
+
+	/**
+	 * Sets the cache size, in pages if positive or in KiB if negative.
+	 *
+	 * @param cacheSize the new cache size
+	 */
+	public void setCacheSize(Integer cacheSize) {
+		this.cacheSize = cacheSize;
+	}
+
+	/**
+	 * Gets the mmap size.
+	 *
+	 * @return the mmap size
+	 */
+	public Long getMmapSize() {
+		return mmapSize;
+	}
+
+	/**
+	 * Sets the maximum number of bytes of the file mapped in memory.
+	 *
+	 * @param mmapSize the new mmap size
+	 */
+	public void setMmapSize(Long mmapSize) {
+		this.mmapSize = mmapSize;
+	}
+
+	/**
+	 * Gets the temp store.
+	 *
+	 * @return the temp store
+	 */
+	public String getTempStore() {
+		return tempStore;
+	}
+
+	/**
+	 * Sets where temporary tables and indexes are kept (DEFAULT, FILE or MEMORY).
+	 *
+	 * @param tempStore the new temp store
+	 */
+	public void setTempStore(String tempStore) {
+		this.tempStore = tempStore;
+	}
+
+	/**
+	 * Checks if the configuration uses a write-ahead log.
+	 *
+	 * @return true, if the journal mode is WAL
+	 */
+	public boolean isWAL() {
+		return "WAL".equalsIgnoreCase(journalMode);
+	}
+
+	/**
+	 * Gets the pragmas of the attached database, in the order they must be applied.
+	 *
+	 * @return the pragmas and their values
+	 */
+	LinkedHashMap<String, String> getDatabasePragmas() {
+		LinkedHashMap<String, String> pragmas = new LinkedHashMap<>();
+		// The locking mode decides whether WAL uses shared memory, so it goes first
+		if (lockingMode != null) {
+			pragmas.put("locking_mode", lockingMode);
+		}
+		if (journalMode != null) {
+			pragmas.put("journal_mode", journalMode);
+		}
+		if (synchronousMode != null) {
+			pragmas.put("synchronous", synchronousMode);
+		}
+		if (cacheSize != null) {
+			pragmas.put("cache_size", String.valueOf(cacheSize));
+		}
+		if (mmapSize != null) {
+			pragmas.put("mmap_size", String.valueOf(mmapSize));
+		}
+		return pragmas;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return profile+" "+getDatabasePragmas()+(tempStore != null ? " temp_store="+tempStore : "");
+	}
+
+}
@@ -4,9 +4,19 @@
 package org.processmining.openslex.metamodel;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
 
+import org.processmining.openslex.metamodel.cache.SLEXMMCacheConfig;
+import org.processmining.openslex.metamodel.cache.SLEXMMCacheStats;
+import org.processmining.openslex.metamodel.columnar.SLEXMMEventColumns;
+import org.processmining.openslex.metamodel.graph.SLEXMMGraphIndex;
+import org.processmining.openslex.metamodel.graph.SLEXMMTraversal;
+import org.processmining.openslex.metamodel.metrics.SLEXMMMetrics;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryShape;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
 // TODO: Auto-generated Javadoc
 /**
  * The Interface SLEXMMStorageMetaModel.
@@ -35,6 +45,273 @@ public interface SLEXMMStorageMetaModel extends SLEXMMStorage {
 	public abstract SLEXMMEvent createEvent(int order, int activity_instance_id,
 			String lifecycle, String resource, long timestamp);
 	
+	/**
+	 * Creates a bulk insert session with the default batch size.
+	 *
+	 * @return the bulk insert session
+	 */
+	public abstract SLEXMMBulkInsertSession createBulkInsertSession();
+	
+	/**
+	 * Creates a bulk insert session.
+	 *
+	 * @param batchSize the number of rows written per transaction
+	 * @return the bulk insert session
+	 */
+	public abstract SLEXMMBulkInsertSession createBulkInsertSession(int batchSize);
+	
+	/**
+	 * Enables or disables client-side id preallocation. When enabled,
+	 * events, object versions, relations, etc. get their ids at creation
+	 * time from the id allocator of their table, and are inserted with
+	 * explicit ids.
+	 *
+	 * @param flag the new id preallocation flag
+	 */
+	public abstract void setIdPreallocation(boolean flag);
+	
+	/**
+	 * Checks if client-side id preallocation is enabled.
+	 *
+	 * @return true, if id preallocation is enabled
+	 */
+	public abstract boolean isIdPreallocationEnabled();
+	
+	/**
+	 * Gets the id allocator of a table.
+	 *
+	 * @param table the table
+	 * @return the id allocator
+	 */
+	public abstract SLEXMMIdAllocator getIdAllocator(SLEXMMTables table);
+	
+	/**
+	 * Enables the write-behind mode with the default queue capacity and
+	 * batch size. Commits of elements are queued and written by a
+	 * dedicated thread. Id preallocation gets enabled as well.
+	 *
+	 * @return the write-behind queue
+	 */
+	public abstract SLEXMMWriteBehindQueue enableWriteBehind();
+	
+	/**
+	 * Enables the write-behind mode. Commits of elements are queued and
+	 * written by a dedicated thread. Id preallocation gets enabled as well.
+	 *
+	 * @param queueCapacity the maximum number of queued operations
+	 * @param batchSize the maximum number of operations per transaction
+	 * @return the write-behind queue
+	 */
+	public abstract SLEXMMWriteBehindQueue enableWriteBehind(int queueCapacity, int batchSize);
+	
+	/**
+	 * Writes all the queued operations and disables the write-behind mode.
+	 *
+	 * @return true, if all the queued operations were written without errors
+	 */
+	public abstract boolean disableWriteBehind();
+	
+	/**
+	 * Gets the write-behind queue.
+	 *
+	 * @return the write-behind queue, or null if the write-behind mode is disabled
+	 */
+	public abstract SLEXMMWriteBehindQueue getWriteBehindQueue();
+
+	/**
+	 * Enables the read connection pool with one connection per processor.
+	 *
+	 * @return the read connection pool
+	 * @see #enableReadPool(int)
+	 */
+	public abstract SLEXMMReadConnectionPool enableReadPool();
+
+	/**
+	 * Enables the read connection pool. The getXForY queries then run on
+	 * their own read-only connections, in parallel, and only see committed
+	 * data. Writes stay on the main connection. The journal of the database
+	 * is switched to WAL if the storage configuration uses another mode.
+	 *
+	 * @param size the maximum number of read connections
+	 * @return the read connection pool, or null if it could not be enabled
+	 */
+	public abstract SLEXMMReadConnectionPool enableReadPool(int size);
+
+	/**
+	 * Disables the read connection pool and closes its connections.
+	 */
+	public abstract void disableReadPool();
+
+	/**
+	 * Gets the read connection pool.
+	 *
+	 * @return the read connection pool, or null if it is disabled
+	 */
+	public abstract SLEXMMReadConnectionPool getReadPool();
+	
+	/**
+	 * Enables the in-memory index of the foreign keys of the metamodel. The
+	 * getXForY queries of the semi-join shape then find the related elements
+	 * by walking the index instead of joining tables. The union shape keeps
+	 * joining, since its results carry the id each element was reached
+	 * from. The index is not used after a write until it is rebuilt, and it
+	 * is rebuilt at the end of every import.
+	 *
+	 * @return the index, or null if it could not be built or an import is running
+	 * @see #rebuildGraphIndex()
+	 */
+	public abstract SLEXMMGraphIndex enableGraphIndex();
+	
+	/**
+	 * Rebuilds the index of the foreign keys with the current content of the
+	 * database, enabling it if it was not.
+	 *
+	 * @return the index, or null if it could not be built
+	 */
+	public abstract SLEXMMGraphIndex rebuildGraphIndex();
+	
+	/**
+	 * Disables the index of the foreign keys and frees its memory.
+	 */
+	public abstract void disableGraphIndex();
+	
+	/**
+	 * Gets the index of the foreign keys.
+	 *
+	 * @return the index, or null if it is disabled
+	 */
+	public abstract SLEXMMGraphIndex getGraphIndex();
+	
+	/**
+	 * Checks if the index of the foreign keys is enabled and nothing was
+	 * written since it was built.
+	 *
+	 * @return true, if the index is used by the queries
+	 */
+	public abstract boolean isGraphIndexCurrent();
+	
+	/**
+	 * Creates the secondary indexes of the metamodel schema, if they do not
+	 * exist yet. Meant to be run once the data has been loaded.
+	 *
+	 * @return true, if successful
+	 */
+	public abstract boolean createIndexes();
+	
+	/**
+	 * Checks if the metamodel database has the period index, an R*Tree over
+	 * the periods of events, object versions and relations that the period
+	 * queries use instead of testing every row. It is built and dropped
+	 * with the secondary indexes.
+	 *
+	 * @return true, if the period queries use the index
+	 */
+	public abstract boolean hasPeriodIndex();
+	
+	/**
+	 * Drops the secondary indexes of the metamodel schema.
+	 *
+	 * @return true, if successful
+	 */
+	public abstract boolean dropIndexes();
+	
+	/**
+	 * Starts an import. The secondary indexes are dropped and the pragmas
+	 * of the metamodel database are set for fast loading until the import
+	 * ends.
+	 *
+	 * @return true, if successful
+	 */
+	public abstract boolean beginImport();
+	
+	/**
+	 * Ends an import. The secondary indexes are rebuilt in one transaction,
+	 * the planner statistics are updated and the previous pragmas restored.
+	 *
+	 * @return true, if successful
+	 */
+	public abstract boolean endImport();
+	
+	/**
+	 * Ends an import. The secondary indexes are rebuilt in one transaction,
+	 * the planner statistics are updated and the previous pragmas restored.
+	 *
+	 * @param separateConnection if true, the indexes are built on a new connection to the metamodel file
+	 * @return true, if successful
+	 */
+	public abstract boolean endImport(boolean separateConnection);
+	
+	/**
+	 * Checks if an import is in progress.
+	 *
+	 * @return true, if importing
+	 */
+	public abstract boolean isImporting();
+
+	/**
+	 * Gets the storage configuration.
+	 *
+	 * @return the storage configuration
+	 */
+	public abstract SLEXMMStorageConfig getStorageConfig();
+
+	/**
+	 * Sets the storage configuration and applies its pragmas. During an
+	 * import they are applied when the import ends.
+	 *
+	 * @param config the storage configuration
+	 * @return true, if successful
+	 */
+	public abstract boolean setStorageConfig(SLEXMMStorageConfig config);
+
+	/**
+	 * Gets the shape of the queries that get the elements related to
+	 * other elements.
+	 *
+	 * @return the query shape
+	 */
+	public abstract SLEXMMQueryShape getQueryShape();
+
+	/**
+	 * Sets the shape of the queries that get the elements related to other
+	 * elements. With SEMI_JOIN every element is returned once, and the
+	 * result sets have no origin id.
+	 *
+	 * @param shape the query shape
+	 */
+	public abstract void setQueryShape(SLEXMMQueryShape shape);
+
+	/**
+	 * Gets the limits of the caches of elements.
+	 *
+	 * @return the cache configuration
+	 */
+	public abstract SLEXMMCacheConfig getCacheConfig();
+
+	/**
+	 * Sets the limits of the caches of elements. The caches in the heap are
+	 * emptied and created again with the new limits.
+	 *
+	 * @param config the cache configuration
+	 */
+	public abstract void setCacheConfig(SLEXMMCacheConfig config);
+
+	/**
+	 * Gets the hit, miss and eviction counters of the caches of elements,
+	 * by name of the cache.
+	 *
+	 * @return the statistics of each cache
+	 */
+	public abstract LinkedHashMap<String, SLEXMMCacheStats> getCacheStats();
+
+	/**
+	 * Gets the metrics of the caches, queries, statements and inserts of
+	 * the storage.
+	 *
+	 * @return the metrics
+	 */
+	public abstract SLEXMMMetrics getMetrics();
+
 	/**
 	 * Creates the event attribute.
 	 *
@@ -736,6 +1013,44 @@ public interface SLEXMMStorageMetaModel extends SLEXMMStorage {
 	 */
 	public abstract SLEXMMObjectVersionResultSet getVersionsRelatedToVersions(int[] verIds);	
 	
+	/**
+	 * Gets the versions related to object versions, in either direction,
+	 * by relations of some relationships valid in a period. Each related
+	 * version comes once per relation, with the version it is related to
+	 * as origin.
+	 *
+	 * @param verIds the version ids
+	 * @param relationshipIds the relationship ids, or null for all
+	 * @param p the period the relations must be valid in, as in the period queries, or null for any
+	 * @return the versions related to the versions
+	 */
+	public abstract SLEXMMObjectVersionResultSet getVersionsRelatedToVersions(int[] verIds,
+			int[] relationshipIds, SLEXMMPeriod p);
+	
+	/**
+	 * Gets the ids of the versions related to object versions, in either
+	 * direction, by relations of some relationships valid in a period. Meant
+	 * to walk the graph of versions: with the index of the foreign keys
+	 * enabled and current, the relations are followed in memory.
+	 *
+	 * @param verIds the version ids
+	 * @param relationshipIds the relationship ids, or null for all
+	 * @param p the period the relations must be valid in, or null for any
+	 * @return the ids, sorted and without duplicates, or null if the query failed
+	 * @see #enableGraphIndex()
+	 */
+	public abstract int[] getIdsOfVersionsRelatedToVersions(int[] verIds, int[] relationshipIds, SLEXMMPeriod p);
+	
+	/**
+	 * Starts a breadth-first traversal of the graph of object versions and
+	 * their relations from some versions. It runs in memory over the index
+	 * of the foreign keys, which is enabled, or rebuilt if it is not current.
+	 *
+	 * @param verIds the version ids to start from
+	 * @return the traversal, before its first hop, or null if the index could not be built
+	 */
+	public abstract SLEXMMTraversal getTraversalFromVersions(int[] verIds);
+	
 	/**
 	 * Gets the object per id.
 	 *
@@ -3007,6 +3322,75 @@ public interface SLEXMMStorageMetaModel extends SLEXMMStorage {
 	
 	public abstract SLEXMMObjectVersionResultSet getVersionsAndAttributeValues(int[] ids);
 	
+	/**
+	 * Gets a scan of all the events split in ranges of ids, to be read in
+	 * parallel on the read pool, which only sees committed data. If the pool
+	 * is not enabled, the ranges are read one after the other on the main
+	 * connection.
+	 *
+	 * @param partitions the maximum number of ranges
+	 * @return the scan, or null if the ids could not be read
+	 */
+	public abstract SLEXMMPartitionedScan<SLEXMMEvent> getEventsPartitioned(int partitions);
+	
+	/**
+	 * Gets a scan of all the events with their attribute values split in
+	 * ranges of ids, to be read in parallel.
+	 *
+	 * @param partitions the maximum number of ranges
+	 * @return the scan, or null if the ids could not be read
+	 * @see #getEventsPartitioned(int)
+	 */
+	public abstract SLEXMMPartitionedScan<SLEXMMEvent> getAllEventsAndAttributeValuesPartitioned(int partitions);
+	
+	/**
+	 * Gets a scan of all the object versions with their attribute values
+	 * split in ranges of ids, to be read in parallel.
+	 *
+	 * @param partitions the maximum number of ranges
+	 * @return the scan, or null if the ids could not be read
+	 * @see #getEventsPartitioned(int)
+	 */
+	public abstract SLEXMMPartitionedScan<SLEXMMObjectVersion> getAllVersionsAndAttributeValuesPartitioned(int partitions);
+	
+	/**
+	 * Opens a sweep over time of the object versions, with their attribute
+	 * values, and the relations. Advancing it through a sequence of moments
+	 * gives the state of the data at each of them in one pass over the
+	 * tables. It must be closed if it is not advanced to the end.
+	 *
+	 * @return the sweep, before its first advance
+	 */
+	public abstract SLEXMMSnapshotSweep getSnapshotSweep();
+	
+	/**
+	 * Gets the object versions, with their attribute values, and the
+	 * relations valid at a moment.
+	 *
+	 * @param timestamp the moment, or MMUtils.INFINITE_FUTURE for the current state
+	 * @return the sweep advanced to the moment, already closed
+	 * @see #getSnapshotSweep()
+	 */
+	public abstract SLEXMMSnapshotSweep getSnapshot(long timestamp);
+	
+	/**
+	 * Builds a columnar snapshot of the events of all the cases, for
+	 * analysis passes that do not need the events as objects. Events of
+	 * activity instances in no case are left out.
+	 *
+	 * @return the snapshot, or null if the events could not be read
+	 */
+	public abstract SLEXMMEventColumns getEventColumns();
+	
+	/**
+	 * Builds a columnar snapshot of the events of the cases of a log.
+	 *
+	 * @param logId the log id
+	 * @return the snapshot, or null if the events could not be read
+	 * @see #getEventColumns()
+	 */
+	public abstract SLEXMMEventColumns getEventColumnsForLog(int logId);
+	
 	public abstract SLEXMMCaseResultSet getAllCasesAndAttributeValues();
 	
 	public abstract SLEXMMCaseResultSet getCasesAndAttributeValues(Set<SLEXMMCase> set);
@@ -3,6 +3,7 @@
  */
 package org.processmining.openslex.metamodel;
 
+import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -12,22 +13,45 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
-import org.mapdb.HTreeMap;
 import org.mapdb.Serializer;
-import org.processmining.openslex.metamodel.querygen.SLEXMMEdge;
+import org.processmining.openslex.metamodel.cache.SLEXMMCache;
+import org.processmining.openslex.metamodel.cache.SLEXMMCacheConfig;
+import org.processmining.openslex.metamodel.cache.SLEXMMCacheStats;
+import org.processmining.openslex.metamodel.cache.SLEXMMMapDBCache;
+import org.processmining.openslex.metamodel.cache.SLEXMMTieredCache;
+import org.processmining.openslex.metamodel.cache.SLEXMMWeigher;
+import org.processmining.openslex.metamodel.columnar.SLEXMMEventColumns;
+import org.processmining.openslex.metamodel.graph.SLEXMMGraphIndex;
+import org.processmining.openslex.metamodel.graph.SLEXMMIntList;
+import org.processmining.openslex.metamodel.graph.SLEXMMTraversal;
+import org.processmining.openslex.metamodel.metrics.SLEXMMMetrics;
+import org.processmining.openslex.metamodel.metrics.SLEXMMQueryMetrics;
+import org.processmining.openslex.metamodel.querygen.SLEXMMPeriodIndex;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryPlan;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryShape;
 import org.processmining.openslex.metamodel.querygen.SLEXMMStorageQueryGenerator;
 import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+import org.processmining.openslex.utils.MMUtils;
 import org.processmining.openslex.utils.ScriptRunner;
+import org.sqlite.core.CoreConnection;
 
 /**
  * The Class SLEXMMStorageMetaModelImpl.
@@ -43,22 +67,43 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	/** The Constant METAMODEL_ALIAS. */
 	public static final String METAMODEL_ALIAS = "metamodeldb";
 	
-	private HTreeMap<String, AbstractDBElement> objectRepo;
+	private volatile SLEXMMCache<AbstractDBElement> objectRepo;
 	
-	private HTreeMap<String, HashMap<AbstractAttDBElement, AbstractDBElementWithValue>> attsRepo;
+	private volatile SLEXMMCache<HashMap<AbstractAttDBElement, AbstractDBElementWithValue>> attsRepo;
 	
-	private HTreeMap<String, HashMap<String, AbstractAttDBElement>> attNamesRepo;
+	private volatile SLEXMMCache<HashMap<String, AbstractAttDBElement>> attNamesRepo;
 	
-	private HTreeMap<String, int[]> elementOfRepo;
+	private volatile SLEXMMCache<int[]> elementOfRepo;
+	
+	/** The limits of the caches. */
+	private SLEXMMCacheConfig cacheConfig = SLEXMMCacheConfig.getDefault();
+	
+	/** The Constant DISK_CACHE_START_SIZE, 512 MB. */
+	private static final long DISK_CACHE_START_SIZE = 512L * 1024 * 1024;
+	
+	/** The Constant DISK_CACHE_INCREMENT, 512 MB. */
+	private static final long DISK_CACHE_INCREMENT = 512L * 1024 * 1024;
 	
 	/** The metamodel schema in. */
 	private InputStream METAMODEL_SCHEMA_IN = SLEXMMStorage.class.getResourceAsStream("/org/processmining/openslex/resources/metamodel.sql");
 	
-	/** The Constant JOURNAL_MODE. */
-	private static final String JOURNAL_MODE = "OFF";
+	/** The Constant METAMODEL_INDEXES_RESOURCE. */
+	private static final String METAMODEL_INDEXES_RESOURCE = "/org/processmining/openslex/resources/metamodel-indexes.sql";
+	
+	/** The Constant INDEX_NAME_PATTERN. */
+	private static final Pattern INDEX_NAME_PATTERN = Pattern.compile("CREATE INDEX IF NOT EXISTS (\\w+) ON");
+	
+	/** The storage configuration. */
+	private SLEXMMStorageConfig storageConfig;
+	
+	/** The shape of the queries of elements related to ids. */
+	private volatile SLEXMMQueryShape queryShape = SLEXMMQueryShape.UNION;
 	
-	/** The Constant PRAGMA_SYNCHRONOUS_MODE. */
-	private static final String PRAGMA_SYNCHRONOUS_MODE = "OFF";
+	/** The Constant IMPORT_SORTER_THREADS. */
+	private static final String IMPORT_SORTER_THREADS = "4";
+	
+	/** The importing. */
+	private boolean importing;
 	
 	/** The metamodel_attached. */
 	private boolean metamodel_attached;
@@ -77,8 +122,47 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	/** The connection. */
 	private Connection connection;
 	
+	/** The Constant ID_SET_ARITY, the arity of the templates filtering on an id set. */
+	private static final int ID_SET_ARITY = 0;
+	
 	/** The statements. */
-	private HashSet<Statement> statements;
+	private Set<Statement> statements;
+	
+	/** The metrics. */
+	private final SLEXMMMetrics metrics = new SLEXMMMetrics(this);
+	
+	/** The cache of compiled statements of the connection. */
+	private SLEXMMStatementCache statementCache;
+	
+	/** The id sets loaded for the statements still open. */
+	private ConcurrentHashMap<Statement, Integer> idSets;
+	
+	/** The id preallocation. */
+	private boolean idPreallocation;
+	
+	/** The id allocators, one per table. */
+	private EnumMap<SLEXMMTables, SLEXMMIdAllocator> idAllocators;
+	
+	/** The write-behind queue. */
+	private volatile SLEXMMWriteBehindQueue writeBehind;
+	
+	/** The read connection pool. */
+	private volatile SLEXMMReadConnectionPool readPool;
+	
+	/** The size of the read connection pool to restore at the end of an import. */
+	private int importReadPoolSize;
+	
+	/** The index of the foreign keys. */
+	private volatile SLEXMMGraphIndex graphIndex;
+	
+	/** The index of the foreign keys is built at the end of the import. */
+	private boolean graphIndexOnImport;
+	
+	/** The period index exists, and the period queries use it. */
+	private volatile boolean periodIndex;
+	
+	/** The rows written to and deleted from the id sets of the main connection. */
+	private final AtomicLong idSetChanges = new AtomicLong();
 	
 	/**
 	 * Instantiates a new SLEXMM storage meta model impl.
@@ -88,10 +172,36 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	 * @throws Exception the exception
 	 */
 	public SLEXMMStorageMetaModelImpl(String path, String filename) throws Exception {
-		startConnection(path, filename, false);
+		this(path, filename, false, SLEXMMStorageConfig.getDefault());
 	}
 	
 	public SLEXMMStorageMetaModelImpl(String path, String filename, boolean diskCache) throws Exception {
+		this(path, filename, diskCache, SLEXMMStorageConfig.getDefault());
+	}
+	
+	/**
+	 * Instantiates a new SLEXMM storage meta model with a storage configuration.
+	 *
+	 * @param path the path
+	 * @param filename the filename
+	 * @param config the storage configuration
+	 * @throws Exception the exception
+	 */
+	public SLEXMMStorageMetaModelImpl(String path, String filename, SLEXMMStorageConfig config) throws Exception {
+		this(path, filename, false, config);
+	}
+	
+	/**
+	 * Instantiates a new SLEXMM storage meta model with a storage configuration.
+	 *
+	 * @param path the path
+	 * @param filename the filename
+	 * @param diskCache the disk cache
+	 * @param config the storage configuration
+	 * @throws Exception the exception
+	 */
+	public SLEXMMStorageMetaModelImpl(String path, String filename, boolean diskCache, SLEXMMStorageConfig config) throws Exception {
+		this.storageConfig = config != null ? config : SLEXMMStorageConfig.getDefault();
 		startConnection(path, filename, diskCache);
 	}
 	
@@ -103,57 +213,35 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		this.path = null;
 		this.diskCache = diskCache;
 		this.connection = null;
-		this.statements = new HashSet<>();
-		
-		AttsMapSerializer atMapSerializer =
-				new AttsMapSerializer(this);
-		AttNamesMapSerializer atNamesMapSerializer =
-				new AttNamesMapSerializer(this);
-		DBElementSerializer absDBobjectSerializer =
-				new DBElementSerializer(this);
-		DB db = null;
+		this.statements = ConcurrentHashMap.newKeySet();
+		this.idSets = new ConcurrentHashMap<>();
+		this.idPreallocation = false;
+		this.idAllocators = new EnumMap<>(SLEXMMTables.class);
+		this.writeBehind = null;
+		this.readPool = null;
+		this.importing = false;
+		this.importReadPoolSize = 0;
 		
 		if (diskCache) {
-			db = DBMaker
+			AttsMapSerializer atMapSerializer =
+					new AttsMapSerializer(this);
+			AttNamesMapSerializer atNamesMapSerializer =
+					new AttNamesMapSerializer(this);
+			DBElementSerializer absDBobjectSerializer =
+					new DBElementSerializer(this);
+			DB db = DBMaker
 					.tempFileDB()
-					.concurrencyDisable()
-					.allocateStartSize( 15 * 1024*1024*1024)  // 10GB
-				    .allocateIncrement(512 * 1024*1024)       // 512MB
+					.allocateStartSize(DISK_CACHE_START_SIZE)
+				    .allocateIncrement(DISK_CACHE_INCREMENT)
 			        .fileMmapEnable()
 			        .fileMmapPreclearDisable()
 			        .make();
-		} else {
-			db = DBMaker
-					.heapDB()
-					.concurrencyDisable()
-					.allocateStartSize( 15 * 1024*1024*1024)  // 10GB
-				    .allocateIncrement(512 * 1024*1024)       // 512MB
-			        .make();
+			this.objectRepo = new SLEXMMMapDBCache<>(db, "objectRepo", absDBobjectSerializer);
+			this.attsRepo = new SLEXMMMapDBCache<>(db, "attsRepo", atMapSerializer);
+			this.attNamesRepo = new SLEXMMMapDBCache<>(db, "attNamesRepo", atNamesMapSerializer);
+			this.elementOfRepo = new SLEXMMMapDBCache<>(db, "elementsOfRepo", Serializer.INT_ARRAY);
 		}
-		HTreeMap<String, AbstractDBElement> map = db
-		        .hashMap("objectRepo")
-		        .keySerializer(Serializer.STRING)
-		        .valueSerializer(absDBobjectSerializer)
-		        .create();
-		HTreeMap<String, HashMap<AbstractAttDBElement, AbstractDBElementWithValue>> mapAtts = db
-				.hashMap("attsRepo")
-				.keySerializer(Serializer.STRING)
-				.valueSerializer(atMapSerializer)
-				.create();
-		HTreeMap<String, HashMap<String, AbstractAttDBElement>> mapAttNames = db
-				.hashMap("attNamesRepo")
-				.keySerializer(Serializer.STRING)
-				.valueSerializer(atNamesMapSerializer)
-				.create();
-		HTreeMap<String, int[]> mapElementsOf = db
-				.hashMap("elementsOfRepo")
-				.keySerializer(Serializer.STRING)
-				.valueSerializer(Serializer.INT_ARRAY)
-				.create();
-		this.objectRepo = map;
-		this.attsRepo = mapAtts;
-		this.attNamesRepo = mapAttNames;
-		this.elementOfRepo = mapElementsOf;
+		createCaches(cacheConfig);
 		init();
 		this.filename = filename;
 		this.path = path;
@@ -252,6 +340,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 			String fname = path+File.separator+filename;
 			if (attachDatabaseFile(fname,METAMODEL_ALIAS,METAMODEL_SCHEMA_IN)) {
 				metamodel_attached = true;
+				periodIndex = checkPeriodIndex();
 			}
 			return metamodel_attached;
 		} else {
@@ -292,6 +381,467 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		return result;
 	}
 	
+	/**
+	 * Gets the index creation statements of the metamodel schema.
+	 *
+	 * @return the statements, without schema prefix
+	 */
+	private List<String> getIndexStatements() {
+		List<String> stmts = new ArrayList<>();
+		BufferedReader reader = null;
+		try {
+			reader = new BufferedReader(new InputStreamReader(
+					SLEXMMStorage.class.getResourceAsStream(METAMODEL_INDEXES_RESOURCE)));
+			StringBuilder command = new StringBuilder();
+			String line = null;
+			while ((line = reader.readLine()) != null) {
+				String trimmedLine = line.trim();
+				if (trimmedLine.isEmpty() || trimmedLine.startsWith("--")) {
+					continue;
+				}
+				command.append(trimmedLine);
+				if (trimmedLine.endsWith(";")) {
+					stmts.add(command.substring(0, command.length() - 1));
+					command = new StringBuilder();
+				} else {
+					command.append(" ");
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			if (reader != null) {
+				try {
+					reader.close();
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return stmts;
+	}
+	
+	/**
+	 * Gets the names of the secondary indexes of the metamodel schema.
+	 *
+	 * @return the index names
+	 */
+	public List<String> getIndexNames() {
+		List<String> names = new ArrayList<>();
+		for (String stmt: getIndexStatements()) {
+			Matcher m = INDEX_NAME_PATTERN.matcher(stmt);
+			if (m.find()) {
+				names.add(m.group(1));
+			}
+		}
+		return names;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#createIndexes()
+	 */
+	@Override
+	public synchronized boolean createIndexes() {
+		Statement statement = null;
+		boolean result = false;
+		try {
+			statement = createStatement();
+			for (String stmt: getIndexStatements()) {
+				statement.execute(stmt.replaceFirst("CREATE INDEX IF NOT EXISTS ",
+						"CREATE INDEX IF NOT EXISTS "+METAMODEL_ALIAS+"."));
+			}
+			periodIndex = buildPeriodIndex(connection, statement, METAMODEL_ALIAS);
+			result = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			result = false;
+		} finally {
+			closeStatement(statement);
+		}
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#dropIndexes()
+	 */
+	@Override
+	public synchronized boolean dropIndexes() {
+		Statement statement = null;
+		boolean result = false;
+		try {
+			statement = createStatement();
+			for (String name: getIndexNames()) {
+				statement.execute("DROP INDEX IF EXISTS "+METAMODEL_ALIAS+"."+name);
+			}
+			periodIndex = false;
+			for (SLEXMMTables table: SLEXMMPeriodIndex.getTables()) {
+				for (String stmt: SLEXMMPeriodIndex.getDropStatements(table, METAMODEL_ALIAS)) {
+					statement.execute(stmt);
+				}
+			}
+			result = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			result = false;
+		} finally {
+			closeStatement(statement);
+		}
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#beginImport()
+	 */
+	@Override
+	public synchronized boolean beginImport() {
+		if (isImporting()) {
+			return false;
+		}
+		
+		if (!dropIndexes()) {
+			return false;
+		}
+		
+		// Readers would keep the file from leaving WAL mode, they use this connection meanwhile
+		SLEXMMReadConnectionPool pool = readPool;
+		importReadPoolSize = pool != null ? pool.getSize() : 0;
+		disableReadPool();
+		
+		applyStorageConfig(new SLEXMMStorageConfig(SLEXMMStorageConfig.Profile.BULK_LOAD));
+		importing = true;
+		
+		return true;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#endImport()
+	 */
+	@Override
+	public boolean endImport() {
+		return endImport(false);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#endImport(boolean)
+	 */
+	@Override
+	public boolean endImport(boolean separateConnection) {
+		if (!isImporting()) {
+			return false;
+		}
+		
+		// Queued writes must be in the database before the indexes are built
+		SLEXMMWriteBehindQueue queue = writeBehind;
+		if (queue != null) {
+			queue.awaitDurable();
+		}
+		
+		boolean result = false;
+		
+		synchronized (this) {
+			try {
+				if (!connection.getAutoCommit()) {
+					connection.commit();
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			
+			if (separateConnection) {
+				// The other connection cannot write while this one keeps the file locked
+				setPragma(METAMODEL_ALIAS, "locking_mode", "NORMAL");
+				reloadSchema();
+				result = buildIndexesOnSeparateConnection();
+				// Reading the schema makes this connection reload it with the new indexes and statistics
+				reloadSchema();
+			} else {
+				result = buildIndexes();
+			}
+			
+			importing = false;
+			applyStorageConfig(storageConfig);
+			
+			if (importReadPoolSize > 0) {
+				enableReadPool(importReadPoolSize);
+				importReadPoolSize = 0;
+			}
+			
+			if (graphIndex != null || graphIndexOnImport) {
+				graphIndexOnImport = false;
+				rebuildGraphIndex();
+			}
+		}
+		
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#isImporting()
+	 */
+	@Override
+	public boolean isImporting() {
+		return this.importing;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getStorageConfig()
+	 */
+	@Override
+	public SLEXMMStorageConfig getStorageConfig() {
+		return this.storageConfig;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#setStorageConfig(org.processmining.openslex.metamodel.SLEXMMStorageConfig)
+	 */
+	@Override
+	public synchronized boolean setStorageConfig(SLEXMMStorageConfig config) {
+		if (config == null) {
+			return false;
+		}
+		if (readPool != null && !config.isWAL()) {
+			// The readers of the pool need the write-ahead log
+			return false;
+		}
+		this.storageConfig = config;
+		if (isImporting()) {
+			// Applied when the import ends
+			return true;
+		}
+		return applyStorageConfig(config);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getQueryShape()
+	 */
+	@Override
+	public SLEXMMQueryShape getQueryShape() {
+		return this.queryShape;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#setQueryShape(org.processmining.openslex.metamodel.querygen.SLEXMMQueryShape)
+	 */
+	@Override
+	public void setQueryShape(SLEXMMQueryShape shape) {
+		this.queryShape = shape != null ? shape : SLEXMMQueryShape.UNION;
+	}
+	
+	/**
+	 * Applies the pragmas of a storage configuration to the metamodel database.
+	 *
+	 * @param config the storage configuration
+	 * @return true, if all the pragmas were applied
+	 */
+	private boolean applyStorageConfig(SLEXMMStorageConfig config) {
+		boolean result = true;
+		for (Entry<String, String> pragma: config.getDatabasePragmas().entrySet()) {
+			result &= setPragma(METAMODEL_ALIAS, pragma.getKey(), pragma.getValue());
+		}
+		if (config.getTempStore() != null) {
+			result &= setPragma(null, "temp_store", config.getTempStore());
+		}
+		if (!"EXCLUSIVE".equalsIgnoreCase(config.getLockingMode())) {
+			// An exclusive lock is only released on the next access to the file
+			reloadSchema();
+		}
+		return result;
+	}
+	
+	/**
+	 * Reads the schema of the metamodel database, which reloads it if another
+	 * connection changed it and releases an exclusive lock no longer needed.
+	 */
+	private void reloadSchema() {
+		Statement statement = null;
+		try {
+			statement = createStatement();
+			statement.executeQuery("SELECT count(*) FROM "+METAMODEL_ALIAS+".sqlite_master").close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			closeStatement(statement);
+		}
+	}
+	
+	/**
+	 * Builds all the secondary indexes in one transaction on the storage
+	 * connection and updates the planner statistics.
+	 *
+	 * @return true, if successful
+	 */
+	private boolean buildIndexes() {
+		boolean result = false;
+		boolean autoCommit = true;
+		Statement statement = null;
+		try {
+			autoCommit = connection.getAutoCommit();
+			setPragma(null, "threads", IMPORT_SORTER_THREADS);
+			connection.setAutoCommit(false);
+			statement = createStatement();
+			for (String stmt: getIndexStatements()) {
+				statement.execute(stmt.replaceFirst("CREATE INDEX IF NOT EXISTS ",
+						"CREATE INDEX IF NOT EXISTS "+METAMODEL_ALIAS+"."));
+			}
+			connection.commit();
+			periodIndex = buildPeriodIndex(connection, statement, METAMODEL_ALIAS);
+			statement.execute("ANALYZE "+METAMODEL_ALIAS);
+			result = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			try {
+				connection.rollback();
+			} catch (Exception e2) {
+				e2.printStackTrace();
+			}
+			result = false;
+		} finally {
+			closeStatement(statement);
+			try {
+				connection.setAutoCommit(autoCommit);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Builds all the secondary indexes in one transaction on a new
+	 * connection to the metamodel file and updates the planner statistics,
+	 * leaving the storage connection free in the meantime.
+	 *
+	 * @return true, if successful
+	 */
+	private boolean buildIndexesOnSeparateConnection() {
+		boolean result = false;
+		Connection connAux = null;
+		Statement statement = null;
+		try {
+			connAux = DriverManager.getConnection("jdbc:sqlite:"+this.path+File.separator+this.filename);
+			statement = connAux.createStatement();
+			statement.execute("pragma journal_mode = OFF;");
+			statement.execute("pragma synchronous = OFF;");
+			statement.execute("pragma cache_size = "+SLEXMMStorageConfig.LARGE_CACHE_SIZE+";");
+			statement.execute("pragma temp_store = MEMORY;");
+			statement.execute("pragma threads = "+IMPORT_SORTER_THREADS+";");
+			connAux.setAutoCommit(false);
+			for (String stmt: getIndexStatements()) {
+				statement.execute(stmt);
+			}
+			connAux.commit();
+			connAux.setAutoCommit(true);
+			periodIndex = buildPeriodIndex(connAux, statement, null);
+			statement.execute("ANALYZE");
+			result = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			result = false;
+		} finally {
+			if (statement != null) {
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+			if (connAux != null) {
+				try {
+					connAux.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Builds the period index in one transaction. If SQLite lacks the R*Tree
+	 * module, the tables are left without it and the period queries keep
+	 * testing every row.
+	 *
+	 * @param conn the connection
+	 * @param statement a statement of the connection
+	 * @param schema the schema of the metamodel in the connection, or null for the main one
+	 * @return true, if the index was built
+	 */
+	private boolean buildPeriodIndex(Connection conn, Statement statement, String schema) {
+		boolean result = false;
+		boolean autoCommit = true;
+		try {
+			autoCommit = conn.getAutoCommit();
+			conn.setAutoCommit(false);
+			for (SLEXMMTables table: SLEXMMPeriodIndex.getTables()) {
+				for (String stmt: SLEXMMPeriodIndex.getCreateStatements(table, schema)) {
+					statement.execute(stmt);
+				}
+			}
+			conn.commit();
+			result = true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			try {
+				conn.rollback();
+			} catch (Exception e2) {
+				e2.printStackTrace();
+			}
+			result = false;
+		} finally {
+			try {
+				conn.setAutoCommit(autoCommit);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Checks if the metamodel database has the period index, with the tree
+	 * and the triggers of every table.
+	 *
+	 * @return true, if the index exists
+	 */
+	private boolean checkPeriodIndex() {
+		List<String> names = new ArrayList<>();
+		for (SLEXMMTables table: SLEXMMPeriodIndex.getTables()) {
+			names.addAll(SLEXMMPeriodIndex.getIndexObjects(table));
+		}
+		Statement statement = null;
+		boolean result = false;
+		try {
+			statement = createStatement();
+			ResultSet rset = statement.executeQuery("SELECT count(*) FROM "+METAMODEL_ALIAS+".sqlite_master"
+					+ " WHERE name IN ('"+String.join("','", names)+"')");
+			result = rset.next() && rset.getInt(1) == names.size();
+			rset.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+			result = false;
+		} finally {
+			closeStatement(statement);
+		}
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#hasPeriodIndex()
+	 */
+	@Override
+	public boolean hasPeriodIndex() {
+		return periodIndex && !isImporting();
+	}
+	
+	/**
+	 * Gets the query generator, and through it the join plans of the queries.
+	 *
+	 * @return the query generator
+	 */
+	public SLEXMMStorageQueryGenerator getQueryGenerator() {
+		return this.slxmmstrqgen;
+	}
+	
 	/**
 	 * Creates the statement.
 	 *
@@ -305,7 +855,143 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		} catch (SQLException e) {
 			//e.printStackTrace();
 		}
-		return stm;
+		return stm;
+	}
+	
+	/**
+	 * Creates a statement for a read query. It runs on a connection of the
+	 * read pool when enabled, and on the main connection otherwise.
+	 *
+	 * @return the statement
+	 */
+	private Statement createReadStatement() {
+		SLEXMMReadConnectionPool pool = readPool;
+		if (pool != null) {
+			try {
+				return pool.createStatement();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+		return createStatement();
+	}
+	
+	/**
+	 * Checks out a compiled statement for a read query from the statement
+	 * cache of a connection of the read pool when enabled, and of the main
+	 * connection otherwise. It goes back to the cache with closeStatement().
+	 *
+	 * @param query the query
+	 * @return the prepared statement
+	 * @throws SQLException the SQL exception
+	 */
+	private PreparedStatement prepareReadStatement(String query) throws SQLException {
+		SLEXMMReadConnectionPool pool = readPool;
+		if (pool != null) {
+			return pool.prepareStatement(query);
+		}
+		return statementCache.prepare(query);
+	}
+	
+	/**
+	 * Gets the cache of compiled statements of the main connection.
+	 *
+	 * @return the statement cache
+	 */
+	public SLEXMMStatementCache getStatementCache() {
+		return this.statementCache;
+	}
+	
+	/**
+	 * Gets the arity of the query template for a number of ids. Ids beyond
+	 * the ones that can be bound as parameters go in an id set.
+	 *
+	 * @param ids the ids
+	 * @return the arity, ID_SET_ARITY for an id set, or -1 if no template applies
+	 */
+	private static int getTemplateArity(int[] ids) {
+		if (ids == null || ids.length == 0) {
+			return -1;
+		}
+		int arity = SLEXMMStorageQueryGenerator.getTemplateArity(ids.length);
+		return arity > 0 ? arity : ID_SET_ARITY;
+	}
+	
+	/**
+	 * Gets a query template for the elements of a table related to a number
+	 * of ids of another table, rendering it the first time.
+	 *
+	 * @param tableA the table of the elements
+	 * @param tableB the table of the ids
+	 * @param arity the arity of the template, or ID_SET_ARITY to filter on an id set
+	 * @param shape the shape of the select query, periods are always per origin
+	 * @param periods true for the periods query, false for the select query
+	 * @return the query template
+	 */
+	private String getQueryTemplate(SLEXMMTables tableA, SLEXMMTables tableB, int arity, SLEXMMQueryShape shape,
+			boolean periods) {
+		SLEXMMQueryPlan plan = slxmmstrqgen.getPlan(tableA, tableB);
+		if (arity == ID_SET_ARITY) {
+			if (periods) {
+				return slxmmstrqgen.getPeriodsTemplate(plan, SLEXMMIdSetTable.FILTER);
+			} else if (shape == SLEXMMQueryShape.SEMI_JOIN) {
+				return slxmmstrqgen.getSemiJoinTemplate(plan, SLEXMMIdSetTable.FILTER);
+			} else {
+				return slxmmstrqgen.getSelectTemplate(plan, SLEXMMIdSetTable.FILTER);
+			}
+		} else {
+			if (periods) {
+				return slxmmstrqgen.getPeriodsTemplate(plan, arity);
+			} else if (shape == SLEXMMQueryShape.SEMI_JOIN) {
+				return slxmmstrqgen.getSemiJoinTemplate(plan, arity);
+			} else {
+				return slxmmstrqgen.getSelectTemplate(plan, arity);
+			}
+		}
+	}
+	
+	/**
+	 * Binds the ids to the parameters of a query template. The parameters
+	 * beyond the number of ids repeat the last one. For an id set, the ids
+	 * are loaded in the temp table of the connection of the statement and
+	 * deleted when the statement is closed.
+	 *
+	 * @param statement the statement
+	 * @param ids the ids
+	 * @param arity the arity of the template
+	 * @throws SQLException the SQL exception
+	 */
+	private void bindIds(PreparedStatement statement, int[] ids, int arity) throws SQLException {
+		if (arity == ID_SET_ARITY) {
+			Connection conn = statement.getConnection();
+			SLEXMMStatementCache cache = getStatementCache(conn);
+			// Loaded now and deleted when the statement is closed, they do not change the metamodel
+			int setId = SLEXMMIdSetTable.load(conn, cache, ids, conn == connection ? idSetChanges : null);
+			statement.setInt(1, setId);
+			idSets.put(statement, setId);
+			return;
+		}
+		for (int i = 0; i < arity; i++) {
+			statement.setInt(i+1, ids[i < ids.length ? i : ids.length-1]);
+		}
+	}
+	
+	/**
+	 * Gets the statement cache of the main connection or of a connection
+	 * of the read pool.
+	 *
+	 * @param conn the connection
+	 * @return the statement cache
+	 */
+	private SLEXMMStatementCache getStatementCache(Connection conn) {
+		SLEXMMReadConnectionPool pool = readPool;
+		if (conn != connection && pool != null) {
+			SLEXMMStatementCache cache = pool.getStatementCache(conn);
+			if (cache != null) {
+				return cache;
+			}
+		}
+		return statementCache;
 	}
 	
 	/* (non-Javadoc)
@@ -313,11 +999,30 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	 */
 	@Override
 	public void closeStatement(Statement statement) {
-		try {
-			if (statement != null) {
-				statement.close();
-				statements.remove(statement);
+		if (statement == null) {
+			return;
+		}
+		Integer setId = idSets.remove(statement);
+		if (setId != null) {
+			// On the connection of the statement, before it goes back to the pool
+			try {
+				Connection conn = statement.getConnection();
+				SLEXMMIdSetTable.clear(conn, getStatementCache(conn), setId,
+						conn == connection ? idSetChanges : null);
+			} catch (SQLException e) {
+				e.printStackTrace();
 			}
+		}
+		SLEXMMReadConnectionPool pool = readPool;
+		if (pool != null && pool.release(statement)) {
+			return;
+		}
+		if (statementCache != null && statementCache.release(statement)) {
+			return;
+		}
+		try {
+			statement.close();
+			statements.remove(statement);
 		} catch (Exception e) {
 			//e.printStackTrace();
 		}
@@ -368,8 +1073,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 			result = false;
 		} finally {
 			closeStatement(statement);
-			setJournalMode(JOURNAL_MODE);
-			setSynchronousMode(PRAGMA_SYNCHRONOUS_MODE);
+			applyStorageConfig(storageConfig);
 		}
 		return result;
 	}
@@ -398,45 +1102,21 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	}
 	
 	/**
-	 * Sets the journal mode.
-	 *
-	 * @param mode the mode
-	 * @return true, if successful
-	 */
-	private boolean setJournalMode(String mode) {
-		if (mode != null) {
-			Statement statement = null;
-			boolean result = false;
-			try {
-				statement = createStatement();
-				statement.setQueryTimeout(30);
-				statement.execute("pragma journal_mode = "+mode+";");
-				result = true;
-			} catch (Exception e) {
-				result = false;
-			} finally {
-				closeStatement(statement);
-			}
-			
-			return result;
-		}
-		return false;
-	}
-	
-	/**
-	 * Sets the synchronous mode.
+	 * Sets a pragma of an attached database.
 	 *
-	 * @param mode the mode
+	 * @param schema the alias of the database, or null for connection-wide pragmas
+	 * @param pragma the pragma
+	 * @param value the value
 	 * @return true, if successful
 	 */
-	private boolean setSynchronousMode(String mode) {
-		if (mode != null) {
+	private boolean setPragma(String schema, String pragma, String value) {
+		if (pragma != null && value != null) {
 			Statement statement = null;
 			boolean result = false;
 			try {
 				statement = createStatement();
 				statement.setQueryTimeout(30);
-				statement.execute("pragma synchronous = "+mode+";");
+				statement.execute("pragma "+(schema != null ? schema+"." : "")+pragma+" = "+value+";");
 				result = true;
 			} catch (Exception e) {
 				result = false;
@@ -487,6 +1167,8 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		try {
 			connection = DriverManager.getConnection("jdbc:sqlite::memory:");
 			connection.setTransactionIsolation(Connection.TRANSACTION_READ_UNCOMMITTED);
+			statementCache = new SLEXMMStatementCache(connection, SLEXMMStatementCache.DEFAULT_CAPACITY);
+			SLEXMMIdSetTable.create(connection);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -497,6 +1179,14 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	 */
 	@Override
 	public void disconnect() {
+		disableWriteBehind();
+		disableReadPool();
+		metrics.close();
+		
+		if (statementCache != null) {
+			statementCache.close();
+		}
+		
 		try {
 			if (connection != null) {
 				connection.close();
@@ -589,6 +1279,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		ev.setLifecycle(lifecycle);
 		ev.setResource(resource);
 		ev.setTimestamp(timestamp);
+		if (isIdPreallocationEnabled()) {
+			assignId(ev, SLEXMMTables.T_EVENT);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			ev.commit();
 		}
@@ -604,6 +1297,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMAttributeValue av = new SLEXMMAttributeValue(this,attributeId,objectVersionId);
 		av.setValue(value);
 		av.setType(type);
+		if (isIdPreallocationEnabled()) {
+			assignId(av, SLEXMMTables.T_ATTRIBUTE_VALUE);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			av.commit();
 		}
@@ -664,6 +1360,311 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		return k;
 	}
 	
+	/**
+	 * Gets the connection.
+	 *
+	 * @return the connection
+	 */
+	Connection getConnection() {
+		return this.connection;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#createBulkInsertSession()
+	 */
+	@Override
+	public SLEXMMBulkInsertSession createBulkInsertSession() {
+		return createBulkInsertSession(SLEXMMBulkInsertSession.DEFAULT_BATCH_SIZE);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#createBulkInsertSession(int)
+	 */
+	@Override
+	public SLEXMMBulkInsertSession createBulkInsertSession(int batchSize) {
+		return new SLEXMMBulkInsertSession(this, batchSize);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#setIdPreallocation(boolean)
+	 */
+	@Override
+	public void setIdPreallocation(boolean flag) {
+		this.idPreallocation = flag;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#isIdPreallocationEnabled()
+	 */
+	@Override
+	public boolean isIdPreallocationEnabled() {
+		return this.idPreallocation;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getIdAllocator(org.processmining.openslex.metamodel.querygen.SLEXMMTables)
+	 */
+	@Override
+	public SLEXMMIdAllocator getIdAllocator(SLEXMMTables table) {
+		synchronized (idAllocators) {
+			SLEXMMIdAllocator allocator = idAllocators.get(table);
+			if (allocator == null) {
+				allocator = new SLEXMMIdAllocator(this, table, SLEXMMIdAllocator.DEFAULT_BLOCK_SIZE);
+				idAllocators.put(table, allocator);
+			}
+			return allocator;
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#enableWriteBehind()
+	 */
+	@Override
+	public SLEXMMWriteBehindQueue enableWriteBehind() {
+		return enableWriteBehind(SLEXMMWriteBehindQueue.DEFAULT_QUEUE_CAPACITY,
+				SLEXMMWriteBehindQueue.DEFAULT_BATCH_SIZE);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#enableWriteBehind(int, int)
+	 */
+	@Override
+	public synchronized SLEXMMWriteBehindQueue enableWriteBehind(int queueCapacity, int batchSize) {
+		if (writeBehind == null) {
+			setIdPreallocation(true);
+			writeBehind = new SLEXMMWriteBehindQueue(this, queueCapacity, batchSize);
+			writeBehind.start();
+		}
+		return writeBehind;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#disableWriteBehind()
+	 */
+	@Override
+	public boolean disableWriteBehind() {
+		SLEXMMWriteBehindQueue queue = writeBehind;
+		if (queue == null) {
+			return true;
+		}
+		// Not synchronized on the storage, the writer needs it to drain the queue
+		boolean result = queue.stop();
+		writeBehind = null;
+		return result;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getWriteBehindQueue()
+	 */
+	@Override
+	public SLEXMMWriteBehindQueue getWriteBehindQueue() {
+		return this.writeBehind;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#enableReadPool()
+	 */
+	@Override
+	public SLEXMMReadConnectionPool enableReadPool() {
+		return enableReadPool(SLEXMMReadConnectionPool.DEFAULT_POOL_SIZE);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#enableReadPool(int)
+	 */
+	@Override
+	public synchronized SLEXMMReadConnectionPool enableReadPool(int size) {
+		if (readPool != null) {
+			return readPool;
+		}
+		if (isImporting()) {
+			// Enabled when the import ends
+			importReadPoolSize = size > 0 ? size : SLEXMMReadConnectionPool.DEFAULT_POOL_SIZE;
+			return null;
+		}
+		
+		try {
+			if (!connection.getAutoCommit()) {
+				// Readers only see committed data, and the journal mode cannot change within a transaction
+				connection.commit();
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		}
+		
+		if (!storageConfig.isWAL()) {
+			// On a copy, the configuration of the caller is left as it was
+			SLEXMMStorageConfig config = new SLEXMMStorageConfig(storageConfig);
+			config.setJournalMode("WAL");
+			if (!setPragma(METAMODEL_ALIAS, "journal_mode", "WAL")) {
+				return null;
+			}
+			storageConfig = config;
+		}
+		
+		readPool = new SLEXMMReadConnectionPool(this.path+File.separator+this.filename,
+				METAMODEL_ALIAS, storageConfig, size);
+		return readPool;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#disableReadPool()
+	 */
+	@Override
+	public synchronized void disableReadPool() {
+		SLEXMMReadConnectionPool pool = readPool;
+		if (pool != null) {
+			readPool = null;
+			pool.close();
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getReadPool()
+	 */
+	@Override
+	public SLEXMMReadConnectionPool getReadPool() {
+		return this.readPool;
+	}
+	
+	/**
+	 * Gets the number of rows written through the main connection, leaving
+	 * out the ones of the id sets it loaded.
+	 *
+	 * @return the number of changes
+	 */
+	private long getChanges() {
+		long total = -1;
+		try {
+			total = ((CoreConnection) connection).db().total_changes();
+		} catch (Exception e) {
+			Statement statement = createStatement();
+			try {
+				ResultSet rset = statement.executeQuery("SELECT total_changes()");
+				total = rset.next() ? rset.getLong(1) : -1;
+				rset.close();
+			} catch (SQLException ex) {
+				ex.printStackTrace();
+			} finally {
+				closeStatement(statement);
+			}
+		}
+		return total < 0 ? -1 : total - idSetChanges.get();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#enableGraphIndex()
+	 */
+	@Override
+	public synchronized SLEXMMGraphIndex enableGraphIndex() {
+		if (graphIndex != null) {
+			return graphIndex;
+		}
+		return rebuildGraphIndex();
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#rebuildGraphIndex()
+	 */
+	@Override
+	public synchronized SLEXMMGraphIndex rebuildGraphIndex() {
+		if (isImporting()) {
+			// Built when the import ends
+			graphIndexOnImport = true;
+			return null;
+		}
+		
+		Statement statement = null;
+		try {
+			if (!connection.getAutoCommit()) {
+				// The read pool only sees committed data
+				connection.commit();
+			}
+			long changes = getChanges();
+			statement = createReadStatement();
+			graphIndex = SLEXMMGraphIndex.build(statement, METAMODEL_ALIAS, changes);
+		} catch (Exception e) {
+			e.printStackTrace();
+			graphIndex = null;
+		} finally {
+			closeStatement(statement);
+		}
+		return graphIndex;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#disableGraphIndex()
+	 */
+	@Override
+	public synchronized void disableGraphIndex() {
+		graphIndex = null;
+		graphIndexOnImport = false;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getGraphIndex()
+	 */
+	@Override
+	public SLEXMMGraphIndex getGraphIndex() {
+		return this.graphIndex;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#isGraphIndexCurrent()
+	 */
+	@Override
+	public boolean isGraphIndexCurrent() {
+		SLEXMMGraphIndex index = graphIndex;
+		return index != null && !isImporting() && index.getChanges() == getChanges();
+	}
+	
+	/**
+	 * Assigns a preallocated id to an element that does not have one yet.
+	 *
+	 * @param e the element
+	 * @param table the table of the element
+	 * @return true, if the element has an id
+	 */
+	boolean assignId(AbstractDBElement e, SLEXMMTables table) {
+		if (e.getId() == -1) {
+			int id = getIdAllocator(table).nextId();
+			if (id == -1) {
+				return false;
+			}
+			e.setId(id);
+		}
+		return true;
+	}
+	
+	/**
+	 * Binds the id of an element to a statement parameter, or NULL
+	 * if the id must be generated by the database.
+	 *
+	 * @param statement the statement
+	 * @param index the parameter index
+	 * @param e the element
+	 * @throws SQLException the SQL exception
+	 */
+	static void bindId(PreparedStatement statement, int index, AbstractDBElement e) throws SQLException {
+		if (e.getId() == -1) {
+			statement.setNull(index, Types.INTEGER);
+		} else {
+			statement.setInt(index, e.getId());
+		}
+	}
+	
+	/**
+	 * Gets the id of an element as an SQL literal, or NULL
+	 * if the id must be generated by the database.
+	 *
+	 * @param e the element
+	 * @return the id literal
+	 */
+	private static String getIdOrNull(AbstractDBElement e) {
+		return e.getId() == -1 ? "NULL" : String.valueOf(e.getId());
+	}
+	
 	/**
 	 * Gets the last inserted row id.
 	 *
@@ -696,9 +1697,11 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		try {
 			statement = createStatement();
 			statement.setQueryTimeout(30);
-			statement.execute("INSERT INTO "+METAMODEL_ALIAS+".event (activity_instance_id,ordering,lifecycle,timestamp,resource) VALUES ('"+
-					ev.getActivityInstanceId()+"','"+ev.getOrder()+"','"+ev.getLifecycle()+"','"+ev.getTimestamp()+"','"+ev.getResource()+"')");
-			ev.setId(getLastInsertedRowId(statement));
+			statement.execute("INSERT INTO "+METAMODEL_ALIAS+".event (id,activity_instance_id,ordering,lifecycle,timestamp,resource) VALUES ("+
+					getIdOrNull(ev)+",'"+ev.getActivityInstanceId()+"','"+ev.getOrder()+"','"+ev.getLifecycle()+"','"+ev.getTimestamp()+"','"+ev.getResource()+"')");
+			if (ev.getId() == -1) {
+				ev.setId(getLastInsertedRowId(statement));
+			}
 			// TODO Insert all the attributes and attribute-values in the event, if any
 			result = true;
 		} catch (Exception e) {
@@ -723,10 +1726,10 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 			statement.setQueryTimeout(30);
 			statement.execute("UPDATE "+METAMODEL_ALIAS+".event"+
 					" SET activity_instance_id = '"+ev.getActivityInstanceId()+"' "+
-					" AND ordering = '"+ev.getOrder()+"'"+
-					" AND lifecycle = '"+ev.getLifecycle()+"'"+
-					" AND resource = '"+ev.getResource()+"'"+
-					" AND timestamp = '"+ev.getTimestamp()+"'"+
+					" , ordering = '"+ev.getOrder()+"'"+
+					" , lifecycle = '"+ev.getLifecycle()+"'"+
+					" , resource = '"+ev.getResource()+"'"+
+					" , timestamp = '"+ev.getTimestamp()+"'"+
 					" WHERE id = '"+ev.getId()+"'");
 			result = true;
 		} catch (Exception e) {
@@ -893,14 +1896,17 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		boolean result = false;
 		try {
 			statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS
-					+".attribute_value (object_version_id,attribute_name_id,value,type) VALUES (?,?,?,?)");
+					+".attribute_value (id,object_version_id,attribute_name_id,value,type) VALUES (?,?,?,?,?)");
 			statement.setQueryTimeout(30);
-			statement.setInt(1, av.getObjectVersionId());
-			statement.setInt(2, av.getAttributeId());
-			statement.setString(3, av.getValue());
-			statement.setString(4, av.getType());
+			bindId(statement, 1, av);
+			statement.setInt(2, av.getObjectVersionId());
+			statement.setInt(3, av.getAttributeId());
+			statement.setString(4, av.getValue());
+			statement.setString(5, av.getType());
 			statement.execute();
-			av.setId(getLastInsertedRowId(statement));
+			if (av.getId() == -1) {
+				av.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -949,14 +1955,17 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		boolean result = false;
 		try {
 			statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS
-					+".event_attribute_value (event_id,event_attribute_name_id,value,type) VALUES (?,?,?,?)");
+					+".event_attribute_value (id,event_id,event_attribute_name_id,value,type) VALUES (?,?,?,?,?)");
 			statement.setQueryTimeout(30);
-			statement.setInt(1, av.getEventId());
-			statement.setInt(2, av.getAttributeId());
-			statement.setString(3, av.getValue());
-			statement.setString(4, av.getType());
+			bindId(statement, 1, av);
+			statement.setInt(2, av.getEventId());
+			statement.setInt(3, av.getAttributeId());
+			statement.setString(4, av.getValue());
+			statement.setString(5, av.getType());
 			statement.execute();
-			av.setId(getLastInsertedRowId(statement));
+			if (av.getId() == -1) {
+				av.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1141,8 +2150,10 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		try {
 			statement = createStatement();
 			statement.setQueryTimeout(30);
-			statement.execute("INSERT INTO "+METAMODEL_ALIAS+".'case' (name) VALUES ('"+t.getName()+"')");
-			t.setId(getLastInsertedRowId(statement));
+			statement.execute("INSERT INTO "+METAMODEL_ALIAS+".'case' (id,name) VALUES ("+getIdOrNull(t)+",'"+t.getName()+"')");
+			if (t.getId() == -1) {
+				t.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1342,6 +2353,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	public SLEXMMCase createCase(String name) {
 		SLEXMMCase t = new SLEXMMCase(this);
 		t.setName(name);
+		if (isIdPreallocationEnabled()) {
+			assignId(t, SLEXMMTables.T_CASE);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			t.commit();
 		}
@@ -1375,6 +2389,10 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	 */
 	@Override
 	public boolean addActivityInstanceToCase(int traceId, int activityInstanceId) {
+		SLEXMMWriteBehindQueue queue = writeBehind;
+		if (queue != null && queue.isRunning()) {
+			return queue.addActivityInstanceToCase(traceId, activityInstanceId);
+		}
 		Statement statement = null;
 		boolean result = false;
 		try {
@@ -1443,6 +2461,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMEventAttributeValue av = new SLEXMMEventAttributeValue(this,attributeId,eventId);
 		av.setValue(value);
 		av.setType(type);
+		if (isIdPreallocationEnabled()) {
+			assignId(av, SLEXMMTables.T_EVENT_ATTRIBUTE_VALUE);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			av.commit();
 		}
@@ -1462,6 +2483,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		rt.setStartTimestamp(startTimestamp);
 		rt.setEndTimestamp(endTimestamp);
 		rt.setRelationshipId(relationshipId);
+		if (isIdPreallocationEnabled()) {
+			assignId(rt, SLEXMMTables.T_RELATION);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			rt.commit();
 		}
@@ -1477,18 +2501,21 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		boolean result = false;
 		try {
 			statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS
-					+".relation (source_object_version_id,"
+					+".relation (id,source_object_version_id,"
 					+"target_object_version_id,relationship_id,"
 					+"start_timestamp,end_timestamp)"
-					+" VALUES (?,?,?,?,?)");
+					+" VALUES (?,?,?,?,?,?)");
 			statement.setQueryTimeout(30);
-			statement.setInt(1, rt.getSourceObjectVersionId());
-			statement.setInt(2, rt.getTargetObjectVersionId());
-			statement.setInt(3, rt.getRelationshipId());
-			statement.setLong(4, rt.getStartTimestamp());
-			statement.setLong(5, rt.getEndTimestamp());
-			rt.setId(getLastInsertedRowId(statement));
+			bindId(statement, 1, rt);
+			statement.setInt(2, rt.getSourceObjectVersionId());
+			statement.setInt(3, rt.getTargetObjectVersionId());
+			statement.setInt(4, rt.getRelationshipId());
+			statement.setLong(5, rt.getStartTimestamp());
+			statement.setLong(6, rt.getEndTimestamp());
 			statement.execute();
+			if (rt.getId() == -1) {
+				rt.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1541,6 +2568,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	public SLEXMMObject createObject(int classId) {
 		SLEXMMObject obj = new SLEXMMObject(this);
 		obj.setClassId(classId);
+		if (isIdPreallocationEnabled()) {
+			assignId(obj, SLEXMMTables.T_OBJECT);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			obj.commit();
 		}
@@ -1556,11 +2586,14 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		boolean result = false;
 		try {
 			statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS
-					+".object (class_id) VALUES (?)");
+					+".object (id,class_id) VALUES (?,?)");
 			statement.setQueryTimeout(30);
-			statement.setInt(1, obj.getClassId());
+			bindId(statement, 1, obj);
+			statement.setInt(2, obj.getClassId());
 			statement.execute();
-			obj.setId(getLastInsertedRowId(statement));
+			if (obj.getId() == -1) {
+				obj.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1606,6 +2639,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		objv.setObjectId(objectId);
 		objv.setStartTimestamp(startTimestamp);
 		objv.setEndTimestamp(endTimestamp);
+		if (isIdPreallocationEnabled()) {
+			assignId(objv, SLEXMMTables.T_OBJECT_VERSION);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			objv.commit();
 		}
@@ -1621,13 +2657,16 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		boolean result = false;
 		try {
 			statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS
-					+".object_version (object_id,start_timestamp,end_timestamp) VALUES (?,?,?)");
+					+".object_version (id,object_id,start_timestamp,end_timestamp) VALUES (?,?,?,?)");
 			statement.setQueryTimeout(30);
-			statement.setInt(1, objv.getObjectId());
-			statement.setLong(2, objv.getStartTimestamp());
-			statement.setLong(3, objv.getEndTimestamp());
+			bindId(statement, 1, objv);
+			statement.setInt(2, objv.getObjectId());
+			statement.setLong(3, objv.getStartTimestamp());
+			statement.setLong(4, objv.getEndTimestamp());
 			statement.execute();
-			objv.setId(getLastInsertedRowId(statement));
+			if (objv.getId() == -1) {
+				objv.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -1760,7 +2799,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMRelationResultSet erset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			ResultSet rset = statement.executeQuery("SELECT OBJV.object_id as originIdQuery, RL.* FROM "
 					+METAMODEL_ALIAS+".relation RL, "
 					+METAMODEL_ALIAS+".object_version OBJV "
@@ -1791,7 +2830,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMRelationResultSet erset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			ResultSet rset = statement.executeQuery("SELECT OBJV.object_id as originIdQuery, RL.* FROM "
 					+METAMODEL_ALIAS+".relation RL, "
 					+METAMODEL_ALIAS+".object_version OBJV "
@@ -1822,7 +2861,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMRelationResultSet erset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			ResultSet rset = statement.executeQuery("SELECT OBJV.object_id as originIdQuery, REL.* FROM "
 					+METAMODEL_ALIAS+".relation as REL, "
 					+METAMODEL_ALIAS+".object_version OBJV "
@@ -1854,7 +2893,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMRelationResultSet erset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			ResultSet rset = statement.executeQuery("SELECT OBJV.object_id as originIdQuery, REL.* FROM "
 					+METAMODEL_ALIAS+".relation as REL, "
 					+METAMODEL_ALIAS+".object_version OBJV "
@@ -2012,11 +3051,14 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		boolean result = false;
 		try {
 			statement = connection.prepareStatement("INSERT INTO "+METAMODEL_ALIAS
-					+".activity_instance (activity_id) VALUES (?)");
+					+".activity_instance (id,activity_id) VALUES (?,?)");
 			statement.setQueryTimeout(30);
-			statement.setInt(1, ai.getActivityId());
+			bindId(statement, 1, ai);
+			statement.setInt(2, ai.getActivityId());
 			statement.execute();
-			ai.setId(getLastInsertedRowId(statement));
+			if (ai.getId() == -1) {
+				ai.setId(getLastInsertedRowId(statement));
+			}
 			result = true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -2085,6 +3127,9 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	public SLEXMMActivityInstance createActivityInstance(SLEXMMActivity act) {
 		SLEXMMActivityInstance actIn = new SLEXMMActivityInstance(this);
 		actIn.setActivityId(act.getId());
+		if (isIdPreallocationEnabled()) {
+			assignId(actIn, SLEXMMTables.T_ACTIVITY_INSTANCE);
+		}
 		if (isAutoCommitOnCreationEnabled()) {
 			actIn.commit();
 		}
@@ -2158,17 +3203,27 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	@Override
 	public SLEXMMObjectVersionResultSet getVersionsRelatedToObjectVersion(
 			SLEXMMObjectVersion ob) {
+		return getVersionsRelatedToVersions(new int[] { ob.getId() }, null, null);
+	}
+	
+	@Override
+	public SLEXMMObjectVersionResultSet getVersionsRelatedToObjectVersions(int[] verIds) {
+		return getVersionsRelatedToVersions(verIds, null, null);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getVersionsRelatedToVersions(int[], int[], org.processmining.openslex.metamodel.SLEXMMPeriod)
+	 */
+	@Override
+	public SLEXMMObjectVersionResultSet getVersionsRelatedToVersions(int[] verIds, int[] relationshipIds,
+			SLEXMMPeriod p) {
 		
 		SLEXMMObjectVersionResultSet erset = null;
 		Statement statement = null;
 		String query = "";
 		try {
-			statement = createStatement();
-			query = "SELECT "+ob.getId()+" as originIdQuery, OBJV.* FROM "
-					+METAMODEL_ALIAS+".object_version AS OBJV, "
-					+METAMODEL_ALIAS+".relation AS RL "
-					+" WHERE ( RL.source_object_version_id = "+ob.getId()+" AND OBJV.id = RL.target_object_version_id ) "
-					+" OR ( RL.target_object_version_id = "+ob.getId()+" AND OBJV.id = RL.source_object_version_id ) ";
+			statement = createReadStatement();
+			query = getRelatedVersionsQuery(false, verIds, relationshipIds, p);
 			ResultSet rset = statement.executeQuery(query);
 			erset = new SLEXMMObjectVersionResultSet(this, rset);
 		} catch (Exception e) {
@@ -2176,37 +3231,108 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 			System.err.println(query);
 			closeStatement(statement);
 		}
-		
-		return erset; 
-		 
+		
+		return erset; 
+		 
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getIdsOfVersionsRelatedToVersions(int[], int[], org.processmining.openslex.metamodel.SLEXMMPeriod)
+	 */
+	@Override
+	public int[] getIdsOfVersionsRelatedToVersions(int[] verIds, int[] relationshipIds, SLEXMMPeriod p) {
+		SLEXMMIntList related = new SLEXMMIntList(verIds.length);
+		SLEXMMGraphIndex index = graphIndex;
+		if (index != null && isGraphIndexCurrent()) {
+			int[] relationships = null;
+			if (relationshipIds != null) {
+				relationships = relationshipIds.clone();
+				Arrays.sort(relationships);
+			}
+			index.getRelationIndex().getRelatedVersions(verIds, relationships,
+					p != null ? p.getStart() : Long.MIN_VALUE,
+					p != null ? p.getEnd() : MMUtils.INFINITE_FUTURE, related);
+		} else {
+			Statement statement = null;
+			String query = "";
+			try {
+				statement = createReadStatement();
+				query = getRelatedVersionsQuery(true, verIds, relationshipIds, p);
+				ResultSet rset = statement.executeQuery(query);
+				while (rset.next()) {
+					related.add(rset.getInt(1));
+				}
+				rset.close();
+			} catch (Exception e) {
+				e.printStackTrace();
+				System.err.println(query);
+				return null;
+			} finally {
+				closeStatement(statement);
+			}
+		}
+		related.sortUnique();
+		return related.toArray();
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getTraversalFromVersions(int[])
+	 */
 	@Override
-	public SLEXMMObjectVersionResultSet getVersionsRelatedToObjectVersions(int[] verIds) {
-		
-		SLEXMMObjectVersionResultSet erset = null;
-		Statement statement = null;
+	public SLEXMMTraversal getTraversalFromVersions(int[] verIds) {
+		SLEXMMGraphIndex index = graphIndex;
+		if (index == null || !isGraphIndexCurrent()) {
+			index = rebuildGraphIndex();
+		}
+		return index != null ? new SLEXMMTraversal(index, verIds) : null;
+	}
+	
+	/**
+	 * Gets the query of the versions related to some versions, in either
+	 * direction. A relation is followed from each of its ends in its own
+	 * branch, so each branch looks the relations up in the index of one key,
+	 * where an OR of both directions in one join scans the relations.
+	 *
+	 * @param idsOnly true to get only the ids of the related versions
+	 * @param verIds the version ids
+	 * @param relationshipIds the relationship ids, or null for all
+	 * @param p the period the relations must be valid in, or null for any
+	 * @return the query
+	 */
+	private String getRelatedVersionsQuery(boolean idsOnly, int[] verIds, int[] relationshipIds, SLEXMMPeriod p) {
 		String idsStr = buildStringFromArray(verIds);
-		String query = "";
-		try {
-			statement = createStatement();
-			query = "SELECT OBJV1.id as originIdQuery, OBJV2.* FROM "
-					+METAMODEL_ALIAS+".object_version AS OBJV1, "
-					+METAMODEL_ALIAS+".object_version AS OBJV2, "
-					+METAMODEL_ALIAS+".relation AS RL "
-					+" WHERE (( RL.source_object_version_id = OBJV1.id AND OBJV2.id = RL.target_object_version_id ) "
-					+" OR ( RL.target_object_version_id = OBJV1.id AND OBJV2.id = RL.source_object_version_id )) "
-					+" AND OBJV1.id IN ("+idsStr+")";
-			ResultSet rset = statement.executeQuery(query);
-			erset = new SLEXMMObjectVersionResultSet(this, rset);
-		} catch (Exception e) {
-			e.printStackTrace();
-			System.err.println(query);
-			closeStatement(statement);
+		StringBuilder filter = new StringBuilder();
+		if (relationshipIds != null) {
+			filter.append(" AND RL.relationship_id IN ("+buildStringFromArray(relationshipIds)+")");
+		}
+		if (p != null) {
+			filter.append(" AND (RL.end_timestamp >= "+p.getStart()
+					+" OR RL.end_timestamp = "+MMUtils.INFINITE_FUTURE+")");
+			if (p.getEnd() != MMUtils.INFINITE_FUTURE) {
+				filter.append(" AND RL.start_timestamp <= "+p.getEnd());
+			}
 		}
 		
-		return erset; 
-		 
+		String[] keys = { "source_object_version_id", "target_object_version_id" };
+		StringBuilder query = new StringBuilder();
+		for (int k = 0; k < keys.length; k++) {
+			String from = keys[k];
+			String to = keys[1 - k];
+			if (k > 0) {
+				query.append(" UNION ALL ");
+			}
+			query.append("SELECT "+(idsOnly ? "OBJV.id" : "RL."+from+" as originIdQuery, OBJV.*")
+					+" FROM "
+					+METAMODEL_ALIAS+".relation AS RL, "
+					+METAMODEL_ALIAS+".object_version AS OBJV "
+					+" WHERE RL."+from+" IN ("+idsStr+") AND OBJV.id = RL."+to);
+			query.append(filter);
+			if (k > 0) {
+				// A relation of a version with itself comes once, from the source
+				query.append(" AND RL.source_object_version_id <> RL.target_object_version_id");
+			}
+		}
+		return query.toString();
 	}
 
 	/* (non-Javadoc)
@@ -2303,6 +3429,10 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	 */
 	@Override
 	public boolean addEventToObjectVersion(int ovId, int evId, String label) { 
+		SLEXMMWriteBehindQueue queue = writeBehind;
+		if (queue != null && queue.isRunning()) {
+			return queue.addEventToObjectVersion(ovId, evId, label);
+		}
 		Statement statement = null;
 		boolean result = false;
 		try {
@@ -5293,9 +6423,33 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 	public AbstractRSetElement<?> getResultSetFor(Class<?> rsetClass, SLEXMMTables tableA, SLEXMMTables tableB, int[] idsB,
 			String orderby) {
 		
-		List<List<SLEXMMEdge>> paths = slxmmstrqgen.getPaths(tableA, tableB);
-				
-		String query = slxmmstrqgen.getSelectQuery(paths, idsB);
+		long start = metrics.isEnabled() ? System.nanoTime() : 0;
+		
+		SLEXMMQueryShape shape = this.queryShape;
+		
+		// With the index, the elements are looked up by their own ids. Only
+		// for semi-joins, which have no origin: the index does not keep which
+		// id of tableB each element was reached from
+		SLEXMMTables tableIds = tableB;
+		int[] ids = idsB;
+		if (idsB != null && tableA != tableB && shape == SLEXMMQueryShape.SEMI_JOIN && isGraphIndexCurrent()) {
+			int[] related = graphIndex.getIdsFor(slxmmstrqgen.getPlan(tableA, tableB), idsB);
+			if (related != null) {
+				tableIds = tableA;
+				ids = related;
+			}
+		}
+		
+		int arity = getTemplateArity(ids);
+		String query = null;
+		
+		if (arity >= 0) {
+			query = getQueryTemplate(tableA, tableIds, arity, shape, false);
+		} else if (shape == SLEXMMQueryShape.SEMI_JOIN) {
+			query = slxmmstrqgen.getSemiJoinQuery(slxmmstrqgen.getPlan(tableA, tableIds), ids);
+		} else {
+			query = slxmmstrqgen.getSelectQuery(slxmmstrqgen.getPlan(tableA, tableIds), ids);
+		}
 		
 		if (orderby != null) {
 			query = query + " ORDER BY " + orderby;
@@ -5305,11 +6459,20 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		Statement statement = null;
 		
 		try {
-			statement = createStatement();
-			ResultSet rset = statement.executeQuery(query);
+			ResultSet rset = null;
+			if (arity >= 0) {
+				PreparedStatement pstatement = prepareReadStatement(query);
+				statement = pstatement;
+				bindIds(pstatement, ids, arity);
+				rset = pstatement.executeQuery();
+			} else {
+				statement = createReadStatement();
+				rset = statement.executeQuery(query);
+			}
 			arset = (AbstractRSetElement<?>) rsetClass.
 					getConstructor(SLEXMMStorageMetaModel.class,ResultSet.class).
 					newInstance(this, rset);
+			recordQuery(arset, SLEXMMMetrics.SELECT, tableA, tableB, start);
 		} catch (Exception e) {
 			e.printStackTrace();
 			closeStatement(statement);
@@ -5340,19 +6503,20 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 			tableB = SLEXMMTables.T_EVENT;
 		}
 		
-		List<List<SLEXMMEdge>> paths = slxmmstrqgen.getPaths(tableA, tableB);
-		
-		String query = slxmmstrqgen.getSelectQueryForPeriod(paths, p);
+		String query = slxmmstrqgen.getSelectQueryForPeriod(slxmmstrqgen.getPlan(tableA, tableB), p,
+				hasPeriodIndex());
 		
 		AbstractRSetElement<?> arset = null;
 		Statement statement = null;
+		long start = metrics.isEnabled() ? System.nanoTime() : 0;
 		
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			ResultSet rset = statement.executeQuery(query);
 			arset = rsetClass.
 					getConstructor(SLEXMMStorageMetaModel.class,ResultSet.class).
 					newInstance(this, rset);
+			recordQuery(arset, SLEXMMMetrics.PERIOD, tableA, tableB, start);
 		} catch (Exception e) {
 			e.printStackTrace();
 			closeStatement(statement);
@@ -5362,6 +6526,25 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		
 	}
 	
+	/**
+	 * Records the latency of a query, and attaches the metrics of its kind
+	 * to its result set to count the rows read from it.
+	 *
+	 * @param arset the result set
+	 * @param kind the kind of query
+	 * @param tableA the table of the elements returned
+	 * @param tableB the table of the elements queried for
+	 * @param start the time the query started, in nanoseconds
+	 */
+	private void recordQuery(AbstractRSetElement<?> arset, int kind, SLEXMMTables tableA, SLEXMMTables tableB,
+			long start) {
+		if (metrics.isEnabled()) {
+			SLEXMMQueryMetrics queryMetrics = metrics.getQueryMetrics(kind, tableA, tableB);
+			queryMetrics.recordLatency(System.nanoTime() - start);
+			arset.setQueryMetrics(queryMetrics);
+		}
+	}
+	
 	public SLEXMMPeriodResultSet getPeriodsFor(SLEXMMTables tableB, int[] idsB) {
 		
 		SLEXMMTables tableA = null;
@@ -5383,17 +6566,32 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 			tableA = SLEXMMTables.T_EVENT;
 		}
 		
-		List<List<SLEXMMEdge>> paths = slxmmstrqgen.getPaths(tableA, tableB);
+		int arity = getTemplateArity(idsB);
+		String query = null;
 		
-		String query = slxmmstrqgen.getPeriodsQuery(paths, idsB);
+		if (arity >= 0) {
+			query = getQueryTemplate(tableA, tableB, arity, SLEXMMQueryShape.UNION, true);
+		} else {
+			query = slxmmstrqgen.getPeriodsQuery(slxmmstrqgen.getPlan(tableA, tableB), idsB);
+		}
 		
 		SLEXMMPeriodResultSet prset = null;
 		Statement statement = null;
+		long start = metrics.isEnabled() ? System.nanoTime() : 0;
 		
 		try {
-			statement = createStatement();
-			ResultSet rset = statement.executeQuery(query);
+			ResultSet rset = null;
+			if (arity >= 0) {
+				PreparedStatement pstatement = prepareReadStatement(query);
+				statement = pstatement;
+				bindIds(pstatement, idsB, arity);
+				rset = pstatement.executeQuery();
+			} else {
+				statement = createReadStatement();
+				rset = statement.executeQuery(query);
+			}
 			prset = new SLEXMMPeriodResultSet(this, rset);
+			recordQuery(prset, SLEXMMMetrics.PERIODS, tableA, tableB, start);
 		} catch (Exception e) {
 			e.printStackTrace();
 			closeStatement(statement);
@@ -5420,7 +6618,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMEventResultSet erset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			String query = "SELECT EV.*, EVAT.id as atId, "
 					+ " EVAT.name as atName,"
 					+ " EVATV.value as atValue, "
@@ -5517,11 +6715,289 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		return ovrset;
 	}
 	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getEventsPartitioned(int)
+	 */
+	@Override
+	public SLEXMMPartitionedScan<SLEXMMEvent> getEventsPartitioned(int partitions) {
+		return getPartitionedScan(SLEXMMPartitionedScan.Kind.EVENTS, "event", partitions);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getAllEventsAndAttributeValuesPartitioned(int)
+	 */
+	@Override
+	public SLEXMMPartitionedScan<SLEXMMEvent> getAllEventsAndAttributeValuesPartitioned(int partitions) {
+		return getPartitionedScan(SLEXMMPartitionedScan.Kind.EVENTS_WITH_ATTRIBUTES, "event", partitions);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getAllVersionsAndAttributeValuesPartitioned(int)
+	 */
+	@Override
+	public SLEXMMPartitionedScan<SLEXMMObjectVersion> getAllVersionsAndAttributeValuesPartitioned(int partitions) {
+		return getPartitionedScan(SLEXMMPartitionedScan.Kind.VERSIONS_WITH_ATTRIBUTES, "object_version", partitions);
+	}
+	
+	/**
+	 * Splits the ids of a table in ranges for a partitioned scan. The ranges
+	 * run in parallel on the read pool when it is enabled. Otherwise they are
+	 * read one after the other on the main connection, the scan does not
+	 * enable the pool by itself.
+	 *
+	 * @param kind the kind of elements
+	 * @param table the table of the elements
+	 * @param partitions the maximum number of ranges
+	 * @return the scan, or null if the ids could not be read
+	 */
+	private <T> SLEXMMPartitionedScan<T> getPartitionedScan(SLEXMMPartitionedScan.Kind kind, String table, int partitions) {
+		SLEXMMReadConnectionPool pool = readPool;
+		Statement statement = null;
+		try {
+			statement = createReadStatement();
+			ResultSet rset = statement.executeQuery("SELECT min(id), max(id), count(*) FROM "
+					+METAMODEL_ALIAS+"."+table);
+			long[] bounds = { 0, 0 };
+			if (rset.next() && rset.getLong(3) > 0) {
+				bounds = SLEXMMPartitionedScan.split(rset.getLong(1), rset.getLong(2),
+						partitions > 0 ? partitions : SLEXMMPartitionedScan.DEFAULT_PARTITIONS);
+			}
+			rset.close();
+			return new SLEXMMPartitionedScan<>(this, kind, bounds, pool != null);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			closeStatement(statement);
+		}
+	}
+	
+	/**
+	 * Gets the elements of a range of ids of a partitioned scan. The rows
+	 * of the attributes are ordered by element so getNextWithAttributes()
+	 * can group them.
+	 *
+	 * @param kind the kind of elements
+	 * @param lower the first id
+	 * @param upper the id after the last one
+	 * @return the result set, or null if the query failed
+	 */
+	AbstractRSetElement<?> getPartition(SLEXMMPartitionedScan.Kind kind, long lower, long upper) {
+		String query = null;
+		switch (kind) {
+		case EVENTS:
+			query = "SELECT * FROM "+METAMODEL_ALIAS+".event as EV "
+					+ " WHERE EV.id >= ? AND EV.id < ? ";
+			break;
+		case EVENTS_WITH_ATTRIBUTES:
+			query = "SELECT EV.*, EVAT.id as atId, "
+					+ " EVAT.name as atName,"
+					+ " EVATV.value as atValue, "
+					+ " EVATV.type as atType, "
+					+ " EVATV.id as atvId "
+					+ " FROM "
+					+METAMODEL_ALIAS+".event as EV "
+					+ " LEFT OUTER JOIN "
+					+METAMODEL_ALIAS+".event_attribute_value as EVATV "
+					+ " ON EV.id = EVATV.event_id "
+					+ " LEFT OUTER JOIN "
+					+METAMODEL_ALIAS+".event_attribute_name as EVAT "
+					+ " ON EVATV.event_attribute_name_id = EVAT.id "
+					+ " WHERE EV.id >= ? AND EV.id < ? "
+					+ " ORDER BY EV.id ";
+			break;
+		case VERSIONS_WITH_ATTRIBUTES:
+			query = "SELECT OV.*, OVAT.id as atId, "
+					+ " OVAT.name as atName,"
+					+ " OVATV.value as atValue, "
+					+ " OVATV.type as atType, "
+					+ " OVATV.id as atvId "
+					+ " FROM "
+					+METAMODEL_ALIAS+".object_version as OV "
+					+ " LEFT OUTER JOIN "
+					+METAMODEL_ALIAS+".attribute_value as OVATV "
+					+ " ON OV.id = OVATV.object_version_id "
+					+ " LEFT OUTER JOIN "
+					+METAMODEL_ALIAS+".attribute_name as OVAT "
+					+ " ON OVATV.attribute_name_id = OVAT.id "
+					+ " WHERE OV.id >= ? AND OV.id < ? "
+					+ " ORDER BY OV.id ";
+			break;
+		}
+		
+		AbstractRSetElement<?> arset = null;
+		PreparedStatement statement = null;
+		try {
+			statement = prepareReadStatement(query);
+			statement.setLong(1, lower);
+			statement.setLong(2, upper);
+			ResultSet rset = statement.executeQuery();
+			if (kind == SLEXMMPartitionedScan.Kind.VERSIONS_WITH_ATTRIBUTES) {
+				arset = new SLEXMMObjectVersionResultSet(this, rset);
+			} else {
+				arset = new SLEXMMEventResultSet(this, rset);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			closeStatement(statement);
+		}
+		
+		return arset;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getSnapshotSweep()
+	 */
+	@Override
+	public SLEXMMSnapshotSweep getSnapshotSweep() {
+		return new SLEXMMSnapshotSweep(this);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getSnapshot(long)
+	 */
+	@Override
+	public SLEXMMSnapshotSweep getSnapshot(long timestamp) {
+		SLEXMMSnapshotSweep sweep = new SLEXMMSnapshotSweep(this);
+		sweep.advanceTo(timestamp);
+		sweep.close();
+		return sweep;
+	}
+	
+	/**
+	 * Gets a cursor of a snapshot sweep. Versions and relations without
+	 * timestamps are never valid and are left out. The rows of the
+	 * attributes are ordered by version so getNextWithAttributes() can
+	 * group them.
+	 *
+	 * @param cursor the cursor
+	 * @return the result set, or null if the query failed
+	 */
+	AbstractRSetElement<?> getSweepCursor(SLEXMMSnapshotSweep.Cursor cursor) {
+		String query = null;
+		switch (cursor) {
+		case VERSION_STARTS:
+			query = "SELECT OV.*, OVAT.id as atId, "
+					+ " OVAT.name as atName,"
+					+ " OVATV.value as atValue, "
+					+ " OVATV.type as atType, "
+					+ " OVATV.id as atvId "
+					+ " FROM "
+					+METAMODEL_ALIAS+".object_version as OV "
+					+ " LEFT OUTER JOIN "
+					+METAMODEL_ALIAS+".attribute_value as OVATV "
+					+ " ON OV.id = OVATV.object_version_id "
+					+ " LEFT OUTER JOIN "
+					+METAMODEL_ALIAS+".attribute_name as OVAT "
+					+ " ON OVATV.attribute_name_id = OVAT.id "
+					+ " WHERE OV.start_timestamp IS NOT NULL AND OV.end_timestamp IS NOT NULL "
+					+ " ORDER BY OV.start_timestamp, OV.id ";
+			break;
+		case VERSION_ENDS:
+			query = "SELECT * FROM "+METAMODEL_ALIAS+".object_version "
+					+ " WHERE start_timestamp IS NOT NULL AND end_timestamp IS NOT NULL "
+					+ " AND end_timestamp <> "+MMUtils.INFINITE_FUTURE
+					+ " ORDER BY end_timestamp, id ";
+			break;
+		case RELATION_STARTS:
+			query = "SELECT * FROM "+METAMODEL_ALIAS+".relation "
+					+ " WHERE start_timestamp IS NOT NULL AND end_timestamp IS NOT NULL "
+					+ " ORDER BY start_timestamp, id ";
+			break;
+		case RELATION_ENDS:
+			query = "SELECT * FROM "+METAMODEL_ALIAS+".relation "
+					+ " WHERE start_timestamp IS NOT NULL AND end_timestamp IS NOT NULL "
+					+ " AND end_timestamp <> "+MMUtils.INFINITE_FUTURE
+					+ " ORDER BY end_timestamp, id ";
+			break;
+		}
+		
+		AbstractRSetElement<?> arset = null;
+		Statement statement = null;
+		try {
+			// The pool gives the cursors of a sweep the connection of the thread opening them
+			statement = createReadStatement();
+			ResultSet rset = statement.executeQuery(query);
+			if (cursor == SLEXMMSnapshotSweep.Cursor.VERSION_STARTS
+					|| cursor == SLEXMMSnapshotSweep.Cursor.VERSION_ENDS) {
+				arset = new SLEXMMObjectVersionResultSet(this, rset);
+			} else {
+				arset = new SLEXMMRelationResultSet(this, rset);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			closeStatement(statement);
+		}
+		
+		return arset;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getEventColumns()
+	 */
+	@Override
+	public SLEXMMEventColumns getEventColumns() {
+		return getEventColumns(-1);
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getEventColumnsForLog(int)
+	 */
+	@Override
+	public SLEXMMEventColumns getEventColumnsForLog(int logId) {
+		return getEventColumns(logId);
+	}
+	
+	/**
+	 * Builds a columnar snapshot of the events of the cases of a log, or of
+	 * all the cases. The rows are read straight from the query, without
+	 * creating the events nor caching them.
+	 *
+	 * @param logId the log id, or -1 for all the cases
+	 * @return the snapshot, or null if the events could not be read
+	 */
+	private SLEXMMEventColumns getEventColumns(int logId) {
+		String from = " FROM "+METAMODEL_ALIAS+".event as E "
+				+ " JOIN "+METAMODEL_ALIAS+".activity_instance as AI ON E.activity_instance_id = AI.id "
+				+ " JOIN "+METAMODEL_ALIAS+".activity as A ON A.id = AI.activity_id "
+				+ " JOIN "+METAMODEL_ALIAS+".activity_instance_to_case as AITC ON AITC.activity_instance_id = AI.id ";
+		if (logId >= 0) {
+			from += " JOIN "+METAMODEL_ALIAS+".case_to_log as CTL ON CTL.case_id = AITC.case_id "
+					+ " WHERE CTL.log_id = "+logId;
+		}
+		String query = "SELECT AITC.case_id, E.id, AI.activity_id, A.name, E.ordering, E.timestamp, "
+				+ " E.lifecycle, E.resource "
+				+ from
+				+ " ORDER BY AITC.case_id, E.ordering, E.id ";
+		
+		Statement statement = null;
+		try {
+			statement = createReadStatement();
+			ResultSet rset = statement.executeQuery("SELECT count(*) "+from);
+			int rows = rset.next() ? rset.getInt(1) : 0;
+			rset.close();
+			
+			SLEXMMEventColumns columns = new SLEXMMEventColumns(rows);
+			rset = statement.executeQuery(query);
+			while (rset.next()) {
+				columns.add(rset.getInt(1), rset.getInt(2), rset.getInt(3), rset.getString(4),
+						rset.getInt(5), rset.getLong(6), rset.getString(7), rset.getString(8));
+			}
+			rset.close();
+			return columns.finish();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return null;
+		} finally {
+			closeStatement(statement);
+		}
+	}
+	
 	public SLEXMMObjectVersionResultSet getVersionsAndAttributeValues(int[] ids) {
 		SLEXMMObjectVersionResultSet ovrset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			String query = "SELECT OV.*, OVAT.id as atId, "
 					+ " OVAT.name as atName,"
 					+ " OVATV.value as atValue, "
@@ -5595,7 +7071,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMCaseResultSet crset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			String query = "SELECT C.*, CAT.id as atId, "
 					+ " CAT.name as atName,"
 					+ " CATV.value as atValue, "
@@ -5667,7 +7143,7 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		SLEXMMLogResultSet lrset = null;
 		Statement statement = null;
 		try {
-			statement = createStatement();
+			statement = createReadStatement();
 			String query = "SELECT L.*, LAT.id as atId, "
 					+ " LAT.name as atName,"
 					+ " LATV.value as atValue, "
@@ -5693,73 +7169,149 @@ public class SLEXMMStorageMetaModelImpl implements SLEXMMStorageMetaModel {
 		return lrset;
 	}
 
+	/**
+	 * Creates the caches, bounded as configured. With a disk cache, the
+	 * bounded caches are the heap tier in front of the MapDB maps.
+	 *
+	 * @param config the limits of the caches
+	 */
+	private void createCaches(SLEXMMCacheConfig config) {
+		this.objectRepo = createCache(getDiskTier(objectRepo), config.getMaxElements(), null);
+		this.attsRepo = createCache(getDiskTier(attsRepo), config.getMaxAttributeValues(),
+				SLEXMMCacheConfig.MAP_WEIGHER);
+		this.attNamesRepo = createCache(getDiskTier(attNamesRepo), config.getMaxAttributeNames(),
+				SLEXMMCacheConfig.MAP_WEIGHER);
+		this.elementOfRepo = createCache(getDiskTier(elementOfRepo), config.getMaxElementsOf(),
+				SLEXMMCacheConfig.IDS_WEIGHER);
+	}
+	
+	private static <V> SLEXMMCache<V> createCache(SLEXMMCache<V> diskTier, long maxWeight,
+			SLEXMMWeigher<? super V> weigher) {
+		if (diskTier == null) {
+			return SLEXMMCacheConfig.createHeapCache(maxWeight, weigher);
+		} else if (maxWeight == SLEXMMCacheConfig.UNBOUNDED) {
+			return diskTier;
+		} else {
+			return new SLEXMMTieredCache<>(maxWeight, weigher, diskTier);
+		}
+	}
+	
+	private static <V> SLEXMMCache<V> getDiskTier(SLEXMMCache<V> cache) {
+		if (cache instanceof SLEXMMTieredCache) {
+			return ((SLEXMMTieredCache<V>) cache).getL2();
+		} else if (cache instanceof SLEXMMMapDBCache) {
+			return cache;
+		}
+		return null;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getCacheConfig()
+	 */
+	@Override
+	public SLEXMMCacheConfig getCacheConfig() {
+		return this.cacheConfig;
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#setCacheConfig(org.processmining.openslex.metamodel.cache.SLEXMMCacheConfig)
+	 */
+	@Override
+	public synchronized void setCacheConfig(SLEXMMCacheConfig config) {
+		this.cacheConfig = config != null ? config : SLEXMMCacheConfig.getDefault();
+		if (objectRepo != null) {
+			SLEXMMCache<?>[] old = {objectRepo, attsRepo, attNamesRepo, elementOfRepo};
+			createCaches(this.cacheConfig);
+			for (SLEXMMCache<?> cache: old) {
+				// The disk tier is kept by the new caches
+				if (cache instanceof SLEXMMTieredCache) {
+					((SLEXMMTieredCache<?>) cache).getL1().close();
+				} else if (!(cache instanceof SLEXMMMapDBCache)) {
+					cache.close();
+				}
+			}
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getCacheStats()
+	 */
+	@Override
+	public LinkedHashMap<String, SLEXMMCacheStats> getCacheStats() {
+		LinkedHashMap<String, SLEXMMCacheStats> stats = new LinkedHashMap<>();
+		putCacheStats(stats, "elements", objectRepo);
+		putCacheStats(stats, "attributeValues", attsRepo);
+		putCacheStats(stats, "attributeNames", attNamesRepo);
+		putCacheStats(stats, "elementsOf", elementOfRepo);
+		return stats;
+	}
+	
+	private static void putCacheStats(LinkedHashMap<String, SLEXMMCacheStats> stats, String name,
+			SLEXMMCache<?> cache) {
+		if (cache == null) {
+			return;
+		}
+		stats.put(name, cache.getStats());
+		if (cache instanceof SLEXMMTieredCache) {
+			stats.put(name+".disk", ((SLEXMMTieredCache<?>) cache).getL2().getStats());
+		}
+	}
+	
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.SLEXMMStorageMetaModel#getMetrics()
+	 */
+	@Override
+	public SLEXMMMetrics getMetrics() {
+		return this.metrics;
+	}
+	
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T extends AbstractDBElement> T getFromCache(Class<?> c, int id) {
-		String uniqueId = AbstractDBElement.computeUniqueId(c, id);
-		if (objectRepo.containsKey(uniqueId)) {
-			AbstractDBElement o = objectRepo.get(uniqueId);
-			return (T) o;
-		} else {
-			return null;
-		}
+		return (T) objectRepo.get(AbstractDBElement.computeKey(c, id));
 	}
 	
 	@Override
 	public void putInCache(AbstractDBElement o) {
-		objectRepo.put(o.getUniqueId(), o);
+		objectRepo.put(o.getKey(), o);
 	}
 	
 	@Override
-	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@SuppressWarnings("rawtypes")
 	public HashMap<AbstractAttDBElement, AbstractDBElementWithValue> getAttsFromCache(
 			Class<? extends AbstractDBElementWithAtts> c, int id) {
-		String uniqueId = AbstractDBElement.computeUniqueId(c, id);
-		if (attsRepo.containsKey(uniqueId)) {
-			HashMap o = attsRepo.get(uniqueId);
-			return o;
-		} else {
-			return null;
-		}
+		return attsRepo.get(AbstractDBElement.computeKey(c, id));
 	}
 	
 	@Override
 	public void putAttsInCache(AbstractDBElement o, HashMap<AbstractAttDBElement, AbstractDBElementWithValue> map) {
-		attsRepo.put(o.getUniqueId(), map);
+		attsRepo.put(o.getKey(), map);
 	}
 	
 	@Override
-	@SuppressWarnings({ "unchecked", "rawtypes" })
+	@SuppressWarnings("rawtypes")
 	public HashMap<String, AbstractAttDBElement> getAttNamesFromCache(Class<? extends AbstractDBElementWithAtts> c,
 			int id) {
-		String uniqueId = AbstractDBElement.computeUniqueId(c, id);
-		if (attNamesRepo.containsKey(uniqueId)) {
-			HashMap o = attNamesRepo.get(uniqueId);
-			return o;
-		} else {
-			return null;
-		}
+		return attNamesRepo.get(AbstractDBElement.computeKey(c, id));
 	}
 	
 	@Override
 	public void putAttNamesInCache(AbstractDBElement o, HashMap<String, AbstractAttDBElement> map) {
-		attNamesRepo.put(o.getUniqueId(), map);
+		attNamesRepo.put(o.getKey(), map);
 	}
 	
-	private String createCodeElementsOf(int from, int to, int id) {
-		return from+"#"+to+"#"+id;
+	private long createKeyElementsOf(int from, int to, int id) {
+		return AbstractDBElement.computeKey((from << 16) | to, id);
 	}
 	
 	@Override
 	public int[] getElementsOf(int from, int to, int id) {
-		String code = createCodeElementsOf(from, to, id);
-		return elementOfRepo.get(code);
+		return elementOfRepo.get(createKeyElementsOf(from, to, id));
 	}
 	
 	@Override
 	public void putElementsOf(int from, int to, int id, int[] ids) {
-		String code = createCodeElementsOf(from, to, id);
-		elementOfRepo.put(code, ids);
+		elementOfRepo.put(createKeyElementsOf(from, to, id), ids);
 	}
 
 	@Override
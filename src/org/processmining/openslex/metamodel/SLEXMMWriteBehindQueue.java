@@ -0,0 +1,487 @@
+/*
+ */
+package org.processmining.openslex.metamodel;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Write-behind pipeline for a metamodel storage.
+ *
+ * Commits of elements are put in a bounded queue and written by a single
+ * writer thread, in the order they were enqueued, through a bulk insert
+ * session. Every group of operations drained from the queue is written
+ * in one transaction. Threads enqueueing operations block when the queue
+ * is full. Elements get their ids from the id allocators of the storage
+ * at the moment they are enqueued, so callers can refer to them right
+ * away.
+ *
+ * Errors of the writer are kept and reported back to the callers: once
+ * an error happened, enqueueing fails and awaitDurable() returns false
+ * until the error is cleared.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMWriteBehindQueue {
+
+	/** The Constant DEFAULT_QUEUE_CAPACITY. */
+	public static final int DEFAULT_QUEUE_CAPACITY = 50000;
+
+	/** The Constant DEFAULT_BATCH_SIZE. */
+	public static final int DEFAULT_BATCH_SIZE = SLEXMMBulkInsertSession.DEFAULT_BATCH_SIZE;
+
+	private enum OperationType {
+		INSERT, UPDATE, ACTIVITY_INSTANCE_TO_CASE, EVENT_TO_OBJECT_VERSION, BARRIER, STOP
+	}
+
+	private static class Operation {
+		private OperationType type;
+		private AbstractDBElement element;
+		private int idA;
+		private int idB;
+		private String label;
+		private CountDownLatch latch;
+
+		private Operation(OperationType type) {
+			this.type = type;
+		}
+	}
+
+	/** The storage. */
+	private SLEXMMStorageMetaModelImpl storage;
+
+	/** The queue. */
+	private ArrayBlockingQueue<Operation> queue;
+
+	/** The batch size. */
+	private int batchSize;
+
+	/** The writer thread. */
+	private Thread writer;
+
+	/** The first error found by the writer. */
+	private volatile Throwable error = null;
+
+	/** The number of operations written. */
+	private volatile long written = 0;
+
+	/** The running. */
+	private volatile boolean running = false;
+
+	/** The lock of the running flag, held to enqueue and to stop. */
+	private final ReentrantReadWriteLock runningLock = new ReentrantReadWriteLock();
+
+	/**
+	 * Instantiates a new write-behind queue.
+	 *
+	 * @param storage the storage
+	 * @param capacity the capacity of the queue
+	 * @param batchSize the maximum number of operations per transaction
+	 */
+	protected SLEXMMWriteBehindQueue(SLEXMMStorageMetaModelImpl storage, int capacity, int batchSize) {
+		this.storage = storage;
+		this.queue = new ArrayBlockingQueue<>(capacity > 0 ? capacity : DEFAULT_QUEUE_CAPACITY);
+		this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+	}
+
+	/**
+	 * Starts the writer thread.
+	 */
+	protected synchronized void start() {
+		if (running) {
+			return;
+		}
+		running = true;
+		writer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				drain();
+			}
+		}, "SLEXMM-write-behind");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	/**
+	 * Writes everything still in the queue and stops the writer thread.
+	 *
+	 * @return true, if all the pending operations were written
+	 */
+	protected synchronized boolean stop() {
+		if (!running) {
+			return error == null;
+		}
+		boolean result = awaitDurable();
+		// New commits go straight to the storage from now on, and the ones
+		// accepted before are enqueued ahead of the stop
+		runningLock.writeLock().lock();
+		try {
+			// Unless the writer ended on its own meanwhile
+			if (running) {
+				running = false;
+				put(new Operation(OperationType.STOP));
+			}
+		} finally {
+			runningLock.writeLock().unlock();
+		}
+		try {
+			writer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		writer = null;
+		return result && error == null;
+	}
+
+	/**
+	 * Checks if the writer thread is running.
+	 *
+	 * @return true, if running
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * Gets the number of operations waiting in the queue.
+	 *
+	 * @return the pending operations
+	 */
+	public int getPendingOperations() {
+		return queue.size();
+	}
+
+	/**
+	 * Gets the number of operations written so far.
+	 *
+	 * @return the written operations
+	 */
+	public long getWrittenOperations() {
+		return written;
+	}
+
+	/**
+	 * Gets the first error found by the writer, if any.
+	 *
+	 * @return the error, or null
+	 */
+	public Throwable getError() {
+		return error;
+	}
+
+	/**
+	 * Clears the error so new operations are accepted again.
+	 * Operations that failed are not retried.
+	 */
+	public void clearError() {
+		error = null;
+	}
+
+	private boolean put(Operation op) {
+		try {
+			// Blocks while the queue is full
+			queue.put(op);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private boolean accept(Operation op) {
+		runningLock.readLock().lock();
+		try {
+			if (error != null || !running) {
+				return false;
+			}
+			return put(op);
+		} finally {
+			runningLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Enqueues the insertion or update of an element. Elements not supported
+	 * by the bulk insert session are written synchronously once the queue
+	 * has been drained.
+	 *
+	 * @param e the element
+	 * @return true, if the element was accepted
+	 */
+	boolean commit(AbstractDBElement e) {
+		if (!e.isInserted()) {
+			SLEXMMTables table = SLEXMMBulkInsertSession.getTable(e);
+			if (table == null) {
+				if (!awaitDurable()) {
+					return false;
+				}
+				if (e.insert(e)) {
+					e.setInserted(true);
+					e.setDirty(false);
+					storage.getMetrics().rowsInserted(1);
+					return true;
+				}
+				return false;
+			}
+			if (!storage.assignId(e, table)) {
+				return false;
+			}
+			Operation op = new Operation(OperationType.INSERT);
+			op.element = e;
+			if (accept(op)) {
+				e.setInserted(true);
+				e.setDirty(false);
+				return true;
+			}
+			return false;
+		} else if (e.isDirty()) {
+			Operation op = new Operation(OperationType.UPDATE);
+			op.element = e;
+			if (accept(op)) {
+				e.setDirty(false);
+				return true;
+			}
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Enqueues an activity instance to case link.
+	 *
+	 * @param caseId the case id
+	 * @param activityInstanceId the activity instance id
+	 * @return true, if the link was accepted
+	 */
+	boolean addActivityInstanceToCase(int caseId, int activityInstanceId) {
+		Operation op = new Operation(OperationType.ACTIVITY_INSTANCE_TO_CASE);
+		op.idA = caseId;
+		op.idB = activityInstanceId;
+		return accept(op);
+	}
+
+	/**
+	 * Enqueues an event to object version link.
+	 *
+	 * @param objectVersionId the object version id
+	 * @param eventId the event id
+	 * @param label the label
+	 * @return true, if the link was accepted
+	 */
+	boolean addEventToObjectVersion(int objectVersionId, int eventId, String label) {
+		Operation op = new Operation(OperationType.EVENT_TO_OBJECT_VERSION);
+		op.idA = objectVersionId;
+		op.idB = eventId;
+		op.label = label;
+		return accept(op);
+	}
+
+	/**
+	 * Asks the writer to commit what it has as soon as it reaches this
+	 * point of the queue, without waiting for it.
+	 *
+	 * @return true, if the request was accepted
+	 */
+	public boolean flush() {
+		return accept(new Operation(OperationType.BARRIER));
+	}
+
+	/**
+	 * Waits until every operation enqueued before this call has been
+	 * written and committed.
+	 *
+	 * @return true, if all the operations were written without errors
+	 */
+	public boolean awaitDurable() {
+		if (Thread.currentThread() == writer) {
+			return error == null;
+		}
+		Operation op = new Operation(OperationType.BARRIER);
+		op.latch = new CountDownLatch(1);
+		runningLock.readLock().lock();
+		try {
+			if (!running) {
+				return error == null;
+			}
+			if (!put(op)) {
+				return false;
+			}
+		} finally {
+			runningLock.readLock().unlock();
+		}
+		try {
+			op.latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+		return error == null;
+	}
+
+	private void fail(String message) {
+		if (error == null) {
+			error = new IllegalStateException(message);
+		}
+	}
+
+	private void drain() {
+		SLEXMMBulkInsertSession session = storage.createBulkInsertSession(batchSize);
+		// The groups commit the batches themselves
+		session.setDeferred(true);
+		List<Operation> ops = new ArrayList<>(batchSize);
+		boolean stop = false;
+		try {
+			while (!stop) {
+				try {
+					ops.add(queue.take());
+				} catch (InterruptedException e) {
+					break;
+				}
+				queue.drainTo(ops, batchSize - 1);
+
+				List<CountDownLatch> latches = new ArrayList<>();
+				writeGroup(session, ops, latches);
+				for (Operation op: ops) {
+					if (op.type == OperationType.STOP) {
+						stop = true;
+					}
+				}
+				written += ops.size();
+				ops.clear();
+				for (CountDownLatch latch: latches) {
+					latch.countDown();
+				}
+			}
+		} catch (Throwable t) {
+			if (error == null) {
+				error = t;
+			}
+		} finally {
+			session.close();
+			// Release whoever is still waiting on a barrier
+			for (Operation op: ops) {
+				if (op.latch != null) {
+					op.latch.countDown();
+				}
+			}
+			// Nothing is accepted once the writer is gone. Threads blocked on a
+			// full queue hold the read lock, the queue is emptied until they
+			// are done
+			while (!runningLock.writeLock().tryLock()) {
+				discardPending();
+				Thread.yield();
+			}
+			try {
+				running = false;
+			} finally {
+				runningLock.writeLock().unlock();
+			}
+			discardPending();
+		}
+	}
+
+	/**
+	 * Empties the queue once the writer stopped, releasing the barriers.
+	 */
+	private void discardPending() {
+		Operation op = null;
+		while ((op = queue.poll()) != null) {
+			if (op.type == OperationType.INSERT || op.type == OperationType.UPDATE) {
+				fail("Write-behind stopped before writing "+op.element.getUniqueId());
+			}
+			if (op.latch != null) {
+				op.latch.countDown();
+			}
+		}
+	}
+
+	/**
+	 * Writes a drained group of operations in one transaction. The
+	 * transaction is rolled back if any of them fails, and the rows of the
+	 * group still in the session are dropped with it. Rows are counted in
+	 * the metrics once committed.
+	 */
+	private void writeGroup(SLEXMMBulkInsertSession session, List<Operation> ops, List<CountDownLatch> latches) {
+		synchronized (storage) {
+			Connection connection = storage.getConnection();
+			boolean autoCommit = true;
+			boolean result = true;
+			try {
+				autoCommit = connection.getAutoCommit();
+				if (autoCommit) {
+					connection.setAutoCommit(false);
+				}
+				for (Operation op: ops) {
+					if (result && !write(session, op, latches)) {
+						fail("Write-behind failed on "+op.type+(op.element != null ? " of "+op.element.getUniqueId() : ""));
+						result = false;
+					}
+				}
+				if (result && !session.flush()) {
+					fail("Write-behind failed to commit a batch");
+					result = false;
+				}
+				if (result) {
+					if (autoCommit) {
+						connection.commit();
+					}
+					session.committed();
+				} else {
+					// The rows of the group must not reach a later commit
+					session.discard();
+					if (autoCommit) {
+						connection.rollback();
+					}
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+				fail("Write-behind failed to commit a batch: "+e.getMessage());
+				session.discard();
+				try {
+					if (autoCommit) {
+						connection.rollback();
+					}
+				} catch (Exception e2) {
+					e2.printStackTrace();
+				}
+			} finally {
+				try {
+					if (autoCommit) {
+						connection.setAutoCommit(true);
+					}
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private boolean write(SLEXMMBulkInsertSession session, Operation op, List<CountDownLatch> latches) {
+		switch (op.type) {
+		case INSERT:
+			return session.addElement(op.element);
+		case UPDATE:
+			// Pending inserts must reach the database before the update,
+			// within the transaction of the group
+			return session.flush() && op.element.update(op.element);
+		case ACTIVITY_INSTANCE_TO_CASE:
+			return session.addActivityInstanceToCase(op.idA, op.idB);
+		case EVENT_TO_OBJECT_VERSION:
+			return session.addEventToObjectVersion(op.idA, op.idB, op.label);
+		case BARRIER:
+			if (op.latch != null) {
+				latches.add(op.latch);
+			}
+			return true;
+		default:
+			return true;
+		}
+	}
+
+}
@@ -0,0 +1,63 @@
+package org.processmining.openslex.metamodel.cache;
+
+/**
+ * Cache of the storage, from primitive long keys to values. Keys combine
+ * the class of an element with its id, as computed by
+ * AbstractDBElement.computeKey(), so looking an element up does not
+ * allocate.
+ *
+ * Implementations are thread-safe.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public interface SLEXMMCache<V> {
+
+	/**
+	 * Gets the value of a key.
+	 *
+	 * @param key the key
+	 * @return the value, or null if it is not cached
+	 */
+	public V get(long key);
+
+	/**
+	 * Puts the value of a key.
+	 *
+	 * @param key the key
+	 * @param value the value, not null
+	 */
+	public void put(long key, V value);
+
+	/**
+	 * Removes the value of a key.
+	 *
+	 * @param key the key
+	 * @return the removed value, or null
+	 */
+	public V remove(long key);
+
+	/**
+	 * Gets the number of cached values.
+	 *
+	 * @return the size
+	 */
+	public int size();
+
+	/**
+	 * Removes all the values.
+	 */
+	public void clear();
+
+	/**
+	 * Releases the resources of the cache. It cannot be used afterwards.
+	 */
+	public void close();
+
+	/**
+	 * Gets the hit, miss and eviction counters of the cache.
+	 *
+	 * @return the statistics
+	 */
+	public SLEXMMCacheStats getStats();
+
+}
@@ -0,0 +1,140 @@
+package org.processmining.openslex.metamodel.cache;
+
+import java.util.Map;
+
+/**
+ * Limits of the caches of a metamodel storage. Each cache is bounded by the
+ * total weight of its values: elements weigh one each, maps of attributes
+ * one per attribute and lists of related elements one per id. A limit of
+ * UNBOUNDED keeps every value until the storage is disconnected.
+ *
+ * With a disk cache, the limits are those of the heap tier. The values it
+ * evicts are kept in the disk tier.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMCacheConfig {
+
+	/** The Constant UNBOUNDED. */
+	public static final long UNBOUNDED = -1;
+
+	/** The Constant DEFAULT_MAX_ELEMENTS. */
+	public static final long DEFAULT_MAX_ELEMENTS = 1000000;
+
+	/** The Constant DEFAULT_MAX_ATTRIBUTE_VALUES. */
+	public static final long DEFAULT_MAX_ATTRIBUTE_VALUES = 4000000;
+
+	/** The Constant DEFAULT_MAX_ATTRIBUTE_NAMES. */
+	public static final long DEFAULT_MAX_ATTRIBUTE_NAMES = 4000000;
+
+	/** The Constant DEFAULT_MAX_ELEMENTS_OF. */
+	public static final long DEFAULT_MAX_ELEMENTS_OF = 16000000;
+
+	/** The weigher of attribute maps. */
+	public static final SLEXMMWeigher<Map<?, ?>> MAP_WEIGHER = new SLEXMMWeigher<Map<?, ?>>() {
+		@Override
+		public int weigh(Map<?, ?> value) {
+			return value.size() + 1;
+		}
+	};
+
+	/** The weigher of lists of ids. */
+	public static final SLEXMMWeigher<int[]> IDS_WEIGHER = new SLEXMMWeigher<int[]>() {
+		@Override
+		public int weigh(int[] value) {
+			return value.length + 1;
+		}
+	};
+
+	/** The maximum weight of the elements cache. */
+	private long maxElements = DEFAULT_MAX_ELEMENTS;
+
+	/** The maximum weight of the attribute values cache. */
+	private long maxAttributeValues = DEFAULT_MAX_ATTRIBUTE_VALUES;
+
+	/** The maximum weight of the attribute names cache. */
+	private long maxAttributeNames = DEFAULT_MAX_ATTRIBUTE_NAMES;
+
+	/** The maximum weight of the related elements cache. */
+	private long maxElementsOf = DEFAULT_MAX_ELEMENTS_OF;
+
+	/**
+	 * Gets the default configuration.
+	 *
+	 * @return the default configuration
+	 */
+	public static SLEXMMCacheConfig getDefault() {
+		return new SLEXMMCacheConfig();
+	}
+
+	/**
+	 * Gets a configuration that never evicts, as the storage behaved before
+	 * its caches were bounded.
+	 *
+	 * @return the unbounded configuration
+	 */
+	public static SLEXMMCacheConfig getUnbounded() {
+		SLEXMMCacheConfig config = new SLEXMMCacheConfig();
+		config.setMaxElements(UNBOUNDED);
+		config.setMaxAttributeValues(UNBOUNDED);
+		config.setMaxAttributeNames(UNBOUNDED);
+		config.setMaxElementsOf(UNBOUNDED);
+		return config;
+	}
+
+	public long getMaxElements() {
+		return maxElements;
+	}
+
+	public void setMaxElements(long maxElements) {
+		this.maxElements = maxElements;
+	}
+
+	public long getMaxAttributeValues() {
+		return maxAttributeValues;
+	}
+
+	public void setMaxAttributeValues(long maxAttributeValues) {
+		this.maxAttributeValues = maxAttributeValues;
+	}
+
+	public long getMaxAttributeNames() {
+		return maxAttributeNames;
+	}
+
+	public void setMaxAttributeNames(long maxAttributeNames) {
+		this.maxAttributeNames = maxAttributeNames;
+	}
+
+	public long getMaxElementsOf() {
+		return maxElementsOf;
+	}
+
+	public void setMaxElementsOf(long maxElementsOf) {
+		this.maxElementsOf = maxElementsOf;
+	}
+
+	/**
+	 * Creates a cache in the heap with a limit.
+	 *
+	 * @param maxWeight the maximum weight, or UNBOUNDED
+	 * @param weigher the weigher of the values, or null for a weight of one each
+	 * @return the cache
+	 */
+	public static <V> SLEXMMCache<V> createHeapCache(long maxWeight, SLEXMMWeigher<? super V> weigher) {
+		if (maxWeight == UNBOUNDED) {
+			return new SLEXMMHeapCache<>();
+		}
+		return new SLEXMMSegmentedLRUCache<V>(maxWeight, weigher);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "elements="+maxElements+" attributeValues="+maxAttributeValues
+				+" attributeNames="+maxAttributeNames+" elementsOf="+maxElementsOf;
+	}
+
+}
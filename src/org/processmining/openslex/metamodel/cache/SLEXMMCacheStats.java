@@ -0,0 +1,103 @@
+package org.processmining.openslex.metamodel.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss and eviction counters of a cache, and the bytes written and
+ * read by the caches that serialize their values. Counting does not contend
+ * between threads.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMCacheStats {
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+	private final LongAdder serializedBytes = new LongAdder();
+	private final LongAdder deserializedBytes = new LongAdder();
+
+	void recordHit() {
+		hits.increment();
+	}
+
+	void recordMiss() {
+		misses.increment();
+	}
+
+	void recordEviction() {
+		evictions.increment();
+	}
+
+	void recordSerialized(long bytes) {
+		serializedBytes.add(bytes);
+	}
+
+	void recordDeserialized(long bytes) {
+		deserializedBytes.add(bytes);
+	}
+
+	/**
+	 * Records the result of a lookup.
+	 *
+	 * @param value the value found, or null
+	 * @return the same value
+	 */
+	<V> V record(V value) {
+		if (value != null) {
+			hits.increment();
+		} else {
+			misses.increment();
+		}
+		return value;
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+	public long getSerializedBytes() {
+		return serializedBytes.sum();
+	}
+
+	public long getDeserializedBytes() {
+		return deserializedBytes.sum();
+	}
+
+	/**
+	 * Gets the ratio of lookups that found their value.
+	 *
+	 * @return the hit ratio, or 0 if there were no lookups
+	 */
+	public double getHitRatio() {
+		long h = getHits();
+		long total = h + getMisses();
+		return total == 0 ? 0.0 : (double) h / total;
+	}
+
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		evictions.reset();
+		serializedBytes.reset();
+		deserializedBytes.reset();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "hits="+getHits()+" misses="+getMisses()+" evictions="+getEvictions()
+				+" serializedBytes="+getSerializedBytes()+" deserializedBytes="+getDeserializedBytes();
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.processmining.openslex.metamodel.cache;
+
+/**
+ * Listener of the values a bounded cache evicts. It is called while the
+ * cache still holds the lock of the evicted key, so a lookup of that key
+ * from another thread waits until the listener returns.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public interface SLEXMMEvictionListener<V> {
+
+	/**
+	 * Called when a value is evicted to make room for others.
+	 *
+	 * @param key the key
+	 * @param value the value
+	 */
+	public void onEviction(long key, V value);
+
+}
@@ -0,0 +1,111 @@
+package org.processmining.openslex.metamodel.cache;
+
+import org.processmining.openslex.utils.LongObjectHashMap;
+
+/**
+ * Cache kept in the heap, in primitive-keyed hash maps. Keys are spread over
+ * segments with a lock each, so threads reading through the connections of
+ * the read pool rarely wait for each other.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMHeapCache<V> implements SLEXMMCache<V> {
+
+	/** The Constant SEGMENTS, a power of two. */
+	private static final int SEGMENTS = 16;
+
+	private final LongObjectHashMap<V>[] segments;
+
+	private final SLEXMMCacheStats stats = new SLEXMMCacheStats();
+
+	@SuppressWarnings("unchecked")
+	public SLEXMMHeapCache() {
+		segments = (LongObjectHashMap<V>[]) new LongObjectHashMap<?>[SEGMENTS];
+		for (int i = 0; i < SEGMENTS; i++) {
+			segments[i] = new LongObjectHashMap<>();
+		}
+	}
+
+	private LongObjectHashMap<V> segment(long key) {
+		// The high bits of the hash, the maps use the low ones
+		return segments[(LongObjectHashMap.hash(key) >>> 28) & (SEGMENTS - 1)];
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#get(long)
+	 */
+	@Override
+	public V get(long key) {
+		LongObjectHashMap<V> segment = segment(key);
+		V value;
+		synchronized (segment) {
+			value = segment.get(key);
+		}
+		return stats.record(value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#put(long, java.lang.Object)
+	 */
+	@Override
+	public void put(long key, V value) {
+		LongObjectHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			segment.put(key, value);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#remove(long)
+	 */
+	@Override
+	public V remove(long key) {
+		LongObjectHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			return segment.remove(key);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#size()
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+		for (LongObjectHashMap<V> segment: segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#clear()
+	 */
+	@Override
+	public void clear() {
+		for (LongObjectHashMap<V> segment: segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#close()
+	 */
+	@Override
+	public void close() {
+		clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#getStats()
+	 */
+	@Override
+	public SLEXMMCacheStats getStats() {
+		return stats;
+	}
+
+}
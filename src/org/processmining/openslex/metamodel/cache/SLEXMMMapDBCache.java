@@ -0,0 +1,147 @@
+package org.processmining.openslex.metamodel.cache;
+
+import java.io.IOException;
+
+import org.mapdb.DB;
+import org.mapdb.DataInput2;
+import org.mapdb.DataOutput2;
+import org.mapdb.HTreeMap;
+import org.mapdb.Serializer;
+
+/**
+ * Cache kept in a MapDB hash map, which can live in a temporary file
+ * instead of the heap. Values are serialized, so only their serializer
+ * decides what survives a round trip. The bytes they take are counted in
+ * the statistics of the cache.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMMapDBCache<V> implements SLEXMMCache<V> {
+
+	private HTreeMap<Long, V> map;
+
+	private final SLEXMMCacheStats stats = new SLEXMMCacheStats();
+
+	/**
+	 * Serializer that counts the bytes written and read by another one.
+	 */
+	private static final class CountingSerializer<V> implements Serializer<V> {
+
+		private final Serializer<V> serializer;
+		private final SLEXMMCacheStats stats;
+
+		CountingSerializer(Serializer<V> serializer, SLEXMMCacheStats stats) {
+			this.serializer = serializer;
+			this.stats = stats;
+		}
+
+		@Override
+		public void serialize(DataOutput2 out, V value) throws IOException {
+			int start = out.pos;
+			serializer.serialize(out, value);
+			stats.recordSerialized(out.pos - start);
+		}
+
+		@Override
+		public V deserialize(DataInput2 input, int available) throws IOException {
+			// Not every input knows its position, but the store knows the size of the record
+			if (available > 0) {
+				stats.recordDeserialized(available);
+			}
+			return serializer.deserialize(input, available);
+		}
+
+		@Override
+		public int fixedSize() {
+			return serializer.fixedSize();
+		}
+
+		@Override
+		public boolean isTrusted() {
+			return serializer.isTrusted();
+		}
+
+		@Override
+		public boolean equals(V first, V second) {
+			return serializer.equals(first, second);
+		}
+
+		@Override
+		public int hashCode(V value, int seed) {
+			return serializer.hashCode(value, seed);
+		}
+
+	}
+
+	/**
+	 * Instantiates a new cache in a MapDB database.
+	 *
+	 * @param db the database
+	 * @param name the name of the map
+	 * @param valueSerializer the serializer of the values
+	 */
+	public SLEXMMMapDBCache(DB db, String name, Serializer<V> valueSerializer) {
+		this.map = db
+				.hashMap(name)
+				.keySerializer(Serializer.LONG)
+				.valueSerializer(new CountingSerializer<>(valueSerializer, stats))
+				.create();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#get(long)
+	 */
+	@Override
+	public V get(long key) {
+		return stats.record(map.get(key));
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#put(long, java.lang.Object)
+	 */
+	@Override
+	public void put(long key, V value) {
+		map.put(key, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#remove(long)
+	 */
+	@Override
+	public V remove(long key) {
+		return map.remove(key);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#size()
+	 */
+	@Override
+	public int size() {
+		return map.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#clear()
+	 */
+	@Override
+	public void clear() {
+		map.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#close()
+	 */
+	@Override
+	public void close() {
+		map.close();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#getStats()
+	 */
+	@Override
+	public SLEXMMCacheStats getStats() {
+		return stats;
+	}
+
+}
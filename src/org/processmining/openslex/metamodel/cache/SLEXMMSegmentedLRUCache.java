@@ -0,0 +1,330 @@
+package org.processmining.openslex.metamodel.cache;
+
+import org.processmining.openslex.utils.LongObjectHashMap;
+
+/**
+ * Cache kept in the heap and bounded by the total weight of its values,
+ * with segmented LRU eviction.
+ *
+ * New values enter a probationary segment and move to a protected one when
+ * they are hit again. Victims are taken from the probationary segment
+ * first, so a single scan over many elements, like iterating all the events
+ * of a log, does not flush the elements that are used over and over. The
+ * protected segment holds up to PROTECTED_RATIO of the weight; what
+ * overflows it goes back to probation.
+ *
+ * Keys are spread over stripes with a lock and a share of the maximum weight
+ * each.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMSegmentedLRUCache<V> implements SLEXMMCache<V> {
+
+	/** The Constant PROTECTED_RATIO. */
+	public static final double PROTECTED_RATIO = 0.8;
+
+	/** The Constant STRIPES, a power of two. */
+	private static final int STRIPES = 16;
+
+	private static final class Node<V> {
+		long key;
+		V value;
+		int weight;
+		boolean isProtected;
+		Node<V> prev;
+		Node<V> next;
+	}
+
+	/**
+	 * Doubly linked list of nodes, most recently used at the head.
+	 */
+	private static final class Segment<V> {
+		Node<V> head;
+		Node<V> tail;
+		long weight;
+
+		void addFirst(Node<V> n) {
+			n.prev = null;
+			n.next = head;
+			if (head != null) {
+				head.prev = n;
+			} else {
+				tail = n;
+			}
+			head = n;
+			weight += n.weight;
+		}
+
+		void unlink(Node<V> n) {
+			if (n.prev != null) {
+				n.prev.next = n.next;
+			} else {
+				head = n.next;
+			}
+			if (n.next != null) {
+				n.next.prev = n.prev;
+			} else {
+				tail = n.prev;
+			}
+			n.prev = null;
+			n.next = null;
+			weight -= n.weight;
+		}
+
+		void clear() {
+			head = null;
+			tail = null;
+			weight = 0;
+		}
+	}
+
+	private static final class Stripe<V> {
+		final LongObjectHashMap<Node<V>> nodes = new LongObjectHashMap<>();
+		final Segment<V> probation = new Segment<>();
+		final Segment<V> protectedSegment = new Segment<>();
+		final long maxWeight;
+		final long maxProtectedWeight;
+		final SLEXMMCacheStats stats;
+		final SLEXMMEvictionListener<? super V> listener;
+
+		Stripe(long maxWeight, SLEXMMCacheStats stats, SLEXMMEvictionListener<? super V> listener) {
+			this.maxWeight = maxWeight;
+			this.maxProtectedWeight = (long) (maxWeight * PROTECTED_RATIO);
+			this.stats = stats;
+			this.listener = listener;
+		}
+
+		V get(long key) {
+			Node<V> n = nodes.get(key);
+			if (n == null) {
+				return null;
+			}
+			touch(n);
+			return n.value;
+		}
+
+		void touch(Node<V> n) {
+			if (n.isProtected) {
+				protectedSegment.unlink(n);
+				protectedSegment.addFirst(n);
+			} else {
+				probation.unlink(n);
+				n.isProtected = true;
+				protectedSegment.addFirst(n);
+				while (protectedSegment.weight > maxProtectedWeight && protectedSegment.tail != n) {
+					Node<V> demoted = protectedSegment.tail;
+					protectedSegment.unlink(demoted);
+					demoted.isProtected = false;
+					probation.addFirst(demoted);
+				}
+			}
+		}
+
+		void put(long key, V value, int weight) {
+			Node<V> n = nodes.get(key);
+			if (n != null) {
+				Segment<V> segment = n.isProtected ? protectedSegment : probation;
+				segment.unlink(n);
+				n.value = value;
+				n.weight = weight;
+				segment.addFirst(n);
+				touch(n);
+			} else {
+				n = new Node<>();
+				n.key = key;
+				n.value = value;
+				n.weight = weight;
+				nodes.put(key, n);
+				probation.addFirst(n);
+			}
+			evict(n);
+		}
+
+		void evict(Node<V> keep) {
+			while (probation.weight + protectedSegment.weight > maxWeight) {
+				Node<V> victim = probation.tail;
+				if (victim == null || victim == keep) {
+					victim = protectedSegment.tail;
+				}
+				if (victim == null || victim == keep) {
+					// The new value alone weighs more than the stripe
+					break;
+				}
+				remove(victim);
+				stats.recordEviction();
+				if (listener != null) {
+					listener.onEviction(victim.key, victim.value);
+				}
+			}
+		}
+
+		V remove(long key) {
+			Node<V> n = nodes.get(key);
+			if (n == null) {
+				return null;
+			}
+			remove(n);
+			return n.value;
+		}
+
+		void remove(Node<V> n) {
+			(n.isProtected ? protectedSegment : probation).unlink(n);
+			nodes.remove(n.key);
+		}
+
+		void clear() {
+			nodes.clear();
+			probation.clear();
+			protectedSegment.clear();
+		}
+	}
+
+	private final Stripe<V>[] stripes;
+
+	private final SLEXMMWeigher<? super V> weigher;
+
+	private final SLEXMMCacheStats stats = new SLEXMMCacheStats();
+
+	/**
+	 * Instantiates a new cache bounded in number of values.
+	 *
+	 * @param maxWeight the maximum number of values
+	 */
+	public SLEXMMSegmentedLRUCache(long maxWeight) {
+		this(maxWeight, null);
+	}
+
+	/**
+	 * Instantiates a new cache bounded in weight.
+	 *
+	 * @param maxWeight the maximum total weight of the values
+	 * @param weigher the weigher of the values, or null for a weight of one each
+	 */
+	public SLEXMMSegmentedLRUCache(long maxWeight, SLEXMMWeigher<? super V> weigher) {
+		this(maxWeight, weigher, null);
+	}
+
+	/**
+	 * Instantiates a new cache bounded in weight that hands the values it
+	 * evicts to a listener.
+	 *
+	 * @param maxWeight the maximum total weight of the values
+	 * @param weigher the weigher of the values, or null for a weight of one each
+	 * @param listener the listener of evictions, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public SLEXMMSegmentedLRUCache(long maxWeight, SLEXMMWeigher<? super V> weigher,
+			SLEXMMEvictionListener<? super V> listener) {
+		this.weigher = weigher;
+		this.stripes = (Stripe<V>[]) new Stripe<?>[STRIPES];
+		long stripeWeight = Math.max(1, maxWeight / STRIPES);
+		for (int i = 0; i < STRIPES; i++) {
+			stripes[i] = new Stripe<>(stripeWeight, stats, listener);
+		}
+	}
+
+	private Stripe<V> stripe(long key) {
+		return stripes[(LongObjectHashMap.hash(key) >>> 28) & (STRIPES - 1)];
+	}
+
+	private int weigh(V value) {
+		return weigher != null ? Math.max(1, weigher.weigh(value)) : 1;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#get(long)
+	 */
+	@Override
+	public V get(long key) {
+		Stripe<V> stripe = stripe(key);
+		V value;
+		synchronized (stripe) {
+			value = stripe.get(key);
+		}
+		return stats.record(value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#put(long, java.lang.Object)
+	 */
+	@Override
+	public void put(long key, V value) {
+		if (value == null) {
+			throw new NullPointerException("Null values are not allowed");
+		}
+		int weight = weigh(value);
+		Stripe<V> stripe = stripe(key);
+		synchronized (stripe) {
+			stripe.put(key, value, weight);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#remove(long)
+	 */
+	@Override
+	public V remove(long key) {
+		Stripe<V> stripe = stripe(key);
+		synchronized (stripe) {
+			return stripe.remove(key);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#size()
+	 */
+	@Override
+	public int size() {
+		int size = 0;
+		for (Stripe<V> stripe: stripes) {
+			synchronized (stripe) {
+				size += stripe.nodes.size();
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Gets the total weight of the cached values.
+	 *
+	 * @return the weight
+	 */
+	public long getWeight() {
+		long weight = 0;
+		for (Stripe<V> stripe: stripes) {
+			synchronized (stripe) {
+				weight += stripe.probation.weight + stripe.protectedSegment.weight;
+			}
+		}
+		return weight;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#clear()
+	 */
+	@Override
+	public void clear() {
+		for (Stripe<V> stripe: stripes) {
+			synchronized (stripe) {
+				stripe.clear();
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#close()
+	 */
+	@Override
+	public void close() {
+		clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#getStats()
+	 */
+	@Override
+	public SLEXMMCacheStats getStats() {
+		return stats;
+	}
+
+}
@@ -0,0 +1,123 @@
+package org.processmining.openslex.metamodel.cache;
+
+/**
+ * Cache of two tiers: a bounded L1 in the heap, holding live values, in
+ * front of an L2 that can be as large as the disk, like a MapDB map in a
+ * temporary file.
+ *
+ * Values are put in L1 only. When L1 evicts a value it is demoted to L2,
+ * so L2 is written once per eviction instead of once per put. A value found
+ * in L2 is promoted back to L1, and later lookups get the same instance
+ * without deserializing it again. L2 keeps its copy, which the next
+ * demotion of the value overwrites.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMTieredCache<V> implements SLEXMMCache<V> {
+
+	private final SLEXMMSegmentedLRUCache<V> l1;
+
+	private final SLEXMMCache<V> l2;
+
+	private final SLEXMMCacheStats stats = new SLEXMMCacheStats();
+
+	/**
+	 * Instantiates a new tiered cache.
+	 *
+	 * @param maxWeight the maximum weight of L1
+	 * @param weigher the weigher of the values, or null for a weight of one each
+	 * @param l2 the second tier
+	 */
+	public SLEXMMTieredCache(long maxWeight, SLEXMMWeigher<? super V> weigher, final SLEXMMCache<V> l2) {
+		this.l2 = l2;
+		this.l1 = new SLEXMMSegmentedLRUCache<V>(maxWeight, weigher, new SLEXMMEvictionListener<V>() {
+			@Override
+			public void onEviction(long key, V value) {
+				l2.put(key, value);
+			}
+		});
+	}
+
+	public SLEXMMSegmentedLRUCache<V> getL1() {
+		return l1;
+	}
+
+	public SLEXMMCache<V> getL2() {
+		return l2;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#get(long)
+	 */
+	@Override
+	public V get(long key) {
+		V value = l1.get(key);
+		if (value == null) {
+			value = l2.get(key);
+			if (value != null) {
+				l1.put(key, value);
+			}
+		}
+		return stats.record(value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#put(long, java.lang.Object)
+	 */
+	@Override
+	public void put(long key, V value) {
+		l1.put(key, value);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#remove(long)
+	 */
+	@Override
+	public V remove(long key) {
+		V value = l1.remove(key);
+		V demoted = l2.remove(key);
+		return value != null ? value : demoted;
+	}
+
+	/**
+	 * Gets the number of values in either tier. Values promoted from L2
+	 * are counted twice.
+	 *
+	 * @return the size
+	 */
+	@Override
+	public int size() {
+		return l1.size() + l2.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#clear()
+	 */
+	@Override
+	public void clear() {
+		l1.clear();
+		l2.clear();
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.cache.SLEXMMCache#close()
+	 */
+	@Override
+	public void close() {
+		l1.close();
+		l2.close();
+	}
+
+	/**
+	 * Gets the counters of lookups in either tier. The counters of each
+	 * tier are those of getL1() and getL2(); the evictions of L1 are the
+	 * demotions to L2.
+	 *
+	 * @return the statistics
+	 */
+	@Override
+	public SLEXMMCacheStats getStats() {
+		return stats;
+	}
+
+}
@@ -0,0 +1,19 @@
+package org.processmining.openslex.metamodel.cache;
+
+/**
+ * Weight of the values of a bounded cache, in the units of its maximum
+ * weight.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public interface SLEXMMWeigher<V> {
+
+	/**
+	 * Gets the weight of a value.
+	 *
+	 * @param value the value
+	 * @return the weight, at least one
+	 */
+	public int weigh(V value);
+
+}
@@ -0,0 +1,485 @@
+package org.processmining.openslex.metamodel.columnar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Columnar snapshot of the events of a metamodel, for analysis passes that
+ * only need the case, activity, ordering, timestamp, lifecycle and resource
+ * of every event. Each column is a primitive array indexed by row, strings
+ * are encoded with a dictionary per column, and the rows are sorted by case
+ * and then by ordering, so the trace of a case is a range of rows. An event
+ * in several cases has a row in each of them.
+ *
+ * Rows are added with add() in that order and the snapshot is frozen with
+ * finish(), which builds the index of the cases and the order of the rows
+ * by timestamp. After that, traces, activity frequencies and time windows
+ * are answered from the arrays without allocating anything per event:
+ *
+ * <pre>
+ * for (int c = 0; c &lt; columns.getCases(); c++) {
+ *     for (int i = columns.getTraceStart(c); i &lt; columns.getTraceEnd(c); i++) {
+ *         ... columns.getActivity(i) ... columns.getTimestamp(i) ...
+ *     }
+ * }
+ * </pre>
+ *
+ * The snapshot does not follow later changes of the metamodel.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMEventColumns {
+
+	/** The number of rows. */
+	private int size = 0;
+
+	/** The case ids, by row, while adding. Replaced by the index of cases when finished. */
+	private int[] caseColumn;
+
+	/** The event ids. */
+	private int[] eventIds;
+
+	/** The activity codes. */
+	private int[] activities;
+
+	/** The orderings. */
+	private int[] orderings;
+
+	/** The timestamps. */
+	private long[] timestamps;
+
+	/** The lifecycle codes. */
+	private int[] lifecycles;
+
+	/** The resource codes. */
+	private int[] resources;
+
+	/** The activity ids, by activity code. */
+	private int[] activityIds = new int[16];
+
+	/** The activity names, by activity code. */
+	private String[] activityNames = new String[16];
+
+	/** The number of activities. */
+	private int activityCount = 0;
+
+	/** The activity codes, by activity id, while adding. */
+	private HashMap<Integer, Integer> activityCodes = new HashMap<>();
+
+	/** The lifecycle dictionary. */
+	private final SLEXMMStringDictionary lifecycleDictionary = new SLEXMMStringDictionary();
+
+	/** The resource dictionary. */
+	private final SLEXMMStringDictionary resourceDictionary = new SLEXMMStringDictionary();
+
+	/** The case ids, ascending, by case index. */
+	private int[] caseIds = null;
+
+	/** The first row of each case, plus the number of rows at the end. */
+	private int[] caseOffsets = null;
+
+	/** The rows, ordered by timestamp. */
+	private int[] byTime = null;
+
+	/**
+	 * Instantiates a new snapshot.
+	 *
+	 * @param capacity the expected number of rows
+	 */
+	public SLEXMMEventColumns(int capacity) {
+		capacity = Math.max(16, capacity);
+		this.caseColumn = new int[capacity];
+		this.eventIds = new int[capacity];
+		this.activities = new int[capacity];
+		this.orderings = new int[capacity];
+		this.timestamps = new long[capacity];
+		this.lifecycles = new int[capacity];
+		this.resources = new int[capacity];
+	}
+
+	private void grow() {
+		int capacity = eventIds.length * 2;
+		caseColumn = Arrays.copyOf(caseColumn, capacity);
+		eventIds = Arrays.copyOf(eventIds, capacity);
+		activities = Arrays.copyOf(activities, capacity);
+		orderings = Arrays.copyOf(orderings, capacity);
+		timestamps = Arrays.copyOf(timestamps, capacity);
+		lifecycles = Arrays.copyOf(lifecycles, capacity);
+		resources = Arrays.copyOf(resources, capacity);
+	}
+
+	private int encodeActivity(int activityId, String name) {
+		Integer code = activityCodes.get(activityId);
+		if (code == null) {
+			if (activityCount == activityIds.length) {
+				activityIds = Arrays.copyOf(activityIds, activityCount * 2);
+				activityNames = Arrays.copyOf(activityNames, activityCount * 2);
+			}
+			code = activityCount;
+			activityIds[activityCount] = activityId;
+			activityNames[activityCount] = name;
+			activityCount++;
+			activityCodes.put(activityId, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Adds the row of an event in a case. Rows must come ordered by case id,
+	 * and by ordering within a case.
+	 *
+	 * @param caseId the case id
+	 * @param eventId the event id
+	 * @param activityId the activity id
+	 * @param activityName the activity name
+	 * @param ordering the ordering
+	 * @param timestamp the timestamp
+	 * @param lifecycle the lifecycle
+	 * @param resource the resource
+	 */
+	public void add(int caseId, int eventId, int activityId, String activityName,
+			int ordering, long timestamp, String lifecycle, String resource) {
+		if (byTime != null) {
+			throw new IllegalStateException("The snapshot is finished");
+		}
+		if (size > 0 && caseId < caseColumn[size - 1]) {
+			throw new IllegalArgumentException("Case "+caseId+" comes after case "+caseColumn[size - 1]);
+		}
+		if (size == eventIds.length) {
+			grow();
+		}
+		caseColumn[size] = caseId;
+		eventIds[size] = eventId;
+		activities[size] = encodeActivity(activityId, activityName);
+		orderings[size] = ordering;
+		timestamps[size] = timestamp;
+		lifecycles[size] = lifecycleDictionary.encode(lifecycle);
+		resources[size] = resourceDictionary.encode(resource);
+		size++;
+	}
+
+	/**
+	 * Freezes the snapshot: trims the columns and builds the index of the
+	 * cases and the order of the rows by timestamp.
+	 *
+	 * @return the snapshot
+	 */
+	public SLEXMMEventColumns finish() {
+		if (byTime != null) {
+			return this;
+		}
+		eventIds = Arrays.copyOf(eventIds, size);
+		activities = Arrays.copyOf(activities, size);
+		orderings = Arrays.copyOf(orderings, size);
+		timestamps = Arrays.copyOf(timestamps, size);
+		lifecycles = Arrays.copyOf(lifecycles, size);
+		resources = Arrays.copyOf(resources, size);
+		activityIds = Arrays.copyOf(activityIds, activityCount);
+		activityNames = Arrays.copyOf(activityNames, activityCount);
+		activityCodes = null;
+
+		int cases = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || caseColumn[i] != caseColumn[i - 1]) {
+				cases++;
+			}
+		}
+		caseIds = new int[cases];
+		caseOffsets = new int[cases + 1];
+		int c = 0;
+		for (int i = 0; i < size; i++) {
+			if (i == 0 || caseColumn[i] != caseColumn[i - 1]) {
+				caseIds[c] = caseColumn[i];
+				caseOffsets[c] = i;
+				c++;
+			}
+		}
+		caseOffsets[cases] = size;
+		caseColumn = null;
+
+		byTime = new int[size];
+		for (int i = 0; i < size; i++) {
+			byTime[i] = i;
+		}
+		sortByTime(byTime, new int[size], 0, size);
+		return this;
+	}
+
+	/**
+	 * Stable merge sort of rows by timestamp, without boxing them.
+	 */
+	private void sortByTime(int[] rows, int[] tmp, int from, int to) {
+		if (to - from < 32) {
+			for (int i = from + 1; i < to; i++) {
+				int r = rows[i];
+				long t = timestamps[r];
+				int j = i - 1;
+				while (j >= from && timestamps[rows[j]] > t) {
+					rows[j + 1] = rows[j];
+					j--;
+				}
+				rows[j + 1] = r;
+			}
+			return;
+		}
+		int mid = (from + to) >>> 1;
+		sortByTime(rows, tmp, from, mid);
+		sortByTime(rows, tmp, mid, to);
+		if (timestamps[rows[mid - 1]] <= timestamps[rows[mid]]) {
+			return;
+		}
+		System.arraycopy(rows, from, tmp, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to) {
+			rows[k++] = timestamps[tmp[j]] < timestamps[tmp[i]] ? tmp[j++] : tmp[i++];
+		}
+		while (i < mid) {
+			rows[k++] = tmp[i++];
+		}
+		while (j < to) {
+			rows[k++] = tmp[j++];
+		}
+	}
+
+	private void checkFinished() {
+		if (byTime == null) {
+			throw new IllegalStateException("The snapshot is not finished");
+		}
+	}
+
+	/**
+	 * Gets the number of rows.
+	 *
+	 * @return the number of rows
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the number of cases.
+	 *
+	 * @return the number of cases
+	 */
+	public int getCases() {
+		checkFinished();
+		return caseIds.length;
+	}
+
+	/**
+	 * Gets the id of a case.
+	 *
+	 * @param caseIndex the index of the case, from 0 to getCases()
+	 * @return the case id
+	 */
+	public int getCaseId(int caseIndex) {
+		return caseIds[caseIndex];
+	}
+
+	/**
+	 * Gets the index of a case.
+	 *
+	 * @param caseId the case id
+	 * @return the index, or a negative number if the case has no events
+	 */
+	public int getCaseIndex(int caseId) {
+		checkFinished();
+		return Arrays.binarySearch(caseIds, caseId);
+	}
+
+	/**
+	 * Gets the first row of the trace of a case.
+	 *
+	 * @param caseIndex the index of the case
+	 * @return the first row
+	 */
+	public int getTraceStart(int caseIndex) {
+		return caseOffsets[caseIndex];
+	}
+
+	/**
+	 * Gets the row after the last one of the trace of a case.
+	 *
+	 * @param caseIndex the index of the case
+	 * @return the row after the last one
+	 */
+	public int getTraceEnd(int caseIndex) {
+		return caseOffsets[caseIndex + 1];
+	}
+
+	public int getEventId(int row) {
+		return eventIds[row];
+	}
+
+	/**
+	 * Gets the activity code of a row.
+	 *
+	 * @param row the row
+	 * @return the activity code, from 0 to getActivities()
+	 */
+	public int getActivity(int row) {
+		return activities[row];
+	}
+
+	public int getOrdering(int row) {
+		return orderings[row];
+	}
+
+	public long getTimestamp(int row) {
+		return timestamps[row];
+	}
+
+	/**
+	 * Gets the lifecycle code of a row.
+	 *
+	 * @param row the row
+	 * @return the code in the lifecycle dictionary
+	 */
+	public int getLifecycle(int row) {
+		return lifecycles[row];
+	}
+
+	/**
+	 * Gets the resource code of a row.
+	 *
+	 * @param row the row
+	 * @return the code in the resource dictionary
+	 */
+	public int getResource(int row) {
+		return resources[row];
+	}
+
+	public SLEXMMStringDictionary getLifecycleDictionary() {
+		return lifecycleDictionary;
+	}
+
+	public SLEXMMStringDictionary getResourceDictionary() {
+		return resourceDictionary;
+	}
+
+	/**
+	 * Gets the number of distinct activities.
+	 *
+	 * @return the number of activities
+	 */
+	public int getActivities() {
+		return activityCount;
+	}
+
+	/**
+	 * Gets the id of an activity.
+	 *
+	 * @param activity the activity code
+	 * @return the activity id
+	 */
+	public int getActivityId(int activity) {
+		return activityIds[activity];
+	}
+
+	/**
+	 * Gets the name of an activity.
+	 *
+	 * @param activity the activity code
+	 * @return the activity name
+	 */
+	public String getActivityName(int activity) {
+		return activityNames[activity];
+	}
+
+	/**
+	 * Gets the number of rows of each activity.
+	 *
+	 * @return the frequencies, by activity code
+	 */
+	public int[] getActivityFrequencies() {
+		int[] counts = new int[activityCount];
+		countActivities(counts, 0, size);
+		return counts;
+	}
+
+	/**
+	 * Adds the number of rows of each activity in a range of rows, such as a
+	 * trace, to an array of counts.
+	 *
+	 * @param counts the counts, by activity code
+	 * @param from the first row
+	 * @param to the row after the last one
+	 */
+	public void countActivities(int[] counts, int from, int to) {
+		for (int i = from; i < to; i++) {
+			counts[activities[i]]++;
+		}
+	}
+
+	/**
+	 * Gets the position, in the order by timestamp, of the first row with a
+	 * timestamp not before a given one. The rows of the window [start, end)
+	 * are the ones from getWindowStart(start) to getWindowStart(end).
+	 *
+	 * @param timestamp the timestamp
+	 * @return the position, from 0 to size()
+	 */
+	public int getWindowStart(long timestamp) {
+		checkFinished();
+		int lo = 0, hi = size;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (timestamps[byTime[mid]] < timestamp) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Gets the row at a position in the order by timestamp.
+	 *
+	 * @param position the position
+	 * @return the row
+	 */
+	public int getRowByTime(int position) {
+		return byTime[position];
+	}
+
+	/**
+	 * Counts the rows with a timestamp in a window.
+	 *
+	 * @param start the start of the window, included
+	 * @param end the end of the window, excluded
+	 * @return the number of rows
+	 */
+	public int countInWindow(long start, long end) {
+		return Math.max(0, getWindowStart(end) - getWindowStart(start));
+	}
+
+	/**
+	 * Estimates the bytes taken in the heap by the snapshot.
+	 *
+	 * @return the bytes
+	 */
+	public long getHeapBytes() {
+		long bytes = 7 * 16L + 4L * (eventIds.length + activities.length + orderings.length
+				+ lifecycles.length + resources.length) + 8L * timestamps.length;
+		if (byTime != null) {
+			bytes += 3 * 16L + 4L * (byTime.length + caseIds.length + caseOffsets.length);
+		}
+		bytes += 4L * activityIds.length + 4L * activityNames.length;
+		for (int a = 0; a < activityCount; a++) {
+			bytes += activityNames[a] == null ? 0 : 40 + 2L * activityNames[a].length();
+		}
+		return bytes + lifecycleDictionary.getHeapBytes() + resourceDictionary.getHeapBytes();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "rows="+size+" cases="+(caseIds == null ? "?" : caseIds.length)+" activities="+activityCount
+				+" lifecycles="+lifecycleDictionary.size()+" resources="+resourceDictionary.size()
+				+" heapBytes="+getHeapBytes();
+	}
+
+}
@@ -0,0 +1,92 @@
+package org.processmining.openslex.metamodel.columnar;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Dictionary of the distinct strings of a column. Each distinct string
+ * gets a code, consecutive from 0 in order of appearance, so a column can
+ * be stored as an int array. Null is encoded as NULL_CODE.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMStringDictionary {
+
+	/** The Constant NULL_CODE, the code of null. */
+	public static final int NULL_CODE = -1;
+
+	/** The codes of the strings. */
+	private final HashMap<String, Integer> codes = new HashMap<>();
+
+	/** The strings, by code. */
+	private String[] values = new String[16];
+
+	/** The number of strings. */
+	private int size = 0;
+
+	/**
+	 * Gets the code of a string, adding it if it is not in the dictionary.
+	 *
+	 * @param value the string
+	 * @return the code
+	 */
+	public int encode(String value) {
+		if (value == null) {
+			return NULL_CODE;
+		}
+		Integer code = codes.get(value);
+		if (code == null) {
+			if (size == values.length) {
+				values = Arrays.copyOf(values, size * 2);
+			}
+			code = size;
+			values[size++] = value;
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	/**
+	 * Gets the code of a string.
+	 *
+	 * @param value the string
+	 * @return the code, or NULL_CODE if the string is null or not in the dictionary
+	 */
+	public int getCode(String value) {
+		Integer code = value == null ? null : codes.get(value);
+		return code == null ? NULL_CODE : code;
+	}
+
+	/**
+	 * Gets the string of a code.
+	 *
+	 * @param code the code
+	 * @return the string, or null for NULL_CODE
+	 */
+	public String decode(int code) {
+		return code == NULL_CODE ? null : values[code];
+	}
+
+	/**
+	 * Gets the number of distinct strings.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Estimates the bytes taken in the heap by the dictionary.
+	 *
+	 * @return the bytes
+	 */
+	long getHeapBytes() {
+		long bytes = 16 + 4L * values.length + 48L * size;
+		for (int i = 0; i < size; i++) {
+			bytes += 40 + 2L * values[i].length();
+		}
+		return bytes;
+	}
+
+}
@@ -0,0 +1,431 @@
+package org.processmining.openslex.metamodel.generator;
+
+import java.io.File;
+import java.util.Random;
+
+import org.processmining.openslex.metamodel.SLEXMMActivity;
+import org.processmining.openslex.metamodel.SLEXMMActivityInstance;
+import org.processmining.openslex.metamodel.SLEXMMAttribute;
+import org.processmining.openslex.metamodel.SLEXMMBulkInsertSession;
+import org.processmining.openslex.metamodel.SLEXMMCase;
+import org.processmining.openslex.metamodel.SLEXMMClass;
+import org.processmining.openslex.metamodel.SLEXMMDataModel;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventAttribute;
+import org.processmining.openslex.metamodel.SLEXMMLog;
+import org.processmining.openslex.metamodel.SLEXMMObject;
+import org.processmining.openslex.metamodel.SLEXMMObjectVersion;
+import org.processmining.openslex.metamodel.SLEXMMProcess;
+import org.processmining.openslex.metamodel.SLEXMMRelationship;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+
+/**
+ * Generator of synthetic metamodels for scale and load tests.
+ *
+ * It creates the data models, classes, attributes, relationships and
+ * activities through the storage, and then streams the objects, their
+ * versions, attribute values and relations, and the cases, activity
+ * instances and events through a bulk insert session. Only a bounded window
+ * of object versions is kept in memory, as candidates for the relations and
+ * the events, so the memory used does not grow with the size of the file.
+ * The same configuration and seed always give the same metamodel.
+ *
+ * It can be run from the command line, see usage().
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMGenerator {
+
+	/** The Constant TYPE, the type of the generated values. */
+	public static final String TYPE = "STRING";
+
+	/** The Constant LABEL, the label of the links from events to object versions. */
+	public static final String LABEL = "generated";
+
+	/** The Constant TIME_STEP, the maximum time between consecutive elements. */
+	private static final int TIME_STEP = 60000;
+
+	private final SLEXMMGeneratorConfig config;
+
+	private Random random;
+
+	private SLEXMMZipfDistribution values;
+
+	private long timestamp;
+
+	private long versions = 0;
+	private long relations = 0;
+	private long events = 0;
+
+	/**
+	 * Instantiates a new generator.
+	 *
+	 * @param config the configuration
+	 */
+	public SLEXMMGenerator(SLEXMMGeneratorConfig config) {
+		this.config = config;
+	}
+
+	public SLEXMMGeneratorConfig getConfig() {
+		return config;
+	}
+
+	public long getObjectVersions() {
+		return versions;
+	}
+
+	public long getRelations() {
+		return relations;
+	}
+
+	public long getEvents() {
+		return events;
+	}
+
+	/**
+	 * Samples of object versions: the most recent ones per class, as the
+	 * targets of relations, and a uniform sample of all of them, as the
+	 * object versions of the events.
+	 */
+	private static final class VersionWindow {
+		final int[][] recent;
+		final int[] recentSize;
+		final int[] recentNext;
+		final int[] sample;
+		int sampleSize = 0;
+		long seen = 0;
+
+		VersionWindow(int classes, int size) {
+			int perClass = Math.max(16, size / Math.max(1, classes));
+			this.recent = new int[classes][perClass];
+			this.recentSize = new int[classes];
+			this.recentNext = new int[classes];
+			this.sample = new int[Math.max(1, size)];
+		}
+
+		void add(int clazz, int versionId, Random random) {
+			int[] r = recent[clazz];
+			r[recentNext[clazz]] = versionId;
+			recentNext[clazz] = (recentNext[clazz] + 1) % r.length;
+			recentSize[clazz] = Math.min(recentSize[clazz] + 1, r.length);
+
+			// Reservoir sampling keeps every version seen with the same probability
+			seen++;
+			if (sampleSize < sample.length) {
+				sample[sampleSize++] = versionId;
+			} else {
+				long j = (long) (random.nextDouble() * seen);
+				if (j < sample.length) {
+					sample[(int) j] = versionId;
+				}
+			}
+		}
+
+		int recent(int clazz, Random random) {
+			int size = recentSize[clazz];
+			return size == 0 ? -1 : recent[clazz][random.nextInt(size)];
+		}
+
+		int sample(Random random) {
+			return sampleSize == 0 ? -1 : sample[random.nextInt(sampleSize)];
+		}
+	}
+
+	/**
+	 * Generates a metamodel in a storage.
+	 *
+	 * @param storage the storage, usually of a new file
+	 * @throws Exception if the metamodel could not be written
+	 */
+	public void generate(SLEXMMStorageMetaModel storage) throws Exception {
+		random = new Random(config.getSeed());
+		values = new SLEXMMZipfDistribution(Math.max(1, config.getAttributeCardinality()), config.getSkew());
+		timestamp = 0;
+		versions = 0;
+		relations = 0;
+		events = 0;
+
+		boolean autoCommitOnCreation = storage.isAutoCommitOnCreationEnabled();
+		try {
+			// The schema is small and goes through the storage, element by element
+			storage.setAutoCommitOnCreation(true);
+
+			int numClasses = config.getDataModels() * config.getClassesPerDataModel();
+			SLEXMMClass[] classes = new SLEXMMClass[numClasses];
+			int[][] attributes = new int[numClasses][];
+			for (int d = 0; d < config.getDataModels(); d++) {
+				SLEXMMDataModel dm = storage.createDatamodel("datamodel"+d);
+				for (int c = 0; c < config.getClassesPerDataModel(); c++) {
+					int i = d * config.getClassesPerDataModel() + c;
+					classes[i] = storage.createClass(dm.getId(), "class"+i);
+					attributes[i] = new int[config.getAttributesPerClass()];
+					for (int a = 0; a < attributes[i].length; a++) {
+						SLEXMMAttribute at = storage.createAttribute(classes[i].getId(), "attribute"+a);
+						attributes[i][a] = at.getId();
+					}
+				}
+			}
+
+			int[][] relationships = new int[numClasses][];
+			int[][] relationshipTargets = new int[numClasses][];
+			for (int c = 0; c < numClasses; c++) {
+				relationships[c] = new int[config.getRelationshipsPerClass()];
+				relationshipTargets[c] = new int[relationships[c].length];
+				for (int r = 0; r < relationships[c].length; r++) {
+					int target = random.nextInt(numClasses);
+					SLEXMMRelationship rs = storage.createRelationship("relationship"+c+"_"+r,
+							classes[c].getId(), classes[target].getId());
+					relationships[c][r] = rs.getId();
+					relationshipTargets[c][r] = target;
+				}
+			}
+
+			SLEXMMProcess proc = storage.createProcess("process");
+			SLEXMMLog log = storage.createLog(proc.getId(), "log");
+			SLEXMMActivity[] activities = new SLEXMMActivity[Math.max(1, config.getActivities())];
+			for (int a = 0; a < activities.length; a++) {
+				activities[a] = storage.createActivity("activity"+a);
+				storage.addActivityToProcess(proc.getId(), activities[a].getId());
+			}
+			SLEXMMZipfDistribution activityDistribution = new SLEXMMZipfDistribution(activities.length,
+					config.getSkew());
+
+			int[] eventAttributes = new int[config.getEventAttributes()];
+			for (int a = 0; a < eventAttributes.length; a++) {
+				SLEXMMEventAttribute at = storage.createEventAttribute("attribute"+a);
+				eventAttributes[a] = at.getId();
+			}
+
+			// The data and the events are streamed
+			storage.setAutoCommitOnCreation(false);
+			VersionWindow window = new VersionWindow(numClasses, config.getWindow());
+
+			try (SLEXMMBulkInsertSession session = storage.createBulkInsertSession(config.getBatchSize())) {
+				if (numClasses > 0) {
+					for (long o = 0; o < config.getObjects(); o++) {
+						int c = random.nextInt(numClasses);
+						SLEXMMObject obj = storage.createObject(classes[c].getId());
+						check(session.add(obj));
+						int n = atLeastOne(config.getVersionsPerObject());
+						for (int v = 0; v < n; v++) {
+							long start = tick();
+							long end = v < n - 1 ? start + random.nextInt(TIME_STEP) : -1;
+							SLEXMMObjectVersion ov = storage.createObjectVersion(obj.getId(), start, end);
+							check(session.add(ov));
+							versions++;
+							for (int at: attributes[c]) {
+								check(session.add(storage.createAttributeValue(at, ov.getId(), value(), TYPE)));
+							}
+							if (relationships[c].length > 0) {
+								int rn = poisson(config.getRelationsPerVersion());
+								for (int r = 0; r < rn; r++) {
+									int k = random.nextInt(relationships[c].length);
+									int target = window.recent(relationshipTargets[c][k], random);
+									if (target >= 0) {
+										check(session.add(storage.createRelation(ov.getId(), target,
+												relationships[c][k], start, end)));
+										relations++;
+									}
+								}
+							}
+							window.add(c, ov.getId(), random);
+						}
+					}
+				}
+
+				for (long cs = 0; cs < config.getCases(); cs++) {
+					SLEXMMCase c = storage.createCase("case"+cs);
+					check(session.add(c));
+					check(session.addCaseToLog(log.getId(), c.getId()));
+					int ais = atLeastOne(config.getActivityInstancesPerCase());
+					for (int a = 0; a < ais; a++) {
+						SLEXMMActivityInstance ai = storage.createActivityInstance(
+								activities[activityDistribution.sample(random)]);
+						check(session.add(ai));
+						check(session.addActivityInstanceToCase(c.getId(), ai.getId()));
+						int evs = atLeastOne(config.getEventsPerActivityInstance());
+						for (int e = 0; e < evs; e++) {
+							SLEXMMEvent ev = storage.createEvent((int) events, ai.getId(),
+									e == evs - 1 ? "complete" : "start",
+									"resource"+activityDistribution.sample(random), tick());
+							check(session.add(ev));
+							events++;
+							for (int at: eventAttributes) {
+								check(session.add(storage.createEventAttributeValue(at, ev.getId(), value(), TYPE)));
+							}
+							int vn = poisson(config.getVersionsPerEvent());
+							int[] linked = new int[vn];
+							for (int v = 0; v < vn; v++) {
+								int ov = window.sample(random);
+								// An event is linked once to each object version
+								if (ov >= 0 && !contains(linked, v, ov)) {
+									linked[v] = ov;
+									check(session.addEventToObjectVersion(ov, ev.getId(), LABEL));
+								}
+							}
+						}
+					}
+				}
+			}
+		} finally {
+			storage.setAutoCommitOnCreation(autoCommitOnCreation);
+		}
+	}
+
+	private static boolean contains(int[] ids, int n, int id) {
+		for (int i = 0; i < n; i++) {
+			if (ids[i] == id) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static void check(boolean added) {
+		if (!added) {
+			throw new IllegalStateException("The bulk insert session failed to write a batch");
+		}
+	}
+
+	private long tick() {
+		timestamp += random.nextInt(TIME_STEP);
+		return timestamp;
+	}
+
+	private String value() {
+		return "value"+values.sample(random);
+	}
+
+	/**
+	 * Draws a count of at least one from a geometric distribution.
+	 *
+	 * @param mean the mean, 1 or more
+	 * @return the count
+	 */
+	private int atLeastOne(double mean) {
+		if (mean <= 1) {
+			return 1;
+		}
+		double p = 1 / mean;
+		return 1 + (int) Math.floor(Math.log(1 - random.nextDouble()) / Math.log(1 - p));
+	}
+
+	/**
+	 * Draws a count from a Poisson distribution.
+	 *
+	 * @param mean the mean
+	 * @return the count
+	 */
+	private int poisson(double mean) {
+		if (mean <= 0) {
+			return 0;
+		}
+		// The sum of draws of mean up to one keeps exp(-mean) away from underflow
+		int count = 0;
+		while (mean > 0) {
+			double m = Math.min(mean, 1);
+			double limit = Math.exp(-m);
+			double product = random.nextDouble();
+			while (product > limit) {
+				count++;
+				product *= random.nextDouble();
+			}
+			mean -= m;
+		}
+		return count;
+	}
+
+	private static void usage() {
+		System.err.println("Usage: SLEXMMGenerator [options] <output.slexmm>");
+		System.err.println("  -profile <file.slexmm>    start from the profile of an existing metamodel");
+		System.err.println("  -events <n>               scale cases and objects to about n events");
+		System.err.println("  -seed <n>                 seed of the random choices");
+		System.err.println("  -cases <n>                number of cases");
+		System.err.println("  -objects <n>              number of objects");
+		System.err.println("  -activityInstancesPerCase <x>, -eventsPerActivityInstance <x>,");
+		System.err.println("  -versionsPerObject <x>, -relationsPerVersion <x>, -versionsPerEvent <x>");
+		System.err.println("                            average fan-outs");
+		System.err.println("  -cardinality <n>          distinct values of each attribute");
+		System.err.println("  -skew <x>                 Zipf exponent of values and activities, 0 for uniform");
+		System.err.println("  -eventAttributes <n>, -attributesPerClass <n>, -classes <n>, -activities <n>");
+		System.err.println("  -window <n>               object versions kept as candidates for links");
+	}
+
+	/**
+	 * Generates a metamodel file from the command line.
+	 *
+	 * @param args the arguments, see usage()
+	 * @throws Exception the exception
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length == 0 || args.length % 2 == 0) {
+			usage();
+			System.exit(1);
+		}
+
+		// The profile goes first, so the other options override it
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		for (int i = 0; i < args.length - 1; i += 2) {
+			if (args[i].equals("-profile")) {
+				File profile = new File(args[i + 1]).getAbsoluteFile();
+				SLEXMMStorageMetaModel source = new SLEXMMStorageMetaModelImpl(
+						profile.getParent(), profile.getName());
+				try {
+					config = SLEXMMGeneratorConfig.fromProfile(source);
+				} finally {
+					source.disconnect();
+				}
+			}
+		}
+
+		Long targetEvents = null;
+		for (int i = 0; i < args.length - 1; i += 2) {
+			String v = args[i + 1];
+			switch (args[i]) {
+			case "-profile": break;
+			case "-events": targetEvents = Long.parseLong(v); break;
+			case "-seed": config.setSeed(Long.parseLong(v)); break;
+			case "-cases": config.setCases(Long.parseLong(v)); break;
+			case "-objects": config.setObjects(Long.parseLong(v)); break;
+			case "-activityInstancesPerCase": config.setActivityInstancesPerCase(Double.parseDouble(v)); break;
+			case "-eventsPerActivityInstance": config.setEventsPerActivityInstance(Double.parseDouble(v)); break;
+			case "-versionsPerObject": config.setVersionsPerObject(Double.parseDouble(v)); break;
+			case "-relationsPerVersion": config.setRelationsPerVersion(Double.parseDouble(v)); break;
+			case "-versionsPerEvent": config.setVersionsPerEvent(Double.parseDouble(v)); break;
+			case "-cardinality": config.setAttributeCardinality(Integer.parseInt(v)); break;
+			case "-skew": config.setSkew(Double.parseDouble(v)); break;
+			case "-eventAttributes": config.setEventAttributes(Integer.parseInt(v)); break;
+			case "-attributesPerClass": config.setAttributesPerClass(Integer.parseInt(v)); break;
+			case "-classes": config.setClassesPerDataModel(Integer.parseInt(v)); break;
+			case "-activities": config.setActivities(Integer.parseInt(v)); break;
+			case "-window": config.setWindow(Integer.parseInt(v)); break;
+			default:
+				usage();
+				System.exit(1);
+			}
+		}
+		if (targetEvents != null) {
+			config.setExpectedEvents(targetEvents);
+		}
+
+		File out = new File(args[args.length - 1]).getAbsoluteFile();
+		if (out.exists()) {
+			System.err.println(out+" already exists");
+			System.exit(1);
+		}
+		System.out.println("Generating "+out+" with "+config);
+
+		long start = System.currentTimeMillis();
+		SLEXMMStorageMetaModel storage = new SLEXMMStorageMetaModelImpl(out.getParent(), out.getName());
+		SLEXMMGenerator generator = new SLEXMMGenerator(config);
+		try {
+			generator.generate(storage);
+		} finally {
+			storage.disconnect();
+		}
+		System.out.println(generator.getEvents()+" events, "+generator.getObjectVersions()+" object versions and "
+				+generator.getRelations()+" relations in "+(System.currentTimeMillis() - start)+" ms");
+	}
+
+}
@@ -0,0 +1,379 @@
+package org.processmining.openslex.metamodel.generator;
+
+import org.processmining.openslex.metamodel.SLEXMMSQLResult;
+import org.processmining.openslex.metamodel.SLEXMMSQLResultSet;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+
+/**
+ * Shape of a synthetic metamodel: how many elements of each kind, how many
+ * of them hang from each parent on average, and how the values of the
+ * attributes are distributed. Averages are means of the random counts
+ * drawn for each parent, and values are drawn from a Zipf distribution
+ * with exponent skew over attributeCardinality distinct values.
+ *
+ * A configuration can be read from an existing metamodel with
+ * fromProfile(), to generate files with its statistical profile at any
+ * scale.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMGeneratorConfig {
+
+	private static final String METAMODEL_ALIAS = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+
+	/** The Constant RANKS_FOR_SKEW, the most frequent values used to estimate the skew. */
+	private static final int RANKS_FOR_SKEW = 100;
+
+	/** The seed of the random choices. */
+	private long seed = 42;
+
+	/** The data models. */
+	private int dataModels = 1;
+
+	/** The classes of each data model. */
+	private int classesPerDataModel = 10;
+
+	/** The attributes of each class. */
+	private int attributesPerClass = 5;
+
+	/** The relationships with each class as source. */
+	private int relationshipsPerClass = 2;
+
+	/** The objects. */
+	private long objects = 10000;
+
+	/** The average versions of each object. */
+	private double versionsPerObject = 3;
+
+	/** The average relations from each object version. */
+	private double relationsPerVersion = 1;
+
+	/** The activities. */
+	private int activities = 20;
+
+	/** The cases. */
+	private long cases = 10000;
+
+	/** The average activity instances of each case. */
+	private double activityInstancesPerCase = 10;
+
+	/** The average events of each activity instance. */
+	private double eventsPerActivityInstance = 1;
+
+	/** The average object versions linked to each event. */
+	private double versionsPerEvent = 1;
+
+	/** The attributes of the events. */
+	private int eventAttributes = 5;
+
+	/** The distinct values of each attribute. */
+	private int attributeCardinality = 1000;
+
+	/** The exponent of the Zipf distribution of values and activities, 0 for uniform. */
+	private double skew = 1.0;
+
+	/** The object versions kept as candidates for relations and events. */
+	private int window = 10000;
+
+	/** The batch size of the bulk insert session. */
+	private int batchSize = 10000;
+
+	public long getSeed() {
+		return seed;
+	}
+
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+
+	public int getDataModels() {
+		return dataModels;
+	}
+
+	public void setDataModels(int dataModels) {
+		this.dataModels = dataModels;
+	}
+
+	public int getClassesPerDataModel() {
+		return classesPerDataModel;
+	}
+
+	public void setClassesPerDataModel(int classesPerDataModel) {
+		this.classesPerDataModel = classesPerDataModel;
+	}
+
+	public int getAttributesPerClass() {
+		return attributesPerClass;
+	}
+
+	public void setAttributesPerClass(int attributesPerClass) {
+		this.attributesPerClass = attributesPerClass;
+	}
+
+	public int getRelationshipsPerClass() {
+		return relationshipsPerClass;
+	}
+
+	public void setRelationshipsPerClass(int relationshipsPerClass) {
+		this.relationshipsPerClass = relationshipsPerClass;
+	}
+
+	public long getObjects() {
+		return objects;
+	}
+
+	public void setObjects(long objects) {
+		this.objects = objects;
+	}
+
+	public double getVersionsPerObject() {
+		return versionsPerObject;
+	}
+
+	public void setVersionsPerObject(double versionsPerObject) {
+		this.versionsPerObject = versionsPerObject;
+	}
+
+	public double getRelationsPerVersion() {
+		return relationsPerVersion;
+	}
+
+	public void setRelationsPerVersion(double relationsPerVersion) {
+		this.relationsPerVersion = relationsPerVersion;
+	}
+
+	public int getActivities() {
+		return activities;
+	}
+
+	public void setActivities(int activities) {
+		this.activities = activities;
+	}
+
+	public long getCases() {
+		return cases;
+	}
+
+	public void setCases(long cases) {
+		this.cases = cases;
+	}
+
+	public double getActivityInstancesPerCase() {
+		return activityInstancesPerCase;
+	}
+
+	public void setActivityInstancesPerCase(double activityInstancesPerCase) {
+		this.activityInstancesPerCase = activityInstancesPerCase;
+	}
+
+	public double getEventsPerActivityInstance() {
+		return eventsPerActivityInstance;
+	}
+
+	public void setEventsPerActivityInstance(double eventsPerActivityInstance) {
+		this.eventsPerActivityInstance = eventsPerActivityInstance;
+	}
+
+	public double getVersionsPerEvent() {
+		return versionsPerEvent;
+	}
+
+	public void setVersionsPerEvent(double versionsPerEvent) {
+		this.versionsPerEvent = versionsPerEvent;
+	}
+
+	public int getEventAttributes() {
+		return eventAttributes;
+	}
+
+	public void setEventAttributes(int eventAttributes) {
+		this.eventAttributes = eventAttributes;
+	}
+
+	public int getAttributeCardinality() {
+		return attributeCardinality;
+	}
+
+	public void setAttributeCardinality(int attributeCardinality) {
+		this.attributeCardinality = attributeCardinality;
+	}
+
+	public double getSkew() {
+		return skew;
+	}
+
+	public void setSkew(double skew) {
+		this.skew = skew;
+	}
+
+	public int getWindow() {
+		return window;
+	}
+
+	public void setWindow(int window) {
+		this.window = window;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * Gets the expected number of events.
+	 *
+	 * @return the expected events
+	 */
+	public long getExpectedEvents() {
+		return (long) (cases * Math.max(1, activityInstancesPerCase) * Math.max(1, eventsPerActivityInstance));
+	}
+
+	/**
+	 * Sets the number of cases and objects to get about a number of events,
+	 * keeping the ratio of objects to cases.
+	 *
+	 * @param events the number of events
+	 */
+	public void setExpectedEvents(long events) {
+		double factor = (double) events / Math.max(1, getExpectedEvents());
+		scale(factor);
+	}
+
+	/**
+	 * Multiplies the number of cases and objects by a factor, keeping the
+	 * averages of their children.
+	 *
+	 * @param factor the factor
+	 */
+	public void scale(double factor) {
+		this.cases = Math.max(1, Math.round(cases * factor));
+		this.objects = Math.max(1, Math.round(objects * factor));
+	}
+
+	/**
+	 * Reads the profile of an existing metamodel: the number of elements
+	 * of each kind, the averages of their children, and the cardinality and
+	 * skew of the values of its most used event attribute.
+	 *
+	 * @param storage the storage of the metamodel
+	 * @return the configuration with its profile
+	 * @throws Exception if the metamodel could not be read
+	 */
+	public static SLEXMMGeneratorConfig fromProfile(SLEXMMStorageMetaModel storage) throws Exception {
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+
+		long dataModels = count(storage, "datamodel");
+		long classes = count(storage, "class");
+		long attributes = count(storage, "attribute_name");
+		long relationships = count(storage, "relationship");
+		long objects = count(storage, "object");
+		long versions = count(storage, "object_version");
+		long relations = count(storage, "relation");
+		long activities = count(storage, "activity");
+		long cases = count(storage, "'case'");
+		long activityInstances = count(storage, "activity_instance_to_case");
+		long events = count(storage, "event");
+		long eventVersions = count(storage, "event_to_object_version");
+		long eventAttributes = count(storage, "event_attribute_name");
+
+		config.setDataModels((int) Math.max(1, dataModels));
+		config.setClassesPerDataModel((int) Math.max(1, ratio(classes, dataModels)));
+		config.setAttributesPerClass((int) Math.round(ratio(attributes, classes)));
+		config.setRelationshipsPerClass((int) Math.round(ratio(relationships, classes)));
+		config.setObjects(objects);
+		config.setVersionsPerObject(Math.max(1, ratio(versions, objects)));
+		config.setRelationsPerVersion(ratio(relations, versions));
+		config.setActivities((int) Math.max(1, activities));
+		config.setCases(cases);
+		config.setActivityInstancesPerCase(Math.max(1, ratio(activityInstances, cases)));
+		config.setEventsPerActivityInstance(Math.max(1, ratio(events, activityInstances)));
+		config.setVersionsPerEvent(ratio(eventVersions, events));
+		config.setEventAttributes((int) eventAttributes);
+
+		// The values of the event attribute with most of them
+		String topAttribute = "(SELECT event_attribute_name_id FROM "+METAMODEL_ALIAS+".event_attribute_value"
+				+ " GROUP BY event_attribute_name_id ORDER BY count(*) DESC LIMIT 1)";
+		long distinct = queryLong(storage, "SELECT count(DISTINCT value) FROM "+METAMODEL_ALIAS
+				+".event_attribute_value WHERE event_attribute_name_id = "+topAttribute);
+		if (distinct > 0) {
+			config.setAttributeCardinality((int) Math.min(Integer.MAX_VALUE, distinct));
+			config.setSkew(estimateSkew(storage, "SELECT count(*) AS c FROM "+METAMODEL_ALIAS
+					+".event_attribute_value WHERE event_attribute_name_id = "+topAttribute
+					+" GROUP BY value ORDER BY c DESC LIMIT "+RANKS_FOR_SKEW));
+		}
+
+		return config;
+	}
+
+	private static double ratio(long a, long b) {
+		return b == 0 ? 0 : (double) a / b;
+	}
+
+	private static long count(SLEXMMStorageMetaModel storage, String table) throws Exception {
+		return queryLong(storage, "SELECT count(*) FROM "+METAMODEL_ALIAS+"."+table);
+	}
+
+	private static long queryLong(SLEXMMStorageMetaModel storage, String query) throws Exception {
+		SLEXMMSQLResultSet rset = storage.executeSQL(query);
+		try {
+			SLEXMMSQLResult r = rset.getNext();
+			return r != null && r.getValues()[0] != null ? Long.parseLong(r.getValues()[0]) : 0;
+		} finally {
+			rset.close();
+		}
+	}
+
+	/**
+	 * Estimates the exponent of a Zipf distribution as the slope of the
+	 * least squares fit of log(frequency) against log(rank).
+	 *
+	 * @param storage the storage
+	 * @param query the query of the frequencies, most frequent first
+	 * @return the exponent, 0 if there are not enough ranks
+	 * @throws Exception the exception
+	 */
+	private static double estimateSkew(SLEXMMStorageMetaModel storage, String query) throws Exception {
+		double sx = 0, sy = 0, sxx = 0, sxy = 0;
+		int n = 0;
+		SLEXMMSQLResultSet rset = storage.executeSQL(query);
+		try {
+			SLEXMMSQLResult r = null;
+			while ((r = rset.getNext()) != null) {
+				n++;
+				double x = Math.log(n);
+				double y = Math.log(Long.parseLong(r.getValues()[0]));
+				sx += x;
+				sy += y;
+				sxx += x * x;
+				sxy += x * y;
+			}
+		} finally {
+			rset.close();
+		}
+		double d = n * sxx - sx * sx;
+		if (n < 2 || d == 0) {
+			return 0;
+		}
+		return Math.max(0, -(n * sxy - sx * sy) / d);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "seed="+seed+" dataModels="+dataModels+" classesPerDataModel="+classesPerDataModel
+				+" attributesPerClass="+attributesPerClass+" relationshipsPerClass="+relationshipsPerClass
+				+" objects="+objects+" versionsPerObject="+versionsPerObject
+				+" relationsPerVersion="+relationsPerVersion+" activities="+activities+" cases="+cases
+				+" activityInstancesPerCase="+activityInstancesPerCase
+				+" eventsPerActivityInstance="+eventsPerActivityInstance+" versionsPerEvent="+versionsPerEvent
+				+" eventAttributes="+eventAttributes+" attributeCardinality="+attributeCardinality
+				+" skew="+skew+" window="+window+" batchSize="+batchSize;
+	}
+
+}
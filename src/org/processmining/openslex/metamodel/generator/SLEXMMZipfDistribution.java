@@ -0,0 +1,50 @@
+package org.processmining.openslex.metamodel.generator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Zipf distribution over ranks 0 to n-1: rank k is drawn with probability
+ * proportional to 1/(k+1)^s. An exponent of 0 draws ranks uniformly.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMZipfDistribution {
+
+	private final double[] cumulative;
+
+	/**
+	 * Instantiates a new Zipf distribution.
+	 *
+	 * @param n the number of ranks
+	 * @param s the exponent
+	 */
+	public SLEXMMZipfDistribution(int n, double s) {
+		if (n < 1) {
+			throw new IllegalArgumentException("A distribution needs at least one rank");
+		}
+		this.cumulative = new double[n];
+		double total = 0;
+		for (int k = 0; k < n; k++) {
+			total += s == 0 ? 1 : Math.pow(k + 1, -s);
+			cumulative[k] = total;
+		}
+	}
+
+	public int getRanks() {
+		return cumulative.length;
+	}
+
+	/**
+	 * Draws a rank.
+	 *
+	 * @param random the source of randomness
+	 * @return the rank
+	 */
+	public int sample(Random random) {
+		double u = random.nextDouble() * cumulative[cumulative.length - 1];
+		int i = Arrays.binarySearch(cumulative, u);
+		return Math.min(i >= 0 ? i : -i - 1, cumulative.length - 1);
+	}
+
+}
@@ -0,0 +1,145 @@
+package org.processmining.openslex.metamodel.graph;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Adjacency of a foreign key of the metamodel in compressed sparse row
+ * form, in both directions. Rows of the table with the key are identified
+ * by their rowid, which is the id for the tables that have one, and the
+ * rows they refer to by their id.
+ *
+ * The neighbours of a row r going forward are the targets from
+ * forwardOffsets[r] to forwardOffsets[r+1], and the same backward. Rows
+ * beyond the ones indexed have no neighbours.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMAdjacency {
+
+	/** The table with the key. */
+	private final SLEXMMTables table;
+
+	/** The field of the key. */
+	private final String field;
+
+	/** The table the key refers to. */
+	private final SLEXMMTables target;
+
+	/** The offsets of the targets of each row. */
+	private final int[] forwardOffsets;
+
+	/** The ids referred to, grouped by row. */
+	private final int[] forwardTargets;
+
+	/** The offsets of the rows referring to each id. */
+	private final int[] backwardOffsets;
+
+	/** The rows referring to each id, grouped by id. */
+	private final int[] backwardTargets;
+
+	/**
+	 * Builds the adjacency from the pairs of a scan of the table.
+	 *
+	 * @param table the table with the key
+	 * @param field the field of the key
+	 * @param target the table the key refers to
+	 * @param rows the rowids
+	 * @param ids the ids referred to, by pair
+	 * @param pairs the number of pairs
+	 */
+	public SLEXMMAdjacency(SLEXMMTables table, String field, SLEXMMTables target,
+			int[] rows, int[] ids, int pairs) {
+		this.table = table;
+		this.field = field;
+		this.target = target;
+
+		int maxRow = -1;
+		int maxId = -1;
+		for (int i = 0; i < pairs; i++) {
+			maxRow = Math.max(maxRow, rows[i]);
+			maxId = Math.max(maxId, ids[i]);
+		}
+		this.forwardOffsets = new int[maxRow + 2];
+		this.forwardTargets = new int[pairs];
+		this.backwardOffsets = new int[maxId + 2];
+		this.backwardTargets = new int[pairs];
+		fill(rows, ids, pairs, forwardOffsets, forwardTargets);
+		fill(ids, rows, pairs, backwardOffsets, backwardTargets);
+	}
+
+	/**
+	 * Counting sort of the pairs by source.
+	 */
+	private static void fill(int[] sources, int[] targets, int pairs, int[] offsets, int[] sorted) {
+		for (int i = 0; i < pairs; i++) {
+			offsets[sources[i] + 1]++;
+		}
+		for (int s = 1; s < offsets.length; s++) {
+			offsets[s] += offsets[s - 1];
+		}
+		int[] next = offsets.clone();
+		for (int i = 0; i < pairs; i++) {
+			sorted[next[sources[i]]++] = targets[i];
+		}
+	}
+
+	public SLEXMMTables getTable() {
+		return table;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	public SLEXMMTables getTarget() {
+		return target;
+	}
+
+	/**
+	 * Gets the number of pairs.
+	 *
+	 * @return the number of pairs
+	 */
+	public int getPairs() {
+		return forwardTargets.length;
+	}
+
+	/**
+	 * Adds the neighbours of some rows or ids to a list.
+	 *
+	 * @param frontier the rowids going forward, or the ids going backward
+	 * @param size the number of elements of the frontier
+	 * @param forward true to go from rows to the ids they refer to
+	 * @param out the list of neighbours
+	 */
+	void follow(int[] frontier, int size, boolean forward, SLEXMMIntList out) {
+		int[] offsets = forward ? forwardOffsets : backwardOffsets;
+		int[] targets = forward ? forwardTargets : backwardTargets;
+		for (int i = 0; i < size; i++) {
+			int v = frontier[i];
+			if (v < 0 || v + 1 >= offsets.length) {
+				continue;
+			}
+			out.addAll(targets, offsets[v], offsets[v + 1]);
+		}
+	}
+
+	/**
+	 * Gets the bytes taken in the heap by the arrays.
+	 *
+	 * @return the bytes
+	 */
+	public long getHeapBytes() {
+		return 4 * 16L + 4L * (forwardOffsets.length + forwardTargets.length
+				+ backwardOffsets.length + backwardTargets.length);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return table+"."+field+" -> "+target+": "+getPairs()+" pairs, "+getHeapBytes()+" bytes";
+	}
+
+}
@@ -0,0 +1,262 @@
+package org.processmining.openslex.metamodel.graph;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMEdge;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryPlan;
+import org.processmining.openslex.metamodel.querygen.SLEXMMStorageQueryGenerator;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * In-memory index of every foreign key of the metamodel, as adjacencies in
+ * compressed sparse row form. It is built with one sequential scan of each
+ * table with keys, and answers which elements of a table are related to
+ * some ids of another by walking the paths of the join plan between them,
+ * with no SQL at all. Like the semi-join queries, each related element is
+ * returned once.
+ *
+ * The relations between object versions are also kept in one list per
+ * version for both directions, with their relationships and periods, to
+ * walk the graph of versions.
+ *
+ * The index is a snapshot: writes after it was built are not in it. The
+ * storage compares the number of changes it was built at with the current
+ * one, and goes back to SQL while they differ, until the index is rebuilt.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMGraphIndex {
+
+	/** The Constant ID, the field that identifies the rows of a table. */
+	private static final String ID = "id";
+
+	/** The adjacencies, by table and field. */
+	private final HashMap<String, SLEXMMAdjacency> adjacencies = new HashMap<>();
+
+	/** The relations of each object version. */
+	private SLEXMMRelationIndex relations;
+
+	/** The number of changes of the database when the index was built. */
+	private final long changes;
+
+	/** The time it took to build, in milliseconds. */
+	private long buildMillis;
+
+	private SLEXMMGraphIndex(long changes) {
+		this.changes = changes;
+	}
+
+	private static String key(SLEXMMTables table, String field) {
+		return table.toString()+"."+field;
+	}
+
+	/**
+	 * Builds the index with one scan per table with foreign keys.
+	 *
+	 * @param statement the statement to run the scans on
+	 * @param alias the alias the metamodel is attached under
+	 * @param changes the number of changes of the database, to tell later if the index is current
+	 * @return the index
+	 * @throws SQLException the SQL exception
+	 */
+	public static SLEXMMGraphIndex build(Statement statement, String alias, long changes) throws SQLException {
+		long start = System.nanoTime();
+		SLEXMMGraphIndex index = new SLEXMMGraphIndex(changes);
+
+		EnumMap<SLEXMMTables, List<SLEXMMEdge>> keysByTable = new EnumMap<>(SLEXMMTables.class);
+		for (SLEXMMEdge e: SLEXMMStorageQueryGenerator.getForeignKeys()) {
+			SLEXMMTables table = e.getSourceNode().getTable();
+			List<SLEXMMEdge> keys = keysByTable.get(table);
+			if (keys == null) {
+				keys = new ArrayList<>();
+				keysByTable.put(table, keys);
+			}
+			keys.add(e);
+		}
+
+		for (Map.Entry<SLEXMMTables, List<SLEXMMEdge>> entry: keysByTable.entrySet()) {
+			List<SLEXMMEdge> keys = entry.getValue();
+			StringBuilder query = new StringBuilder("SELECT rowid");
+			for (SLEXMMEdge e: keys) {
+				query.append(", ");
+				query.append(e.getSourceField());
+			}
+			query.append(" FROM "+alias+"."+'"'+entry.getKey()+'"');
+
+			SLEXMMIntList rows = new SLEXMMIntList(1024);
+			SLEXMMIntList[] ids = new SLEXMMIntList[keys.size()];
+			SLEXMMIntList[] idRows = new SLEXMMIntList[keys.size()];
+			for (int k = 0; k < ids.length; k++) {
+				ids[k] = new SLEXMMIntList(1024);
+				idRows[k] = new SLEXMMIntList(1024);
+			}
+			ResultSet rset = statement.executeQuery(query.toString());
+			try {
+				while (rset.next()) {
+					int row = rset.getInt(1);
+					for (int k = 0; k < ids.length; k++) {
+						int id = rset.getInt(k + 2);
+						// Keys not set are NULL, or -1 as the elements leave them
+						if (!rset.wasNull() && id >= 0) {
+							idRows[k].add(row);
+							ids[k].add(id);
+						}
+					}
+				}
+			} finally {
+				rset.close();
+			}
+
+			for (int k = 0; k < ids.length; k++) {
+				SLEXMMEdge e = keys.get(k);
+				SLEXMMAdjacency adjacency = new SLEXMMAdjacency(entry.getKey(), e.getSourceField(),
+						e.getTargetNode().getTable(), idRows[k].getArray(), ids[k].getArray(), ids[k].size());
+				index.adjacencies.put(key(entry.getKey(), e.getSourceField()), adjacency);
+			}
+		}
+
+		index.relations = SLEXMMRelationIndex.build(statement, alias);
+
+		index.buildMillis = (System.nanoTime() - start) / 1000000;
+		return index;
+	}
+
+	/**
+	 * Gets the number of changes of the database when the index was built.
+	 *
+	 * @return the number of changes
+	 */
+	public long getChanges() {
+		return changes;
+	}
+
+	public long getBuildMillis() {
+		return buildMillis;
+	}
+
+	public Collection<SLEXMMAdjacency> getAdjacencies() {
+		return adjacencies.values();
+	}
+
+	/**
+	 * Gets the adjacency of a foreign key.
+	 *
+	 * @param table the table with the key
+	 * @param field the field of the key
+	 * @return the adjacency, or null if the key is not indexed
+	 */
+	public SLEXMMAdjacency getAdjacency(SLEXMMTables table, String field) {
+		return adjacencies.get(key(table, field));
+	}
+
+	/**
+	 * Gets the relations of each object version.
+	 *
+	 * @return the relation index
+	 */
+	public SLEXMMRelationIndex getRelationIndex() {
+		return relations;
+	}
+
+	/**
+	 * Gets the ids of the elements of the origin table of a plan related to
+	 * ids of its destination table.
+	 *
+	 * @param plan the plan
+	 * @param ids the ids of the destination table
+	 * @return the ids of the origin table, sorted and without duplicates, or
+	 * null if a path of the plan goes through a key that is not indexed
+	 */
+	public int[] getIdsFor(SLEXMMQueryPlan plan, int[] ids) {
+		SLEXMMIntList result = new SLEXMMIntList(ids.length);
+		for (List<SLEXMMEdge> path: plan.getPaths()) {
+			SLEXMMIntList frontier = new SLEXMMIntList(ids.length);
+			frontier.addAll(ids, 0, ids.length);
+			frontier.sortUnique();
+			// From the destination back to the origin
+			for (int i = path.size() - 1; i >= 0 && frontier.size() > 0; i--) {
+				SLEXMMEdge e = path.get(i);
+				SLEXMMTables source = e.getSourceNode().getTable();
+				SLEXMMTables target = e.getTargetNode().getTable();
+				String sourceField = e.getSourceField();
+				String targetField = e.getTargetField();
+				if (ID.equals(sourceField) && ID.equals(targetField)) {
+					continue;
+				}
+				SLEXMMIntList next = new SLEXMMIntList(frontier.size());
+				SLEXMMAdjacency adjacency = null;
+				if (ID.equals(targetField) && (adjacency = getAdjacency(source, sourceField)) != null
+						&& adjacency.getTarget() == target) {
+					// From the ids referred to, to the rows with the key
+					adjacency.follow(frontier.getArray(), frontier.size(), false, next);
+				} else if (ID.equals(sourceField) && (adjacency = getAdjacency(target, targetField)) != null
+						&& adjacency.getTarget() == source) {
+					// From the rows with the key, to the ids they refer to
+					adjacency.follow(frontier.getArray(), frontier.size(), true, next);
+				} else {
+					return null;
+				}
+				next.sortUnique();
+				frontier = next;
+			}
+			result.addAll(frontier.getArray(), 0, frontier.size());
+		}
+		result.sortUnique();
+		return result.toArray();
+	}
+
+	/**
+	 * Gets the bytes taken in the heap by the index.
+	 *
+	 * @return the bytes
+	 */
+	public long getHeapBytes() {
+		long bytes = relations.getHeapBytes();
+		for (SLEXMMAdjacency adjacency: adjacencies.values()) {
+			bytes += adjacency.getHeapBytes();
+		}
+		return bytes;
+	}
+
+	/**
+	 * Gets the bytes taken by the adjacency of every foreign key, as
+	 * table.field, and by the relations of the versions, as
+	 * relation.versions.
+	 *
+	 * @return the bytes, by key
+	 */
+	public Map<String, Long> getHeapBytesByKey() {
+		TreeMap<String, Long> bytes = new TreeMap<>();
+		for (Map.Entry<String, SLEXMMAdjacency> e: adjacencies.entrySet()) {
+			bytes.put(e.getKey(), e.getValue().getHeapBytes());
+		}
+		bytes.put("relation.versions", relations.getHeapBytes());
+		return bytes;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		StringBuilder strbldr = new StringBuilder();
+		strbldr.append(adjacencies.size()+" keys, "+getHeapBytes()+" bytes, built in "+buildMillis+" ms");
+		for (SLEXMMAdjacency adjacency: new TreeMap<>(adjacencies).values()) {
+			strbldr.append("\n\t");
+			strbldr.append(adjacency);
+		}
+		strbldr.append("\n\t");
+		strbldr.append(relations);
+		return strbldr.toString();
+	}
+
+}
@@ -0,0 +1,89 @@
+package org.processmining.openslex.metamodel.graph;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of primitive ints, to collect ids without boxing them.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMIntList {
+
+	/** The elements. */
+	private int[] elements;
+
+	/** The size. */
+	private int size = 0;
+
+	public SLEXMMIntList() {
+		this(16);
+	}
+
+	public SLEXMMIntList(int capacity) {
+		this.elements = new int[Math.max(1, capacity)];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > elements.length) {
+			elements = Arrays.copyOf(elements, Math.max(capacity, elements.length * 2));
+		}
+	}
+
+	public void add(int value) {
+		ensureCapacity(size + 1);
+		elements[size++] = value;
+	}
+
+	/**
+	 * Adds a range of an array.
+	 *
+	 * @param values the array
+	 * @param from the first index
+	 * @param to the index after the last one
+	 */
+	public void addAll(int[] values, int from, int to) {
+		ensureCapacity(size + to - from);
+		System.arraycopy(values, from, elements, size, to - from);
+		size += to - from;
+	}
+
+	public int get(int index) {
+		return elements[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * Gets the backing array. Only the first size() elements are valid.
+	 *
+	 * @return the array
+	 */
+	public int[] getArray() {
+		return elements;
+	}
+
+	/**
+	 * Sorts the elements and removes the duplicates.
+	 */
+	public void sortUnique() {
+		Arrays.sort(elements, 0, size);
+		int n = 0;
+		for (int i = 0; i < size; i++) {
+			if (n == 0 || elements[i] != elements[n - 1]) {
+				elements[n++] = elements[i];
+			}
+		}
+		size = n;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(elements, size);
+	}
+
+}
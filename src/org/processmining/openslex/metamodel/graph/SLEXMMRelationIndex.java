@@ -0,0 +1,226 @@
+package org.processmining.openslex.metamodel.graph;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import org.processmining.openslex.utils.MMUtils;
+
+/**
+ * In-memory index of the relations between object versions, to walk the
+ * graph of versions without SQL. Every version has a single list of the
+ * relations it takes part in, as source or as target, so the versions
+ * related to it in both directions come out of one pass over that list.
+ * The relationship and the period of each relation are kept too, to
+ * filter the walk by them.
+ *
+ * The lists are in compressed sparse row form: the relations of version v
+ * are the ones from offsets[v] to offsets[v+1] of incident.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMRelationIndex {
+
+	/** The source versions, by relation. */
+	private final int[] sources;
+
+	/** The target versions, by relation. */
+	private final int[] targets;
+
+	/** The relationships, by relation. */
+	private final int[] relationships;
+
+	/** The starts, by relation, Long.MAX_VALUE if missing. */
+	private final long[] starts;
+
+	/** The ends, by relation, Long.MIN_VALUE if missing. */
+	private final long[] ends;
+
+	/** The offsets of the relations of each version. */
+	private final int[] offsets;
+
+	/** The relations of each version, grouped by version. */
+	private final int[] incident;
+
+	private SLEXMMRelationIndex(int[] sources, int[] targets, int[] relationships,
+			long[] starts, long[] ends, int size) {
+		this.sources = Arrays.copyOf(sources, size);
+		this.targets = Arrays.copyOf(targets, size);
+		this.relationships = Arrays.copyOf(relationships, size);
+		this.starts = Arrays.copyOf(starts, size);
+		this.ends = Arrays.copyOf(ends, size);
+
+		int maxVersion = -1;
+		int pairs = 0;
+		for (int r = 0; r < size; r++) {
+			maxVersion = Math.max(maxVersion, Math.max(sources[r], targets[r]));
+			pairs += sources[r] == targets[r] ? 1 : 2;
+		}
+		this.offsets = new int[maxVersion + 2];
+		this.incident = new int[pairs];
+		for (int r = 0; r < size; r++) {
+			offsets[sources[r] + 1]++;
+			if (targets[r] != sources[r]) {
+				offsets[targets[r] + 1]++;
+			}
+		}
+		for (int v = 1; v < offsets.length; v++) {
+			offsets[v] += offsets[v - 1];
+		}
+		int[] next = offsets.clone();
+		for (int r = 0; r < size; r++) {
+			incident[next[sources[r]]++] = r;
+			if (targets[r] != sources[r]) {
+				incident[next[targets[r]]++] = r;
+			}
+		}
+	}
+
+	/**
+	 * Builds the index with one scan of the relations. Relations without
+	 * source or target are left out.
+	 *
+	 * @param statement the statement to run the scan on
+	 * @param alias the alias the metamodel is attached under
+	 * @return the index
+	 * @throws SQLException the SQL exception
+	 */
+	public static SLEXMMRelationIndex build(Statement statement, String alias) throws SQLException {
+		int capacity = 1024;
+		int size = 0;
+		int[] sources = new int[capacity];
+		int[] targets = new int[capacity];
+		int[] relationships = new int[capacity];
+		long[] starts = new long[capacity];
+		long[] ends = new long[capacity];
+
+		ResultSet rset = statement.executeQuery("SELECT source_object_version_id, target_object_version_id,"
+				+ " relationship_id, start_timestamp, end_timestamp FROM "+alias+".relation"
+				+ " WHERE source_object_version_id >= 0 AND target_object_version_id >= 0");
+		try {
+			while (rset.next()) {
+				if (size == capacity) {
+					capacity *= 2;
+					sources = Arrays.copyOf(sources, capacity);
+					targets = Arrays.copyOf(targets, capacity);
+					relationships = Arrays.copyOf(relationships, capacity);
+					starts = Arrays.copyOf(starts, capacity);
+					ends = Arrays.copyOf(ends, capacity);
+				}
+				sources[size] = rset.getInt(1);
+				targets[size] = rset.getInt(2);
+				relationships[size] = rset.getInt(3);
+				if (rset.wasNull()) {
+					relationships[size] = -1;
+				}
+				starts[size] = rset.getLong(4);
+				if (rset.wasNull()) {
+					starts[size] = Long.MAX_VALUE;
+				}
+				ends[size] = rset.getLong(5);
+				if (rset.wasNull()) {
+					ends[size] = Long.MIN_VALUE;
+				}
+				size++;
+			}
+		} finally {
+			rset.close();
+		}
+
+		return new SLEXMMRelationIndex(sources, targets, relationships, starts, ends, size);
+	}
+
+	/**
+	 * Gets the number of relations.
+	 *
+	 * @return the number of relations
+	 */
+	public int getRelations() {
+		return sources.length;
+	}
+
+	/**
+	 * Gets the versions related to some versions, in either direction, by
+	 * relations of some relationships valid in a period. A relation is
+	 * valid in the period as in the period queries: it does not end before
+	 * the start, and unless the period is open, it does not start after
+	 * the end.
+	 *
+	 * @param ids the version ids
+	 * @param relationshipIds the relationship ids, sorted, or null for all
+	 * @param start the start of the period
+	 * @param end the end of the period, or MMUtils.INFINITE_FUTURE
+	 * @param out the list to add the related versions to, once per relation
+	 */
+	public void getRelatedVersions(int[] ids, int[] relationshipIds, long start, long end, SLEXMMIntList out) {
+		getRelatedVersions(ids, 0, ids.length, relationshipIds, start, end, out);
+	}
+
+	/**
+	 * Gets the versions related to a range of an array of versions.
+	 *
+	 * @param ids the version ids
+	 * @param from the first index
+	 * @param to the index after the last one
+	 * @param relationshipIds the relationship ids, sorted, or null for all
+	 * @param start the start of the period
+	 * @param end the end of the period, or MMUtils.INFINITE_FUTURE
+	 * @param out the list to add the related versions to, once per relation
+	 * @see #getRelatedVersions(int[], int[], long, long, SLEXMMIntList)
+	 */
+	public void getRelatedVersions(int[] ids, int from, int to, int[] relationshipIds, long start, long end,
+			SLEXMMIntList out) {
+		for (int k = from; k < to; k++) {
+			int id = ids[k];
+			if (id < 0 || id + 1 >= offsets.length) {
+				continue;
+			}
+			for (int i = offsets[id]; i < offsets[id + 1]; i++) {
+				int r = incident[i];
+				if (relationshipIds != null && Arrays.binarySearch(relationshipIds, relationships[r]) < 0) {
+					continue;
+				}
+				if (ends[r] < start && ends[r] != MMUtils.INFINITE_FUTURE) {
+					continue;
+				}
+				if (end != MMUtils.INFINITE_FUTURE && starts[r] > end) {
+					continue;
+				}
+				out.add(sources[r] == id ? targets[r] : sources[r]);
+			}
+		}
+	}
+
+	/**
+	 * Gets the versions related to some versions, in either direction.
+	 *
+	 * @param ids the version ids
+	 * @param relationshipIds the relationship ids, sorted, or null for all
+	 * @return the related versions, sorted and without duplicates
+	 */
+	public int[] getRelatedVersions(int[] ids, int[] relationshipIds) {
+		SLEXMMIntList out = new SLEXMMIntList(ids.length);
+		getRelatedVersions(ids, relationshipIds, Long.MIN_VALUE, MMUtils.INFINITE_FUTURE, out);
+		out.sortUnique();
+		return out.toArray();
+	}
+
+	/**
+	 * Gets the bytes taken in the heap by the arrays.
+	 *
+	 * @return the bytes
+	 */
+	public long getHeapBytes() {
+		return 7 * 16L + 4L * (3 * sources.length + offsets.length + incident.length) + 8L * 2 * sources.length;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "relation versions: "+getRelations()+" relations, "+getHeapBytes()+" bytes";
+	}
+
+}
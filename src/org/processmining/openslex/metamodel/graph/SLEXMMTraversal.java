@@ -0,0 +1,278 @@
+package org.processmining.openslex.metamodel.graph;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+import org.processmining.openslex.utils.MMUtils;
+
+/**
+ * Bounded breadth-first traversal of the graph of object versions and the
+ * relations between them, in memory over the relation index of a graph
+ * index. Each hop gives the versions first reached at that number of
+ * relations from the origins, in either direction. The walk can be limited
+ * in hops, and to relations of some relationships valid in a period.
+ *
+ * The versions reached are kept in a bit set, so each one comes once, at
+ * its distance from the origins. A frontier of many versions is split in
+ * chunks expanded in parallel on the common fork-join pool, and the chunks
+ * are merged in order, so the hops are the same as expanded sequentially.
+ * The hops are computed as they are requested, one by one with next() or
+ * as a stream. The traversal is meant for one thread.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMTraversal {
+
+	/** The Constant PARALLEL_CHUNK, the fewest versions of a frontier a worker expands. */
+	public static final int PARALLEL_CHUNK = 1024;
+
+	/** The Constant MAX_CHUNKS, the most chunks a frontier is split in. */
+	private static final int MAX_CHUNKS = 4 * Runtime.getRuntime().availableProcessors();
+
+	/** The graph index. */
+	private final SLEXMMGraphIndex index;
+
+	/** The relations of each version. */
+	private final SLEXMMRelationIndex relations;
+
+	/** The origins, sorted. */
+	private final int[] origins;
+
+	/** The versions reached so far, the origins included. */
+	private final BitSet visited = new BitSet();
+
+	/** The versions reached at the last hop, sorted. */
+	private int[] frontier;
+
+	/** The number of hops done. */
+	private int hop = 0;
+
+	/** The maximum number of hops. */
+	private int maxHops = Integer.MAX_VALUE;
+
+	/** The relationships to follow, sorted, or null for all. */
+	private int[] relationshipIds = null;
+
+	/** The start of the period the relations must be valid in. */
+	private long start = Long.MIN_VALUE;
+
+	/** The end of the period the relations must be valid in. */
+	private long end = MMUtils.INFINITE_FUTURE;
+
+	/** The parallel, true to expand large frontiers in parallel. */
+	private boolean parallel = true;
+
+	/**
+	 * Instantiates a new traversal, before its first hop.
+	 *
+	 * @param index the graph index
+	 * @param origins the ids of the versions to start from
+	 */
+	public SLEXMMTraversal(SLEXMMGraphIndex index, int[] origins) {
+		this.index = index;
+		this.relations = index.getRelationIndex();
+		SLEXMMIntList list = new SLEXMMIntList(origins.length);
+		for (int id: origins) {
+			if (id >= 0 && !visited.get(id)) {
+				visited.set(id);
+				list.add(id);
+			}
+		}
+		list.sortUnique();
+		this.origins = list.toArray();
+		this.frontier = this.origins;
+	}
+
+	public int getMaxHops() {
+		return maxHops;
+	}
+
+	/**
+	 * Sets the maximum number of hops, before the first one.
+	 *
+	 * @param maxHops the maximum number of hops
+	 */
+	public void setMaxHops(int maxHops) {
+		this.maxHops = maxHops;
+	}
+
+	/**
+	 * Sets the relationships of the relations to follow, before the first hop.
+	 *
+	 * @param relationshipIds the relationship ids, or null for all
+	 */
+	public void setRelationships(int[] relationshipIds) {
+		if (relationshipIds != null) {
+			relationshipIds = relationshipIds.clone();
+			Arrays.sort(relationshipIds);
+		}
+		this.relationshipIds = relationshipIds;
+	}
+
+	/**
+	 * Sets the period the relations to follow must be valid in, as in the
+	 * period queries, before the first hop.
+	 *
+	 * @param start the start of the period
+	 * @param end the end of the period, or MMUtils.INFINITE_FUTURE
+	 */
+	public void setPeriod(long start, long end) {
+		this.start = start;
+		this.end = end;
+	}
+
+	public boolean isParallel() {
+		return parallel;
+	}
+
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+
+	/**
+	 * Gets the number of hops done.
+	 *
+	 * @return the number of hops
+	 */
+	public int getHop() {
+		return hop;
+	}
+
+	public int[] getOrigins() {
+		return origins.clone();
+	}
+
+	/**
+	 * Gets the versions related to a range of the frontier that were not
+	 * reached before. The versions reached are only read meanwhile.
+	 */
+	private SLEXMMIntList expand(int[] ids, int from, int to) {
+		SLEXMMIntList related = new SLEXMMIntList(to - from);
+		relations.getRelatedVersions(ids, from, to, relationshipIds, start, end, related);
+		SLEXMMIntList fresh = new SLEXMMIntList(related.size());
+		for (int i = 0; i < related.size(); i++) {
+			int v = related.get(i);
+			if (!visited.get(v)) {
+				fresh.add(v);
+			}
+		}
+		fresh.sortUnique();
+		return fresh;
+	}
+
+	/**
+	 * Does the next hop.
+	 *
+	 * @return the versions first reached in the hop, sorted, or null if the
+	 * maximum number of hops was done or no more versions are reached
+	 */
+	public int[] next() {
+		if (hop >= maxHops || frontier.length == 0) {
+			return null;
+		}
+
+		final int[] current = frontier;
+		final int chunks = parallel ? Math.min(current.length / PARALLEL_CHUNK, MAX_CHUNKS) : 1;
+		final SLEXMMIntList[] parts = new SLEXMMIntList[Math.max(1, chunks)];
+		if (chunks > 1) {
+			IntStream.range(0, chunks).parallel().forEach(new IntConsumer() {
+				@Override
+				public void accept(int c) {
+					parts[c] = expand(current, (int) ((long) current.length * c / chunks),
+							(int) ((long) current.length * (c + 1) / chunks));
+				}
+			});
+		} else {
+			parts[0] = expand(current, 0, current.length);
+		}
+
+		// A version reached by two chunks counts in the first one
+		SLEXMMIntList next = new SLEXMMIntList();
+		for (SLEXMMIntList part: parts) {
+			for (int i = 0; i < part.size(); i++) {
+				int v = part.get(i);
+				if (!visited.get(v)) {
+					visited.set(v);
+					next.add(v);
+				}
+			}
+		}
+		next.sortUnique();
+		frontier = next.toArray();
+		if (frontier.length == 0) {
+			return null;
+		}
+
+		hop++;
+		return frontier.clone();
+	}
+
+	/**
+	 * Gets a stream of the remaining hops, each one as the versions first
+	 * reached in it.
+	 *
+	 * @return the stream
+	 */
+	public Stream<int[]> stream() {
+		return StreamSupport.stream(new Spliterators.AbstractSpliterator<int[]>(Long.MAX_VALUE,
+				Spliterator.ORDERED | Spliterator.NONNULL) {
+
+			@Override
+			public boolean tryAdvance(Consumer<? super int[]> action) {
+				int[] ids = next();
+				if (ids == null) {
+					return false;
+				}
+				action.accept(ids);
+				return true;
+			}
+		}, false);
+	}
+
+	/**
+	 * Does the remaining hops and gets all the versions reached, the
+	 * origins left out.
+	 *
+	 * @return the version ids, sorted
+	 */
+	public int[] getReached() {
+		while (next() != null) {
+			// Only the versions reached are kept
+		}
+		SLEXMMIntList reached = new SLEXMMIntList(visited.cardinality());
+		for (int v = visited.nextSetBit(0); v >= 0; v = visited.nextSetBit(v + 1)) {
+			if (Arrays.binarySearch(origins, v) < 0) {
+				reached.add(v);
+			}
+		}
+		return reached.toArray();
+	}
+
+	/**
+	 * Does the remaining hops and gets the objects of all the versions
+	 * reached, the origins left out.
+	 *
+	 * @return the object ids, sorted and without duplicates, or null if the
+	 * index has no key from versions to objects
+	 */
+	public int[] getReachedObjects() {
+		SLEXMMAdjacency objects = index.getAdjacency(SLEXMMTables.T_OBJECT_VERSION, "object_id");
+		if (objects == null) {
+			return null;
+		}
+		int[] versions = getReached();
+		SLEXMMIntList ids = new SLEXMMIntList(versions.length);
+		objects.follow(versions, versions.length, true, ids);
+		ids.sortUnique();
+		return ids.toArray();
+	}
+
+}
@@ -0,0 +1,289 @@
+package org.processmining.openslex.metamodel.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.cache.SLEXMMCacheStats;
+import org.processmining.openslex.metamodel.graph.SLEXMMGraphIndex;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+/**
+ * Metrics of a metamodel storage: the counters of its caches, the latency
+ * and rows of each kind of query, the result sets opened, still open and
+ * collected without being closed, the rows inserted, and the memory of the
+ * index of the foreign keys when enabled. A result set holds its statement
+ * until closed, so the result sets left open are the statements that leak.
+ *
+ * Counting takes a few uncontended atomic additions per query or insert,
+ * so the metrics can stay enabled in production. A snapshot of all of them
+ * can be read with getSnapshot(), through JMX once registerMBean() is
+ * called, or pushed periodically to a reporter.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMMetrics implements SLEXMMMetricsMXBean {
+
+	/** The Constant SELECT, the kind of the queries for the elements related to others. */
+	public static final int SELECT = 0;
+
+	/** The Constant PERIOD, the kind of the queries for the elements of a period. */
+	public static final int PERIOD = 1;
+
+	/** The Constant PERIODS, the kind of the queries for the periods of elements. */
+	public static final int PERIODS = 2;
+
+	private static final String[] KIND_NAMES = { "select", "period", "periods" };
+
+	private static final SLEXMMTables[] TABLES = SLEXMMTables.values();
+
+	private static final AtomicInteger INSTANCES = new AtomicInteger();
+
+	private final SLEXMMStorageMetaModel storage;
+
+	private final AtomicReferenceArray<SLEXMMQueryMetrics> queries =
+			new AtomicReferenceArray<>(KIND_NAMES.length * TABLES.length * TABLES.length);
+
+	private final LongAdder resultSetsOpened = new LongAdder();
+	private final LongAdder resultSetsClosed = new LongAdder();
+	private final LongAdder resultSetsLeaked = new LongAdder();
+	private final LongAdder rowsInserted = new LongAdder();
+
+	private volatile long startNanos = System.nanoTime();
+
+	private volatile boolean enabled = true;
+
+	private ObjectName objectName = null;
+
+	private ScheduledExecutorService reporters = null;
+
+	/**
+	 * Instantiates the metrics of a storage.
+	 *
+	 * @param storage the storage, to read the counters of its caches
+	 */
+	public SLEXMMMetrics(SLEXMMStorageMetaModel storage) {
+		this.storage = storage;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.metrics.SLEXMMMetricsMXBean#isEnabled()
+	 */
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.metrics.SLEXMMMetricsMXBean#setEnabled(boolean)
+	 */
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/**
+	 * Gets the metrics of a kind of query, creating them the first time.
+	 *
+	 * @param kind SELECT, PERIOD or PERIODS
+	 * @param tableA the table of the elements returned
+	 * @param tableB the table of the elements queried for
+	 * @return the query metrics
+	 */
+	public SLEXMMQueryMetrics getQueryMetrics(int kind, SLEXMMTables tableA, SLEXMMTables tableB) {
+		int i = (kind * TABLES.length + tableA.ordinal()) * TABLES.length + tableB.ordinal();
+		SLEXMMQueryMetrics metrics = queries.get(i);
+		if (metrics == null) {
+			metrics = new SLEXMMQueryMetrics(KIND_NAMES[kind]+"."+tableA+"."+tableB);
+			if (!queries.compareAndSet(i, null, metrics)) {
+				metrics = queries.get(i);
+			}
+		}
+		return metrics;
+	}
+
+	public void resultSetOpened() {
+		resultSetsOpened.increment();
+	}
+
+	public void resultSetClosed() {
+		resultSetsClosed.increment();
+	}
+
+	public void resultSetLeaked() {
+		resultSetsLeaked.increment();
+	}
+
+	public void rowsInserted(long rows) {
+		rowsInserted.add(rows);
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.metrics.SLEXMMMetricsMXBean#getSnapshot()
+	 */
+	@Override
+	public Map<String, Long> getSnapshot() {
+		TreeMap<String, Long> snapshot = new TreeMap<>();
+
+		for (Map.Entry<String, SLEXMMCacheStats> e: storage.getCacheStats().entrySet()) {
+			String prefix = "cache."+e.getKey()+".";
+			SLEXMMCacheStats stats = e.getValue();
+			snapshot.put(prefix+"hits", stats.getHits());
+			snapshot.put(prefix+"misses", stats.getMisses());
+			snapshot.put(prefix+"evictions", stats.getEvictions());
+			snapshot.put(prefix+"serializedBytes", stats.getSerializedBytes());
+			snapshot.put(prefix+"deserializedBytes", stats.getDeserializedBytes());
+		}
+
+		for (int i = 0; i < queries.length(); i++) {
+			SLEXMMQueryMetrics metrics = queries.get(i);
+			if (metrics == null || metrics.getLatency().getCount() == 0) {
+				continue;
+			}
+			String prefix = "query."+metrics.getKind()+".";
+			SLEXMMHistogram latency = metrics.getLatency();
+			snapshot.put(prefix+"count", latency.getCount());
+			snapshot.put(prefix+"rows", metrics.getRows());
+			snapshot.put(prefix+"meanMicros", latency.getMean() / 1000);
+			snapshot.put(prefix+"p50Micros", latency.getQuantile(0.5) / 1000);
+			snapshot.put(prefix+"p99Micros", latency.getQuantile(0.99) / 1000);
+			snapshot.put(prefix+"maxMicros", latency.getMax() / 1000);
+		}
+
+		SLEXMMGraphIndex graph = storage.getGraphIndex();
+		if (graph != null) {
+			for (Map.Entry<String, Long> e: graph.getHeapBytesByKey().entrySet()) {
+				snapshot.put("graph."+e.getKey()+".bytes", e.getValue());
+			}
+			snapshot.put("graph.current", storage.isGraphIndexCurrent() ? 1L : 0L);
+		}
+
+		long opened = resultSetsOpened.sum();
+		long closed = resultSetsClosed.sum();
+		snapshot.put("resultSets.opened", opened);
+		snapshot.put("resultSets.closed", closed);
+		snapshot.put("resultSets.open", opened - closed);
+		snapshot.put("resultSets.leaked", resultSetsLeaked.sum());
+
+		long inserted = rowsInserted.sum();
+		long elapsed = Math.max(1, System.nanoTime() - startNanos);
+		snapshot.put("inserts.rows", inserted);
+		snapshot.put("inserts.perSecond", (long) (inserted * 1e9 / elapsed));
+
+		return snapshot;
+	}
+
+	/* (non-Javadoc)
+	 * @see org.processmining.openslex.metamodel.metrics.SLEXMMMetricsMXBean#reset()
+	 */
+	@Override
+	public void reset() {
+		for (SLEXMMCacheStats stats: storage.getCacheStats().values()) {
+			stats.reset();
+		}
+		for (int i = 0; i < queries.length(); i++) {
+			SLEXMMQueryMetrics metrics = queries.get(i);
+			if (metrics != null) {
+				metrics.reset();
+			}
+		}
+		// The result sets still open stay counted as such
+		resultSetsOpened.add(-resultSetsClosed.sumThenReset());
+		resultSetsLeaked.reset();
+		rowsInserted.reset();
+		startNanos = System.nanoTime();
+	}
+
+	/**
+	 * Registers the metrics in the platform MBean server, under the
+	 * domain org.processmining.openslex.
+	 *
+	 * @return the name of the MBean
+	 * @throws Exception if it could not be registered
+	 */
+	public synchronized ObjectName registerMBean() throws Exception {
+		if (objectName == null) {
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName("org.processmining.openslex:type=Metrics,name="
+					+ObjectName.quote(storage.getFilename())+",id="+INSTANCES.incrementAndGet());
+			server.registerMBean(this, name);
+			objectName = name;
+		}
+		return objectName;
+	}
+
+	/**
+	 * Unregisters the metrics from the platform MBean server, if registered.
+	 */
+	public synchronized void unregisterMBean() {
+		if (objectName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+			objectName = null;
+		}
+	}
+
+	/**
+	 * Reports a snapshot of the metrics to a reporter periodically, from a
+	 * daemon thread.
+	 *
+	 * @param reporter the reporter
+	 * @param periodMillis the period in milliseconds
+	 */
+	public synchronized void startReporter(final SLEXMMMetricsReporter reporter, long periodMillis) {
+		if (reporters == null) {
+			reporters = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread t = new Thread(r, "SLEXMM-metrics-reporter");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		reporters.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					reporter.report(getSnapshot());
+				} catch (Exception e) {
+					// A failing reporter must not cancel the next reports
+					e.printStackTrace();
+				}
+			}
+		}, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Stops all the reporters.
+	 */
+	public synchronized void stopReporters() {
+		if (reporters != null) {
+			reporters.shutdownNow();
+			reporters = null;
+		}
+	}
+
+	/**
+	 * Stops the reporters and unregisters the MBean.
+	 */
+	public void close() {
+		stopReporters();
+		unregisterMBean();
+	}
+
+}
@@ -0,0 +1,20 @@
+package org.processmining.openslex.metamodel.metrics;
+
+import java.util.Map;
+
+/**
+ * Management interface of the metrics of a storage, as published in JMX.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public interface SLEXMMMetricsMXBean {
+
+	public Map<String, Long> getSnapshot();
+
+	public boolean isEnabled();
+
+	public void setEnabled(boolean enabled);
+
+	public void reset();
+
+}
@@ -0,0 +1,20 @@
+package org.processmining.openslex.metamodel.metrics;
+
+import java.util.Map;
+
+/**
+ * Receiver of periodic snapshots of the metrics of a storage, to send them
+ * to a log or a monitoring system.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public interface SLEXMMMetricsReporter {
+
+	/**
+	 * Reports a snapshot.
+	 *
+	 * @param snapshot the values of the metrics, by name
+	 */
+	public void report(Map<String, Long> snapshot);
+
+}
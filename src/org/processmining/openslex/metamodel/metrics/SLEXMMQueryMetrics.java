@@ -0,0 +1,46 @@
+package org.processmining.openslex.metamodel.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics of a kind of query: how long it takes to run until its first
+ * row, and how many rows its result sets read.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMQueryMetrics {
+
+	private final String kind;
+	private final SLEXMMHistogram latency = new SLEXMMHistogram();
+	private final LongAdder rows = new LongAdder();
+
+	SLEXMMQueryMetrics(String kind) {
+		this.kind = kind;
+	}
+
+	public String getKind() {
+		return kind;
+	}
+
+	public void recordLatency(long nanos) {
+		latency.record(nanos);
+	}
+
+	public void recordRows(long count) {
+		rows.add(count);
+	}
+
+	public SLEXMMHistogram getLatency() {
+		return latency;
+	}
+
+	public long getRows() {
+		return rows.sum();
+	}
+
+	void reset() {
+		latency.reset();
+		rows.reset();
+	}
+
+}
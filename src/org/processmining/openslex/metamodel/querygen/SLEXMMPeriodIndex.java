@@ -0,0 +1,210 @@
+package org.processmining.openslex.metamodel.querygen;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.processmining.openslex.utils.MMUtils;
+
+/**
+ * Interval index of the periods of events, object versions and relations,
+ * as one SQLite R*Tree per table that triggers keep in sync with the
+ * timestamps. A period query looks up the rows that overlap the period in
+ * the tree, instead of testing the timestamps of every row of the table.
+ *
+ * Each row is stored as the interval from its start to its end, with the
+ * open ends of MMUtils mapped to bounds beyond any timestamp. The tree
+ * keeps the coordinates in single precision, rounded outwards, so the rows
+ * it returns are a superset of the ones in the period and the queries
+ * still test the exact timestamps of those.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMPeriodIndex {
+
+	/** The Constant SUFFIX, appended to the table name to name its tree. */
+	public static final String SUFFIX = "_period";
+
+	/** The Constant BOUND, beyond any timestamp, for the open ends. */
+	public static final double BOUND = 9.0E18;
+
+	/** The tables with periods. */
+	private static final SLEXMMTables[] TABLES = {
+			SLEXMMTables.T_EVENT,
+			SLEXMMTables.T_OBJECT_VERSION,
+			SLEXMMTables.T_RELATION };
+
+	/** The Constant TRIGGERS, the suffixes of the triggers of each tree. */
+	private static final String[] TRIGGERS = { "_insert", "_update", "_delete" };
+
+	private SLEXMMPeriodIndex() {
+	}
+
+	/**
+	 * Gets the tables with periods.
+	 *
+	 * @return the tables
+	 */
+	public static SLEXMMTables[] getTables() {
+		return TABLES.clone();
+	}
+
+	/**
+	 * Gets the field with the start of the period of the rows of a table.
+	 *
+	 * @param table the table
+	 * @return the field, or null if the table has no periods
+	 */
+	public static String getStartField(SLEXMMTables table) {
+		switch (table) {
+		case T_EVENT:
+			return "timestamp";
+		case T_OBJECT_VERSION:
+		case T_RELATION:
+			return "start_timestamp";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the field with the end of the period of the rows of a table.
+	 *
+	 * @param table the table
+	 * @return the field, or null if the table has no periods
+	 */
+	public static String getEndField(SLEXMMTables table) {
+		switch (table) {
+		case T_EVENT:
+			return "timestamp";
+		case T_OBJECT_VERSION:
+		case T_RELATION:
+			return "end_timestamp";
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the name of the tree of a table.
+	 *
+	 * @param table the table
+	 * @return the name
+	 */
+	public static String getIndexTable(SLEXMMTables table) {
+		return table+SUFFIX;
+	}
+
+	/**
+	 * Gets the names of the tree of a table and of its triggers.
+	 *
+	 * @param table the table
+	 * @return the names
+	 */
+	public static List<String> getIndexObjects(SLEXMMTables table) {
+		List<String> names = new ArrayList<>();
+		names.add(getIndexTable(table));
+		for (String trigger: TRIGGERS) {
+			names.add(getIndexTable(table)+trigger);
+		}
+		return names;
+	}
+
+	/**
+	 * Gets the lower bound in the tree of a start timestamp.
+	 *
+	 * @param start the start
+	 * @return the bound
+	 */
+	public static double getLowerBound(long start) {
+		return start == MMUtils.INFINITE_PAST ? -BOUND : start;
+	}
+
+	/**
+	 * Gets the upper bound in the tree of an end timestamp.
+	 *
+	 * @param end the end
+	 * @return the bound
+	 */
+	public static double getUpperBound(long end) {
+		return end == MMUtils.INFINITE_FUTURE ? BOUND : end;
+	}
+
+	/**
+	 * Gets the SQL expressions of the bounds of a row, from the start and
+	 * end timestamps of another alias. Missing timestamps are open ends,
+	 * and a row that ends before it starts is stored the other way around,
+	 * as the tree does not take empty intervals.
+	 */
+	private static String[] getBounds(SLEXMMTables table, String alias) {
+		String start = "coalesce(CASE WHEN "+alias+"."+getStartField(table)+" = "+MMUtils.INFINITE_PAST
+				+" THEN "+(-BOUND)+" ELSE "+alias+"."+getStartField(table)+" END, "+(-BOUND)+")";
+		String end = "coalesce(CASE WHEN "+alias+"."+getEndField(table)+" = "+MMUtils.INFINITE_FUTURE
+				+" THEN "+BOUND+" ELSE "+alias+"."+getEndField(table)+" END, "+BOUND+")";
+		return new String[] { "min("+start+", "+end+")", "max("+start+", "+end+")" };
+	}
+
+	/**
+	 * Gets the statements that create and fill the tree of a table and the
+	 * triggers that keep it in sync. They can be run again to rebuild it.
+	 *
+	 * @param table the table
+	 * @param schema the schema of the metamodel, or null to not qualify the names
+	 * @return the statements
+	 */
+	public static List<String> getCreateStatements(SLEXMMTables table, String schema) {
+		String prefix = schema != null ? schema+"." : "";
+		String index = getIndexTable(table);
+		String[] bounds = getBounds(table, "T");
+		String[] newBounds = getBounds(table, "NEW");
+		String fields = getStartField(table).equals(getEndField(table)) ?
+				getStartField(table) : getStartField(table)+", "+getEndField(table);
+
+		List<String> stmts = new ArrayList<>();
+		stmts.add("CREATE VIRTUAL TABLE IF NOT EXISTS "+prefix+index+" USING rtree(id, lo, hi)");
+		stmts.add("DELETE FROM "+prefix+index);
+		stmts.add("INSERT INTO "+prefix+index+" SELECT T.id, "+bounds[0]+", "+bounds[1]
+				+" FROM "+prefix+table+" as T");
+		// The statements of a trigger take the tables of its own schema
+		stmts.add("CREATE TRIGGER IF NOT EXISTS "+prefix+index+TRIGGERS[0]+" AFTER INSERT ON "+table
+				+" BEGIN INSERT INTO "+index+" VALUES (NEW.id, "+newBounds[0]+", "+newBounds[1]+"); END");
+		stmts.add("CREATE TRIGGER IF NOT EXISTS "+prefix+index+TRIGGERS[1]+" AFTER UPDATE OF "+fields+" ON "+table
+				+" BEGIN INSERT OR REPLACE INTO "+index+" VALUES (NEW.id, "+newBounds[0]+", "+newBounds[1]+"); END");
+		stmts.add("CREATE TRIGGER IF NOT EXISTS "+prefix+index+TRIGGERS[2]+" AFTER DELETE ON "+table
+				+" BEGIN DELETE FROM "+index+" WHERE id = OLD.id; END");
+		return stmts;
+	}
+
+	/**
+	 * Gets the statements that drop the tree of a table and its triggers.
+	 * The triggers go first, as they would fail every write to the table
+	 * without the tree.
+	 *
+	 * @param table the table
+	 * @param schema the schema of the metamodel, or null to not qualify the names
+	 * @return the statements
+	 */
+	public static List<String> getDropStatements(SLEXMMTables table, String schema) {
+		String prefix = schema != null ? schema+"." : "";
+		List<String> stmts = new ArrayList<>();
+		for (String trigger: TRIGGERS) {
+			stmts.add("DROP TRIGGER IF EXISTS "+prefix+getIndexTable(table)+trigger);
+		}
+		stmts.add("DROP TABLE IF EXISTS "+prefix+getIndexTable(table));
+		return stmts;
+	}
+
+	/**
+	 * Gets the query that returns the ids of the rows of a table whose
+	 * bounds overlap a period.
+	 *
+	 * @param table the table
+	 * @param start the start of the period
+	 * @param end the end of the period
+	 * @return the query
+	 */
+	public static String getIdsQuery(SLEXMMTables table, long start, long end) {
+		return "SELECT id FROM "+getIndexTable(table)+" WHERE hi >= "+getLowerBound(start)
+				+" AND lo <= "+getUpperBound(end);
+	}
+
+}
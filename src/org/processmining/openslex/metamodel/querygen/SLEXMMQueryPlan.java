@@ -0,0 +1,170 @@
+package org.processmining.openslex.metamodel.querygen;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+
+/**
+ * Join plan between two tables of the metamodel: the paths the query
+ * generator follows from the origin table to the destination one, with
+ * the FROM and WHERE clauses of every path rendered once.
+ *
+ * Plans are immutable. The query templates rendered from a plan are kept
+ * in it so they are built only once as well.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class SLEXMMQueryPlan {
+
+	private final static String METAMODEL_ALIAS = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+
+	private final SLEXMMTables origin;
+	private final SLEXMMTables destination;
+	private final List<List<SLEXMMEdge>> paths;
+	private final String originTable;
+	private final String[] fromClauses;
+	private final String[] joinClauses;
+	private final String[] targetAliases;
+
+	/** The templates rendered from this plan, per kind and arity. */
+	private final ConcurrentHashMap<String, String> templates = new ConcurrentHashMap<>();
+
+	public SLEXMMQueryPlan(SLEXMMTables origin, SLEXMMTables destination, List<List<SLEXMMEdge>> paths) {
+		this.origin = origin;
+		this.destination = destination;
+
+		List<List<SLEXMMEdge>> pathsCopy = new ArrayList<>();
+		for (List<SLEXMMEdge> path: paths) {
+			pathsCopy.add(Collections.unmodifiableList(new ArrayList<>(path)));
+		}
+		this.paths = Collections.unmodifiableList(pathsCopy);
+		this.originTable = METAMODEL_ALIAS+"."+'"'+paths.get(0).get(0).getSourceNode().getName()+'"';
+
+		this.fromClauses = new String[paths.size()];
+		this.joinClauses = new String[paths.size()];
+		this.targetAliases = new String[paths.size()];
+
+		for (int p = 0; p < paths.size(); p++) {
+			List<SLEXMMEdge> path = paths.get(p);
+			SLEXMMEdge lastEdge = path.get(path.size()-1);
+
+			StringBuilder strbldr = new StringBuilder();
+			strbldr.append("FROM ");
+			int i = 1;
+			for (SLEXMMEdge e: path) {
+				SLEXMMNode n = e.getSourceNode();
+				strbldr.append(METAMODEL_ALIAS+".");
+				strbldr.append('"'+n.getName()+'"');
+				strbldr.append(" as t");
+				strbldr.append(i);
+				strbldr.append(", ");
+				i++;
+			}
+			strbldr.append(METAMODEL_ALIAS+".");
+			strbldr.append('"'+lastEdge.getTargetNode().getName()+'"');
+			strbldr.append(" as t");
+			strbldr.append(i);
+			strbldr.append(" WHERE ");
+			fromClauses[p] = strbldr.toString();
+			targetAliases[p] = "t"+i;
+
+			strbldr = new StringBuilder();
+			i = 1;
+			for (SLEXMMEdge e: path) {
+				strbldr.append(" AND t"+i+"."+e.getSourceField()+
+						" = t"+(i+1)+"."+e.getTargetField());
+				i++;
+			}
+			joinClauses[p] = strbldr.toString();
+		}
+	}
+
+	public SLEXMMTables getOrigin() {
+		return origin;
+	}
+
+	public SLEXMMTables getDestination() {
+		return destination;
+	}
+
+	public List<List<SLEXMMEdge>> getPaths() {
+		return paths;
+	}
+
+	/**
+	 * Gets the qualified name of the origin table.
+	 *
+	 * @return the name of the table
+	 */
+	public String getOriginTable() {
+		return originTable;
+	}
+
+	public int getPathCount() {
+		return paths.size();
+	}
+
+	/**
+	 * Gets the number of joins of the queries of the plan, over all its paths.
+	 *
+	 * @return the number of joins
+	 */
+	public int getJoinCount() {
+		int joins = 0;
+		for (List<SLEXMMEdge> path: paths) {
+			joins += path.size();
+		}
+		return joins;
+	}
+
+	/**
+	 * Gets the alias of the destination table in a path, the one the ids
+	 * filter on.
+	 *
+	 * @param path the index of the path
+	 * @return the alias
+	 */
+	public String getTargetAlias(int path) {
+		return targetAliases[path];
+	}
+
+	/**
+	 * Gets the FROM and WHERE clauses of a path.
+	 *
+	 * @param path the index of the path
+	 * @param idsStr the list of ids the destination table is filtered on, or null for all
+	 * @return the clauses
+	 */
+	public String getFromAndWhere(int path, String idsStr) {
+		StringBuilder strbldr = new StringBuilder(fromClauses[path]);
+		if (idsStr != null) {
+			strbldr.append(" "+targetAliases[path]+".id IN ("+idsStr+")");
+		} else {
+			strbldr.append(" 1 ");
+		}
+		strbldr.append(joinClauses[path]);
+		return strbldr.toString();
+	}
+
+	String getTemplate(String key) {
+		return templates.get(key);
+	}
+
+	void putTemplate(String key, String template) {
+		templates.put(key, template);
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder strbldr = new StringBuilder();
+		strbldr.append(origin+" -> "+destination+": "+getPathCount()+" path(s), "+getJoinCount()+" join(s)");
+		for (List<SLEXMMEdge> path: paths) {
+			strbldr.append("\n\t");
+			strbldr.append(path);
+		}
+		return strbldr.toString();
+	}
+}
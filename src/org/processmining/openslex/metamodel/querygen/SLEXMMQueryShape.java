@@ -0,0 +1,20 @@
+package org.processmining.openslex.metamodel.querygen;
+
+/**
+ * Shape of the queries that get the elements of a table related to ids of
+ * another one.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public enum SLEXMMQueryShape {
+	/**
+	 * A UNION of the joins along every path. An element comes once per
+	 * related id and per intermediate row, with the related id as origin.
+	 */
+	UNION,
+	/**
+	 * A semi-join of the table on the ids reached along the paths. Every
+	 * element comes once, without origin.
+	 */
+	SEMI_JOIN
+}
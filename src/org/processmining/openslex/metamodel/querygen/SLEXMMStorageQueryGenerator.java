@@ -5,6 +5,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.jgrapht.GraphPath;
 import org.jgrapht.alg.KShortestPaths;
@@ -18,12 +19,16 @@ public class SLEXMMStorageQueryGenerator {
 	private DirectedWeightedMultigraph<SLEXMMNode, SLEXMMEdge> wmgraph = null;
 	private HashMap<SLEXMMTables,SLEXMMNode> nodesMap = null;
 	private HashMap<SLEXMMNode,List<String>> fieldsMap = null;
-	private final static String METAMODEL_ALIAS = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+	private final AtomicReferenceArray<SLEXMMQueryPlan> plans =
+			new AtomicReferenceArray<>(SLEXMMTables.values().length * SLEXMMTables.values().length);
 	
 	private final static HashMap<SLEXMMTables,String[]> tablesMap;
 	
 	private final static int MAX_PATHS = 4;
 	
+	/** The maximum number of ids bound as parameters, within the 999 variables SQLite allows. */
+	public final static int MAX_BOUND_IDS = 512;
+	
 	static {
 		tablesMap = new HashMap<>();
 		tablesMap.put(SLEXMMTables.T_CLASS, new String[] { "id", "datamodel_id", "name" });
@@ -119,6 +124,21 @@ public class SLEXMMStorageQueryGenerator {
 				new Pair<>("event_attribute_name_id", "id"));
 	}
 	
+	/**
+	 * Gets the foreign keys of the metamodel, as edges from the table with
+	 * the key to the table it refers to.
+	 *
+	 * @return the edges
+	 */
+	public static List<SLEXMMEdge> getForeignKeys() {
+		List<SLEXMMEdge> keys = new ArrayList<>();
+		for (Pair<SLEXMMTables> edgeK: edgesMap.keySet()) {
+			Pair<String> fields = edgesMap.get(edgeK);
+			keys.add(new SLEXMMEdge(new SLEXMMNode(edgeK.a), new SLEXMMNode(edgeK.b), fields.a, fields.b));
+		}
+		return keys;
+	}
+	
 	private static SLEXMMEdge getEdge(SLEXMMTables a, SLEXMMTables b) throws Exception {
 		Pair<SLEXMMTables> p = new Pair<>(a,b);
 		Pair<SLEXMMTables> pInv = new Pair<>(b,a);
@@ -281,7 +301,61 @@ public class SLEXMMStorageQueryGenerator {
 		
 	}
 	
+	/**
+	 * Gets the join plan from a table to another, computing it the first
+	 * time. Plans are immutable and shared by all the queries between the
+	 * same tables.
+	 *
+	 * @param orig the table of the elements
+	 * @param dest the table of the ids
+	 * @return the plan
+	 */
+	public SLEXMMQueryPlan getPlan(SLEXMMTables orig, SLEXMMTables dest) {
+		int index = orig.ordinal() * SLEXMMTables.values().length + dest.ordinal();
+		SLEXMMQueryPlan plan = plans.get(index);
+		if (plan == null) {
+			// Computing a plan twice on a race is harmless, both are equal
+			plan = new SLEXMMQueryPlan(orig, dest, computePaths(orig, dest));
+			if (!plans.compareAndSet(index, null, plan)) {
+				plan = plans.get(index);
+			}
+		}
+		return plan;
+	}
+	
+	/**
+	 * Computes the plans between every pair of tables of the metamodel,
+	 * so no query pays for the search of its paths.
+	 */
+	public void precomputePlans() {
+		for (SLEXMMTables orig: tablesMap.keySet()) {
+			for (SLEXMMTables dest: tablesMap.keySet()) {
+				getPlan(orig, dest);
+			}
+		}
+	}
+	
+	/**
+	 * Gets the plans computed so far.
+	 *
+	 * @return the plans
+	 */
+	public List<SLEXMMQueryPlan> getPlans() {
+		List<SLEXMMQueryPlan> computed = new ArrayList<>();
+		for (int i = 0; i < plans.length(); i++) {
+			SLEXMMQueryPlan plan = plans.get(i);
+			if (plan != null) {
+				computed.add(plan);
+			}
+		}
+		return computed;
+	}
+	
 	public List<List<SLEXMMEdge>> getPaths(SLEXMMTables orig, SLEXMMTables dest) {
+		return getPlan(orig, dest).getPaths();
+	}
+	
+	private List<List<SLEXMMEdge>> computePaths(SLEXMMTables orig, SLEXMMTables dest) {
 		SLEXMMNode norig = nodesMap.get(orig);
 		SLEXMMNode ndest = nodesMap.get(dest);
 		
@@ -410,74 +484,112 @@ public class SLEXMMStorageQueryGenerator {
 		}
 	}
 	
-	private String getFromAndWhereOfQuery(List<SLEXMMEdge> path, int[] ids) {
+	/**
+	 * Gets the number of parameters a query template uses for a number of
+	 * ids. It is rounded up to a power of two so a few templates serve any
+	 * number of ids; the extra parameters repeat the last id.
+	 *
+	 * @param ids the number of ids
+	 * @return the arity, or -1 if the ids do not fit in a template
+	 */
+	public static int getTemplateArity(int ids) {
+		if (ids <= 0 || ids > MAX_BOUND_IDS) {
+			return -1;
+		}
+		return Integer.highestOneBit(ids) == ids ? ids : Integer.highestOneBit(ids) << 1;
+	}
+	
+	/**
+	 * Gets the list of numbered parameters of a template. They are numbered
+	 * so every path of a UNION refers to the same values.
+	 *
+	 * @param arity the arity
+	 * @return the list of parameters
+	 */
+	private static String getParameterList(int arity) {
 		StringBuilder strbldr = new StringBuilder();
-		
-		SLEXMMEdge lastEdge = path.get(path.size()-1);
-		
-		strbldr.append("FROM ");
-		
-		int i = 1;
-		
-		for (SLEXMMEdge e: path) {
-			SLEXMMNode n = e.getSourceNode();
-			strbldr.append(METAMODEL_ALIAS+".");
-			strbldr.append('"'+n.getName()+'"');
-			strbldr.append(" as t");
+		for (int i = 1; i <= arity; i++) {
+			if (i > 1) {
+				strbldr.append(",");
+			}
+			strbldr.append("?");
 			strbldr.append(i);
-			strbldr.append(", ");
-			i++;
-		}
-		
-		strbldr.append(METAMODEL_ALIAS+".");
-		strbldr.append('"'+lastEdge.getTargetNode().getName()+'"');
-		strbldr.append(" as t");
-		strbldr.append(i);
-		
-		strbldr.append(" WHERE ");
-		
-		String idsStr = null; 
-		
-		if (ids != null) {
-//			idsStr = getBetweens("t"+i+".id",ids);
-//			strbldr.append(" ");
-//			strbldr.append(idsStr);
-			idsStr = SLEXMMStorageMetaModelImpl.buildStringFromArray(ids);
-			strbldr.append(" t"+i+".id IN ("+idsStr+")");
-		} else {
-			strbldr.append(" 1 ");
-		}
-		
-		i = 1;
-		for (SLEXMMEdge e: path) {
-			strbldr.append(" AND t"+i+"."+e.getSourceField()+
-					" = t"+(i+1)+"."+e.getTargetField());
-			i++;
 		}
-		
 		return strbldr.toString();
 	}
 	
+	
+	/**
+	 * Gets a plan for paths that were not computed by this generator.
+	 *
+	 * @param paths the paths
+	 * @return the plan
+	 */
+	private SLEXMMQueryPlan getPlan(List<List<SLEXMMEdge>> paths) {
+		List<SLEXMMEdge> path = paths.get(0);
+		return new SLEXMMQueryPlan(path.get(0).getSourceNode().getTable(),
+				path.get(path.size()-1).getTargetNode().getTable(), paths);
+	}
+	
 	public String getSelectQuery(List<List<SLEXMMEdge>> paths, int[] ids) {
+		return getSelectQuery(getPlan(paths), ids);
+	}
+	
+	public String getSelectQuery(SLEXMMQueryPlan plan, int[] ids) {
+		return getSelectQuery(plan, ids != null ? SLEXMMStorageMetaModelImpl.buildStringFromArray(ids) : null);
+	}
+	
+	/**
+	 * Gets the select query with the ids as numbered parameters.
+	 *
+	 * @param plan the plan
+	 * @param arity the number of ids, as returned by getTemplateArity()
+	 * @return the query template
+	 */
+	public String getSelectTemplate(SLEXMMQueryPlan plan, int arity) {
+		String key = "S:"+arity;
+		String template = plan.getTemplate(key);
+		if (template == null) {
+			template = getSelectQuery(plan, getParameterList(arity));
+			plan.putTemplate(key, template);
+		}
+		return template;
+	}
+	
+	/**
+	 * Gets the select query filtering on a subquery that returns the ids,
+	 * with parameters of its own.
+	 *
+	 * @param plan the plan
+	 * @param idsQuery the subquery returning the ids
+	 * @return the query template
+	 */
+	public String getSelectTemplate(SLEXMMQueryPlan plan, String idsQuery) {
+		String key = "S:"+idsQuery;
+		String template = plan.getTemplate(key);
+		if (template == null) {
+			template = getSelectQuery(plan, idsQuery);
+			plan.putTemplate(key, template);
+		}
+		return template;
+	}
+	
+	private String getSelectQuery(SLEXMMQueryPlan plan, String idsStr) {
 		StringBuilder strbldr = new StringBuilder();
 		
-		boolean first = true;
+		List<List<SLEXMMEdge>> paths = plan.getPaths();
 
-		for (List<SLEXMMEdge> path : paths) {
+		for (int i = 0; i < paths.size(); i++) {
 
-			if (!first) {
+			if (i > 0) {
 				strbldr.append(" UNION ");
-			} else {
-				first = false;
 			}
 
-			//SLEXMMEdge lastEdge = path.get(path.size() - 1);
-
 			//strbldr.append("SELECT DISTINCT t" + (path.size() + 1) + ".id"
-			strbldr.append("SELECT t" + (path.size() + 1) + ".id"
+			strbldr.append("SELECT " + plan.getTargetAlias(i) + ".id"
 					+ " as originIdQuery, t1.* ");
 
-			strbldr.append(getFromAndWhereOfQuery(path, ids));
+			strbldr.append(plan.getFromAndWhere(i, idsStr));
 
 		}
 		
@@ -486,51 +598,135 @@ public class SLEXMMStorageQueryGenerator {
 		return strbldr.toString();
 	}
 	
+	public String getSemiJoinQuery(SLEXMMQueryPlan plan, int[] ids) {
+		return getSemiJoinQuery(plan, ids != null ? SLEXMMStorageMetaModelImpl.buildStringFromArray(ids) : null);
+	}
+	
+	/**
+	 * Gets the semi-join query with the ids as numbered parameters.
+	 *
+	 * @param plan the plan
+	 * @param arity the number of ids, as returned by getTemplateArity()
+	 * @return the query template
+	 */
+	public String getSemiJoinTemplate(SLEXMMQueryPlan plan, int arity) {
+		String key = "J:"+arity;
+		String template = plan.getTemplate(key);
+		if (template == null) {
+			template = getSemiJoinQuery(plan, getParameterList(arity));
+			plan.putTemplate(key, template);
+		}
+		return template;
+	}
+	
+	/**
+	 * Gets the semi-join query filtering on a subquery that returns the ids,
+	 * with parameters of its own.
+	 *
+	 * @param plan the plan
+	 * @param idsQuery the subquery returning the ids
+	 * @return the query template
+	 */
+	public String getSemiJoinTemplate(SLEXMMQueryPlan plan, String idsQuery) {
+		String key = "J:"+idsQuery;
+		String template = plan.getTemplate(key);
+		if (template == null) {
+			template = getSemiJoinQuery(plan, idsQuery);
+			plan.putTemplate(key, template);
+		}
+		return template;
+	}
+	
+	/**
+	 * Gets the query that returns every element of the origin table related
+	 * to the ids once. The joins along the paths only produce the ids of the
+	 * elements, and SQLite looks the elements up by their primary key, so
+	 * the intermediate rows never reach the result set.
+	 *
+	 * @param plan the plan
+	 * @param idsStr the list of ids, or null for all
+	 * @return the query
+	 */
+	private String getSemiJoinQuery(SLEXMMQueryPlan plan, String idsStr) {
+		StringBuilder strbldr = new StringBuilder();
+		
+		strbldr.append("SELECT t0.* FROM " + plan.getOriginTable() + " as t0 WHERE t0.id IN (");
+		
+		for (int i = 0; i < plan.getPathCount(); i++) {
+
+			if (i > 0) {
+				strbldr.append(" UNION ALL ");
+			}
+
+			strbldr.append("SELECT t1.id ");
+
+			strbldr.append(plan.getFromAndWhere(i, idsStr));
+
+		}
+		
+		strbldr.append(")");
+		
+		return strbldr.toString();
+	}
+	
 	public String getSelectQueryForPeriod(List<List<SLEXMMEdge>> paths, SLEXMMPeriod p) {
+		return getSelectQueryForPeriod(getPlan(paths), p);
+	}
+	
+	public String getSelectQueryForPeriod(SLEXMMQueryPlan plan, SLEXMMPeriod p) {
+		return getSelectQueryForPeriod(plan, p, false);
+	}
+	
+	/**
+	 * Gets the query that returns the elements of the origin table of a plan
+	 * related to the events, object versions or relations of its destination
+	 * that overlap a period.
+	 *
+	 * @param plan the plan
+	 * @param p the period
+	 * @param indexed true to look the rows of the period up in the period
+	 * index, which must exist, instead of testing every row of the table
+	 * @return the query, or null if the destination has no periods
+	 * @see SLEXMMPeriodIndex
+	 */
+	public String getSelectQueryForPeriod(SLEXMMQueryPlan plan, SLEXMMPeriod p, boolean indexed) {
 		StringBuilder strbldr = new StringBuilder();
 		
-		boolean first = true;
+		List<List<SLEXMMEdge>> paths = plan.getPaths();
 
-		for (List<SLEXMMEdge> path : paths) {
+		for (int i = 0; i < paths.size(); i++) {
 
-			if (!first) {
+			if (i > 0) {
 				strbldr.append(" UNION ");
-			} else {
-				first = false;
 			}
 
+			List<SLEXMMEdge> path = paths.get(i);
 			SLEXMMEdge lastEdge = path.get(path.size() - 1);
 			SLEXMMNode lastNode = lastEdge.getTargetNode();
-			String startTField = null;
-			String endTField = null;
+			String startTField = SLEXMMPeriodIndex.getStartField(lastNode.getTable());
+			String endTField = SLEXMMPeriodIndex.getEndField(lastNode.getTable());
 
-			switch (lastNode.getTable()) {
-			case T_EVENT:
-				startTField = "timestamp";
-				endTField = "timestamp";
-				break;
-			case T_OBJECT_VERSION:
-				startTField = "start_timestamp";
-				endTField = "end_timestamp";
-				break;
-			case T_RELATION:
-				startTField = "start_timestamp";
-				endTField = "end_timestamp";
-				break;
-			default:
+			if (startTField == null) {
 				return null;
 			}
 
 			//strbldr.append("SELECT DISTINCT t1.* ");
 			strbldr.append("SELECT t1.* ");
 
-			strbldr.append(getFromAndWhereOfQuery(path, null));
+			if (indexed) {
+				// The candidates of the tree, the exact condition follows
+				strbldr.append(plan.getFromAndWhere(i,
+						SLEXMMPeriodIndex.getIdsQuery(lastNode.getTable(), p.getStart(), p.getEnd())));
+			} else {
+				strbldr.append(plan.getFromAndWhere(i, null));
+			}
 
-			strbldr.append(" AND (t" + (path.size() + 1) + "." + endTField + " >= " + p.getStart());
-			strbldr.append(" OR t" + (path.size() + 1) + "." + endTField + " = -1)");
+			String t = plan.getTargetAlias(i);
+			strbldr.append(" AND (" + t + "." + endTField + " >= " + p.getStart());
+			strbldr.append(" OR " + t + "." + endTField + " = -1)");
 
 			if (p.getEnd() != -1) {
-				strbldr.append(" AND t" + (path.size() + 1) + "." + startTField + " <= " + p.getEnd());
+				strbldr.append(" AND " + t + "." + startTField + " <= " + p.getEnd());
 			}
 
 		}
@@ -541,20 +737,64 @@ public class SLEXMMStorageQueryGenerator {
 	}
 	
 	public String getPeriodsQuery(List<List<SLEXMMEdge>> paths, int[] ids) {
+		return getPeriodsQuery(getPlan(paths), ids);
+	}
+	
+	public String getPeriodsQuery(SLEXMMQueryPlan plan, int[] ids) {
+		return getPeriodsQuery(plan, ids != null ? SLEXMMStorageMetaModelImpl.buildStringFromArray(ids) : null);
+	}
+	
+	/**
+	 * Gets the periods query with the ids as numbered parameters.
+	 *
+	 * @param plan the plan
+	 * @param arity the number of ids, as returned by getTemplateArity()
+	 * @return the query template
+	 */
+	public String getPeriodsTemplate(SLEXMMQueryPlan plan, int arity) {
+		String key = "P:"+arity;
+		String template = plan.getTemplate(key);
+		if (template == null) {
+			template = getPeriodsQuery(plan, getParameterList(arity));
+			if (template != null) {
+				plan.putTemplate(key, template);
+			}
+		}
+		return template;
+	}
+	
+	/**
+	 * Gets the periods query filtering on a subquery that returns the ids,
+	 * with parameters of its own.
+	 *
+	 * @param plan the plan
+	 * @param idsQuery the subquery returning the ids
+	 * @return the query template
+	 */
+	public String getPeriodsTemplate(SLEXMMQueryPlan plan, String idsQuery) {
+		String key = "P:"+idsQuery;
+		String template = plan.getTemplate(key);
+		if (template == null) {
+			template = getPeriodsQuery(plan, idsQuery);
+			if (template != null) {
+				plan.putTemplate(key, template);
+			}
+		}
+		return template;
+	}
+	
+	private String getPeriodsQuery(SLEXMMQueryPlan plan, String idsStr) {
 		StringBuilder strbldr = new StringBuilder();
 		
-		boolean first = true;
+		List<List<SLEXMMEdge>> paths = plan.getPaths();
 
-		for (List<SLEXMMEdge> path : paths) {
+		for (int i = 0; i < paths.size(); i++) {
 
-			if (!first) {
+			if (i > 0) {
 				strbldr.append(" UNION ");
-			} else {
-				first = false;
 			}
 
-			//SLEXMMEdge lastEdge = path.get(path.size() - 1);
-			SLEXMMEdge firstEdge = path.get(0);
+			SLEXMMEdge firstEdge = paths.get(i).get(0);
 			SLEXMMNode firstNode = firstEdge.getSourceNode();
 			String startTField = null;
 			String endTField = null;
@@ -577,11 +817,11 @@ public class SLEXMMStorageQueryGenerator {
 			}
 
 			//strbldr.append("SELECT DISTINCT t" + (path.size() + 1) + ".id"
-			strbldr.append("SELECT t" + (path.size() + 1) + ".id"
+			strbldr.append("SELECT " + plan.getTargetAlias(i) + ".id"
 					+ " as originIdQuery, min(t1." + startTField + ") as start, " + " max(t1." + endTField
 					+ ") as end, " + " min(t1." + endTField + ") as end2 ");
 
-			strbldr.append(getFromAndWhereOfQuery(path, ids));
+			strbldr.append(plan.getFromAndWhere(i, idsStr));
 
 			strbldr.append(" GROUP BY originIdQuery ");
 
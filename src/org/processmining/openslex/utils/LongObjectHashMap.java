@@ -0,0 +1,162 @@
+package org.processmining.openslex.utils;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to objects, with open addressing and
+ * linear probing. Keys are neither boxed nor hashed through an object, and
+ * entries take no memory beyond the two arrays. Null values are not
+ * allowed: a null value marks an empty slot.
+ *
+ * Not thread-safe.
+ *
+ * @see <a href="https://www.win.tue.nl/~egonzale/projects/openslex/" target="_blank">OpenSLEX</a>
+ */
+public class LongObjectHashMap<V> {
+
+	private static final int MIN_CAPACITY = 16;
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private long[] keys;
+	private Object[] values;
+	private int mask;
+	private int size = 0;
+	private int resizeAt;
+
+	public LongObjectHashMap() {
+		this(MIN_CAPACITY);
+	}
+
+	public LongObjectHashMap(int expectedSize) {
+		allocate(capacityFor(expectedSize));
+	}
+
+	private static int capacityFor(int expectedSize) {
+		long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR);
+		if (needed >= 1 << 30) {
+			return 1 << 30;
+		}
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) needed - 1) << 1);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new Object[capacity];
+		mask = capacity - 1;
+		resizeAt = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Mixes the bits of a key, so keys that differ only in their high bits,
+	 * like the class of an element, do not collide.
+	 *
+	 * @param key the key
+	 * @return the hash
+	 */
+	public static int hash(long key) {
+		key ^= key >>> 33;
+		key *= 0xff51afd7ed558ccdL;
+		key ^= key >>> 33;
+		key *= 0xc4ceb9fe1a85ec53L;
+		key ^= key >>> 33;
+		return (int) key;
+	}
+
+	private int slot(long key) {
+		int i = hash(key) & mask;
+		while (values[i] != null && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	@SuppressWarnings("unchecked")
+	public V get(long key) {
+		return (V) values[slot(key)];
+	}
+
+	public boolean containsKey(long key) {
+		return values[slot(key)] != null;
+	}
+
+	/**
+	 * Puts a value, replacing the one of the key if any.
+	 *
+	 * @param key the key
+	 * @param value the value, not null
+	 * @return the previous value, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V put(long key, V value) {
+		if (value == null) {
+			throw new NullPointerException("Null values are not allowed");
+		}
+		int i = slot(key);
+		V previous = (V) values[i];
+		keys[i] = key;
+		values[i] = value;
+		if (previous == null && ++size > resizeAt) {
+			rehash(keys.length << 1);
+		}
+		return previous;
+	}
+
+	/**
+	 * Removes the value of a key. The entries after it in its probe sequence
+	 * are shifted back, so no tombstones are left behind.
+	 *
+	 * @param key the key
+	 * @return the removed value, or null
+	 */
+	@SuppressWarnings("unchecked")
+	public V remove(long key) {
+		int i = slot(key);
+		V previous = (V) values[i];
+		if (previous == null) {
+			return null;
+		}
+		int j = i;
+		while (true) {
+			values[i] = null;
+			int home;
+			do {
+				j = (j + 1) & mask;
+				if (values[j] == null) {
+					size--;
+					return previous;
+				}
+				home = hash(keys[j]) & mask;
+				// Move the entry at j unless its home lies cyclically in (i, j]
+			} while (i <= j ? (i < home && home <= j) : (i < home || home <= j));
+			keys[i] = keys[j];
+			values[i] = values[j];
+			i = j;
+		}
+	}
+
+	private void rehash(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		allocate(capacity);
+		for (int i = 0; i < oldValues.length; i++) {
+			if (oldValues[i] != null) {
+				int j = slot(oldKeys[i]);
+				keys[j] = oldKeys[i];
+				values[j] = oldValues[i];
+			}
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+}
@@ -0,0 +1,72 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+
+public class BulkInsertTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-bulk").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "bulk.slexmm");
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void bulkInsertAssignsIds() throws Exception {
+		SLEXMMActivity act = mm.createActivity("A");
+		SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+
+		mm.setAutoCommitOnCreation(false);
+
+		int n = 2500;
+		List<SLEXMMEvent> events = new ArrayList<>();
+		try (SLEXMMBulkInsertSession session = mm.createBulkInsertSession(1000)) {
+			for (int i = 0; i < n; i++) {
+				SLEXMMEvent ev = mm.createEvent(i, ai.getId(), "complete", "r"+(i % 7), 1000L + i);
+				assertTrue(session.add(ev));
+				events.add(ev);
+			}
+		}
+
+		HashSet<Integer> ids = new HashSet<>();
+		for (SLEXMMEvent ev: events) {
+			assertTrue(ev.getId() > 0);
+			ids.add(ev.getId());
+		}
+		assertEquals(n, ids.size());
+
+		int count = 0;
+		SLEXMMEventResultSet erset = mm.getEventsForActivityInstance(ai.getId());
+		SLEXMMEvent ev = null;
+		while ((ev = erset.getNext()) != null) {
+			assertTrue(ids.contains(ev.getId()));
+			assertEquals(ev.getOrder() + 1000L, ev.getTimestamp());
+			count++;
+		}
+		assertEquals(n, count);
+	}
+
+}
@@ -0,0 +1,155 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.AbstractDBElement;
+import org.processmining.openslex.metamodel.SLEXMMCase;
+import org.processmining.openslex.metamodel.SLEXMMEvent;
+import org.processmining.openslex.metamodel.SLEXMMEventAttribute;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+import org.processmining.openslex.metamodel.cache.SLEXMMCache;
+import org.processmining.openslex.metamodel.cache.SLEXMMCacheConfig;
+import org.processmining.openslex.metamodel.cache.SLEXMMHeapCache;
+import org.processmining.openslex.metamodel.cache.SLEXMMSegmentedLRUCache;
+import org.processmining.openslex.metamodel.cache.SLEXMMTieredCache;
+
+public class CacheTest {
+
+	@Test
+	public void keys() {
+		assertNotEquals(AbstractDBElement.computeKey(SLEXMMEvent.class, 7),
+				AbstractDBElement.computeKey(SLEXMMCase.class, 7));
+		assertNotEquals(AbstractDBElement.computeKey(SLEXMMEvent.class, -1),
+				AbstractDBElement.computeKey(SLEXMMCase.class, -1));
+		assertEquals(AbstractDBElement.computeKey(AbstractDBElement.EV, 7),
+				AbstractDBElement.computeKey(SLEXMMEvent.class, 7));
+	}
+
+	@Test
+	public void heapCacheMatchesHashMap() {
+		SLEXMMCache<Integer> cache = new SLEXMMHeapCache<>();
+		HashMap<Long, Integer> expected = new HashMap<>();
+		Random random = new Random(42);
+
+		// Few distinct keys so removals happen in the middle of probe sequences
+		for (int i = 0; i < 200000; i++) {
+			long key = AbstractDBElement.computeKey(random.nextInt(4), random.nextInt(5000));
+			int op = random.nextInt(3);
+			if (op == 0) {
+				assertEquals(expected.remove(key), cache.remove(key));
+			} else if (op == 1) {
+				expected.put(key, i);
+				cache.put(key, i);
+			} else {
+				assertEquals(expected.get(key), cache.get(key));
+			}
+		}
+		assertEquals(expected.size(), cache.size());
+		for (Long key: expected.keySet()) {
+			assertEquals(expected.get(key), cache.get(key));
+		}
+
+		cache.clear();
+		assertEquals(0, cache.size());
+		assertNull(cache.get(expected.keySet().iterator().next()));
+	}
+
+	@Test
+	public void segmentedLRUIsBounded() {
+		SLEXMMSegmentedLRUCache<int[]> cache = new SLEXMMSegmentedLRUCache<>(16000, SLEXMMCacheConfig.IDS_WEIGHER);
+		for (int i = 0; i < 100000; i++) {
+			cache.put(i, new int[i % 10]);
+		}
+		assertTrue(cache.getWeight() <= 16000);
+		assertTrue(cache.getStats().getEvictions() > 0);
+		assertNotNull(cache.get(99999));
+		assertNull(cache.get(0));
+		assertEquals(1, cache.getStats().getHits());
+		assertEquals(1, cache.getStats().getMisses());
+	}
+
+	@Test
+	public void segmentedLRUResistsScans() {
+		SLEXMMSegmentedLRUCache<Integer> cache = new SLEXMMSegmentedLRUCache<>(1600);
+		// A working set hit twice is protected
+		for (int i = 0; i < 500; i++) {
+			cache.put(i, i);
+			cache.get(i);
+		}
+		// A scan over many more elements only goes through probation
+		for (int i = 1000; i < 100000; i++) {
+			cache.put(i, i);
+		}
+		int kept = 0;
+		for (int i = 0; i < 500; i++) {
+			if (cache.get(i) != null) {
+				kept++;
+			}
+		}
+		assertEquals(500, kept);
+	}
+
+	@Test
+	public void tieredCacheDemotesAndPromotes() {
+		SLEXMMHeapCache<Integer> l2 = new SLEXMMHeapCache<>();
+		SLEXMMTieredCache<Integer> cache = new SLEXMMTieredCache<>(1600, null, l2);
+		for (int i = 0; i < 10000; i++) {
+			cache.put(i, i);
+		}
+		// Only what L1 evicted was written to L2
+		assertEquals(cache.getL1().getStats().getEvictions(), l2.size());
+		assertTrue(cache.getL1().size() <= 1600);
+
+		for (int i = 0; i < 10000; i++) {
+			assertEquals(Integer.valueOf(i), cache.get(i));
+		}
+		assertEquals(0, cache.getStats().getMisses());
+
+		// A second pass over a set that fits in L1 does not go to L2
+		for (int i = 0; i < 100; i++) {
+			cache.get(i);
+		}
+		long l2Hits = l2.getStats().getHits();
+		for (int i = 0; i < 100; i++) {
+			cache.get(i);
+		}
+		assertEquals(l2Hits, l2.getStats().getHits());
+	}
+
+	@Test
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public void attributeNamesEvicted() throws Exception {
+		File dir = Files.createTempDirectory("slexmm-cache").toFile();
+		SLEXMMStorageMetaModel mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "cache.slexmm");
+		try {
+			SLEXMMEventAttribute at = mm.createEventAttribute("att");
+			SLEXMMEvent ev = mm.createEvent(0, -1, "complete", "r", 0);
+			mm.createEventAttributeValue(at.getId(), ev.getId(), "v", "STRING");
+			HashMap values = mm.getEventForId(ev.getId()).getAttributeValues();
+
+			// Start from empty caches and keep the values without the names
+			mm.setCacheConfig(SLEXMMCacheConfig.getDefault());
+			mm.putAttsInCache(ev, values);
+			assertNull(mm.getAttNamesFromCache(SLEXMMEvent.class, ev.getId()));
+
+			SLEXMMEvent fresh = mm.getEventForId(ev.getId());
+			assertEquals(at, fresh.getAttribute("att"));
+			assertEquals("v", fresh.getAttributeValue("att").getValue());
+		} finally {
+			mm.disconnect();
+			for (File f: dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+}
@@ -0,0 +1,121 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.columnar.SLEXMMEventColumns;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+
+public class EventColumnsTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+	private SLEXMMEventColumns columns;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-columns").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "columns.slexmm");
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(100);
+		config.setObjects(100);
+		config.setActivityInstancesPerCase(4);
+		config.setEventsPerActivityInstance(2);
+		new SLEXMMGenerator(config).generate(mm);
+		columns = mm.getEventColumns();
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void tracesMatchCases() {
+		assertEquals(100, columns.getCases());
+		int rows = 0;
+		for (int c = 0; c < columns.getCases(); c++) {
+			int caseId = columns.getCaseId(c);
+			assertEquals(c, columns.getCaseIndex(caseId));
+
+			Set<Integer> expected = new HashSet<>();
+			for (SLEXMMEvent ev: mm.getEventsForCase(caseId)) {
+				expected.add(ev.getId());
+			}
+			Set<Integer> trace = new HashSet<>();
+			for (int i = columns.getTraceStart(c); i < columns.getTraceEnd(c); i++) {
+				trace.add(columns.getEventId(i));
+				if (i > columns.getTraceStart(c)) {
+					assertTrue(columns.getOrdering(i - 1) <= columns.getOrdering(i));
+				}
+				rows++;
+			}
+			assertEquals(expected, trace);
+		}
+		assertEquals(columns.size(), rows);
+
+		SLEXMMLog log = mm.getLogs().getNext();
+		assertEquals(columns.size(), mm.getEventColumnsForLog(log.getId()).size());
+		assertEquals(0, mm.getEventColumnsForLog(log.getId() + 1).size());
+	}
+
+	@Test
+	public void frequenciesAndWindows() throws Exception {
+		HashMap<String, Integer> expected = new HashMap<>();
+		String alias = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT A.name, count(*) FROM "+alias+".event as E "
+				+ " JOIN "+alias+".activity_instance as AI ON E.activity_instance_id = AI.id "
+				+ " JOIN "+alias+".activity as A ON A.id = AI.activity_id "
+				+ " JOIN "+alias+".activity_instance_to_case as AITC ON AITC.activity_instance_id = AI.id "
+				+ " GROUP BY A.name");
+		SLEXMMSQLResult r = null;
+		while ((r = rset.getNext()) != null) {
+			expected.put(r.getValues()[0], Integer.parseInt(r.getValues()[1]));
+		}
+		rset.close();
+		assertEquals(expected.size(), columns.getActivities());
+		int[] frequencies = columns.getActivityFrequencies();
+		for (int a = 0; a < columns.getActivities(); a++) {
+			assertEquals(expected.get(columns.getActivityName(a)).intValue(), frequencies[a]);
+		}
+
+		long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+		for (int i = 0; i < columns.size(); i++) {
+			min = Math.min(min, columns.getTimestamp(i));
+			max = Math.max(max, columns.getTimestamp(i));
+		}
+		Random random = new Random(7);
+		for (int w = 0; w < 50; w++) {
+			long start = min + (long) (random.nextDouble() * (max - min + 1));
+			long end = start + (long) (random.nextDouble() * (max - min + 1));
+			int count = 0;
+			for (int i = 0; i < columns.size(); i++) {
+				if (columns.getTimestamp(i) >= start && columns.getTimestamp(i) < end) {
+					count++;
+				}
+			}
+			assertEquals(count, columns.countInWindow(start, end));
+			for (int k = columns.getWindowStart(start); k < columns.getWindowStart(end); k++) {
+				long t = columns.getTimestamp(columns.getRowByTime(k));
+				assertTrue(t >= start && t < end);
+			}
+		}
+	}
+
+}
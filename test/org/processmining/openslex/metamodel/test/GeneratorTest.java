@@ -0,0 +1,88 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.SLEXMMSQLResultSet;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModel;
+import org.processmining.openslex.metamodel.SLEXMMStorageMetaModelImpl;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+
+public class GeneratorTest {
+
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-generator").toFile();
+	}
+
+	@After
+	public void close() {
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private static long count(SLEXMMStorageMetaModel mm, String table) throws Exception {
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT count(*) FROM "
+				+SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+"."+table);
+		long count = Long.parseLong(rset.getNext().getValues()[0]);
+		rset.close();
+		return count;
+	}
+
+	private SLEXMMStorageMetaModel generate(String name, SLEXMMGeneratorConfig config) throws Exception {
+		SLEXMMStorageMetaModel mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), name);
+		SLEXMMGenerator generator = new SLEXMMGenerator(config);
+		generator.generate(mm);
+		assertEquals(generator.getEvents(), count(mm, "event"));
+		assertEquals(generator.getObjectVersions(), count(mm, "object_version"));
+		assertEquals(generator.getRelations(), count(mm, "relation"));
+		return mm;
+	}
+
+	@Test
+	public void generateAndProfile() throws Exception {
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(200);
+		config.setObjects(300);
+		config.setActivityInstancesPerCase(5);
+		config.setEventsPerActivityInstance(2);
+		config.setAttributeCardinality(50);
+		config.setSkew(1.2);
+		config.setBatchSize(500);
+
+		SLEXMMStorageMetaModel a = generate("a.slexmm", config);
+		SLEXMMStorageMetaModel b = generate("b.slexmm", config);
+		for (String table: new String[] {"event", "event_attribute_value", "relation", "event_to_object_version"}) {
+			assertEquals(count(a, table), count(b, table));
+		}
+		assertEquals(200, count(a, "'case'"));
+		assertEquals(200, count(a, "case_to_log"));
+		assertEquals(300, count(a, "object"));
+		assertEquals(count(a, "event") * config.getEventAttributes(), count(a, "event_attribute_value"));
+
+		SLEXMMGeneratorConfig profile = SLEXMMGeneratorConfig.fromProfile(a);
+		assertEquals(200, profile.getCases());
+		assertEquals(300, profile.getObjects());
+		assertEquals(config.getClassesPerDataModel(), profile.getClassesPerDataModel());
+		assertEquals(config.getEventAttributes(), profile.getEventAttributes());
+		assertEquals(5, profile.getActivityInstancesPerCase(), 1);
+		assertEquals(2, profile.getEventsPerActivityInstance(), 0.5);
+		assertTrue(profile.getAttributeCardinality() <= 50);
+		assertEquals(1.2, profile.getSkew(), 0.5);
+
+		a.disconnect();
+		b.disconnect();
+	}
+
+}
@@ -0,0 +1,158 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+import org.processmining.openslex.metamodel.graph.SLEXMMGraphIndex;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryShape;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+public class GraphIndexTest {
+
+	private SLEXMMStorageMetaModelImpl mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-graph").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "graph.slexmm");
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(150);
+		config.setObjects(200);
+		config.setActivityInstancesPerCase(4);
+		config.setEventsPerActivityInstance(2);
+		config.setVersionsPerEvent(1.5);
+		new SLEXMMGenerator(config).generate(mm);
+		mm.setQueryShape(SLEXMMQueryShape.SEMI_JOIN);
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private Set<Integer> query(Class<?> rsetClass, SLEXMMTables tableA, SLEXMMTables tableB, int[] ids) {
+		Set<Integer> result = new HashSet<>();
+		AbstractRSetElement<?> rset = mm.getResultSetFor(rsetClass, tableA, tableB, ids);
+		AbstractDBElement e = null;
+		while ((e = (AbstractDBElement) rset.getNext()) != null) {
+			result.add(e.getId());
+		}
+		return result;
+	}
+
+	private List<String> originsAndIds(Class<?> rsetClass, SLEXMMTables tableA, SLEXMMTables tableB, int[] ids) {
+		List<String> pairs = new ArrayList<>();
+		AbstractRSetElement<?> rset = mm.getResultSetFor(rsetClass, tableA, tableB, ids);
+		AbstractDBElement e = null;
+		while ((e = (AbstractDBElement) rset.getNext()) != null) {
+			pairs.add(rset.getOriginId()+"-"+e.getId());
+		}
+		Collections.sort(pairs);
+		return pairs;
+	}
+
+	private static int[] range(int from, int to) {
+		int[] ids = new int[to - from];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = from + i;
+		}
+		return ids;
+	}
+
+	@Test
+	public void sameElementsAsJoins() {
+		Object[][] queries = {
+				{ SLEXMMEventResultSet.class, SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE, range(1, 20) },
+				{ SLEXMMCaseResultSet.class, SLEXMMTables.T_CASE, SLEXMMTables.T_OBJECT_VERSION, range(1, 50) },
+				{ SLEXMMObjectVersionResultSet.class, SLEXMMTables.T_OBJECT_VERSION, SLEXMMTables.T_LOG, range(1, 2) },
+				{ SLEXMMActivityResultSet.class, SLEXMMTables.T_ACTIVITY, SLEXMMTables.T_CASE, range(1, 10) },
+				{ SLEXMMClassResultSet.class, SLEXMMTables.T_CLASS, SLEXMMTables.T_EVENT, range(1, 600) },
+				{ SLEXMMEventResultSet.class, SLEXMMTables.T_EVENT, SLEXMMTables.T_ACTIVITY, new int[] { 1, 3 } },
+				{ SLEXMMCaseResultSet.class, SLEXMMTables.T_CASE, SLEXMMTables.T_EVENT, new int[] { -5 } },
+		};
+		Set<?>[] expected = new Set<?>[queries.length];
+		for (int q = 0; q < queries.length; q++) {
+			expected[q] = query((Class<?>) queries[q][0], (SLEXMMTables) queries[q][1],
+					(SLEXMMTables) queries[q][2], (int[]) queries[q][3]);
+		}
+
+		SLEXMMGraphIndex index = mm.enableGraphIndex();
+		assertNotNull(index);
+		assertTrue(mm.isGraphIndexCurrent());
+		assertTrue(index.getHeapBytes() > 0);
+		assertTrue(mm.getMetrics().getSnapshot().containsKey("graph.event.activity_instance_id.bytes"));
+
+		for (int q = 0; q < queries.length; q++) {
+			assertEquals(expected[q], query((Class<?>) queries[q][0], (SLEXMMTables) queries[q][1],
+					(SLEXMMTables) queries[q][2], (int[]) queries[q][3]));
+		}
+		assertTrue(expected[0].size() > 0);
+		assertTrue(expected[6].isEmpty());
+		// The id set of the query over more ids than parameters is not a write
+		assertTrue(mm.isGraphIndexCurrent());
+	}
+
+	@Test
+	public void writesMakeItStale() {
+		mm.enableGraphIndex();
+		SLEXMMCase c = mm.createCase("new");
+		assertFalse(mm.isGraphIndexCurrent());
+		SLEXMMActivityInstance ai = mm.createActivityInstance(mm.createActivity("new"));
+		mm.addActivityInstanceToCase(c.getId(), ai.getId());
+
+		mm.rebuildGraphIndex();
+		assertTrue(mm.isGraphIndexCurrent());
+		assertEquals(1, query(SLEXMMActivityInstanceResultSet.class, SLEXMMTables.T_ACTIVITY_INSTANCE,
+				SLEXMMTables.T_CASE, new int[] { c.getId() }).size());
+	}
+
+	@Test
+	public void unionKeepsOrigins() {
+		mm.setQueryShape(SLEXMMQueryShape.UNION);
+		List<String> events = originsAndIds(SLEXMMEventResultSet.class, SLEXMMTables.T_EVENT,
+				SLEXMMTables.T_CASE, range(1, 20));
+		List<String> cases = originsAndIds(SLEXMMCaseResultSet.class, SLEXMMTables.T_CASE,
+				SLEXMMTables.T_OBJECT_VERSION, range(1, 50));
+		assertFalse(events.isEmpty());
+		assertFalse(cases.isEmpty());
+
+		mm.enableGraphIndex();
+		assertTrue(mm.isGraphIndexCurrent());
+		assertEquals(events, originsAndIds(SLEXMMEventResultSet.class, SLEXMMTables.T_EVENT,
+				SLEXMMTables.T_CASE, range(1, 20)));
+		assertEquals(cases, originsAndIds(SLEXMMCaseResultSet.class, SLEXMMTables.T_CASE,
+				SLEXMMTables.T_OBJECT_VERSION, range(1, 50)));
+	}
+
+	@Test
+	public void keysNotSet() {
+		// An event without activity instance
+		SLEXMMEvent ev = mm.createEvent(0, -1, "complete", "r", 0);
+		SLEXMMGraphIndex index = mm.rebuildGraphIndex();
+		assertNotNull(index);
+		assertTrue(mm.isGraphIndexCurrent());
+		assertTrue(query(SLEXMMActivityInstanceResultSet.class, SLEXMMTables.T_ACTIVITY_INSTANCE,
+				SLEXMMTables.T_EVENT, new int[] { ev.getId() }).isEmpty());
+		assertNotNull(mm.getTraversalFromVersions(new int[] { 1 }));
+	}
+
+}
@@ -0,0 +1,129 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+public class IdAllocatorTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-ids").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "ids.slexmm");
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void preallocatedIdsDoNotCollideWithAutoincrement() throws Exception {
+		SLEXMMActivity act = mm.createActivity("A");
+		SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+
+		SLEXMMEvent ev1 = mm.createEvent(0, ai.getId(), "complete", "r", 1L);
+
+		mm.setIdPreallocation(true);
+		SLEXMMEvent ev2 = mm.createEvent(1, ai.getId(), "complete", "r", 2L);
+		assertTrue(ev2.getId() > ev1.getId());
+
+		mm.setIdPreallocation(false);
+		SLEXMMEvent ev3 = mm.createEvent(2, ai.getId(), "complete", "r", 3L);
+		// Rows inserted without explicit id skip the reserved block
+		assertTrue(ev3.getId() >= ev2.getId() + SLEXMMIdAllocator.DEFAULT_BLOCK_SIZE);
+
+		assertNotNull(mm.getEventForId(ev2.getId()));
+	}
+
+	@Test
+	public void caseBuiltInMemoryAndFlushedAtOnce() throws Exception {
+		SLEXMMActivity act = mm.createActivity("A");
+		SLEXMMEventAttribute eat = mm.createEventAttribute("att");
+
+		mm.setAutoCommitOnCreation(false);
+		mm.setIdPreallocation(true);
+
+		SLEXMMCase c = mm.createCase("case1");
+		SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+		assertTrue(c.getId() > 0);
+		assertTrue(ai.getId() > 0);
+
+		List<SLEXMMEvent> events = new ArrayList<>();
+		List<SLEXMMEventAttributeValue> values = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			SLEXMMEvent ev = mm.createEvent(i, ai.getId(), "complete", "r", 100L + i);
+			assertTrue(ev.getId() > 0);
+			events.add(ev);
+			values.add(mm.createEventAttributeValue(eat.getId(), ev.getId(), "v"+i, "STRING"));
+		}
+
+		try (SLEXMMBulkInsertSession session = mm.createBulkInsertSession()) {
+			assertTrue(session.add(c));
+			assertTrue(session.add(ai));
+			assertTrue(session.addActivityInstanceToCase(c.getId(), ai.getId()));
+			for (SLEXMMEvent ev: events) {
+				assertTrue(session.add(ev));
+			}
+			for (SLEXMMEventAttributeValue v: values) {
+				assertTrue(session.add(v));
+			}
+		}
+
+		int count = 0;
+		SLEXMMEventResultSet erset = mm.getEventsForCase(c.getId());
+		SLEXMMEvent ev = null;
+		while ((ev = erset.getNext()) != null) {
+			assertEquals(events.get(ev.getOrder()).getId(), ev.getId());
+			count++;
+		}
+		assertEquals(events.size(), count);
+	}
+
+	@Test
+	public void concurrentAllocation() throws Exception {
+		final SLEXMMIdAllocator allocator = mm.getIdAllocator(SLEXMMTables.T_OBJECT);
+		allocator.setBlockSize(64);
+		final Set<Integer> ids = Collections.synchronizedSet(new HashSet<Integer>());
+		final int perThread = 1000;
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread th = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int i = 0; i < perThread; i++) {
+						ids.add(allocator.nextId());
+					}
+				}
+			});
+			threads.add(th);
+			th.start();
+		}
+		for (Thread th: threads) {
+			th.join();
+		}
+		assertEquals(4 * perThread, ids.size());
+		assertFalse(ids.contains(-1));
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+public class IndexAdvisorTest {
+
+	private SLEXMMStorageMetaModelImpl mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-idx").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "idx.slexmm");
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void indexesRemoveScans() throws Exception {
+		SLEXMMIndexAdvisor advisor = new SLEXMMIndexAdvisor(mm);
+
+		assertFalse(advisor.getScans(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE).isEmpty());
+		int scansBefore = advisor.analyze().size();
+
+		assertTrue(mm.createIndexes());
+		// Creating them twice is harmless
+		assertTrue(mm.createIndexes());
+
+		assertTrue(advisor.getScans(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE).isEmpty());
+		assertTrue(advisor.analyze().size() < scansBefore);
+
+		assertTrue(mm.dropIndexes());
+		assertFalse(advisor.getScans(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE).isEmpty());
+	}
+
+	@Test
+	public void importLifecycle() throws Exception {
+		SLEXMMIndexAdvisor advisor = new SLEXMMIndexAdvisor(mm);
+		assertTrue(mm.createIndexes());
+		String synchronous = mm.queryPragma(SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".synchronous");
+
+		assertTrue(mm.beginImport());
+		assertTrue(mm.isImporting());
+		assertFalse(mm.beginImport());
+		assertEquals("0", mm.queryPragma(SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".synchronous"));
+		assertFalse(advisor.getScans(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE).isEmpty());
+
+		SLEXMMActivity act = mm.createActivity("A");
+		for (int c = 0; c < 50; c++) {
+			SLEXMMCase cs = mm.createCase("c"+c);
+			SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+			mm.addActivityInstanceToCase(cs, ai);
+			for (int i = 0; i < 4; i++) {
+				mm.createEvent(i, ai.getId(), "complete", "r", i);
+			}
+		}
+
+		assertTrue(mm.endImport(true));
+		assertFalse(mm.isImporting());
+		assertEquals(synchronous, mm.queryPragma(SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".synchronous"));
+		assertTrue(advisor.getScans(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE).isEmpty());
+
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT count(*) FROM "
+				+SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".sqlite_stat1");
+		assertTrue(Integer.parseInt(rset.getNext().getValues()[0]) > 0);
+		rset.close();
+	}
+
+}
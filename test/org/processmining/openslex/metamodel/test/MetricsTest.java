@@ -0,0 +1,108 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.ObjectName;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.metrics.SLEXMMHistogram;
+import org.processmining.openslex.metamodel.metrics.SLEXMMMetrics;
+import org.processmining.openslex.metamodel.metrics.SLEXMMMetricsReporter;
+
+public class MetricsTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-metrics").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "metrics.slexmm");
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void histogram() {
+		SLEXMMHistogram h = new SLEXMMHistogram();
+		for (int i = 1; i <= 1000; i++) {
+			h.record(i * 1000L);
+		}
+		assertEquals(1000, h.getCount());
+		assertEquals(1000000, h.getMax());
+		long p50 = h.getQuantile(0.5);
+		assertTrue(p50 >= 500000 && p50 < 1000000);
+		assertEquals(1000000, h.getQuantile(1.0));
+	}
+
+	@Test
+	public void queriesAndInserts() throws Exception {
+		SLEXMMMetrics metrics = mm.getMetrics();
+		SLEXMMProcess proc = mm.createProcess("p");
+		SLEXMMLog log = mm.createLog(proc.getId(), "l");
+		for (int i = 0; i < 10; i++) {
+			SLEXMMCase c = mm.createCase("c"+i);
+			mm.addCaseToLog(log.getId(), c.getId());
+		}
+
+		SLEXMMCaseResultSet crset = mm.getCasesForLogs(new int[] {log.getId()});
+		assertEquals(1, (long) metrics.getSnapshot().get("resultSets.open"));
+		int cases = 0;
+		while (crset.getNext() != null) {
+			cases++;
+		}
+		crset.close();
+
+		Map<String, Long> snapshot = metrics.getSnapshot();
+		assertEquals(10, cases);
+		assertEquals(1, (long) snapshot.get("query.select.case.log.count"));
+		assertEquals(10, (long) snapshot.get("query.select.case.log.rows"));
+		assertEquals(0, (long) snapshot.get("resultSets.open"));
+		assertEquals(0, (long) snapshot.get("resultSets.leaked"));
+		assertTrue(snapshot.get("inserts.rows") >= 12);
+		assertTrue(snapshot.containsKey("cache.elements.hits"));
+
+		metrics.reset();
+		assertNull(metrics.getSnapshot().get("query.select.case.log.count"));
+		assertEquals(0, (long) metrics.getSnapshot().get("inserts.rows"));
+	}
+
+	@Test
+	public void jmxAndReporter() throws Exception {
+		SLEXMMMetrics metrics = mm.getMetrics();
+		ObjectName name = metrics.registerMBean();
+		assertEquals(Boolean.TRUE, ManagementFactory.getPlatformMBeanServer().getAttribute(name, "Enabled"));
+
+		final BlockingQueue<Map<String, Long>> reports = new ArrayBlockingQueue<>(16);
+		metrics.startReporter(new SLEXMMMetricsReporter() {
+			@Override
+			public void report(Map<String, Long> snapshot) {
+				reports.offer(snapshot);
+			}
+		}, 10);
+		assertNotNull(reports.poll(5, TimeUnit.SECONDS));
+
+		metrics.close();
+		assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(name));
+	}
+
+}
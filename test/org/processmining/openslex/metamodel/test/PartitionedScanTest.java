@@ -0,0 +1,140 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+
+public class PartitionedScanTest {
+
+	private static final int EVENTS = 500;
+	private static final int EVENT_ATTRIBUTES = 3;
+	private static final int VERSIONS = 300;
+	private static final int VERSION_ATTRIBUTES = 2;
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-partitioned").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "partitioned.slexmm");
+		SLEXMMActivityInstance ai = mm.createActivityInstance(mm.createActivity("A"));
+		int[] eventAttributes = new int[EVENT_ATTRIBUTES];
+		for (int a = 0; a < EVENT_ATTRIBUTES; a++) {
+			eventAttributes[a] = mm.createEventAttribute("at"+a).getId();
+		}
+		for (int i = 0; i < EVENTS; i++) {
+			SLEXMMEvent ev = mm.createEvent(i, ai.getId(), "complete", "r", i);
+			for (int a = 0; a < EVENT_ATTRIBUTES; a++) {
+				mm.createEventAttributeValue(eventAttributes[a], ev.getId(), "v"+i+"."+a, "STRING");
+			}
+		}
+		SLEXMMClass c = mm.createClass(mm.createDatamodel("dm").getId(), "c");
+		int[] attributes = new int[VERSION_ATTRIBUTES];
+		for (int a = 0; a < VERSION_ATTRIBUTES; a++) {
+			attributes[a] = mm.createAttribute(c.getId(), "at"+a).getId();
+		}
+		SLEXMMObject obj = mm.createObject(c.getId());
+		for (int i = 0; i < VERSIONS; i++) {
+			SLEXMMObjectVersion ov = mm.createObjectVersion(obj.getId(), i, i + 1);
+			for (int a = 0; a < VERSION_ATTRIBUTES; a++) {
+				mm.createAttributeValue(attributes[a], ov.getId(), "v"+i+"."+a, "STRING");
+			}
+		}
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void sequentialWithoutReadPool() {
+		boolean wal = mm.getStorageConfig().isWAL();
+		SLEXMMPartitionedScan<SLEXMMEvent> scan = mm.getEventsPartitioned(7);
+		assertFalse(scan.isParallel());
+		assertNull(mm.getReadPool());
+		assertEquals(wal, mm.getStorageConfig().isWAL());
+
+		int count = 0;
+		for (int p = 0; p < scan.getPartitions(); p++) {
+			for (SLEXMMEvent ev: scan.openPartition(p)) {
+				assertTrue(ev.getId() >= scan.getLowerBound(p) && ev.getId() < scan.getUpperBound(p));
+				count++;
+			}
+		}
+		assertEquals(EVENTS, count);
+		try (Stream<SLEXMMEvent> stream = mm.getEventsPartitioned(0).stream()) {
+			assertFalse(stream.isParallel());
+			assertEquals(EVENTS, stream.count());
+		}
+		assertNull(mm.getReadPool());
+	}
+
+	@Test
+	public void rangesCoverAllEvents() {
+		mm.enableReadPool();
+		SLEXMMPartitionedScan<SLEXMMEvent> scan = mm.getEventsPartitioned(7);
+		assertTrue(scan.isParallel());
+		assertEquals(7, scan.getPartitions());
+		int count = 0;
+		for (int p = 0; p < scan.getPartitions(); p++) {
+			assertEquals(scan.getUpperBound(p), p + 1 < scan.getPartitions() ?
+					scan.getLowerBound(p + 1) : scan.getUpperBound(p));
+			for (SLEXMMEvent ev: scan.openPartition(p)) {
+				assertTrue(ev.getId() >= scan.getLowerBound(p) && ev.getId() < scan.getUpperBound(p));
+				count++;
+			}
+		}
+		assertEquals(EVENTS, count);
+		assertEquals(EVENTS, mm.getEventsPartitioned(0).stream().count());
+	}
+
+	@Test
+	public void rangesDoNotSplitAttributes() {
+		mm.enableReadPool();
+		Map<Integer, Integer> events = new ConcurrentHashMap<>();
+		try (Stream<SLEXMMEvent> stream = mm.getAllEventsAndAttributeValuesPartitioned(9).stream()) {
+			assertTrue(stream.isParallel());
+			stream.forEach(ev -> events.put(ev.getId(), ev.getAttributeValues().size()));
+		}
+		assertEquals(EVENTS, events.size());
+		for (int size: events.values()) {
+			assertEquals(EVENT_ATTRIBUTES, size);
+		}
+
+		Map<Integer, Integer> versions = new ConcurrentHashMap<>();
+		try (Stream<SLEXMMObjectVersion> stream = mm.getAllVersionsAndAttributeValuesPartitioned(5).stream()) {
+			stream.forEach(ov -> versions.put(ov.getId(), ov.getAttributeValues().size()));
+		}
+		assertEquals(VERSIONS, versions.size());
+		for (int size: versions.values()) {
+			assertEquals(VERSION_ATTRIBUTES, size);
+		}
+	}
+
+	@Test
+	public void closingReleasesRanges() {
+		mm.enableReadPool();
+		SLEXMMPartitionedScan<SLEXMMEvent> scan = mm.getEventsPartitioned(4);
+		try (Stream<SLEXMMEvent> stream = scan.stream()) {
+			assertEquals(10, stream.limit(10).count());
+		}
+		assertEquals(0L, (long) mm.getMetrics().getSnapshot().get("resultSets.open"));
+	}
+
+}
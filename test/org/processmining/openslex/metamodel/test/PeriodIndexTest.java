@@ -0,0 +1,151 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+import org.processmining.openslex.utils.MMUtils;
+
+public class PeriodIndexTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+	private long min;
+	private long max;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-period").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "period.slexmm");
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(100);
+		config.setObjects(300);
+		config.setActivityInstancesPerCase(3);
+		config.setEventsPerActivityInstance(2);
+		config.setVersionsPerEvent(1.5);
+		new SLEXMMGenerator(config).generate(mm);
+
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT min(start_timestamp), max(start_timestamp) FROM "
+				+SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".object_version");
+		SLEXMMSQLResult r = rset.getNext();
+		min = Long.parseLong(r.getValues()[0]);
+		max = Long.parseLong(r.getValues()[1]);
+		rset.close();
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private static List<Integer> ids(AbstractRSetElement<?> rset) {
+		List<Integer> ids = new ArrayList<>();
+		AbstractDBElement e = null;
+		while ((e = (AbstractDBElement) rset.getNext()) != null) {
+			ids.add(e.getId());
+		}
+		Collections.sort(ids);
+		return ids;
+	}
+
+	private List<List<Integer>> query(List<SLEXMMPeriod> periods) {
+		List<List<Integer>> results = new ArrayList<>();
+		for (SLEXMMPeriod p: periods) {
+			results.add(ids(mm.getVersionsForPeriod(p)));
+			results.add(ids(mm.getRelationsForPeriod(p)));
+			results.add(ids(mm.getEventsForPeriod(p)));
+			results.add(ids(mm.getObjectsForPeriod(p)));
+			results.add(ids(mm.getCasesForPeriod(p)));
+		}
+		return results;
+	}
+
+	@Test
+	public void sameElementsAsScans() {
+		List<SLEXMMPeriod> periods = new ArrayList<>();
+		Random random = new Random(11);
+		for (int i = 0; i < 20; i++) {
+			long start = min + (long) (random.nextDouble() * (max - min));
+			long end = start + (long) (random.nextDouble() * (max - min) / 10);
+			periods.add(new SLEXMMPeriod(mm, start, end));
+		}
+		periods.add(new SLEXMMPeriod(mm, MMUtils.INFINITE_PAST, (min + max) / 2));
+		periods.add(new SLEXMMPeriod(mm, (min + max) / 2, MMUtils.INFINITE_FUTURE));
+		periods.add(new SLEXMMPeriod(mm, MMUtils.INFINITE_PAST, MMUtils.INFINITE_FUTURE));
+		periods.add(new SLEXMMPeriod(mm, max + 1, max + 2));
+
+		assertFalse(mm.hasPeriodIndex());
+		List<List<Integer>> expected = query(periods);
+
+		assertTrue(mm.createIndexes());
+		assertTrue(mm.hasPeriodIndex());
+		assertEquals(expected, query(periods));
+
+		int nonEmpty = 0;
+		for (List<Integer> ids: expected) {
+			nonEmpty += ids.isEmpty() ? 0 : 1;
+		}
+		assertTrue(nonEmpty > expected.size() / 2);
+
+		assertTrue(mm.dropIndexes());
+		assertFalse(mm.hasPeriodIndex());
+		assertEquals(expected, query(periods));
+	}
+
+	@Test
+	public void writesAreIndexed() throws Exception {
+		assertTrue(mm.createIndexes());
+		SLEXMMObject obj = mm.createObject(mm.getObjects().getNext().getClassId());
+		SLEXMMObjectVersion always = mm.createObjectVersion(obj.getId(), MMUtils.INFINITE_PAST, MMUtils.INFINITE_FUTURE);
+		SLEXMMObjectVersion before = mm.createObjectVersion(obj.getId(), min - 300, min - 200);
+
+		List<Integer> ids = ids(mm.getVersionsForPeriod(new SLEXMMPeriod(mm, max + 1, max + 2)));
+		assertTrue(ids.contains(always.getId()));
+		assertFalse(ids.contains(before.getId()));
+		ids = ids(mm.getVersionsForPeriod(new SLEXMMPeriod(mm, min - 250, min - 240)));
+		assertEquals(2, ids.size());
+		assertTrue(ids.contains(before.getId()));
+
+		// The index is found again when the database is opened
+		mm.disconnect();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "period.slexmm");
+		assertTrue(mm.hasPeriodIndex());
+		ids = ids(mm.getVersionsForPeriod(new SLEXMMPeriod(mm, min - 250, min - 240)));
+		assertTrue(ids.contains(before.getId()));
+
+		// Without the index, the writes do not go through the triggers and
+		// the queries scan the table
+		assertTrue(mm.dropIndexes());
+		assertFalse(mm.hasPeriodIndex());
+		SLEXMMObjectVersion during = mm.createObjectVersion(obj.getId(), min - 260, min - 230);
+		assertNotNull(during);
+		SLEXMMPeriod p = new SLEXMMPeriod(mm, min - 250, min - 240);
+		ids = ids(mm.getVersionsForPeriod(p));
+		assertEquals(3, ids.size());
+		assertTrue(ids.contains(always.getId()));
+		assertTrue(ids.contains(before.getId()));
+		assertTrue(ids.contains(during.getId()));
+
+		// Rebuilt, the index has the writes made without it
+		assertTrue(mm.createIndexes());
+		assertTrue(mm.hasPeriodIndex());
+		assertEquals(ids, ids(mm.getVersionsForPeriod(p)));
+	}
+
+}
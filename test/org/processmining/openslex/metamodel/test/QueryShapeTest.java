@@ -0,0 +1,102 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryShape;
+
+public class QueryShapeTest {
+
+	private static final int RELATIONSHIPS = 4;
+	private static final int OBJECTS = 50;
+	private static final int EVENTS_PER_OBJECT = 40;
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+	private int logId;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-shape").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "shape.slexmm");
+
+		// Every relation reaches the log through all the events of its target version
+		SLEXMMDataModel dm = mm.createDatamodel("dm");
+		SLEXMMClass cA = mm.createClass(dm.getId(), "A");
+		SLEXMMClass cB = mm.createClass(dm.getId(), "B");
+		SLEXMMProcess proc = mm.createProcess("p");
+		SLEXMMLog log = mm.createLog(proc.getId(), "l");
+		logId = log.getId();
+		SLEXMMActivity act = mm.createActivity("A");
+
+		SLEXMMCase cs = mm.createCase("c");
+		mm.addCaseToLog(logId, cs.getId());
+		SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+		mm.addActivityInstanceToCase(cs, ai);
+
+		SLEXMMRelationship[] relationships = new SLEXMMRelationship[RELATIONSHIPS];
+		for (int r = 0; r < RELATIONSHIPS; r++) {
+			relationships[r] = mm.createRelationship("r"+r, cA.getId(), cB.getId());
+		}
+		int order = 0;
+		for (int o = 0; o < OBJECTS; o++) {
+			SLEXMMObjectVersion ovA = mm.createObjectVersion(mm.createObject(cA.getId()).getId(), o, -1);
+			SLEXMMObjectVersion ovB = mm.createObjectVersion(mm.createObject(cB.getId()).getId(), o, -1);
+			for (int e = 0; e < EVENTS_PER_OBJECT; e++) {
+				SLEXMMEvent ev = mm.createEvent(order, ai.getId(), "complete", "r", order);
+				order++;
+				mm.addEventToVersion(ovB.getId(), ev.getId(), "l");
+			}
+			for (SLEXMMRelationship rs: relationships) {
+				mm.createRelation(ovA.getId(), ovB.getId(), rs.getId(), o, -1);
+			}
+		}
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private int countRows(Set<Integer> ids) {
+		int rows = 0;
+		SLEXMMRelationshipResultSet rsset = mm.getRelationshipsForLogs(new int[] {logId});
+		SLEXMMRelationship rs = null;
+		while ((rs = rsset.getNext()) != null) {
+			ids.add(rs.getId());
+			rows++;
+		}
+		rsset.close();
+		return rows;
+	}
+
+	@Test
+	public void relationshipsForLogs() {
+		assertEquals(SLEXMMQueryShape.UNION, mm.getQueryShape());
+		Set<Integer> unionIds = new HashSet<>();
+		int unionRows = countRows(unionIds);
+
+		mm.setQueryShape(SLEXMMQueryShape.SEMI_JOIN);
+		Set<Integer> semiJoinIds = new HashSet<>();
+		int semiJoinRows = countRows(semiJoinIds);
+
+		// Same elements, each once instead of once per relation and event
+		assertEquals(unionIds, semiJoinIds);
+		assertEquals(RELATIONSHIPS, semiJoinRows);
+		assertEquals(RELATIONSHIPS * OBJECTS * EVENTS_PER_OBJECT, unionRows);
+	}
+
+}
@@ -0,0 +1,146 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.querygen.SLEXMMQueryPlan;
+import org.processmining.openslex.metamodel.querygen.SLEXMMStorageQueryGenerator;
+import org.processmining.openslex.metamodel.querygen.SLEXMMTables;
+
+public class QueryTemplateTest {
+
+	private SLEXMMStorageMetaModelImpl mm;
+	private File dir;
+	private int[] caseIds;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-tpl").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "tpl.slexmm");
+		SLEXMMActivity act = mm.createActivity("A");
+		caseIds = new int[10];
+		for (int c = 0; c < caseIds.length; c++) {
+			SLEXMMCase cs = mm.createCase("c"+c);
+			caseIds[c] = cs.getId();
+			SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+			mm.addActivityInstanceToCase(cs, ai);
+			for (int i = 0; i <= c; i++) {
+				mm.createEvent(i, ai.getId(), "complete", "r", i);
+			}
+		}
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private Set<Integer> getEventIds(int[] ids) {
+		Set<Integer> events = new HashSet<>();
+		SLEXMMEventResultSet erset = mm.getEventsForCases(ids);
+		SLEXMMEvent ev = null;
+		while ((ev = erset.getNext()) != null) {
+			events.add(ev.getId());
+		}
+		erset.close();
+		return events;
+	}
+
+	@Test
+	public void arity() {
+		assertEquals(1, SLEXMMStorageQueryGenerator.getTemplateArity(1));
+		assertEquals(4, SLEXMMStorageQueryGenerator.getTemplateArity(3));
+		assertEquals(4, SLEXMMStorageQueryGenerator.getTemplateArity(4));
+		assertEquals(-1, SLEXMMStorageQueryGenerator.getTemplateArity(0));
+		assertEquals(-1, SLEXMMStorageQueryGenerator.getTemplateArity(SLEXMMStorageQueryGenerator.MAX_BOUND_IDS+1));
+	}
+
+	@Test
+	public void statementsAreReused() {
+		// Three ids bind to a template of four parameters
+		assertEquals(1 + 2 + 3, getEventIds(new int[] {caseIds[0], caseIds[1], caseIds[2]}).size());
+		long misses = mm.getStatementCache().getMisses();
+		long hits = mm.getStatementCache().getHits();
+
+		for (int c = 0; c < caseIds.length; c++) {
+			assertEquals(c + 1, getEventIds(new int[] {caseIds[c]}).size());
+		}
+		assertEquals(2 + 3 + 4 + 5, getEventIds(new int[] {caseIds[1], caseIds[2], caseIds[3], caseIds[4]}).size());
+
+		// One template for single ids, the one for four ids was already compiled
+		assertEquals(misses + 1, mm.getStatementCache().getMisses());
+		assertEquals(hits + caseIds.length, mm.getStatementCache().getHits());
+
+	}
+
+	@Test
+	public void plans() {
+		SLEXMMStorageQueryGenerator qgen = mm.getQueryGenerator();
+		SLEXMMQueryPlan plan = qgen.getPlan(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE);
+		assertSame(plan, qgen.getPlan(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE));
+		assertEquals(qgen.getPaths(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE), plan.getPaths());
+		assertTrue(plan.getJoinCount() >= plan.getPathCount());
+		assertSame(qgen.getSelectTemplate(plan, 4), qgen.getSelectTemplate(plan, 4));
+
+		qgen.precomputePlans();
+		int tables = SLEXMMTables.values().length;
+		assertTrue(qgen.getPlans().size() > 1 && qgen.getPlans().size() <= tables * tables);
+		assertSame(plan, qgen.getPlan(SLEXMMTables.T_EVENT, SLEXMMTables.T_CASE));
+	}
+
+	private int[] getManyIds() {
+		// Beyond the ids bound as parameters, with duplicates and ids that do not exist
+		int[] many = new int[5000];
+		for (int i = 0; i < many.length; i++) {
+			many[i] = i % 2 == 0 ? caseIds[(i / 2) % caseIds.length] : 100000 + i;
+		}
+		return many;
+	}
+
+	private int getIdSetRows() throws Exception {
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT count(*) FROM temp.slexmm_idset");
+		int rows = Integer.parseInt(rset.getNext().getValues()[0]);
+		rset.close();
+		return rows;
+	}
+
+	@Test
+	public void idSets() throws Exception {
+		SLEXMMEventResultSet erset = mm.getEventsForCases(getManyIds());
+		assertTrue(getIdSetRows() > 0);
+		int events = 0;
+		while (erset.getNext() != null) {
+			events++;
+		}
+		erset.close();
+		assertEquals(55, events);
+		assertEquals(0, getIdSetRows());
+
+		SLEXMMPeriodResultSet prset = mm.getPeriodsFor(SLEXMMTables.T_CASE, getManyIds());
+		int periods = 0;
+		while (prset.getNext() != null) {
+			periods++;
+		}
+		prset.close();
+		assertEquals(caseIds.length, periods);
+
+		// On the connections of the read pool
+		mm.enableReadPool(2);
+		assertEquals(55, getEventIds(getManyIds()).size());
+		assertEquals(55, getEventIds(getManyIds()).size());
+	}
+
+}
@@ -0,0 +1,150 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+
+public class ReadPoolTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-pool").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "pool.slexmm");
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void parallelReads() throws Exception {
+		SLEXMMActivity act = mm.createActivity("A");
+		final List<SLEXMMCase> cases = new ArrayList<>();
+		for (int c = 0; c < 20; c++) {
+			SLEXMMCase cs = mm.createCase("c"+c);
+			SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+			mm.addActivityInstanceToCase(cs, ai);
+			for (int i = 0; i < 5; i++) {
+				mm.createEvent(i, ai.getId(), "complete", "r", i);
+			}
+			cases.add(cs);
+		}
+
+		SLEXMMReadConnectionPool pool = mm.enableReadPool(3);
+		assertNotNull(pool);
+		assertTrue(mm.getStorageConfig().isWAL());
+
+		final AtomicInteger events = new AtomicInteger();
+		List<Thread> readers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread th = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (SLEXMMCase cs: cases) {
+						SLEXMMEventResultSet erset = mm.getEventsForCase(cs.getId());
+						while (erset.getNext() != null) {
+							events.incrementAndGet();
+						}
+						erset.close();
+					}
+				}
+			});
+			readers.add(th);
+			th.start();
+		}
+		for (Thread th: readers) {
+			th.join();
+		}
+
+		assertEquals(4 * 20 * 5, events.get());
+		assertEquals(4 * 20, pool.getQueries());
+		assertEquals(0, pool.getActiveConnections());
+		assertTrue(pool.getOpenConnections() <= 3);
+
+		// Committed writes are visible to the pool
+		SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+		mm.addActivityInstanceToCase(cases.get(0), ai);
+		mm.createEvent(9, ai.getId(), "complete", "r", 9);
+		SLEXMMEventResultSet erset = mm.getEventsForCase(cases.get(0).getId());
+		int count = 0;
+		while (erset.getNext() != null) {
+			count++;
+		}
+		erset.close();
+		assertEquals(6, count);
+
+		mm.disableReadPool();
+		assertNull(mm.getReadPool());
+	}
+
+	@Test
+	public void configOfTheCallerKept() throws Exception {
+		SLEXMMStorageConfig config = SLEXMMStorageConfig.getDefault();
+		config.setCacheSize(-4000);
+		assertTrue(mm.setStorageConfig(config));
+
+		assertNotNull(mm.enableReadPool(2));
+		assertEquals("OFF", config.getJournalMode());
+		assertNotSame(config, mm.getStorageConfig());
+		assertTrue(mm.getStorageConfig().isWAL());
+		assertEquals(Integer.valueOf(-4000), mm.getStorageConfig().getCacheSize());
+
+		// Without the write-ahead log the readers of the pool would be locked out
+		assertFalse(mm.setStorageConfig(config));
+	}
+
+	@Test(timeout = 60000)
+	public void nestedResultSetsOnOneConnection() throws Exception {
+		SLEXMMActivity act = mm.createActivity("A");
+		List<SLEXMMCase> cases = new ArrayList<>();
+		for (int c = 0; c < 5; c++) {
+			SLEXMMCase cs = mm.createCase("c"+c);
+			SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+			mm.addActivityInstanceToCase(cs, ai);
+			for (int i = 0; i < 3; i++) {
+				mm.createEvent(i, ai.getId(), "complete", "r", i);
+			}
+			cases.add(cs);
+		}
+
+		SLEXMMReadConnectionPool pool = mm.enableReadPool(1);
+		int instances = 0;
+		for (SLEXMMCase cs: cases) {
+			SLEXMMEventResultSet erset = mm.getEventsForCase(cs.getId());
+			SLEXMMEvent ev = null;
+			while ((ev = erset.getNext()) != null) {
+				// A second result set while the first one holds the only connection
+				SLEXMMActivityInstanceResultSet airset = mm.getActivityInstancesForEvent(ev.getId());
+				while (airset.getNext() != null) {
+					instances++;
+				}
+				airset.close();
+			}
+			erset.close();
+		}
+
+		assertEquals(5 * 3, instances);
+		assertEquals(5 + 5 * 3, pool.getQueries());
+		assertEquals(0, pool.getActiveConnections());
+		assertEquals(1, pool.getOpenConnections());
+	}
+
+}
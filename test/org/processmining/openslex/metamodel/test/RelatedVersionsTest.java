@@ -0,0 +1,131 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+import org.processmining.openslex.utils.MMUtils;
+
+public class RelatedVersionsTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+	private int[] ids;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-related").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "related.slexmm");
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(20);
+		config.setObjects(300);
+		config.setVersionsPerObject(3);
+		config.setRelationsPerVersion(2);
+		new SLEXMMGenerator(config).generate(mm);
+		mm.createIndexes();
+		ids = new int[200];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = i * 4 + 1;
+		}
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private static List<String> pairs(SLEXMMObjectVersionResultSet rset) {
+		List<String> pairs = new ArrayList<>();
+		SLEXMMObjectVersion v = null;
+		while ((v = rset.getNext()) != null) {
+			pairs.add(rset.getOriginId()+"-"+v.getId());
+		}
+		Collections.sort(pairs);
+		return pairs;
+	}
+
+	@Test
+	public void sameVersionsAsTheJoin() throws Exception {
+		String alias = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS;
+		List<String> expected = new ArrayList<>();
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT OBJV1.id, OBJV2.id FROM "
+				+alias+".object_version AS OBJV1, "+alias+".object_version AS OBJV2, "+alias+".relation AS RL "
+				+" WHERE (( RL.source_object_version_id = OBJV1.id AND OBJV2.id = RL.target_object_version_id ) "
+				+" OR ( RL.target_object_version_id = OBJV1.id AND OBJV2.id = RL.source_object_version_id )) "
+				+" AND OBJV1.id IN ("+SLEXMMStorageMetaModelImpl.buildStringFromArray(ids)+")");
+		SLEXMMSQLResult r = null;
+		while ((r = rset.getNext()) != null) {
+			expected.add(r.getValues()[0]+"-"+r.getValues()[1]);
+		}
+		rset.close();
+		Collections.sort(expected);
+
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, pairs(mm.getVersionsRelatedToVersions(ids)));
+	}
+
+	@Test
+	public void filtersInSQLAndInMemory() {
+		List<SLEXMMRelation> relations = new ArrayList<>();
+		for (SLEXMMRelation rl: mm.getRelations()) {
+			relations.add(rl);
+		}
+		int relationship = relations.get(0).getRelationshipId();
+		long start = relations.get(relations.size() / 2).getStartTimestamp();
+		SLEXMMPeriod[] periods = { null, new SLEXMMPeriod(mm, start, start + 1000),
+				new SLEXMMPeriod(mm, start, MMUtils.INFINITE_FUTURE) };
+		int[][] relationships = { null, { relationship } };
+
+		for (SLEXMMPeriod p: periods) {
+			for (int[] rs: relationships) {
+				TreeSet<Integer> expected = new TreeSet<>();
+				for (SLEXMMRelation rl: relations) {
+					if (rs != null && rl.getRelationshipId() != rs[0]) {
+						continue;
+					}
+					if (p != null && !((rl.getEndTimestamp() >= p.getStart() || rl.getEndTimestamp() == -1)
+							&& (p.getEnd() == -1 || rl.getStartTimestamp() <= p.getEnd()))) {
+						continue;
+					}
+					if (Arrays.binarySearch(ids, rl.getSourceObjectVersionId()) >= 0) {
+						expected.add(rl.getTargetObjectVersionId());
+					}
+					if (Arrays.binarySearch(ids, rl.getTargetObjectVersionId()) >= 0) {
+						expected.add(rl.getSourceObjectVersionId());
+					}
+				}
+				int[] expectedIds = expected.stream().mapToInt(i -> i).toArray();
+
+				TreeSet<Integer> fromResultSet = new TreeSet<>();
+				for (SLEXMMObjectVersion v: mm.getVersionsRelatedToVersions(ids, rs, p)) {
+					fromResultSet.add(v.getId());
+				}
+				assertEquals(expected, fromResultSet);
+				assertArrayEquals(expectedIds, mm.getIdsOfVersionsRelatedToVersions(ids, rs, p));
+
+				mm.enableGraphIndex();
+				assertTrue(mm.isGraphIndexCurrent());
+				assertArrayEquals(expectedIds, mm.getIdsOfVersionsRelatedToVersions(ids, rs, p));
+				mm.disableGraphIndex();
+			}
+		}
+	}
+
+}
@@ -0,0 +1,86 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+
+public class ResultSetStreamTest {
+
+	private static final int EVENTS = 100;
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+	private SLEXMMActivityInstance ai;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-stream").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "stream.slexmm");
+		ai = mm.createActivityInstance(mm.createActivity("A"));
+		for (int i = 0; i < EVENTS; i++) {
+			mm.createEvent(i, ai.getId(), "complete", "r"+(i % 2), i);
+		}
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private long openResultSets() {
+		return mm.getMetrics().getSnapshot().get("resultSets.open");
+	}
+
+	@Test
+	public void iterate() {
+		int count = 0;
+		for (SLEXMMEvent ev: mm.getEventsForActivityInstance(ai.getId())) {
+			assertNotNull(ev);
+			count++;
+		}
+		assertEquals(EVENTS, count);
+		// Exhaustion closes the result set
+		assertEquals(0, openResultSets());
+	}
+
+	@Test
+	public void streamStopsEarly() {
+		List<Integer> orders;
+		try (Stream<SLEXMMEvent> events = mm.getEventsForActivityInstance(ai.getId()).stream()) {
+			orders = events.filter(ev -> ev.getResource().equals("r1"))
+					.map(SLEXMMEvent::getOrder)
+					.limit(3)
+					.collect(Collectors.toList());
+			assertEquals(1, openResultSets());
+		}
+		assertEquals(3, orders.size());
+		for (int order: orders) {
+			assertEquals(1, order % 2);
+		}
+		// Closing the stream released the statement of the unfinished result set
+		assertEquals(0, openResultSets());
+	}
+
+	@Test
+	public void tryWithResources() {
+		try (SLEXMMEventResultSet erset = mm.getEventsForActivityInstance(ai.getId())) {
+			assertNotNull(erset.getNext());
+		}
+		assertEquals(0, openResultSets());
+	}
+
+}
@@ -0,0 +1,137 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+import org.processmining.openslex.utils.MMUtils;
+
+public class SnapshotSweepTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+	private long min;
+	private long max;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-snapshot").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "snapshot.slexmm");
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(50);
+		config.setObjects(300);
+		config.setVersionsPerObject(4);
+		new SLEXMMGenerator(config).generate(mm);
+
+		SLEXMMSQLResultSet rset = mm.executeSQL("SELECT min(start_timestamp), max(start_timestamp) FROM "
+				+SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".object_version");
+		SLEXMMSQLResult r = rset.getNext();
+		min = Long.parseLong(r.getValues()[0]);
+		max = Long.parseLong(r.getValues()[1]);
+		rset.close();
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	private static Set<Integer> ids(Iterable<? extends AbstractDBElement> elements) {
+		Set<Integer> ids = new HashSet<>();
+		for (AbstractDBElement e: elements) {
+			ids.add(e.getId());
+		}
+		return ids;
+	}
+
+	private static Map<String, String> values(SLEXMMObjectVersion v, Map<SLEXMMAttribute, SLEXMMAttributeValue> atts) {
+		Map<String, String> values = new HashMap<>();
+		for (Map.Entry<SLEXMMAttribute, SLEXMMAttributeValue> e: atts.entrySet()) {
+			values.put(e.getKey().getName(), e.getValue().getValue());
+		}
+		return values;
+	}
+
+	@Test
+	public void sameStateAsPeriodQueries() {
+		try (SLEXMMSnapshotSweep sweep = mm.getSnapshotSweep()) {
+			Set<Integer> previous = new HashSet<>();
+			int steps = 25;
+			for (int i = 0; i <= steps; i++) {
+				long t = min + (max - min) * i / steps;
+				sweep.advanceTo(t);
+				SLEXMMPeriod p = new SLEXMMPeriod(mm, t, t);
+				assertEquals(ids(mm.getVersionsForPeriod(p)), ids(sweep.getVersions()));
+				assertEquals(ids(mm.getRelationsForPeriod(p)), ids(sweep.getRelations()));
+
+				// The changes of the advance lead from the previous snapshot to this one
+				Set<Integer> current = new HashSet<>(previous);
+				current.addAll(ids(sweep.getAddedVersions()));
+				current.removeAll(ids(sweep.getRemovedVersions()));
+				assertEquals(ids(sweep.getVersions()), current);
+				previous = current;
+			}
+			assertFalse(sweep.getVersions().isEmpty());
+			assertFalse(sweep.getRelations().isEmpty());
+
+			for (SLEXMMObjectVersion v: sweep.getVersions()) {
+				assertEquals(values(v, mm.getAttributeValuesForVersion(v)), values(v, v.getAttributeValues()));
+			}
+
+			try {
+				sweep.advanceTo(min);
+				fail("The sweep went back");
+			} catch (IllegalArgumentException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	public void currentState() {
+		SLEXMMSnapshotSweep snapshot = mm.getSnapshot(MMUtils.INFINITE_FUTURE);
+		assertEquals(Long.MAX_VALUE, snapshot.getTimestamp());
+		Set<Integer> expected = new HashSet<>();
+		for (SLEXMMObjectVersion v: mm.getVersions()) {
+			if (v.getEndTimestamp() == MMUtils.INFINITE_FUTURE) {
+				expected.add(v.getId());
+			}
+		}
+		assertEquals(300, expected.size());
+		assertEquals(expected, ids(snapshot.getVersions()));
+		for (SLEXMMRelation r: snapshot.getRelations()) {
+			assertEquals(MMUtils.INFINITE_FUTURE, r.getEndTimestamp());
+		}
+	}
+
+	@Test(timeout = 60000)
+	public void oneConnectionOfTheReadPool() {
+		long t = (min + max) / 2;
+		Set<Integer> expected = ids(mm.getSnapshot(t).getVersions());
+
+		SLEXMMReadConnectionPool pool = mm.enableReadPool(1);
+		try (SLEXMMSnapshotSweep sweep = mm.getSnapshotSweep()) {
+			assertEquals(1, pool.getOpenConnections());
+			sweep.advanceTo(t);
+			assertEquals(expected, ids(sweep.getVersions()));
+		}
+		assertEquals(0, pool.getActiveConnections());
+	}
+
+}
@@ -0,0 +1,61 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+
+public class StorageConfigTest {
+
+	private static final String SYNCHRONOUS = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".synchronous";
+	private static final String JOURNAL_MODE = SLEXMMStorageMetaModelImpl.METAMODEL_ALIAS+".journal_mode";
+
+	private SLEXMMStorageMetaModelImpl mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-cfg").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "cfg.slexmm",
+				new SLEXMMStorageConfig(SLEXMMStorageConfig.Profile.SAFE));
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void profiles() throws Exception {
+		assertEquals("wal", mm.queryPragma(JOURNAL_MODE));
+		assertEquals("2", mm.queryPragma(SYNCHRONOUS));
+
+		assertTrue(mm.setStorageConfig(new SLEXMMStorageConfig(SLEXMMStorageConfig.Profile.WAL_CONCURRENT_READ)));
+		assertEquals("1", mm.queryPragma(SYNCHRONOUS));
+
+		// The import runs with the bulk load settings and restores the configured ones
+		assertTrue(mm.beginImport());
+		assertEquals("off", mm.queryPragma(JOURNAL_MODE));
+		assertTrue(mm.setStorageConfig(new SLEXMMStorageConfig(SLEXMMStorageConfig.Profile.SAFE)));
+		assertEquals("0", mm.queryPragma(SYNCHRONOUS));
+		SLEXMMActivity act = mm.createActivity("A");
+		assertTrue(mm.endImport());
+
+		assertEquals("wal", mm.queryPragma(JOURNAL_MODE));
+		assertEquals("2", mm.queryPragma(SYNCHRONOUS));
+		SLEXMMActivityResultSet arset = mm.getActivities();
+		assertEquals(act.getId(), arset.getNext().getId());
+		arset.close();
+	}
+
+}
@@ -0,0 +1,133 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+import org.processmining.openslex.metamodel.generator.SLEXMMGenerator;
+import org.processmining.openslex.metamodel.generator.SLEXMMGeneratorConfig;
+import org.processmining.openslex.metamodel.graph.SLEXMMTraversal;
+
+public class TraversalTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-traversal").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "traversal.slexmm");
+		SLEXMMGeneratorConfig config = new SLEXMMGeneratorConfig();
+		config.setCases(10);
+		config.setObjects(3000);
+		config.setVersionsPerObject(2);
+		config.setRelationsPerVersion(1);
+		new SLEXMMGenerator(config).generate(mm);
+		mm.createIndexes();
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	/**
+	 * The hops by chaining the queries of related versions.
+	 */
+	private List<Set<Integer>> hops(int[] origins, int maxHops, int[] relationshipIds) {
+		List<Set<Integer>> hops = new ArrayList<>();
+		Set<Integer> visited = new HashSet<>();
+		for (int id: origins) {
+			visited.add(id);
+		}
+		int[] frontier = origins;
+		for (int h = 0; h < maxHops && frontier.length > 0; h++) {
+			TreeSet<Integer> next = new TreeSet<>();
+			for (int id: mm.getIdsOfVersionsRelatedToVersions(frontier, relationshipIds, null)) {
+				if (visited.add(id)) {
+					next.add(id);
+				}
+			}
+			if (next.isEmpty()) {
+				break;
+			}
+			hops.add(next);
+			frontier = next.stream().mapToInt(i -> i).toArray();
+		}
+		return hops;
+	}
+
+	private static List<Set<Integer>> hops(SLEXMMTraversal traversal) {
+		return traversal.stream()
+				.map(ids -> (Set<Integer>) Arrays.stream(ids).boxed().collect(Collectors.toCollection(TreeSet::new)))
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void sameHopsAsChainedQueries() {
+		int[] origins = { 1, 10, 100 };
+		int relationship = mm.getRelations().getNext().getRelationshipId();
+		List<Set<Integer>> expected = hops(origins, 3, null);
+		List<Set<Integer>> expectedFiltered = hops(origins, 6, new int[] { relationship });
+		assertFalse(expected.isEmpty());
+
+		SLEXMMTraversal traversal = mm.getTraversalFromVersions(origins);
+		traversal.setMaxHops(3);
+		assertEquals(expected, hops(traversal));
+		assertEquals(expected.size(), traversal.getHop());
+
+		traversal = mm.getTraversalFromVersions(origins);
+		traversal.setMaxHops(6);
+		traversal.setRelationships(new int[] { relationship });
+		assertEquals(expectedFiltered, hops(traversal));
+
+		// The objects of the versions reached within the hops
+		traversal = mm.getTraversalFromVersions(origins);
+		traversal.setMaxHops(3);
+		TreeSet<Integer> versions = new TreeSet<>();
+		for (Set<Integer> hop: expected) {
+			versions.addAll(hop);
+		}
+		TreeSet<Integer> objects = new TreeSet<>();
+		for (SLEXMMObject o: mm.getObjectsForVersions(versions.stream().mapToInt(i -> i).toArray())) {
+			objects.add(o.getId());
+		}
+		assertArrayEquals(objects.stream().mapToInt(i -> i).toArray(), traversal.getReachedObjects());
+	}
+
+	@Test
+	public void parallelExpansionMatchesSequential() {
+		int[] origins = new int[3000];
+		for (int i = 0; i < origins.length; i++) {
+			origins[i] = i + 1;
+		}
+		SLEXMMTraversal sequential = mm.getTraversalFromVersions(origins);
+		sequential.setParallel(false);
+		SLEXMMTraversal parallel = mm.getTraversalFromVersions(origins);
+		assertTrue(parallel.isParallel());
+
+		List<Set<Integer>> hops = hops(sequential);
+		assertFalse(hops.isEmpty());
+		assertEquals(hops, hops(parallel));
+		assertNull(parallel.next());
+		assertTrue(mm.isGraphIndexCurrent());
+	}
+
+}
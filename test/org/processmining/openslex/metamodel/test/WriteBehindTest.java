@@ -0,0 +1,141 @@
+package org.processmining.openslex.metamodel.test;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.processmining.openslex.metamodel.*;
+
+public class WriteBehindTest {
+
+	private SLEXMMStorageMetaModel mm;
+	private File dir;
+
+	@Before
+	public void init() throws Exception {
+		dir = Files.createTempDirectory("slexmm-wb").toFile();
+		mm = new SLEXMMStorageMetaModelImpl(dir.getAbsolutePath(), "wb.slexmm");
+	}
+
+	@After
+	public void close() {
+		mm.disconnect();
+		for (File f: dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+	}
+
+	@Test
+	public void concurrentExtractors() throws Exception {
+		SLEXMMWriteBehindQueue queue = mm.enableWriteBehind(100, 500);
+		assertTrue(mm.isIdPreallocationEnabled());
+
+		// Written synchronously once the queue is drained
+		final SLEXMMActivity act = mm.createActivity("A");
+		assertTrue(act.getId() > 0);
+
+		final int threads = 4;
+		final int casesPerThread = 50;
+		final int eventsPerCase = 20;
+		final List<SLEXMMCase> cases = new ArrayList<>();
+		List<Thread> extractors = new ArrayList<>();
+		for (int t = 0; t < threads; t++) {
+			Thread th = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					for (int c = 0; c < casesPerThread; c++) {
+						SLEXMMCase cs = mm.createCase("c");
+						SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+						mm.addActivityInstanceToCase(cs.getId(), ai.getId());
+						for (int i = 0; i < eventsPerCase; i++) {
+							mm.createEvent(i, ai.getId(), "complete", "r", i);
+						}
+						synchronized (cases) {
+							cases.add(cs);
+						}
+					}
+				}
+			});
+			extractors.add(th);
+			th.start();
+		}
+		for (Thread th: extractors) {
+			th.join();
+		}
+
+		assertTrue(queue.awaitDurable());
+		assertNull(queue.getError());
+
+		assertEquals(threads * casesPerThread, cases.size());
+		for (SLEXMMCase cs: cases) {
+			int count = 0;
+			SLEXMMEventResultSet erset = mm.getEventsForCase(cs.getId());
+			while (erset.getNext() != null) {
+				count++;
+			}
+			assertEquals(eventsPerCase, count);
+		}
+	}
+
+	@Test
+	public void updatesAreWrittenInOrder() throws Exception {
+		mm.enableWriteBehind();
+		SLEXMMActivity act = mm.createActivity("A");
+		SLEXMMActivityInstance ai = mm.createActivityInstance(act);
+		SLEXMMEvent ev = mm.createEvent(0, ai.getId(), "complete", "r", 1L);
+		ev.setOrder(7);
+		assertTrue(ev.commit());
+
+		assertTrue(mm.disableWriteBehind());
+		assertNull(mm.getWriteBehindQueue());
+
+		assertEquals(7, mm.getEventForId(ev.getId()).getOrder());
+	}
+
+	@Test(timeout = 60000)
+	public void writerEndingStopsTheQueue() throws Exception {
+		SLEXMMWriteBehindQueue queue = mm.enableWriteBehind();
+		SLEXMMActivity act = mm.createActivity("A");
+		assertTrue(queue.awaitDurable());
+
+		Thread writer = null;
+		for (Thread t: Thread.getAllStackTraces().keySet()) {
+			if (t.getName().equals("SLEXMM-write-behind")) {
+				writer = t;
+			}
+		}
+		assertNotNull(writer);
+		writer.interrupt();
+		writer.join();
+
+		// Nothing waits on a writer that is gone
+		assertFalse(queue.isRunning());
+		assertTrue(queue.awaitDurable());
+		assertTrue(mm.disableWriteBehind());
+		assertNotNull(mm.createActivityInstance(act));
+	}
+
+	@Test
+	public void rowsCountedOnceCommitted() throws Exception {
+		SLEXMMActivityInstance ai = mm.createActivityInstance(mm.createActivity("A"));
+		SLEXMMWriteBehindQueue queue = mm.enableWriteBehind(1000, 7);
+		mm.getMetrics().reset();
+		for (int i = 0; i < 50; i++) {
+			mm.createEvent(i, ai.getId(), "complete", "r", i);
+		}
+		assertTrue(queue.awaitDurable());
+		assertEquals(50, (long) mm.getMetrics().getSnapshot().get("inserts.rows"));
+		assertTrue(mm.disableWriteBehind());
+		assertEquals(50, (long) mm.getMetrics().getSnapshot().get("inserts.rows"));
+	}
+
+}
+